@@ -24,6 +24,10 @@ import io.restassured.filter.Filter;
 
 public class RideCore {
   public static final Logger logger = Logger.getLogger(ModelObject.class.getName());
+  /**
+   * @deprecated json-simple parsers are not thread safe; create a parser for each use instead.
+   */
+  @Deprecated
   public static final JSONParser parser = new JSONParser();
   
   public static RequestSpecBuilder nullCheckAndAddFilters(RequestSpecBuilder reqBuilder, Filter... filters) {
@@ -0,0 +1,227 @@
+/*-
+Copyright 2018 Adobe. All rights reserved.
+This file is licensed to you under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License. You may obtain a copy
+of the License at http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software distributed under
+the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+OF ANY KIND, either express or implied. See the License for the specific language
+governing permissions and limitations under the License.
+*/
+
+package com.adobe.ride.core.controllers;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import com.adobe.ride.core.metrics.Timer;
+import io.restassured.response.Response;
+
+/**
+ * Aggregated outcome of a batch of calls fired with
+ * {@link RestApiController#fireBatch(List, int, Mode)}. Outcomes are held in the order of the
+ * calls in the batch.
+ *
+ * @author tedcasey
+ *
+ */
+public class BatchResult {
+
+  /**
+   * How a batch proceeds once one of its calls has failed.
+   */
+  public enum Mode {
+    /** No further calls are started after the first failure; calls in flight still complete. */
+    FAIL_FAST,
+    /** All calls are fired regardless of failures. */
+    CONTINUE_ON_ERROR
+  }
+
+  private final List<Outcome> outcomes;
+  private final long elapsedNanos;
+  private final Timer latency = new Timer();
+
+  BatchResult(Outcome[] outcomes, long elapsedNanos) {
+    this.outcomes = Collections.unmodifiableList(Arrays.asList(outcomes));
+    this.elapsedNanos = elapsedNanos;
+    for (Outcome outcome : outcomes) {
+      if (!outcome.isSkipped()) {
+        latency.record(outcome.latencyNanos);
+      }
+    }
+  }
+
+  /**
+   *
+   * @return List of the outcomes of all calls, in the order of the batch
+   */
+  public List<Outcome> getOutcomes() {
+    return outcomes;
+  }
+
+  /**
+   *
+   * @return List of the outcomes of the calls which failed
+   */
+  public List<Outcome> getFailures() {
+    List<Outcome> failures = new ArrayList<Outcome>();
+    for (Outcome outcome : outcomes) {
+      if (outcome.getFailure() != null) {
+        failures.add(outcome);
+      }
+    }
+    return failures;
+  }
+
+  /**
+   *
+   * @return int number of calls which completed and passed validation
+   */
+  public int getSuccessCount() {
+    int count = 0;
+    for (Outcome outcome : outcomes) {
+      if (outcome.isSuccess()) {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  /**
+   *
+   * @return int number of calls which failed
+   */
+  public int getFailureCount() {
+    return getFailures().size();
+  }
+
+  /**
+   *
+   * @return int number of calls which were not started because the batch failed fast
+   */
+  public int getSkippedCount() {
+    int count = 0;
+    for (Outcome outcome : outcomes) {
+      if (outcome.isSkipped()) {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  /**
+   *
+   * @return boolean indicator of whether every call in the batch succeeded
+   */
+  public boolean isSuccess() {
+    return getSuccessCount() == outcomes.size();
+  }
+
+  /**
+   *
+   * @return long duration of the whole batch in milliseconds
+   */
+  public long getElapsedMillis() {
+    return TimeUnit.NANOSECONDS.toMillis(elapsedNanos);
+  }
+
+  /**
+   * Returns the latency below which the given percentage of the calls which were fired completed.
+   *
+   * @param percentile percentage between 0 and 100 (i.e. 99 for the 99th percentile)
+   * @return double latency in milliseconds, 0 if no calls were fired
+   */
+  public double getLatencyPercentileMillis(double percentile) {
+    return latency.getQuantileSeconds(percentile / 100) * 1000;
+  }
+
+  @Override
+  public String toString() {
+    return "calls: " + outcomes.size() + "; succeeded: " + getSuccessCount() + "; failed: "
+        + getFailureCount() + "; skipped: " + getSkippedCount() + "; elapsed: "
+        + getElapsedMillis() + "ms; p50: " + getLatencyPercentileMillis(50) + "ms; p99: "
+        + getLatencyPercentileMillis(99) + "ms";
+  }
+
+  /**
+   * Outcome of a single call of the batch.
+   */
+  public static class Outcome {
+    private final int index;
+    private final RideCall call;
+    private final Response response;
+    private final Throwable failure;
+    private final long latencyNanos;
+    private final boolean skipped;
+
+    Outcome(int index, RideCall call, Response response, Throwable failure, long latencyNanos,
+        boolean skipped) {
+      this.index = index;
+      this.call = call;
+      this.response = response;
+      this.failure = failure;
+      this.latencyNanos = latencyNanos;
+      this.skipped = skipped;
+    }
+
+    /**
+     *
+     * @return int position of the call within the batch
+     */
+    public int getIndex() {
+      return index;
+    }
+
+    public RideCall getCall() {
+      return call;
+    }
+
+    /**
+     *
+     * @return Response of the call, null if it failed or was skipped
+     */
+    public Response getResponse() {
+      return response;
+    }
+
+    /**
+     *
+     * @return Throwable thrown by the call (i.e. a failed validation), null if it succeeded
+     */
+    public Throwable getFailure() {
+      return failure;
+    }
+
+    /**
+     *
+     * @return double latency of the call in milliseconds
+     */
+    public double getLatencyMillis() {
+      return latencyNanos / 1000000.0;
+    }
+
+    public boolean isSkipped() {
+      return skipped;
+    }
+
+    public boolean isSuccess() {
+      return !skipped && failure == null;
+    }
+
+    @Override
+    public String toString() {
+      if (skipped) {
+        return call + ": skipped";
+      }
+      if (failure == null) {
+        return call + ": passed";
+      }
+      // validation messages span several lines, which are joined to keep one outcome per line
+      String message = String.valueOf(failure.getMessage()).trim();
+      return call + ": " + message.replaceAll("\\s*\n\\s*", " ");
+    }
+  }
+}
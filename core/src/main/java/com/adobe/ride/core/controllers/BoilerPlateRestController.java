@@ -12,9 +12,11 @@ governing permissions and limitations under the License.
 
 package com.adobe.ride.core.controllers;
 
+import com.adobe.ride.core.globals.CoreGlobals;
 import com.adobe.ride.core.globals.Headers;
 import com.adobe.ride.core.globals.Headers.HeaderItem;
 import com.adobe.ride.core.types.ExpectedResponse;
+import com.adobe.ride.core.types.LogLevel;
 import com.adobe.ride.utilities.model.ModelObject;
 import io.restassured.builder.RequestSpecBuilder;
 import io.restassured.filter.Filter;
@@ -31,9 +33,9 @@ import io.restassured.specification.ResponseSpecification;
 public class BoilerPlateRestController extends RestApiController {
 
 
-  private static String DEFAULT_HEADER_VALUE = Headers.JSON_CONTENT_TYPE;
-  private static String UNSUPPORTED_HEADER_VALUE = Headers.XML_CONTENT_TYPE;
-  private static String INVALID_HEADER_VALUE = "Invalid Value";
+  private static volatile String DEFAULT_HEADER_VALUE = Headers.JSON_CONTENT_TYPE;
+  private static volatile String UNSUPPORTED_HEADER_VALUE = Headers.XML_CONTENT_TYPE;
+  private static volatile String INVALID_HEADER_VALUE = "Invalid Value";
 
   /**
    * Two supported header test types.
@@ -196,7 +198,9 @@ public class BoilerPlateRestController extends RestApiController {
     RequestSpecBuilder builder = getTestReqSpecBuilder(reqBuilder, header, testType);
     // validate the request has all the necessary service-specific specs to complete the call.
     RequestSpecBuilder validatedBuilder = validateBuilder(builder, object, method);
-    validatedBuilder.log(LogDetail.ALL);
+    if (CoreGlobals.INSTANCE.getLogLevel() == LogLevel.ALL) {
+      validatedBuilder.log(LogDetail.ALL);
+    }
     return RestApiController.fireRestCall(serviceName, object.getObjectPath(), validatedBuilder,
         expResponse, method, filters);
   }
@@ -233,12 +237,31 @@ public class BoilerPlateRestController extends RestApiController {
     }
 
     RequestSpecBuilder validatedBuilder = validateBuilder(reqBuilder, object, method);
-    validatedBuilder.log(LogDetail.ALL);
+    if (CoreGlobals.INSTANCE.getLogLevel() == LogLevel.ALL) {
+      validatedBuilder.log(LogDetail.ALL);
+    }
     Response response = RestApiController.fireRestCall(serviceName, object.getObjectPath(),
         validatedBuilder, ExpectedResponse.NOT_AUTH_RESPONSE, method);
     return response;
   }
 
+  /**
+   * Method to run every negative header and authorization test of an object concurrently, with
+   * the header values currently set on this controller. See {@link NegativeTestMatrix} to choose
+   * the methods, headers and expected responses.
+   * 
+   * @param serviceName name of the service, which is a mapping to the config folder in the project
+   *        resources
+   * @param object ModelObject, or a subclass thereof, used in conjunction with the calls
+   * @param filters Rest-Assured filters to be used in every header test; the authorization tests
+   *        are sent without them
+   * @return BatchResult holding the outcome of every test
+   */
+  public static BatchResult runNegativeTestMatrix(String serviceName, ModelObject object,
+      Filter... filters) {
+    return new NegativeTestMatrix(serviceName, object, filters).run();
+  }
+
   /**
    * 
    * Set of convenience methods to help with BoilerPlate testing
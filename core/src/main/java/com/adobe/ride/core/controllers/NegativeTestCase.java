@@ -0,0 +1,70 @@
+/*-
+Copyright 2018 Adobe. All rights reserved.
+This file is licensed to you under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License. You may obtain a copy
+of the License at http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software distributed under
+the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+OF ANY KIND, either express or implied. See the License for the specific language
+governing permissions and limitations under the License.
+*/
+
+package com.adobe.ride.core.controllers;
+
+import com.adobe.ride.core.controllers.BoilerPlateRestController.TestType;
+import com.adobe.ride.core.globals.Headers.HeaderItem;
+import io.restassured.builder.RequestSpecBuilder;
+import io.restassured.filter.Filter;
+import io.restassured.http.Method;
+import io.restassured.specification.ResponseSpecification;
+
+/**
+ * Single case of a {@link NegativeTestMatrix}: a call which is valid apart from one header, or
+ * which is sent without authorization.
+ *
+ * @author tedcasey
+ *
+ */
+public class NegativeTestCase extends RideCall {
+  private final HeaderItem header;
+  private final TestType testType;
+
+  NegativeTestCase(String serviceName, String restAPI, RequestSpecBuilder reqBuilder,
+      ResponseSpecification expectedResponse, Method method, HeaderItem header,
+      TestType testType, Filter... filters) {
+    super(serviceName, restAPI, reqBuilder, expectedResponse, method, filters);
+    this.header = header;
+    this.testType = testType;
+  }
+
+  /**
+   *
+   * @return HeaderItem header under test, null for an authorization case
+   */
+  public HeaderItem getHeader() {
+    return header;
+  }
+
+  /**
+   *
+   * @return TestType value given to the header under test, null for an authorization case
+   */
+  public TestType getTestType() {
+    return testType;
+  }
+
+  /**
+   *
+   * @return boolean indicator of whether the call is sent without an Authorization header
+   */
+  public boolean isAuthCase() {
+    return header == null;
+  }
+
+  @Override
+  public String toString() {
+    return super.toString()
+        + (isAuthCase() ? " without Authorization" : " with " + testType + " " + header);
+  }
+}
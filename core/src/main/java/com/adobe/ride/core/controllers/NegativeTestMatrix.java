@@ -0,0 +1,264 @@
+/*-
+Copyright 2018 Adobe. All rights reserved.
+This file is licensed to you under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License. You may obtain a copy
+of the License at http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software distributed under
+the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+OF ANY KIND, either express or implied. See the License for the specific language
+governing permissions and limitations under the License.
+*/
+
+package com.adobe.ride.core.controllers;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.json.simple.JSONObject;
+import com.adobe.ride.core.controllers.BoilerPlateRestController.TestType;
+import com.adobe.ride.core.globals.Headers;
+import com.adobe.ride.core.globals.Headers.HeaderItem;
+import com.adobe.ride.core.types.ExpectedResponse;
+import com.adobe.ride.utilities.model.ModelObject;
+import io.restassured.builder.RequestSpecBuilder;
+import io.restassured.filter.Filter;
+import io.restassured.http.Method;
+import io.restassured.specification.ResponseSpecification;
+
+/**
+ * Runs the boilerplate negative tests of an object concurrently: every combination of method,
+ * header and {@link TestType}, and a call without authorization for every method. Each case is a
+ * call built with its own request, so the cases share nothing but the pooled connections of the
+ * service (see {@link RestApiController#fireBatch(List, int, BatchResult.Mode)}), and the header
+ * values used are fixed for the run when the matrix is created, rather than read from the static
+ * settings of {@link BoilerPlateRestController} while the calls are in flight.
+ *
+ * <pre>
+ * BatchResult result = new NegativeTestMatrix("sampleService", model).concurrency(32).run();
+ * Assert.assertTrue(result.isSuccess(), result.getFailures().toString());
+ * </pre>
+ *
+ * As with the single tests, an INVALID header value is expected to be answered with 406 Not
+ * Acceptable, an UNSUPPORTED one with 415 Unsupported Media Type, and a call without
+ * authorization with 401 Unauthorized. Content-Type cases are only run for methods which send the
+ * object as a body. The filters given to the matrix, which usually authenticate the calls, are only
+ * applied to the header cases; the authorization cases are sent with the filters set by
+ * {@link #authFilters(Filter...)}, none by default, as with
+ * {@link BoilerPlateRestController#negativeAuthTest(Method, String, ModelObject)}.
+ *
+ * @author tedcasey
+ *
+ */
+public class NegativeTestMatrix {
+
+  public static final int DEFAULT_CONCURRENCY = 16;
+
+  private final String serviceName;
+  private final ModelObject object;
+  private final Filter[] filters;
+  private Filter[] authFilters = new Filter[0];
+  private final Map<TestType, ResponseSpecification> expectedResponses =
+      new HashMap<TestType, ResponseSpecification>();
+  private List<Method> headerMethods = Arrays.asList(Method.GET, Method.POST, Method.PUT);
+  private List<Method> authMethods =
+      Arrays.asList(Method.GET, Method.POST, Method.PUT, Method.DELETE);
+  private List<HeaderItem> headers = Arrays.asList(Headers.ACCEPT, Headers.CONTENT_TYPE);
+  private List<TestType> testTypes = Arrays.asList(TestType.values());
+  private String defaultHeaderValue = BoilerPlateRestController.getDefaultHeaderValue();
+  private String unsupportedHeaderValue = BoilerPlateRestController.getUnsupportedHeaderValue();
+  private String invalidHeaderValue = BoilerPlateRestController.getInvalidHeaderValue();
+  private int concurrency = DEFAULT_CONCURRENCY;
+
+  /**
+   * Constructor for the full matrix of an object.
+   *
+   * @param serviceName name of the service, which is a mapping to the config folder in the project
+   *        resources
+   * @param object ModelObject, or a subclass thereof, used in conjunction with the calls
+   * @param filters Rest-Assured filters to be used in every header case
+   */
+  public NegativeTestMatrix(String serviceName, ModelObject object, Filter... filters) {
+    this.serviceName = serviceName;
+    this.object = object;
+    this.filters = filters;
+    expectedResponses.put(TestType.INVALID, ExpectedResponse.NOT_ACCEPTABLE_RESPONSE);
+    expectedResponses.put(TestType.UNSUPPORTED, ExpectedResponse.UNSUPPORTED_MEDIA_TYPE_RESPONSE);
+  }
+
+  /**
+   *
+   * @param methods http actions sent with each header and test type
+   * @return NegativeTestMatrix
+   */
+  public NegativeTestMatrix headerMethods(Method... methods) {
+    headerMethods = Arrays.asList(methods);
+    return this;
+  }
+
+  /**
+   *
+   * @param methods http actions sent without authorization, none to skip the authorization cases
+   * @return NegativeTestMatrix
+   */
+  public NegativeTestMatrix authMethods(Method... methods) {
+    authMethods = Arrays.asList(methods);
+    return this;
+  }
+
+  /**
+   * Sets the filters of the authorization cases, which must not add an Authorization header.
+   *
+   * @param filters Rest-Assured filters to be used in every call sent without authorization
+   * @return NegativeTestMatrix
+   */
+  public NegativeTestMatrix authFilters(Filter... filters) {
+    authFilters = filters;
+    return this;
+  }
+
+  /**
+   *
+   * @param items headers tested, Accept and Content-Type by default
+   * @return NegativeTestMatrix
+   */
+  public NegativeTestMatrix headers(HeaderItem... items) {
+    headers = Arrays.asList(items);
+    return this;
+  }
+
+  /**
+   *
+   * @param types values given to the tested headers
+   * @return NegativeTestMatrix
+   */
+  public NegativeTestMatrix testTypes(TestType... types) {
+    testTypes = Arrays.asList(types);
+    return this;
+  }
+
+  /**
+   * Sets the response expected for a test type, for services which answer it with another status.
+   *
+   * @param testType type of test
+   * @param expectedResponse Rest-assured ResponseSpecification defining the expected response
+   * @return NegativeTestMatrix
+   */
+  public NegativeTestMatrix expect(TestType testType, ResponseSpecification expectedResponse) {
+    expectedResponses.put(testType, expectedResponse);
+    return this;
+  }
+
+  /**
+   *
+   * @param value value of the headers which are not under test
+   * @return NegativeTestMatrix
+   */
+  public NegativeTestMatrix defaultHeaderValue(String value) {
+    defaultHeaderValue = value;
+    return this;
+  }
+
+  /**
+   *
+   * @param value value of the header under test for UNSUPPORTED cases
+   * @return NegativeTestMatrix
+   */
+  public NegativeTestMatrix unsupportedHeaderValue(String value) {
+    unsupportedHeaderValue = value;
+    return this;
+  }
+
+  /**
+   *
+   * @param value value of the header under test for INVALID cases
+   * @return NegativeTestMatrix
+   */
+  public NegativeTestMatrix invalidHeaderValue(String value) {
+    invalidHeaderValue = value;
+    return this;
+  }
+
+  /**
+   *
+   * @param calls maximum number of cases in flight at once
+   * @return NegativeTestMatrix
+   */
+  public NegativeTestMatrix concurrency(int calls) {
+    concurrency = calls;
+    return this;
+  }
+
+  /**
+   * Expands the matrix into its cases, each with a request of its own.
+   *
+   * @return List of the cases, header cases first
+   */
+  public List<NegativeTestCase> cases() {
+    String restAPI = object.getObjectPath();
+    // the object is serialized once, rather than by every call which sends it
+    JSONObject metadata = object.getObjectMetadata();
+    // bytes are sent as they are, whatever the Content-Type under test
+    byte[] body = (metadata == null) ? null
+        : metadata.toJSONString().getBytes(StandardCharsets.UTF_8);
+
+    List<NegativeTestCase> cases = new ArrayList<NegativeTestCase>();
+    for (Method method : headerMethods) {
+      for (HeaderItem header : headers) {
+        if (header == Headers.CONTENT_TYPE && !sendsBody(method)) {
+          continue;
+        }
+        for (TestType testType : testTypes) {
+          String value = (testType == TestType.INVALID) ? invalidHeaderValue
+              : unsupportedHeaderValue;
+          cases.add(new NegativeTestCase(serviceName, restAPI,
+              builder(method, body, header, value), expectedResponses.get(testType), method,
+              header, testType, filters));
+        }
+      }
+    }
+    for (Method method : authMethods) {
+      cases.add(new NegativeTestCase(serviceName, restAPI, builder(method, body, null, null),
+          ExpectedResponse.NOT_AUTH_RESPONSE, method, null, null, authFilters));
+    }
+    return cases;
+  }
+
+  private RequestSpecBuilder builder(Method method, byte[] body, HeaderItem header,
+      String value) {
+    Map<String, String> values = new LinkedHashMap<String, String>();
+    values.put(Headers.CONTENT_TYPE.toString(), defaultHeaderValue);
+    values.put(Headers.ACCEPT.toString(), defaultHeaderValue);
+    values.put(Headers.CLIENT_API_KEY.toString(), Headers.DEFAULT_API_KEY);
+    if (header != null) {
+      values.put(header.toString(), value);
+    }
+    // the builder carries the logging of the current log level, like any other call
+    RequestSpecBuilder builder = RestApiController.getRequestBuilder(false).addHeaders(values);
+    if (body != null && sendsBody(method)) {
+      builder.setBody(body);
+    }
+    return builder;
+  }
+
+  private static boolean sendsBody(Method method) {
+    return method == Method.POST || method == Method.PUT;
+  }
+
+  /**
+   * Fires every case, and waits for all of them to complete. A case which fails is recorded in the
+   * result rather than thrown, and the description of each failed call (see
+   * {@link BatchResult.Outcome#getCall()}) is its {@link NegativeTestCase}.
+   *
+   * @return BatchResult holding the outcome of every case
+   */
+  public BatchResult run() {
+    List<RideCall> calls = Collections.<RideCall>unmodifiableList(cases());
+    return RestApiController.fireBatch(calls, concurrency, BatchResult.Mode.CONTINUE_ON_ERROR);
+  }
+}
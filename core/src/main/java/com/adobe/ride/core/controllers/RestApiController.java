@@ -12,29 +12,56 @@ governing permissions and limitations under the License.
 
 package com.adobe.ride.core.controllers;
 
-import static io.restassured.RestAssured.given;
+import java.io.IOException;
 import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
 import java.util.logging.Level;
 import org.json.simple.JSONObject;
 import org.json.simple.parser.JSONParser;
 import org.json.simple.parser.ParseException;
-import com.adobe.ride.config.aop.TargetServiceConfiguration;
 import com.adobe.ride.config.management.TestProperties;
 import com.adobe.ride.core.RideCore;
+import com.adobe.ride.core.execution.RideExecutors;
+import com.adobe.ride.core.filters.OnFailureLogFilter;
+import com.adobe.ride.core.filters.PhaseTimingFilter;
+import com.adobe.ride.core.globals.CoreGlobals;
 import com.adobe.ride.core.globals.Headers;
+import com.adobe.ride.core.http.AsyncRestClient;
+import com.adobe.ride.core.http.Http2Transport;
+import com.adobe.ride.core.http.HttpCache;
+import com.adobe.ride.core.http.LightweightTransport;
+import com.adobe.ride.core.http.MeteredInputStream;
+import com.adobe.ride.core.http.RestAssuredTransport;
+import com.adobe.ride.core.http.RideTransport;
+import com.adobe.ride.core.http.ServiceConnectionPool;
+import com.adobe.ride.core.http.StreamingResponse;
+import com.adobe.ride.core.http.UploadBody;
+import com.adobe.ride.core.metrics.RideMetrics;
+import com.adobe.ride.core.types.LogLevel;
+import com.adobe.ride.core.types.MimeTypes;
 import com.adobe.ride.utilities.model.ModelObject;
 import io.restassured.RestAssured;
 import io.restassured.builder.RequestSpecBuilder;
 import io.restassured.config.ConnectionConfig;
-import io.restassured.config.EncoderConfig;
 import io.restassured.config.RestAssuredConfig;
 import io.restassured.filter.Filter;
 import io.restassured.filter.log.LogDetail;
 import io.restassured.filter.log.RequestLoggingFilter;
 import io.restassured.http.Method;
 import io.restassured.response.Response;
+import io.restassured.specification.FilterableRequestSpecification;
 import io.restassured.specification.RequestSpecification;
 import io.restassured.specification.ResponseSpecification;
 
@@ -44,7 +71,42 @@ import io.restassured.specification.ResponseSpecification;
  */
 public class RestApiController extends RideCore {
 
-  private final static JSONParser parser = new JSONParser();
+  private static final int MAX_REQUEST_TEMPLATES = 64;
+  private static final Map<List<Object>, RequestTemplate> requestTemplates =
+      new ConcurrentHashMap<List<Object>, RequestTemplate>();
+  private static final Map<String, String> serviceUrls = new ConcurrentHashMap<String, String>();
+  private static volatile RideTransport transport = RideTransport.fromSystemProperty();
+  private static volatile RestAssuredConfig baseConfig;
+  private static volatile RestAssuredConfig requestConfig;
+
+  /**
+   * Applies the Rest-Assured settings Ride has always relied on (relaxed HTTPS validation and the
+   * default connection config) to the global RestAssured.config, for code which also calls
+   * Rest-Assured directly. Requests built by Ride apply their own settings on top of the global
+   * config whether or not this is called, so it is never applied implicitly.
+   */
+  public static void configure() {
+    RestAssured.useRelaxedHTTPSValidation();
+    RestAssured.config = RestAssured.config().connectionConfig(new ConnectionConfig());
+  }
+
+  /**
+   * Returns the config of requests built by Ride: the global config, with relaxed HTTPS validation
+   * and without a charset appended to content types. It is derived again only when the global
+   * config is replaced.
+   */
+  private static RestAssuredConfig getRequestConfig() {
+    RestAssuredConfig base = RestAssured.config();
+    RestAssuredConfig config = requestConfig;
+    if (config == null || base != baseConfig) {
+      config = base.sslConfig(base.getSSLConfig().relaxedHTTPSValidation())
+          .encoderConfig(base.getEncoderConfig()
+              .appendDefaultContentCharsetToContentTypeIfUndefined(false));
+      requestConfig = config;
+      baseConfig = base;
+    }
+    return config;
+  }
 
   public static Map<String, String> getContentAcceptsHeaders() {
     HashMap<String, String> map = new HashMap<String, String>();
@@ -54,44 +116,131 @@ public class RestApiController extends RideCore {
   }
 
   /**
-   * Use to ensure logging is always enabled for RA requests.
+   * Returns a request builder with the default headers and the logging of the current log level
+   * (see {@link CoreGlobals#getLogLevel()}): requests are logged for ALL, buffered and logged only
+   * if the call fails for ON_FAILURE, and left to the filters passed in for CUSTOM and NONE.
    *
    * @param useDefaultHeaders If true, enables default content-type, accept, and client headers
    * @param filters Rest-Assured filters to apply to the request
    * @return RequestSpecBuilder
    */
   public static RequestSpecBuilder getRequestBuilder(boolean useDefaultHeaders, Filter... filters) {
-    RestAssured.useRelaxedHTTPSValidation();
-    ConnectionConfig connectionConfig = new ConnectionConfig();
-    // connectionConfig.dontCloseIdleConnectionsAfterEachResponse();
-    RestAssured.config = RestAssured.config().connectionConfig(connectionConfig);
-    RequestSpecBuilder tmp = new RequestSpecBuilder();
-    tmp.setUrlEncodingEnabled(false);
-    RestAssuredConfig config = RestAssured.config().encoderConfig(
-        (EncoderConfig.encoderConfig().appendDefaultContentCharsetToContentTypeIfUndefined(false)));
-    tmp.setConfig(config);
-
-    // Filter may be null
-    boolean customLogging = false;
-    if (filters != null) {
-      for (Filter f : filters) {
-        tmp.addFilter(f);
-        if (f instanceof RequestLoggingFilter) {
-          customLogging = true;
-        }
+    LogLevel logLevel = CoreGlobals.INSTANCE.getLogLevel();
+    // filters are usually created per call, so only the stable settings are part of the key
+    List<Object> key = new ArrayList<Object>();
+    key.add(logLevel);
+    key.add(useDefaultHeaders);
+    if (useDefaultHeaders) {
+      // header defaults are mutable, so their current values are part of the key
+      key.add(Headers.CONTENT_TYPE.defaultValue());
+      key.add(Headers.ACCEPT.defaultValue());
+      key.add(Headers.CLIENT_API_KEY.defaultValue());
+    }
+
+    RequestTemplate template = requestTemplates.get(key);
+    if (template == null) {
+      if (requestTemplates.size() >= MAX_REQUEST_TEMPLATES) {
+        // only reached if the header defaults keep changing; start over with the current ones
+        requestTemplates.clear();
       }
+      template = requestTemplates.computeIfAbsent(key,
+          k -> new RequestTemplate(logLevel, useDefaultHeaders));
     }
+    return template.newBuilder(filters);
+  }
+
+  /**
+   * Returns the transport through which fireRestCall and fireRestCallWithNoLogging send requests.
+   *
+   * @return RideTransport
+   */
+  public static RideTransport getTransport() {
+    return transport;
+  }
 
-    if (!customLogging) {
-      tmp.log(LogDetail.ALL);
+  /**
+   * Sets the transport through which fireRestCall and fireRestCallWithNoLogging send requests, i.e.
+   * {@link LightweightTransport#INSTANCE} to generate load with less overhead per request.
+   *
+   * @param newTransport transport to be used, null for the default
+   */
+  public static void setTransport(RideTransport newTransport) {
+    transport = (newTransport == null) ? RideTransport.fromSystemProperty() : newTransport;
+  }
+
+  /**
+   * Returns the number of request templates currently cached, one per combination of log level and
+   * default header values in use, up to a fixed bound.
+   *
+   * @return int number of cached request templates
+   */
+  public static int getRequestTemplateCount() {
+    return requestTemplates.size();
+  }
+
+  /**
+   * Clears the cached request templates and service urls, i.e. after the target environment or the
+   * default header values have been changed.
+   */
+  public static void clearRequestTemplates() {
+    requestTemplates.clear();
+    serviceUrls.clear();
+  }
+
+  /**
+   * Immutable, precomputed settings of a request builder for one combination of log level and
+   * default headers. Applying these to a new builder is considerably cheaper than merging a built
+   * RequestSpecification into it.
+   */
+  private static class RequestTemplate {
+    private final Map<String, String> headers;
+    private final LogLevel logLevel;
+
+    RequestTemplate(LogLevel logLevel, boolean useDefaultHeaders) {
+      Map<String, String> headerMap = new HashMap<String, String>();
+      if (useDefaultHeaders) {
+        headerMap.putAll(getContentAcceptsHeaders());
+        headerMap.put(Headers.CLIENT_API_KEY.toString(), Headers.CLIENT_API_KEY.defaultValue());
+      }
+      headers = Collections.unmodifiableMap(headerMap);
+      this.logLevel = logLevel;
     }
 
-    if (useDefaultHeaders) {
-      tmp.addHeaders(getContentAcceptsHeaders());
-      tmp.addHeader(Headers.CLIENT_API_KEY.toString(), Headers.CLIENT_API_KEY.defaultValue());
+    RequestSpecBuilder newBuilder(Filter... filters) {
+      RequestSpecBuilder tmp = new RequestSpecBuilder();
+      tmp.setUrlEncodingEnabled(false);
+      tmp.setConfig(getRequestConfig());
+      // Filter may be null
+      boolean logging = false;
+      if (filters != null) {
+        for (Filter f : filters) {
+          tmp.addFilter(f);
+          if (f instanceof RequestLoggingFilter) {
+            logging = true;
+          }
+        }
+      }
+      if (logLevel == LogLevel.ON_FAILURE) {
+        tmp.addFilter(OnFailureLogFilter.INSTANCE);
+      } else if (logLevel == LogLevel.ALL && !logging) {
+        tmp.log(LogDetail.ALL);
+      }
+      if (!headers.isEmpty()) {
+        tmp.addHeaders(headers);
+      }
+      return tmp;
     }
+  }
 
-    return tmp;
+  /**
+   * Method to look up the url of a target service, which is resolved only once per service.
+   *
+   * @param serviceName name of the service, which is a mapping to the config folder in resources
+   * @return String
+   */
+  protected static String getServiceUrl(String serviceName) {
+    return serviceUrls.computeIfAbsent(serviceName,
+        name -> TestProperties.getInstance().getTargetServiceConfig(name).getURL());
   }
 
   /**
@@ -137,7 +286,8 @@ public class RestApiController extends RideCore {
   }
 
   /**
-   * Static method for making Rest-Assured GET requests.
+   * Static method for making Rest-Assured GET requests. Responses are served from the client-side
+   * cache of the service when one is enabled (see {@link HttpCache}).
    *
    * @param serviceName name of the target service, which is a mapping to the config folder in
    *        resources
@@ -149,7 +299,17 @@ public class RestApiController extends RideCore {
    */
   public static Response get(String serviceName, String restAPI, RequestSpecBuilder reqBuilder,
       ResponseSpecification expectedResponse, Filter... filters) {
-    return fireRestCall(serviceName, restAPI, reqBuilder, expectedResponse, Method.GET, filters);
+    HttpCache cache = HttpCache.forService(serviceName);
+    if (cache == null) {
+      return fireRestCall(serviceName, restAPI, reqBuilder, expectedResponse, Method.GET,
+          filters);
+    }
+    RequestSpecification req = prepRequest(serviceName, reqBuilder, filters);
+    ServiceConnectionPool pool = ServiceConnectionPool.forService(serviceName);
+    RideTransport sender = transportFor(serviceName);
+    return withLogging(logResponse -> cache.get(req, restAPI, expectedResponse,
+        (request, expected) -> send(sender, serviceName, pool, request, restAPI, expected,
+            Method.GET, logResponse)));
   }
 
   /**
@@ -201,6 +361,50 @@ public class RestApiController extends RideCore {
     return fireRestCall(serviceName, restAPI, reqBuilder, expectedResponse, Method.PATCH, filters);
   }
 
+  /**
+   * Static method for making a PATCH request whose body is the RFC 6902 JSON Patch document
+   * describing the changes between two instances of a model.
+   *
+   * @param serviceName name of the target service, which is a mapping to the config folder in
+   *        resources
+   * @param restAPI The specific API to test ex: "/myApi"
+   * @param reqBuilder Rest-Assured RequestSpecBuilder for constructing RA request
+   * @param expectedResponse Rest-Assured ResponseSpecification for validating the response
+   * @param original ModelObject holding the instance currently known to the service
+   * @param updated ModelObject holding the updated instance
+   * @param filters Rest-Assured Filters
+   * @return Response
+   */
+  public static Response jsonPatch(String serviceName, String restAPI,
+      RequestSpecBuilder reqBuilder, ResponseSpecification expectedResponse, ModelObject original,
+      ModelObject updated, Filter... filters) {
+    reqBuilder.setContentType(MimeTypes.JSON_PATCH.toString());
+    reqBuilder.setBody(original.createJsonPatch(updated).toString());
+    return fireRestCall(serviceName, restAPI, reqBuilder, expectedResponse, Method.PATCH, filters);
+  }
+
+  /**
+   * Static method for making a PATCH request whose body is the RFC 7396 merge-patch document
+   * describing the changes between two instances of a model.
+   *
+   * @param serviceName name of the target service, which is a mapping to the config folder in
+   *        resources
+   * @param restAPI The specific API to test ex: "/myApi"
+   * @param reqBuilder Rest-Assured RequestSpecBuilder for constructing RA request
+   * @param expectedResponse Rest-Assured ResponseSpecification for validating the response
+   * @param original ModelObject holding the instance currently known to the service
+   * @param updated ModelObject holding the updated instance
+   * @param filters Rest-Assured Filters
+   * @return Response
+   */
+  public static Response mergePatch(String serviceName, String restAPI,
+      RequestSpecBuilder reqBuilder, ResponseSpecification expectedResponse, ModelObject original,
+      ModelObject updated, Filter... filters) {
+    reqBuilder.setContentType(MimeTypes.MERGE_PATCH.toString());
+    reqBuilder.setBody(original.createMergePatch(updated).toString());
+    return fireRestCall(serviceName, restAPI, reqBuilder, expectedResponse, Method.PATCH, filters);
+  }
+
   /**
    * Static method for making Rest-Assured POST requests.
    *
@@ -233,22 +437,254 @@ public class RestApiController extends RideCore {
     return fireRestCall(serviceName, restAPI, reqBuilder, expectedResponse, Method.PUT, filters);
   }
 
+  /**
+   * Static method for making non-blocking DELETE requests.
+   *
+   * @param serviceName name of the target service, which is a mapping to the config folder in
+   *        resources
+   * @param restAPI The specific API to test ex: "/myApi"
+   * @param reqBuilder Rest-Assured RequestSpecBuilder for constructing RA request
+   * @param expectedResponse Rest-Assured ResponseSpecification for validating the response
+   * @return CompletableFuture which completes with the Response
+   */
+  public static CompletableFuture<Response> deleteAsync(String serviceName, String restAPI,
+      RequestSpecBuilder reqBuilder, ResponseSpecification expectedResponse) {
+    return fireRestCallAsync(serviceName, restAPI, reqBuilder, expectedResponse, Method.DELETE);
+  }
+
+  /**
+   * Static method for making non-blocking GET requests.
+   *
+   * @param serviceName name of the target service, which is a mapping to the config folder in
+   *        resources
+   * @param restAPI The specific API to test ex: "/myApi"
+   * @param reqBuilder Rest-Assured RequestSpecBuilder for constructing RA request
+   * @param expectedResponse Rest-Assured ResponseSpecification for validating the response
+   * @return CompletableFuture which completes with the Response
+   */
+  public static CompletableFuture<Response> getAsync(String serviceName, String restAPI,
+      RequestSpecBuilder reqBuilder, ResponseSpecification expectedResponse) {
+    return fireRestCallAsync(serviceName, restAPI, reqBuilder, expectedResponse, Method.GET);
+  }
+
+  /**
+   * Static method for making non-blocking HEAD requests.
+   *
+   * @param serviceName name of the target service, which is a mapping to the config folder in
+   *        resources
+   * @param restAPI The specific API to test ex: "/myApi"
+   * @param reqBuilder Rest-Assured RequestSpecBuilder for constructing RA request
+   * @param expectedResponse Rest-Assured ResponseSpecification for validating the response
+   * @return CompletableFuture which completes with the Response
+   */
+  public static CompletableFuture<Response> headAsync(String serviceName, String restAPI,
+      RequestSpecBuilder reqBuilder, ResponseSpecification expectedResponse) {
+    return fireRestCallAsync(serviceName, restAPI, reqBuilder, expectedResponse, Method.HEAD);
+  }
+
+  /**
+   * Static method for making non-blocking OPTIONS requests.
+   *
+   * @param serviceName name of the target service, which is a mapping to the config folder in
+   *        resources
+   * @param restAPI The specific API to test ex: "/myApi"
+   * @param reqBuilder Rest-Assured RequestSpecBuilder for constructing RA request
+   * @param expectedResponse Rest-Assured ResponseSpecification for validating the response
+   * @return CompletableFuture which completes with the Response
+   */
+  public static CompletableFuture<Response> optionsAsync(String serviceName, String restAPI,
+      RequestSpecBuilder reqBuilder, ResponseSpecification expectedResponse) {
+    return fireRestCallAsync(serviceName, restAPI, reqBuilder, expectedResponse, Method.OPTIONS);
+  }
+
+  /**
+   * Static method for making non-blocking PATCH requests.
+   *
+   * @param serviceName name of the target service, which is a mapping to the config folder in
+   *        resources
+   * @param restAPI The specific API to test ex: "/myApi"
+   * @param reqBuilder Rest-Assured RequestSpecBuilder for constructing RA request
+   * @param expectedResponse Rest-Assured ResponseSpecification for validating the response
+   * @return CompletableFuture which completes with the Response
+   */
+  public static CompletableFuture<Response> patchAsync(String serviceName, String restAPI,
+      RequestSpecBuilder reqBuilder, ResponseSpecification expectedResponse) {
+    return fireRestCallAsync(serviceName, restAPI, reqBuilder, expectedResponse, Method.PATCH);
+  }
+
+  /**
+   * Static method for making non-blocking POST requests.
+   *
+   * @param serviceName name of the target service, which is a mapping to the config folder in
+   *        resources
+   * @param restAPI The specific API to test ex: "/myApi"
+   * @param reqBuilder Rest-Assured RequestSpecBuilder for constructing RA request
+   * @param expectedResponse Rest-Assured ResponseSpecification for validating the response
+   * @return CompletableFuture which completes with the Response
+   */
+  public static CompletableFuture<Response> postAsync(String serviceName, String restAPI,
+      RequestSpecBuilder reqBuilder, ResponseSpecification expectedResponse) {
+    return fireRestCallAsync(serviceName, restAPI, reqBuilder, expectedResponse, Method.POST);
+  }
+
+  /**
+   * Static method for making non-blocking PUT requests.
+   *
+   * @param serviceName name of the target service, which is a mapping to the config folder in
+   *        resources
+   * @param restAPI The specific API to test ex: "/myApi"
+   * @param reqBuilder Rest-Assured RequestSpecBuilder for constructing RA request
+   * @param expectedResponse Rest-Assured ResponseSpecification for validating the response
+   * @return CompletableFuture which completes with the Response
+   */
+  public static CompletableFuture<Response> putAsync(String serviceName, String restAPI,
+      RequestSpecBuilder reqBuilder, ResponseSpecification expectedResponse) {
+    return fireRestCallAsync(serviceName, restAPI, reqBuilder, expectedResponse, Method.PUT);
+  }
+
+  /**
+   * Static method for making non-blocking REST requests. The request is sent by a shared client
+   * whose few threads serve all requests in flight, so thousands of calls can be outstanding
+   * without a thread for each. The returned future completes with the response once it has been
+   * validated against the expected response, or completes exceptionally if the call fails or the
+   * response does not meet it.
+   *
+   * Rest-Assured filters, including request and response logging, are not applied to
+   * non-blocking calls. Request builders carrying any other filter, i.e. one adding
+   * authentication, are rejected rather than sent without it: set what the filter adds on the
+   * builder instead. Calls to services whose protocol is h2 or h2c are multiplexed over their
+   * HTTP/2 connections (see {@link Http2Transport}).
+   *
+   * @param serviceName name of the service, which is a mapping to the config folder in resources
+   * @param restAPI The specific API to test ex: "/myApi"
+   * @param reqBuilder Rest-Assured RequestSpecBuilder for constructing RA request
+   * @param expectedResponse Rest-Assured ResponseSpecification for validating the response
+   * @param method http action to be invoked (i.e. POST, GET, etc.)
+   * @return CompletableFuture which completes with the Response
+   * @throws IllegalArgumentException if the request builder carries filters other than logging
+   */
+  public static CompletableFuture<Response> fireRestCallAsync(String serviceName, String restAPI,
+      RequestSpecBuilder reqBuilder, ResponseSpecification expectedResponse, Method method) {
+    reqBuilder.setBaseUri(getServiceUrl(serviceName));
+    RequestSpecification req = reqBuilder.build();
+    RideTransport.rejectFilters(req, "non-blocking calls");
+    long start = System.nanoTime();
+    Http2Transport http2 = Http2Transport.forService(serviceName);
+    CompletableFuture<Response> future = (http2 != null)
+        ? http2.sendAsync(req, restAPI, expectedResponse, method)
+        : AsyncRestClient.execute(req, restAPI, expectedResponse, method);
+    return future.whenComplete((response, failure) -> {
+      if (failure != null) {
+        RideMetrics.recordFailure(serviceName, method, req, failure, System.nanoTime() - start);
+      } else {
+        RideMetrics.recordCall(serviceName, method, req, response, System.nanoTime() - start);
+      }
+    });
+  }
+
+  /**
+   * Static method for firing a batch of calls concurrently, continuing after any failures.
+   *
+   * @param calls calls to be fired
+   * @param concurrency maximum number of calls in flight at once
+   * @return BatchResult holding the outcome of each call
+   */
+  public static BatchResult fireBatch(List<RideCall> calls, int concurrency) {
+    return fireBatch(calls, concurrency, BatchResult.Mode.CONTINUE_ON_ERROR);
+  }
+
+  /**
+   * Static method for firing a batch of calls concurrently (i.e. to create or delete the objects
+   * used by a suite). Calls share the pooled connections of their services and run on virtual
+   * threads where the runtime supports them. The method returns once every call which was started
+   * has completed; a failure of one call, including a failed validation of its response, is
+   * recorded in its outcome rather than thrown. Each call is sent from a copy of its request
+   * builder, taken before it is started, so calls may share a builder; the builders passed in are
+   * left as they are.
+   *
+   * @param calls calls to be fired
+   * @param concurrency maximum number of calls in flight at once
+   * @param mode whether the batch stops starting calls after the first failure
+   * @return BatchResult holding the outcome of each call
+   */
+  public static BatchResult fireBatch(List<RideCall> calls, int concurrency,
+      BatchResult.Mode mode) {
+    if (concurrency < 1) {
+      throw new IllegalArgumentException("concurrency must be greater than 0");
+    }
+    BatchResult.Outcome[] outcomes = new BatchResult.Outcome[calls.size()];
+    Semaphore inFlight = new Semaphore(concurrency);
+    AtomicBoolean failed = new AtomicBoolean(false);
+    boolean failFast = (mode == BatchResult.Mode.FAIL_FAST);
+    ExecutorService executor = RideExecutors.newExecutor("ride-batch", concurrency);
+    long start = System.nanoTime();
+    try {
+      for (int i = 0; i < outcomes.length; i++) {
+        RideCall call = calls.get(i);
+        int index = i;
+        inFlight.acquireUninterruptibly();
+        if (failFast && failed.get()) {
+          outcomes[index] = new BatchResult.Outcome(index, call, null, null, 0, true);
+          inFlight.release();
+          continue;
+        }
+        RequestSpecBuilder builder;
+        try {
+          builder = call.copyRequestBuilder();
+        } catch (RuntimeException e) {
+          failed.set(true);
+          outcomes[index] = new BatchResult.Outcome(index, call, null, e, 0, false);
+          inFlight.release();
+          continue;
+        }
+        executor.execute(() -> {
+          long callStart = System.nanoTime();
+          Response response = null;
+          Throwable failure = null;
+          try {
+            response = call.fire(builder);
+          } catch (Throwable t) {
+            failure = t;
+            failed.set(true);
+          }
+          outcomes[index] = new BatchResult.Outcome(index, call, response, failure,
+              System.nanoTime() - callStart, false);
+          inFlight.release();
+        });
+      }
+      // all permits are returned once the last call has completed
+      inFlight.acquireUninterruptibly(concurrency);
+    } finally {
+      executor.shutdown();
+    }
+    return new BatchResult(outcomes, System.nanoTime() - start);
+  }
+
   private static RequestSpecification prepRequest(String serviceName, RequestSpecBuilder reqBuilder,
       Filter... filters) {
     RequestSpecification req;
-    TestProperties tp = TestProperties.getInstance();
-    TargetServiceConfiguration targetService = tp.getTargetServiceConfig(serviceName);
-    reqBuilder.setBaseUri(targetService.getURL());
+    reqBuilder.setBaseUri(getServiceUrl(serviceName));
 
     reqBuilder = nullCheckAndAddFilters(reqBuilder, filters);
 
     req = reqBuilder.build();
+    if (PhaseTimingFilter.isEnabled()) {
+      // the built request is the builder's own, so a builder reused across calls already has it
+      FilterableRequestSpecification spec = (FilterableRequestSpecification) req;
+      PhaseTimingFilter timing = PhaseTimingFilter.forService(serviceName);
+      if (!spec.getDefinedFilters().contains(timing)) {
+        spec.filter(timing);
+      }
+    }
 
     return req;
   }
 
   /**
-   * Static method for making Rest-Assured REST requests.
+   * Static method for making Rest-Assured REST requests. The response is logged according to the
+   * current log level (see {@link CoreGlobals#getLogLevel()}). Requests are sent through the
+   * current transport (see {@link #setTransport(RideTransport)}), or multiplexed over HTTP/2 for
+   * services whose protocol is h2 or h2c.
    * 
    * @param serviceName name of the service, which is a mapping to the config folder in resources
    * @param restAPI The specific API to test ex: "/myApi"
@@ -263,27 +699,27 @@ public class RestApiController extends RideCore {
       Filter... filters) {
 
     RequestSpecification req = prepRequest(serviceName, reqBuilder, filters);
+    ServiceConnectionPool pool = ServiceConnectionPool.forService(serviceName);
+    RideTransport sender = transportFor(serviceName);
+    return withLogging(logResponse -> send(sender, serviceName, pool, req, restAPI,
+        expectedResponse, method, logResponse));
+  }
 
-    switch (method) {
-      case DELETE:
-        return given(req).expect().spec(expectedResponse).log().all().when().delete(restAPI);
-      case GET:
-        return given(req).expect().spec(expectedResponse).log().all().when().get(restAPI);
-      case HEAD:
-        return given(req).expect().spec(expectedResponse).log().all().when().head(restAPI);
-      case OPTIONS:
-        return given(req).expect().spec(expectedResponse).log().all().when().options(restAPI);
-      case PATCH:
-        return given(req).expect().spec(expectedResponse).log().all().when().patch(restAPI);
-      case POST:
-        return given(req).expect().spec(expectedResponse).log().all().when().post(restAPI);
-      case PUT:
-        return given(req).expect().spec(expectedResponse).log().all().when().put(restAPI);
-      case TRACE:
-        return given(req).expect().spec(expectedResponse).log().all().when().request(method,
-            restAPI);
+  /**
+   * Makes a call with the logging of the current log level (see {@link CoreGlobals#getLogLevel()}).
+   *
+   * @param call makes the call, logging the response if it is passed true
+   */
+  private static Response withLogging(Function<Boolean, Response> call) {
+    switch (CoreGlobals.INSTANCE.getLogLevel()) {
+      case ON_FAILURE:
+        // exchanges are only formatted if the call fails
+        return OnFailureLogFilter.logOnFailure(() -> call.apply(false));
+      case CUSTOM:
+      case NONE:
+        return call.apply(false);
       default:
-        return null;
+        return call.apply(true);
     }
   }
 
@@ -303,31 +739,117 @@ public class RestApiController extends RideCore {
       Filter... filters) {
 
     RequestSpecification req = prepRequest(serviceName, reqBuilder, filters);
+    return send(transportFor(serviceName), serviceName,
+        ServiceConnectionPool.forService(serviceName), req, restAPI, expectedResponse, method,
+        false);
+  }
 
-    switch (method) {
-      case DELETE:
-        return given(req).expect().spec(expectedResponse).when().delete(restAPI);
-      case GET:
-        return given(req).expect().spec(expectedResponse).when().get(restAPI);
-      case HEAD:
-        return given(req).expect().spec(expectedResponse).when().head(restAPI);
-      case OPTIONS:
-        return given(req).expect().spec(expectedResponse).when().options(restAPI);
-      case PATCH:
-        return given(req).expect().spec(expectedResponse).when().patch(restAPI);
-      case POST:
-        return given(req).expect().spec(expectedResponse).when().post(restAPI);
-      case PUT:
-        return given(req).expect().spec(expectedResponse).when().put(restAPI);
-      case TRACE:
-        return given(req).expect().spec(expectedResponse).when().request(method, restAPI);
-      default:
-        return null;
+  /**
+   * Sends a request through a transport, recording the call in the metrics of the service (see
+   * {@link RideMetrics}).
+   */
+  private static Response send(RideTransport sender, String serviceName,
+      ServiceConnectionPool pool, RequestSpecification req, String restAPI,
+      ResponseSpecification expectedResponse, Method method, boolean logResponse) {
+    long start = System.nanoTime();
+    Response response;
+    try {
+      response = sender.send(pool, req, restAPI, expectedResponse, method, logResponse);
+    } catch (RuntimeException | Error e) {
+      RideMetrics.recordFailure(serviceName, method, req, e, System.nanoTime() - start);
+      throw e;
+    }
+    RideMetrics.recordCall(serviceName, method, req, response, System.nanoTime() - start);
+    return response;
+  }
+
+  /**
+   * Returns the HTTP/2 transport of services whose protocol is h2 or h2c, and the current transport
+   * for all others.
+   */
+  private static RideTransport transportFor(String serviceName) {
+    Http2Transport http2 = Http2Transport.forService(serviceName);
+    return (http2 != null) ? http2 : transport;
+  }
+
+  /**
+   * Static method for streaming a REST response. The status line and headers are validated as soon
+   * as they are received, and the body is then read from the connection as it is consumed, so
+   * bodies of any size can be downloaded without being held in memory. The body is counted and
+   * hashed as it is read (see {@link MeteredInputStream}).
+   *
+   * Rest-Assured filters, including request and response logging, are not applied to streamed
+   * calls, and only the status line and header expectations of the expected response are
+   * validated. The returned response must be closed. A request builder carrying filters other than
+   * Ride's logging and timing filters is rejected, rather than sent without what they add.
+   *
+   * @param serviceName name of the service, which is a mapping to the config folder in resources
+   * @param restAPI The specific API to test ex: "/myApi"
+   * @param reqBuilder Rest-Assured RequestSpecBuilder for constructing RA request
+   * @param expectedResponse Rest-Assured ResponseSpecification for validating the status line and
+   *        headers
+   * @param method http action to be invoked (i.e. POST, GET, etc.)
+   * @return StreamingResponse
+   * @throws IllegalArgumentException if the request carries filters which would be skipped
+   */
+  public static StreamingResponse streamRestCall(String serviceName, String restAPI,
+      RequestSpecBuilder reqBuilder, ResponseSpecification expectedResponse, Method method) {
+    reqBuilder.setBaseUri(getServiceUrl(serviceName));
+    RequestSpecification req = reqBuilder.build();
+    RideTransport.rejectFilters(req, "streamed calls");
+    try {
+      return StreamingResponse.open(ServiceConnectionPool.forService(serviceName), req, restAPI,
+          expectedResponse, method);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * Static method for uploading a streamed request body (see {@link UploadBody}), which is sent as
+   * it is read or generated, so bodies of any size can be uploaded with a flat heap. The body of
+   * the request builder, if any, is ignored. Once the response has been received, the body holds
+   * the number of bytes sent, their MD5 and the upload throughput.
+   *
+   * As with {@link #streamRestCall(String, String, RequestSpecBuilder, ResponseSpecification,
+   * Method)}, filters are not applied, so a request builder carrying filters other than Ride's
+   * logging and timing filters is rejected; only the status line and headers are validated, and the
+   * returned response must be closed.
+   *
+   * @param serviceName name of the service, which is a mapping to the config folder in resources
+   * @param restAPI The specific API to test ex: "/myApi"
+   * @param reqBuilder Rest-Assured RequestSpecBuilder for constructing RA request
+   * @param body streamed body of the request
+   * @param expectedResponse Rest-Assured ResponseSpecification for validating the status line and
+   *        headers
+   * @param method http action to be invoked (i.e. POST, PUT, etc.)
+   * @return StreamingResponse
+   * @throws IllegalArgumentException if the request carries filters which would be skipped
+   */
+  public static StreamingResponse uploadRestCall(String serviceName, String restAPI,
+      RequestSpecBuilder reqBuilder, UploadBody body, ResponseSpecification expectedResponse,
+      Method method) {
+    reqBuilder.setBaseUri(getServiceUrl(serviceName));
+    RequestSpecification req = reqBuilder.build();
+    RideTransport.rejectFilters(req, "streamed calls");
+    try {
+      return StreamingResponse.open(ServiceConnectionPool.forService(serviceName), req, restAPI,
+          expectedResponse, method, body);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
     }
   }
 
   /**
-   * Static method for making opening a REST input stream.
+   * Static method for making opening a REST input stream. The body is read from the connection as
+   * the stream is consumed (see
+   * {@link #streamRestCall(String, String, RequestSpecBuilder, ResponseSpecification, Method)}),
+   * and closing the stream releases the connection.
+   *
+   * Streamed calls skip Rest-Assured filters, so a call with filters other than Ride's logging and
+   * timing filters, passed in or carried by the request builder (i.e. authentication filters), is
+   * sent through Rest-Assured instead: its filters are applied and its whole response is
+   * validated, but the body is read into memory before the stream is returned.
    * 
    * @param serviceName name of the service, which is a mapping to the config folder in resources
    * @param restAPI The specific API to test ex: "/myApi"
@@ -335,48 +857,26 @@ public class RestApiController extends RideCore {
    * @param expectedResponse Rest-Assured ResponseSpecification for validating the response
    * @param method http action to be invoked (i.e. POST, GET, etc.)
    * @param filters Rest-Assured Filters
-   * @return Response
+   * @return InputStream
    */
   public static InputStream openRestStream(String serviceName, String restAPI,
       RequestSpecBuilder reqBuilder, ResponseSpecification expectedResponse, Method method,
       Filter... filters) {
-    RequestSpecification req;
-    TestProperties tp = TestProperties.getInstance();
-    TargetServiceConfiguration targetService = tp.getTargetServiceConfig(serviceName);
-    reqBuilder.setBaseUri(targetService.getURL());
-
-    reqBuilder = nullCheckAndAddFilters(reqBuilder, filters);
-
-    req = reqBuilder.build();
-
-    switch (method) {
-      case DELETE:
-        return given(req).expect().spec(expectedResponse).log().all().when().delete(restAPI)
-            .asInputStream();
-      case GET:
-        return given(req).expect().spec(expectedResponse).log().all().when().get(restAPI)
-            .asInputStream();
-      case HEAD:
-        return given(req).expect().spec(expectedResponse).log().all().when().head(restAPI)
-            .asInputStream();
-      case OPTIONS:
-        return given(req).expect().spec(expectedResponse).log().all().when().options(restAPI)
-            .asInputStream();
-      case PATCH:
-        return given(req).expect().spec(expectedResponse).log().all().when().patch(restAPI)
-            .asInputStream();
-      case POST:
-        return given(req).expect().spec(expectedResponse).log().all().when().post(restAPI)
-            .asInputStream();
-      case PUT:
-        return given(req).expect().spec(expectedResponse).log().all().when().put(restAPI)
-            .asInputStream();
-      case TRACE:
-        return given(req).expect().spec(expectedResponse).log().all().when()
-            .request(method, restAPI).asInputStream();
-      default:
-        return null;
+    List<Filter> applied = new ArrayList<Filter>(
+        ((FilterableRequestSpecification) reqBuilder.build()).getDefinedFilters());
+    if (filters != null) {
+      applied.addAll(Arrays.asList(filters));
+    }
+    for (Filter filter : applied) {
+      if (filter != null && !RideTransport.isSkippable(filter)) {
+        RequestSpecification req = prepRequest(serviceName, reqBuilder, filters);
+        ServiceConnectionPool pool = ServiceConnectionPool.forService(serviceName);
+        return withLogging(logResponse -> send(RestAssuredTransport.INSTANCE, serviceName, pool,
+            req, restAPI, expectedResponse, method, logResponse)).asInputStream();
+      }
     }
+    return streamRestCall(serviceName, restAPI, reqBuilder, expectedResponse, method)
+        .getInputStream();
   }
 
   /**
@@ -388,7 +888,8 @@ public class RestApiController extends RideCore {
   protected static JSONObject parseResponseBody(String body) {
     JSONObject returnObject = null;
     try {
-      returnObject = (JSONObject) parser.parse(body);
+      // json-simple parsers hold state, so each call uses its own
+      returnObject = (JSONObject) new JSONParser().parse(body);
     } catch (ParseException e) {
       logger.log(Level.SEVERE, e.getMessage());
     }
@@ -0,0 +1,103 @@
+/*-
+Copyright 2018 Adobe. All rights reserved.
+This file is licensed to you under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License. You may obtain a copy
+of the License at http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software distributed under
+the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+OF ANY KIND, either express or implied. See the License for the specific language
+governing permissions and limitations under the License.
+*/
+
+package com.adobe.ride.core.controllers;
+
+import io.restassured.builder.RequestSpecBuilder;
+import io.restassured.filter.Filter;
+import io.restassured.http.Method;
+import io.restassured.response.Response;
+import io.restassured.specification.ResponseSpecification;
+
+/**
+ * Description of a single REST call, so calls can be collected and fired together with
+ * {@link RestApiController#fireBatch(java.util.List, int, BatchResult.Mode)}.
+ *
+ * @author tedcasey
+ *
+ */
+public class RideCall {
+  private final String serviceName;
+  private final String restAPI;
+  private final RequestSpecBuilder reqBuilder;
+  private final ResponseSpecification expectedResponse;
+  private final Method method;
+  private final Filter[] filters;
+
+  /**
+   * Constructor for a call.
+   *
+   * @param serviceName name of the service, which is a mapping to the config folder in resources
+   * @param restAPI The specific API to test ex: "/myApi"
+   * @param reqBuilder Rest-Assured RequestSpecBuilder for constructing RA request
+   * @param expectedResponse Rest-Assured ResponseSpecification for validating the response
+   * @param method http action to be invoked (i.e. POST, GET, etc.)
+   * @param filters Rest-Assured Filters
+   */
+  public RideCall(String serviceName, String restAPI, RequestSpecBuilder reqBuilder,
+      ResponseSpecification expectedResponse, Method method, Filter... filters) {
+    this.serviceName = serviceName;
+    this.restAPI = restAPI;
+    this.reqBuilder = reqBuilder;
+    this.expectedResponse = expectedResponse;
+    this.method = method;
+    this.filters = filters;
+  }
+
+  /**
+   * Fires the call through the RestApiController.
+   *
+   * @return Response
+   */
+  public Response fire() {
+    return fire(reqBuilder);
+  }
+
+  /**
+   * Fires the call with the given request builder in place of its own.
+   *
+   * @param builder Rest-Assured RequestSpecBuilder for constructing RA request
+   * @return Response
+   */
+  Response fire(RequestSpecBuilder builder) {
+    return RestApiController.fireRestCall(serviceName, restAPI, builder, expectedResponse, method,
+        filters);
+  }
+
+  /**
+   * Returns a copy of the request builder of the call. Firing a call sets the url and filters on
+   * its builder, so calls fired concurrently are each given their own copy, even if the caller
+   * shared one builder between them.
+   *
+   * @return RequestSpecBuilder
+   */
+  RequestSpecBuilder copyRequestBuilder() {
+    return new RequestSpecBuilder().addRequestSpecification(reqBuilder.build());
+  }
+
+  public String getServiceName() {
+    return serviceName;
+  }
+
+  public String getRestAPI() {
+    return restAPI;
+  }
+
+  public Method getMethod() {
+    return method;
+  }
+
+  @Override
+  public String toString() {
+    return method + " " + serviceName + restAPI;
+  }
+}
@@ -0,0 +1,335 @@
+/*-
+Copyright 2018 Adobe. All rights reserved.
+This file is licensed to you under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License. You may obtain a copy
+of the License at http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software distributed under
+the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+OF ANY KIND, either express or implied. See the License for the specific language
+governing permissions and limitations under the License.
+*/
+
+package com.adobe.ride.core.execution;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import com.adobe.ride.core.execution.ScenarioRunner.Scenario;
+import com.adobe.ride.core.metrics.Timer;
+
+/**
+ * Driver which starts iterations of a scenario at the fixed rate of a {@link TokenBucket}
+ * (an open model), rather than as fast as earlier iterations complete (a closed model, as with
+ * {@link ScenarioRunner}). Iterations are started on schedule however slowly the service responds,
+ * so a slow service cannot hold back the load it is measured under.
+ *
+ * Latency is measured from the time at which each iteration was scheduled to start, not from the
+ * time at which it actually started, so delays in issuing iterations are included in the latency
+ * reported instead of being omitted. The delay between the scheduled and actual start is reported
+ * separately as the scheduling lag.
+ *
+ * <pre>
+ * RateDriver.Result result = RateDriver.forService("sampleService").run(10, TimeUnit.MINUTES,
+ *     i -&gt; SampleServiceController.createOrUpdateObject(...));
+ * </pre>
+ *
+ * @author tedcasey
+ *
+ */
+public class RateDriver {
+
+  protected static final Logger logger = Logger.getLogger(RateDriver.class.getName());
+
+  public static final int MAX_RECORDED_FAILURES = 100;
+  private static final int MAX_PLATFORM_THREADS = 512;
+
+  private final TokenBucket bucket;
+  private final String name;
+
+  /**
+   * Constructor for a driver.
+   *
+   * @param bucket bucket pacing the iterations, which may be shared with other drivers
+   */
+  public RateDriver(TokenBucket bucket) {
+    this(bucket, "ride-rate");
+  }
+
+  private RateDriver(TokenBucket bucket, String name) {
+    if (bucket == null) {
+      throw new IllegalArgumentException("bucket must not be null");
+    }
+    this.bucket = bucket;
+    this.name = name;
+  }
+
+  /**
+   * Returns a driver paced by the token bucket configured for a service (see {@link TokenBucket}).
+   *
+   * @param serviceName name of the service, which is a mapping to the config folder in resources
+   * @return RateDriver
+   */
+  public static RateDriver forService(String serviceName) {
+    TokenBucket bucket = TokenBucket.forService(serviceName);
+    if (bucket == null) {
+      throw new IllegalArgumentException("No " + TokenBucket.RATE_KEY
+          + " is configured for service " + serviceName);
+    }
+    return new RateDriver(bucket, "ride-rate-" + serviceName);
+  }
+
+  /**
+   * Starts iterations at the rate of the bucket for the given duration, then waits for the
+   * iterations in flight to finish.
+   *
+   * @param duration length of the period over which iterations are started
+   * @param unit unit of the duration
+   * @param scenario scenario to be run
+   * @return Result
+   * @throws InterruptedException if the calling thread is interrupted while waiting
+   */
+  public Result run(long duration, TimeUnit unit, Scenario scenario) throws InterruptedException {
+    return run(Integer.MAX_VALUE, System.nanoTime() + unit.toNanos(duration), scenario);
+  }
+
+  /**
+   * Starts the given number of iterations at the rate of the bucket, then waits for them to finish.
+   *
+   * @param iterations number of iterations to run
+   * @param scenario scenario to be run
+   * @return Result
+   * @throws InterruptedException if the calling thread is interrupted while waiting
+   */
+  public Result run(int iterations, Scenario scenario) throws InterruptedException {
+    return run(iterations, Long.MAX_VALUE, scenario);
+  }
+
+  private Result run(int iterations, long deadline, Scenario scenario)
+      throws InterruptedException {
+    Result result = new Result(bucket.getRatePerSecond());
+    ExecutorService executor = RideExecutors.newExecutor(name, MAX_PLATFORM_THREADS);
+    long start = System.nanoTime();
+    try {
+      for (int i = 0; i < iterations; i++) {
+        long scheduled = bucket.reserve();
+        if (scheduled - deadline >= 0) {
+          break;
+        }
+        TokenBucket.awaitNanoTime(scheduled);
+        long issued = System.nanoTime();
+        result.lag.record(issued - scheduled);
+        result.issued.increment();
+        result.started();
+        int iteration = i;
+        executor.execute(() -> {
+          long begin = System.nanoTime();
+          try {
+            scenario.run(iteration);
+            result.successes.increment();
+          } catch (Throwable t) {
+            result.recordFailure(iteration, t);
+          } finally {
+            long end = System.nanoTime();
+            result.latency.record(end - scheduled);
+            result.serviceTime.record(end - begin);
+            result.inFlight.decrementAndGet();
+          }
+        });
+      }
+      result.issuingNanos = System.nanoTime() - start;
+    } finally {
+      executor.shutdown();
+      while (!executor.awaitTermination(1, TimeUnit.MINUTES)) {
+        logger.info("Waiting for " + result.getInFlight() + " iterations to finish");
+      }
+      result.elapsedNanos = System.nanoTime() - start;
+    }
+    logger.info("Rate driven run finished: " + result);
+    return result;
+  }
+
+  public TokenBucket getBucket() {
+    return bucket;
+  }
+
+  /**
+   * Outcome of a run. Only the first {@link RateDriver#MAX_RECORDED_FAILURES} failures are kept,
+   * and timings are recorded into HdrHistograms (see {@link Timer}), so percentiles cover every
+   * iteration.
+   */
+  public static class Result {
+    private final double targetRate;
+    private final LongAdder issued = new LongAdder();
+    private final LongAdder successes = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger peakInFlight = new AtomicInteger();
+    private final AtomicInteger recordedCount = new AtomicInteger();
+    private final Queue<Throwable> recordedFailures = new ConcurrentLinkedQueue<Throwable>();
+    private final Timer lag = new Timer();
+    private final Timer latency = new Timer();
+    private final Timer serviceTime = new Timer();
+    private volatile long issuingNanos;
+    private volatile long elapsedNanos;
+
+    Result(double targetRate) {
+      this.targetRate = targetRate;
+    }
+
+    private void started() {
+      int current = inFlight.incrementAndGet();
+      peakInFlight.accumulateAndGet(current, Math::max);
+    }
+
+    private void recordFailure(int iteration, Throwable t) {
+      failures.increment();
+      if (recordedCount.getAndIncrement() < MAX_RECORDED_FAILURES) {
+        recordedFailures.add(t);
+        logger.log(Level.FINE, "Iteration " + iteration + " failed", t);
+      }
+    }
+
+    /**
+     *
+     * @return long number of iterations started
+     */
+    public long getIssued() {
+      return issued.sum();
+    }
+
+    /**
+     *
+     * @return long number of iterations which completed without an exception
+     */
+    public long getSuccesses() {
+      return successes.sum();
+    }
+
+    /**
+     *
+     * @return long number of iterations which threw an exception
+     */
+    public long getFailures() {
+      return failures.sum();
+    }
+
+    /**
+     *
+     * @return List of the first exceptions thrown by failed iterations
+     */
+    public List<Throwable> getRecordedFailures() {
+      return Collections.unmodifiableList(new ArrayList<Throwable>(recordedFailures));
+    }
+
+    /**
+     *
+     * @return int number of iterations still running
+     */
+    public int getInFlight() {
+      return inFlight.get();
+    }
+
+    /**
+     *
+     * @return int largest number of iterations running at once
+     */
+    public int getPeakInFlight() {
+      return peakInFlight.get();
+    }
+
+    /**
+     *
+     * @return double rate at which the bucket issued tokens, per second
+     */
+    public double getTargetRate() {
+      return targetRate;
+    }
+
+    /**
+     *
+     * @return double rate at which iterations were actually started, per second
+     */
+    public double getAchievedRate() {
+      return (issuingNanos == 0) ? 0 : getIssued() * 1e9 / issuingNanos;
+    }
+
+    /**
+     * Returns the delay between the scheduled and actual start of the iterations, below which the
+     * given percentage of them fall.
+     *
+     * @param percentile percentage between 0 and 100 (i.e. 99 for the 99th percentile)
+     * @return double lag in milliseconds
+     */
+    public double getLagPercentileMillis(double percentile) {
+      return lag.getQuantileSeconds(percentile / 100) * 1000;
+    }
+
+    /**
+     *
+     * @return double largest delay between the scheduled and actual start of an iteration, in
+     *         milliseconds
+     */
+    public double getMaxLagMillis() {
+      return lag.getMaxSeconds() * 1000;
+    }
+
+    /**
+     * Returns the time from the scheduled start of the iterations to their completion, below which
+     * the given percentage of them fall.
+     *
+     * @param percentile percentage between 0 and 100 (i.e. 99 for the 99th percentile)
+     * @return double latency in milliseconds
+     */
+    public double getLatencyPercentileMillis(double percentile) {
+      return latency.getQuantileSeconds(percentile / 100) * 1000;
+    }
+
+    /**
+     *
+     * @return double largest time from the scheduled start of an iteration to its completion, in
+     *         milliseconds
+     */
+    public double getMaxLatencyMillis() {
+      return latency.getMaxSeconds() * 1000;
+    }
+
+    /**
+     * Returns the time from the actual start of the iterations to their completion, below which
+     * the given percentage of them fall. Unlike the latency, this omits any scheduling lag.
+     *
+     * @param percentile percentage between 0 and 100 (i.e. 99 for the 99th percentile)
+     * @return double service time in milliseconds
+     */
+    public double getServiceTimePercentileMillis(double percentile) {
+      return serviceTime.getQuantileSeconds(percentile / 100) * 1000;
+    }
+
+    /**
+     *
+     * @return long duration of the run in milliseconds, including waiting for the last iterations
+     */
+    public long getElapsedMillis() {
+      return elapsedNanos / 1000000;
+    }
+
+    @Override
+    public String toString() {
+      return "issued: " + getIssued() + "; successes: " + getSuccesses() + "; failures: "
+          + getFailures() + "; target rate: " + targetRate + "/s; achieved rate: "
+          + String.format("%.1f", getAchievedRate()) + "/s; peak in flight: "
+          + getPeakInFlight() + "; lag p99/max: " + getLagPercentileMillis(99) + "/"
+          + getMaxLagMillis() + "ms; latency p50/p99/max: " + getLatencyPercentileMillis(50) + "/"
+          + getLatencyPercentileMillis(99) + "/" + getMaxLatencyMillis() + "ms; elapsed: "
+          + getElapsedMillis() + "ms";
+    }
+  }
+}
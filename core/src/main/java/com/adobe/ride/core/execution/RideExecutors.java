@@ -0,0 +1,139 @@
+/*-
+Copyright 2018 Adobe. All rights reserved.
+This file is licensed to you under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License. You may obtain a copy
+of the License at http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software distributed under
+the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+OF ANY KIND, either express or implied. See the License for the specific language
+governing permissions and limitations under the License.
+*/
+
+package com.adobe.ride.core.execution;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Factory for the executors on which blocking Ride calls are run. On a Java 21 or later runtime
+ * each task runs on its own virtual thread, so thousands of blocking calls can be in flight from
+ * one JVM. On older runtimes, or when the system property <code>ride.virtualThreads</code> is set
+ * to false, tasks run on a fixed pool of platform threads.
+ *
+ * The library is built for Java 8, so the virtual thread API is looked up reflectively.
+ *
+ * A virtual thread which blocks while holding a monitor stays pinned to its carrier thread, so
+ * state shared by the calls run on these executors (pools, caches, rate limiters, metrics) is
+ * guarded with a {@link java.util.concurrent.locks.ReentrantLock} or atomics rather than
+ * <code>synchronized</code>.
+ *
+ * @author tedcasey
+ *
+ */
+public class RideExecutors {
+
+  protected static final Logger logger = Logger.getLogger(RideExecutors.class.getName());
+
+  public static final String VIRTUAL_THREADS_PROPERTY = "ride.virtualThreads";
+
+  private static final Method ofVirtual;
+  private static final Method builderName;
+  private static final Method builderFactory;
+  private static final Method newThreadPerTaskExecutor;
+
+  static {
+    Method virtual = null;
+    Method name = null;
+    Method factory = null;
+    Method perTask = null;
+    try {
+      Class<?> builder = Class.forName("java.lang.Thread$Builder");
+      virtual = Thread.class.getMethod("ofVirtual");
+      name = builder.getMethod("name", String.class, long.class);
+      factory = builder.getMethod("factory");
+      perTask = Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class);
+    } catch (ClassNotFoundException | NoSuchMethodException e) {
+      logger.log(Level.FINE, "Virtual threads are not available on this runtime");
+      virtual = null;
+      name = null;
+      factory = null;
+      perTask = null;
+    }
+    ofVirtual = virtual;
+    builderName = name;
+    builderFactory = factory;
+    newThreadPerTaskExecutor = perTask;
+  }
+
+  private RideExecutors() {}
+
+  /**
+   *
+   * @return boolean indicator of whether tasks will be run on virtual threads
+   */
+  public static boolean isVirtual() {
+    return ofVirtual != null
+        && Boolean.parseBoolean(System.getProperty(VIRTUAL_THREADS_PROPERTY, "true"));
+  }
+
+  /**
+   * Returns a factory of threads for running blocking Ride calls: virtual threads where available,
+   * otherwise daemon platform threads.
+   *
+   * @param name prefix of the names of the threads created
+   * @return ThreadFactory
+   */
+  public static ThreadFactory newThreadFactory(String name) {
+    ThreadFactory factory = newVirtualFactory(name);
+    return (factory != null) ? factory : newPlatformFactory(name);
+  }
+
+  /**
+   * Returns an executor for running blocking Ride calls. With virtual threads every task gets a
+   * new thread; otherwise tasks share a fixed pool of platform threads.
+   *
+   * @param name prefix of the names of the threads created
+   * @param platformThreads number of threads in the pool when virtual threads are not available
+   * @return ExecutorService
+   */
+  public static ExecutorService newExecutor(String name, int platformThreads) {
+    ThreadFactory factory = newVirtualFactory(name);
+    if (factory != null) {
+      try {
+        return (ExecutorService) newThreadPerTaskExecutor.invoke(null, factory);
+      } catch (ReflectiveOperationException e) {
+        logger.log(Level.WARNING, "Unable to create virtual threads, using platform threads", e);
+      }
+    }
+    return Executors.newFixedThreadPool(platformThreads, newPlatformFactory(name));
+  }
+
+  private static ThreadFactory newVirtualFactory(String name) {
+    if (!isVirtual()) {
+      return null;
+    }
+    try {
+      Object builder = builderName.invoke(ofVirtual.invoke(null), name + "-", 0L);
+      return (ThreadFactory) builderFactory.invoke(builder);
+    } catch (ReflectiveOperationException e) {
+      // i.e. a runtime on which virtual threads are still a preview feature
+      logger.log(Level.WARNING, "Unable to create virtual threads, using platform threads", e);
+      return null;
+    }
+  }
+
+  private static ThreadFactory newPlatformFactory(String name) {
+    AtomicLong count = new AtomicLong();
+    return runnable -> {
+      Thread thread = new Thread(runnable, name + "-" + count.getAndIncrement());
+      thread.setDaemon(true);
+      return thread;
+    };
+  }
+}
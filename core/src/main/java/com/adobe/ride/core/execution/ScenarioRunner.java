@@ -0,0 +1,192 @@
+/*-
+Copyright 2018 Adobe. All rights reserved.
+This file is licensed to you under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License. You may obtain a copy
+of the License at http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software distributed under
+the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+OF ANY KIND, either express or implied. See the License for the specific language
+governing permissions and limitations under the License.
+*/
+
+package com.adobe.ride.core.execution;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Runner which executes a blocking scenario a given number of times, with a bound on the number of
+ * iterations in flight at once. Iterations run on virtual threads where the runtime supports them
+ * (see {@link RideExecutors}), so the bound can be in the tens of thousands.
+ *
+ * <pre>
+ * ScenarioRunner.Result result = new ScenarioRunner(10000).run(100000,
+ *     i -&gt; SampleServiceController.createOrUpdateObject(...));
+ * </pre>
+ *
+ * @author tedcasey
+ *
+ */
+public class ScenarioRunner {
+
+  protected static final Logger logger = Logger.getLogger(ScenarioRunner.class.getName());
+
+  public static final int MAX_RECORDED_FAILURES = 100;
+  private static final int MAX_PLATFORM_THREADS = 512;
+
+  private final int maxInFlight;
+
+  /**
+   * Blocking scenario to be run by the runner.
+   */
+  @FunctionalInterface
+  public interface Scenario {
+    /**
+     * Runs one iteration of the scenario. Any exception or error thrown is recorded as a failure of
+     * the iteration.
+     *
+     * @param iteration index of the iteration, from 0
+     * @throws Exception if the iteration fails
+     */
+    void run(int iteration) throws Exception;
+  }
+
+  /**
+   * Constructor for a runner.
+   *
+   * @param maxInFlight maximum number of iterations running at once
+   */
+  public ScenarioRunner(int maxInFlight) {
+    if (maxInFlight < 1) {
+      throw new IllegalArgumentException("maxInFlight must be greater than 0");
+    }
+    this.maxInFlight = maxInFlight;
+  }
+
+  /**
+   * Runs the scenario the given number of times and waits for all of the iterations to finish.
+   *
+   * @param iterations number of iterations to run
+   * @param scenario scenario to be run
+   * @return Result
+   * @throws InterruptedException if the calling thread is interrupted while waiting
+   */
+  public Result run(int iterations, Scenario scenario) throws InterruptedException {
+    Semaphore inFlight = new Semaphore(maxInFlight);
+    Result result = new Result(iterations);
+    ExecutorService executor = RideExecutors.newExecutor("ride-scenario",
+        Math.min(maxInFlight, MAX_PLATFORM_THREADS));
+    long start = System.nanoTime();
+    try {
+      for (int i = 0; i < iterations; i++) {
+        inFlight.acquire();
+        int iteration = i;
+        executor.execute(() -> {
+          try {
+            scenario.run(iteration);
+            result.successes.increment();
+          } catch (Throwable t) {
+            result.recordFailure(iteration, t);
+          } finally {
+            inFlight.release();
+          }
+        });
+      }
+      // all permits are returned once the last iteration has finished
+      inFlight.acquire(maxInFlight);
+    } finally {
+      executor.shutdown();
+      result.elapsedNanos = System.nanoTime() - start;
+    }
+    return result;
+  }
+
+  /**
+   *
+   * @return int maximum number of iterations running at once
+   */
+  public int getMaxInFlight() {
+    return maxInFlight;
+  }
+
+  /**
+   * Outcome of a run. Only the first {@link ScenarioRunner#MAX_RECORDED_FAILURES} failures are
+   * kept.
+   */
+  public static class Result {
+    private final int iterations;
+    private final LongAdder successes = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final AtomicInteger recordedCount = new AtomicInteger();
+    private final Queue<Throwable> recordedFailures = new ConcurrentLinkedQueue<Throwable>();
+    private volatile long elapsedNanos;
+
+    Result(int iterations) {
+      this.iterations = iterations;
+    }
+
+    private void recordFailure(int iteration, Throwable t) {
+      failures.increment();
+      if (recordedCount.getAndIncrement() < MAX_RECORDED_FAILURES) {
+        recordedFailures.add(t);
+        logger.log(Level.FINE, "Iteration " + iteration + " failed", t);
+      }
+    }
+
+    /**
+     *
+     * @return int number of iterations run
+     */
+    public int getIterations() {
+      return iterations;
+    }
+
+    /**
+     *
+     * @return long number of iterations which completed without an exception
+     */
+    public long getSuccesses() {
+      return successes.sum();
+    }
+
+    /**
+     *
+     * @return long number of iterations which threw an exception
+     */
+    public long getFailures() {
+      return failures.sum();
+    }
+
+    /**
+     *
+     * @return List of the first exceptions thrown by failed iterations
+     */
+    public List<Throwable> getRecordedFailures() {
+      return Collections.unmodifiableList(new ArrayList<Throwable>(recordedFailures));
+    }
+
+    /**
+     *
+     * @return long duration of the run in milliseconds
+     */
+    public long getElapsedMillis() {
+      return elapsedNanos / 1000000;
+    }
+
+    @Override
+    public String toString() {
+      return "iterations: " + iterations + "; successes: " + getSuccesses() + "; failures: "
+          + getFailures() + "; elapsed: " + getElapsedMillis() + "ms";
+    }
+  }
+}
@@ -0,0 +1,190 @@
+/*-
+Copyright 2018 Adobe. All rights reserved.
+This file is licensed to you under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License. You may obtain a copy
+of the License at http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software distributed under
+the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+OF ANY KIND, either express or implied. See the License for the specific language
+governing permissions and limitations under the License.
+*/
+
+package com.adobe.ride.core.execution;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Logger;
+import com.adobe.ride.config.management.TestProperties;
+import com.adobe.ride.config.management.TestPropertyType;
+
+/**
+ * Token bucket which paces calls to a service at a fixed rate. Tokens are issued at exact
+ * nanosecond intervals, and the bucket holds at most a given number of unused tokens, so at most
+ * that many calls can be made at once after the bucket has been idle.
+ *
+ * A bucket can be configured for each service in its environment properties, and is shared by all
+ * callers targeting that service:
+ *
+ * <pre>
+ * sampleService.rate.perSecond=250
+ * sampleService.rate.burst=10
+ * </pre>
+ *
+ * @author tedcasey
+ *
+ */
+public class TokenBucket {
+
+  protected static final Logger logger = Logger.getLogger(TokenBucket.class.getName());
+
+  public static final String RATE_KEY = "rate.perSecond";
+  public static final String BURST_KEY = "rate.burst";
+  public static final int DEFAULT_BURST = 1;
+
+  /** Waits shorter than this are spun rather than parked, as parking overshoots. */
+  private static final long SPIN_NANOS = 100000;
+
+  private static final Map<String, TokenBucket> buckets =
+      new ConcurrentHashMap<String, TokenBucket>();
+
+  private final double ratePerSecond;
+  private final int burst;
+  private final double intervalNanos;
+  private final long toleranceNanos;
+  private long next;
+  private double carry = 0;
+  private final ReentrantLock lock = new ReentrantLock();
+
+  /**
+   * Constructor for a bucket.
+   *
+   * @param ratePerSecond number of tokens issued per second
+   * @param burst maximum number of unused tokens held by the bucket
+   */
+  public TokenBucket(double ratePerSecond, int burst) {
+    if (!(ratePerSecond > 0) || Double.isInfinite(ratePerSecond)) {
+      throw new IllegalArgumentException("ratePerSecond must be greater than 0");
+    }
+    if (burst < 1) {
+      throw new IllegalArgumentException("burst must be greater than 0");
+    }
+    this.ratePerSecond = ratePerSecond;
+    this.burst = burst;
+    this.intervalNanos = 1e9 / ratePerSecond;
+    this.toleranceNanos = (long) ((burst - 1) * intervalNanos);
+    this.next = System.nanoTime();
+  }
+
+  /**
+   * Returns the bucket configured for a service in the environment properties, creating it on
+   * first use.
+   *
+   * @param serviceName name of the service, which is a mapping to the config folder in resources
+   * @return TokenBucket, or null if no rate is configured for the service
+   */
+  public static TokenBucket forService(String serviceName) {
+    TokenBucket bucket = buckets.get(serviceName);
+    if (bucket == null && TestProperties.getServiceProperty(TestPropertyType.environment,
+        serviceName, RATE_KEY, null) != null) {
+      bucket = buckets.computeIfAbsent(serviceName, TokenBucket::fromProperties);
+    }
+    return bucket;
+  }
+
+  private static TokenBucket fromProperties(String serviceName) {
+    String rate = TestProperties.getServiceProperty(TestPropertyType.environment, serviceName,
+        RATE_KEY, null);
+    TokenBucket bucket;
+    try {
+      bucket = new TokenBucket(Double.parseDouble(rate), TestProperties
+          .getPropertyAsInt(TestPropertyType.environment, serviceName, BURST_KEY, DEFAULT_BURST));
+    } catch (NumberFormatException e) {
+      throw new IllegalArgumentException(
+          "Invalid " + RATE_KEY + " for service " + serviceName + ": " + rate, e);
+    }
+    logger.info("Created token bucket for service " + serviceName + ": " + bucket);
+    return bucket;
+  }
+
+  /**
+   * Takes the next token without waiting for it.
+   *
+   * @return long time, in {@link System#nanoTime()} terms, at which the token is issued; this is
+   *         in the past if tokens were already available
+   */
+  public long reserve() {
+    lock.lock();
+    try {
+      long floor = System.nanoTime() - toleranceNanos;
+      if (next < floor) {
+        // the bucket is full, so the tokens which would have been issued since are lost
+        next = floor;
+        carry = 0;
+      }
+      long slot = next;
+      carry += intervalNanos;
+      long whole = (long) carry;
+      carry -= whole;
+      next += whole;
+      return slot;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Takes the next token, waiting until it is issued.
+   *
+   * @return long time, in {@link System#nanoTime()} terms, at which the token was issued
+   * @throws InterruptedException if the calling thread is interrupted while waiting
+   */
+  public long acquire() throws InterruptedException {
+    long slot = reserve();
+    awaitNanoTime(slot);
+    return slot;
+  }
+
+  /**
+   * Waits until the given time, parking for most of the wait and spinning for the rest.
+   *
+   * @param deadline time to wait for, in {@link System#nanoTime()} terms
+   * @throws InterruptedException if the calling thread is interrupted while waiting
+   */
+  public static void awaitNanoTime(long deadline) throws InterruptedException {
+    long remaining;
+    while ((remaining = deadline - System.nanoTime()) > 0) {
+      if (Thread.interrupted()) {
+        throw new InterruptedException();
+      }
+      if (remaining > SPIN_NANOS) {
+        LockSupport.parkNanos(remaining - SPIN_NANOS);
+      } else {
+        Thread.yield();
+      }
+    }
+  }
+
+  /**
+   *
+   * @return double number of tokens issued per second
+   */
+  public double getRatePerSecond() {
+    return ratePerSecond;
+  }
+
+  /**
+   *
+   * @return int maximum number of unused tokens held by the bucket
+   */
+  public int getBurst() {
+    return burst;
+  }
+
+  @Override
+  public String toString() {
+    return "rate: " + ratePerSecond + "/s; burst: " + burst;
+  }
+}
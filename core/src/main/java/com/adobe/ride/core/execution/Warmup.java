@@ -0,0 +1,359 @@
+/*-
+Copyright 2018 Adobe. All rights reserved.
+This file is licensed to you under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License. You may obtain a copy
+of the License at http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software distributed under
+the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+OF ANY KIND, either express or implied. See the License for the specific language
+governing permissions and limitations under the License.
+*/
+
+package com.adobe.ride.core.execution;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import com.adobe.ride.config.management.TestProperties;
+import com.adobe.ride.config.management.TestPropertyType;
+import com.adobe.ride.core.controllers.RestApiController;
+import com.adobe.ride.core.http.ServiceConnectionPool;
+import com.adobe.ride.core.types.ExpectedResponse;
+import io.restassured.http.Method;
+
+/**
+ * Warm-up phase run before the calls which are measured, so that the first calls of a run do not
+ * pay for cold connection pools, TLS handshakes, and code which has not yet been compiled. For
+ * each service, connections are opened in its pool ahead of time, and requests are then fired at
+ * it, whatever their status; calls made during the warm-up are left out of the metrics (see
+ * {@link com.adobe.ride.core.metrics.RideMetrics}) and of the phase timings. The report of each
+ * service shows after how many requests the latency stopped improving.
+ *
+ * Settings are read from the environment properties, keyed by service name, i.e.:
+ *
+ * <pre>
+ * MyService.warmup.connections=8
+ * MyService.warmup.requests=200
+ * MyService.warmup.method=GET
+ * MyService.warmup.path=/health
+ * </pre>
+ *
+ * and the warm-up of every declared service is typically run once per suite:
+ *
+ * <pre>
+ * &#64;BeforeSuite
+ * public void warmUp() {
+ *   Warmup.runDeclaredServices();
+ * }
+ * </pre>
+ *
+ * @author tedcasey
+ *
+ */
+public class Warmup {
+
+  protected static final Logger logger = Logger.getLogger(Warmup.class.getName());
+
+  public static final String CONNECTIONS_KEY = "warmup.connections";
+  public static final String REQUESTS_KEY = "warmup.requests";
+  public static final String METHOD_KEY = "warmup.method";
+  public static final String PATH_KEY = "warmup.path";
+
+  public static final int DEFAULT_CONNECTIONS = 4;
+  public static final int DEFAULT_REQUESTS = 100;
+  public static final int CONNECT_TIMEOUT_MILLIS = 10000;
+
+  /** Number of consecutive requests whose median latency is compared. */
+  public static final int WINDOW = 10;
+  /** Amount by which a window may be slower than the last one and still count as stable. */
+  public static final double TOLERANCE = 0.2;
+
+  private static final ThreadLocal<Boolean> active = new ThreadLocal<Boolean>();
+
+  private Warmup() {}
+
+  /**
+   * Returns whether the calling thread is making warm-up calls, whose samples are not recorded.
+   *
+   * @return boolean
+   */
+  public static boolean isActive() {
+    return active.get() != null;
+  }
+
+  /**
+   * Warms up every service declared in the environment properties, one after the other. A service
+   * which cannot be reached is reported, rather than failing the warm-up of the others.
+   *
+   * @return Map of service name to the report of its warm-up, in the order of declaration
+   */
+  public static Map<String, Report> runDeclaredServices() {
+    TestProperties.getInstance();
+    Map<String, Report> reports = new LinkedHashMap<String, Report>();
+    for (String declared : TestProperties.declaredServices) {
+      String serviceName = declared.replaceAll("[\\[\\]\\s]", "");
+      if (!serviceName.isEmpty()) {
+        Report report = run(serviceName);
+        logger.info(report.toString());
+        reports.put(serviceName, report);
+      }
+    }
+    return reports;
+  }
+
+  /**
+   * Warms up a service with the settings of its environment properties.
+   *
+   * @param serviceName name of the service, which is a mapping to the config folder in resources
+   * @return Report
+   */
+  public static Report run(String serviceName) {
+    TestPropertyType env = TestPropertyType.environment;
+    return run(serviceName,
+        TestProperties.getPropertyAsInt(env, serviceName, CONNECTIONS_KEY, DEFAULT_CONNECTIONS),
+        TestProperties.getPropertyAsInt(env, serviceName, REQUESTS_KEY, DEFAULT_REQUESTS),
+        Method.valueOf(TestProperties.getServiceProperty(env, serviceName, METHOD_KEY, "GET")
+            .trim().toUpperCase(Locale.ROOT)),
+        TestProperties.getServiceProperty(env, serviceName, PATH_KEY, "/"));
+  }
+
+  /**
+   * Warms up a service: opens connections in its pool, then fires requests at it, with as many in
+   * flight at once as there are connections.
+   *
+   * @param serviceName name of the service, which is a mapping to the config folder in resources
+   * @param connections number of pooled connections opened ahead of the requests
+   * @param requests number of requests fired
+   * @param method http action of the requests
+   * @param restAPI path of the requests, relative to the url of the service
+   * @return Report
+   */
+  public static Report run(String serviceName, int connections, int requests, Method method,
+      String restAPI) {
+    Report report = new Report(serviceName, requests);
+    long start = System.nanoTime();
+    ServiceConnectionPool pool = ServiceConnectionPool.forService(serviceName);
+    if (pool != null && connections > 0) {
+      try {
+        report.connectionsOpened = pool.prewarm(connections, CONNECT_TIMEOUT_MILLIS);
+      } catch (IOException | RuntimeException e) {
+        logger.log(Level.WARNING, "Unable to open connections to " + serviceName, e);
+        report.connectFailure = e;
+      }
+    }
+    report.connectNanos = System.nanoTime() - start;
+
+    int inFlight = Math.max(1, connections);
+    Semaphore permits = new Semaphore(inFlight);
+    ExecutorService executor = RideExecutors.newExecutor("ride-warmup", inFlight);
+    long requestStart = System.nanoTime();
+    try {
+      for (int i = 0; i < requests; i++) {
+        int index = i;
+        permits.acquireUninterruptibly();
+        executor.execute(() -> {
+          active.set(Boolean.TRUE);
+          long callStart = System.nanoTime();
+          try {
+            RestApiController.fireRestCallWithNoLogging(serviceName, restAPI,
+                RestApiController.getRequestBuilder(false), ExpectedResponse.NO_RESPONSE, method);
+          } catch (Throwable t) {
+            report.failures.increment();
+            logger.log(Level.FINE, "Warm-up request to " + serviceName + " failed", t);
+          } finally {
+            long end = System.nanoTime();
+            report.latencyNanos[index] = end - callStart;
+            report.offsetNanos[index] = end - requestStart;
+            active.remove();
+            permits.release();
+          }
+        });
+      }
+      // all permits are returned once the last request has completed
+      permits.acquireUninterruptibly(inFlight);
+    } finally {
+      executor.shutdown();
+    }
+    report.elapsedNanos = System.nanoTime() - start;
+    report.analyze();
+    return report;
+  }
+
+  /**
+   * Outcome of the warm-up of a service. The latency is considered stable from the first window of
+   * {@value Warmup#WINDOW} requests after which no window had a median latency more than
+   * {@value Warmup#TOLERANCE} above that of the last window.
+   */
+  public static class Report {
+    private final String serviceName;
+    private final long[] latencyNanos;
+    private final long[] offsetNanos;
+    private final LongAdder failures = new LongAdder();
+    private volatile int connectionsOpened = 0;
+    private volatile Exception connectFailure;
+    private volatile long connectNanos;
+    private volatile long elapsedNanos;
+    private double[] windowMedianMillis = new double[0];
+    private int stableWindow = -1;
+
+    Report(String serviceName, int requests) {
+      this.serviceName = serviceName;
+      latencyNanos = new long[requests];
+      offsetNanos = new long[requests];
+    }
+
+    private void analyze() {
+      int windows = latencyNanos.length / WINDOW;
+      windowMedianMillis = new double[windows];
+      for (int w = 0; w < windows; w++) {
+        long[] window = Arrays.copyOfRange(latencyNanos, w * WINDOW, (w + 1) * WINDOW);
+        Arrays.sort(window);
+        windowMedianMillis[w] = window[WINDOW / 2] / 1e6;
+      }
+      if (windows < 2) {
+        return;
+      }
+      double limit = windowMedianMillis[windows - 1] * (1 + TOLERANCE);
+      int first = windows - 1;
+      while (first > 0 && windowMedianMillis[first - 1] <= limit) {
+        first--;
+      }
+      // a latency only matched by the last window has not been seen to settle
+      stableWindow = (first < windows - 1) ? first : -1;
+    }
+
+    public String getServiceName() {
+      return serviceName;
+    }
+
+    /**
+     *
+     * @return int number of connections opened ahead of the requests
+     */
+    public int getConnectionsOpened() {
+      return connectionsOpened;
+    }
+
+    /**
+     *
+     * @return Exception thrown while opening connections, null if they were opened
+     */
+    public Exception getConnectFailure() {
+      return connectFailure;
+    }
+
+    /**
+     *
+     * @return double time spent opening connections, including TLS handshakes, in milliseconds
+     */
+    public double getConnectMillis() {
+      return connectNanos / 1e6;
+    }
+
+    /**
+     *
+     * @return int number of warm-up requests fired
+     */
+    public int getRequests() {
+      return latencyNanos.length;
+    }
+
+    /**
+     *
+     * @return long number of warm-up requests which failed without a response
+     */
+    public long getFailures() {
+      return failures.sum();
+    }
+
+    /**
+     *
+     * @return double duration of the whole warm-up in milliseconds
+     */
+    public double getElapsedMillis() {
+      return elapsedNanos / 1e6;
+    }
+
+    /**
+     *
+     * @return double latency of the first request in milliseconds, 0 if none was fired
+     */
+    public double getFirstLatencyMillis() {
+      return (latencyNanos.length == 0) ? 0 : latencyNanos[0] / 1e6;
+    }
+
+    /**
+     *
+     * @return double[] median latency of each window of requests, in milliseconds
+     */
+    public double[] getWindowMedianMillis() {
+      return windowMedianMillis.clone();
+    }
+
+    /**
+     *
+     * @return boolean indicator of whether the latency stabilized during the warm-up
+     */
+    public boolean isStable() {
+      return stableWindow >= 0;
+    }
+
+    /**
+     *
+     * @return int number of requests fired before the latency stabilized, -1 if it did not
+     */
+    public int getStableAfterRequests() {
+      return isStable() ? stableWindow * WINDOW : -1;
+    }
+
+    /**
+     *
+     * @return double time from the first request until the latency stabilized, in milliseconds,
+     *         -1 if it did not
+     */
+    public double getStableAfterMillis() {
+      if (!isStable()) {
+        return -1;
+      }
+      return (stableWindow == 0) ? 0 : offsetNanos[stableWindow * WINDOW - 1] / 1e6;
+    }
+
+    /**
+     *
+     * @return double median latency once stable (that of the last window), in milliseconds
+     */
+    public double getStableMedianMillis() {
+      return (windowMedianMillis.length == 0) ? 0
+          : windowMedianMillis[windowMedianMillis.length - 1];
+    }
+
+    @Override
+    public String toString() {
+      StringBuilder out = new StringBuilder(String.format(Locale.ROOT,
+          "Warm-up of %s: %d connections opened in %.1fms; %d requests (%d failed) in %.1fms; "
+              + "first %.2fms",
+          serviceName, connectionsOpened, getConnectMillis(), getRequests(), getFailures(),
+          getElapsedMillis(), getFirstLatencyMillis()));
+      if (isStable()) {
+        out.append(String.format(Locale.ROOT,
+            "; stable at a median of %.2fms after %d requests (%.1fms)", getStableMedianMillis(),
+            getStableAfterRequests(), getStableAfterMillis()));
+      } else if (windowMedianMillis.length >= 2) {
+        out.append(String.format(Locale.ROOT,
+            "; not yet stable, last median %.2fms: consider more warm-up requests",
+            getStableMedianMillis()));
+      } else {
+        out.append("; too few requests to judge stability");
+      }
+      return out.toString();
+    }
+  }
+}
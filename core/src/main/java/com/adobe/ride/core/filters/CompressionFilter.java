@@ -0,0 +1,72 @@
+/*-
+Copyright 2018 Adobe. All rights reserved.
+This file is licensed to you under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License. You may obtain a copy
+of the License at http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software distributed under
+the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+OF ANY KIND, either express or implied. See the License for the specific language
+governing permissions and limitations under the License.
+*/
+
+package com.adobe.ride.core.filters;
+
+import com.adobe.ride.core.http.Compression;
+import com.adobe.ride.core.http.CompressionPolicy;
+import io.restassured.filter.Filter;
+import io.restassured.filter.FilterContext;
+import io.restassured.response.Response;
+import io.restassured.specification.FilterableRequestSpecification;
+import io.restassured.specification.FilterableResponseSpecification;
+
+/**
+ * Filter which overrides the {@link CompressionPolicy} of the target service for the calls it is
+ * passed to, i.e. to compare the same call sent with and without compression:
+ *
+ * <pre>
+ * new CompressionFilter(Compression.GZIP, Compression.ZSTD, Compression.GZIP)
+ * </pre>
+ *
+ * Like the policies themselves, it only applies to calls sent through a
+ * {@link com.adobe.ride.core.http.ServiceConnectionPool}.
+ *
+ * @author tedcasey
+ *
+ */
+public class CompressionFilter implements Filter {
+
+  private final CompressionPolicy policy;
+
+  /**
+   *
+   * @param request coding applied to the request body, IDENTITY to send it as it is
+   * @param accepted codings offered for the response, in order of preference
+   */
+  public CompressionFilter(Compression request, Compression... accepted) {
+    this(new CompressionPolicy(request, accepted));
+  }
+
+  /**
+   *
+   * @param policy policy applied to the calls
+   */
+  public CompressionFilter(CompressionPolicy policy) {
+    this.policy = policy;
+  }
+
+  @Override
+  public Response filter(FilterableRequestSpecification requestSpec,
+      FilterableResponseSpecification responseSpec, FilterContext ctx) {
+    CompressionPolicy previous = CompressionPolicy.setCurrent(policy);
+    try {
+      return ctx.next(requestSpec, responseSpec);
+    } finally {
+      CompressionPolicy.setCurrent(previous);
+    }
+  }
+
+  public CompressionPolicy getPolicy() {
+    return policy;
+  }
+}
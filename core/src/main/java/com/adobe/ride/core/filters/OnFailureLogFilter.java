@@ -0,0 +1,151 @@
+/*-
+Copyright 2018 Adobe. All rights reserved.
+This file is licensed to you under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License. You may obtain a copy
+of the License at http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software distributed under
+the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+OF ANY KIND, either express or implied. See the License for the specific language
+governing permissions and limitations under the License.
+*/
+
+package com.adobe.ride.core.filters;
+
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.function.Supplier;
+import io.restassured.RestAssured;
+import io.restassured.filter.Filter;
+import io.restassured.filter.FilterContext;
+import io.restassured.http.Header;
+import io.restassured.http.Headers;
+import io.restassured.response.Response;
+import io.restassured.specification.FilterableRequestSpecification;
+import io.restassured.specification.FilterableResponseSpecification;
+
+/**
+ * Filter used for the ON_FAILURE log level. Each exchange is kept, unformatted, in a small buffer
+ * owned by the calling thread, and is only formatted and printed if the call fails (i.e. the
+ * response does not meet the expected response specification). Successful calls therefore cost no
+ * formatting at all.
+ *
+ * @author tedcasey
+ *
+ */
+public class OnFailureLogFilter implements Filter {
+
+  public static final OnFailureLogFilter INSTANCE = new OnFailureLogFilter();
+
+  /** Number of most recent exchanges kept for each thread. */
+  public static final int MAX_EXCHANGES = 4;
+  /** Number of bytes of each body printed when a call fails. */
+  public static final int MAX_BODY_BYTES = 64 * 1024;
+
+  private static final ThreadLocal<Deque<Exchange>> exchanges =
+      ThreadLocal.withInitial(() -> new ArrayDeque<Exchange>(MAX_EXCHANGES));
+
+  protected OnFailureLogFilter() {}
+
+  @Override
+  public Response filter(FilterableRequestSpecification requestSpec,
+      FilterableResponseSpecification responseSpec, FilterContext ctx) {
+    Deque<Exchange> buffer = exchanges.get();
+    if (buffer.size() == MAX_EXCHANGES) {
+      buffer.removeFirst();
+    }
+    // the request is recorded before it is sent, so failed connections are reported too
+    Exchange exchange = new Exchange(requestSpec);
+    buffer.addLast(exchange);
+    exchange.response = ctx.next(requestSpec, responseSpec);
+    return exchange.response;
+  }
+
+  /**
+   * Runs a call, printing the exchanges it made if it throws. The buffer of the calling thread is
+   * cleared before and after the call.
+   *
+   * @param call call to be run
+   * @param <T> type returned by the call
+   * @return T
+   */
+  public static <T> T logOnFailure(Supplier<T> call) {
+    Deque<Exchange> buffer = exchanges.get();
+    buffer.clear();
+    try {
+      return call.get();
+    } catch (RuntimeException | Error e) {
+      print(buffer, RestAssured.config().getLogConfig().defaultStream());
+      throw e;
+    } finally {
+      buffer.clear();
+    }
+  }
+
+  private static void print(Deque<Exchange> buffer, PrintStream stream) {
+    StringBuilder out = new StringBuilder();
+    for (Exchange exchange : buffer) {
+      FilterableRequestSpecification request = exchange.request;
+      out.append("Request method:\t").append(request.getMethod()).append(System.lineSeparator());
+      out.append("Request URI:\t").append(request.getURI()).append(System.lineSeparator());
+      appendHeaders(out, request.getHeaders());
+      appendBody(out, request.getBody());
+      if (exchange.response != null) {
+        Response response = exchange.response;
+        out.append(System.lineSeparator()).append(response.getStatusLine())
+            .append(System.lineSeparator());
+        appendHeaders(out, response.getHeaders());
+        appendBody(out, response.asByteArray());
+      } else {
+        out.append(System.lineSeparator()).append("No response was received")
+            .append(System.lineSeparator());
+      }
+      out.append(System.lineSeparator());
+    }
+    stream.print(out);
+    stream.flush();
+  }
+
+  private static void appendHeaders(StringBuilder out, Headers headers) {
+    out.append("Headers:").append(System.lineSeparator());
+    for (Header header : headers) {
+      out.append("\t\t").append(header.getName()).append('=').append(header.getValue())
+          .append(System.lineSeparator());
+    }
+  }
+
+  private static void appendBody(StringBuilder out, Object body) {
+    out.append("Body:").append(System.lineSeparator());
+    if (body == null) {
+      out.append("<none>");
+    } else if (body instanceof byte[]) {
+      byte[] bytes = (byte[]) body;
+      int length = Math.min(bytes.length, MAX_BODY_BYTES);
+      out.append(new String(bytes, 0, length, StandardCharsets.UTF_8));
+      if (bytes.length > length) {
+        out.append("... (").append(bytes.length - length).append(" more bytes)");
+      }
+    } else {
+      String text = body.toString();
+      out.append(text, 0, Math.min(text.length(), MAX_BODY_BYTES));
+      if (text.length() > MAX_BODY_BYTES) {
+        out.append("... (truncated)");
+      }
+    }
+    out.append(System.lineSeparator());
+  }
+
+  /**
+   * One request and its response, held as the objects Rest-Assured already built.
+   */
+  private static class Exchange {
+    private final FilterableRequestSpecification request;
+    private Response response;
+
+    Exchange(FilterableRequestSpecification request) {
+      this.request = request;
+    }
+  }
+}
@@ -0,0 +1,388 @@
+/*-
+Copyright 2018 Adobe. All rights reserved.
+This file is licensed to you under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License. You may obtain a copy
+of the License at http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software distributed under
+the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+OF ANY KIND, either express or implied. See the License for the specific language
+governing permissions and limitations under the License.
+*/
+
+package com.adobe.ride.core.filters;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import com.adobe.ride.core.execution.Warmup;
+import com.adobe.ride.core.http.CallPhases;
+import io.restassured.filter.Filter;
+import io.restassured.filter.FilterContext;
+import io.restassured.response.Response;
+import io.restassured.specification.FilterableRequestSpecification;
+import io.restassured.specification.FilterableResponseSpecification;
+
+/**
+ * Filter which breaks the latency of each call down into phases (see {@link CallPhases}) and
+ * records them into HdrHistograms, one set for each method and path template of the service.
+ * Recording is wait-free, so the filter can be left on for load tests, and the histograms can be
+ * snapshot at any time, from any thread, without pausing the calls being recorded.
+ *
+ * The connect, TLS, first byte and body phases are only recorded for calls sent through a
+ * {@link com.adobe.ride.core.http.ServiceConnectionPool}; the total is recorded for every call.
+ * Numeric and identifier-like segments of paths (i.e. "/users/1234") are recorded under "{id}",
+ * so calls to the same endpoint share their histograms.
+ *
+ * The RestApiController adds the filter of the target service to every call when the system
+ * property <code>ride.phaseTiming</code> is true; it can otherwise be passed to any call as a
+ * filter.
+ *
+ * @author tedcasey
+ *
+ */
+public class PhaseTimingFilter implements Filter {
+
+  public static final String ENABLED_PROPERTY = "ride.phaseTiming";
+
+  /** Number of significant digits kept by the histograms. */
+  private static final int PRECISION = 3;
+
+  private static final Map<String, PhaseTimingFilter> filters =
+      new ConcurrentHashMap<String, PhaseTimingFilter>();
+
+  /**
+   * Phases of a call.
+   */
+  public enum Phase {
+    /** Opening the TCP connection; only recorded when a new connection was opened. */
+    CONNECT,
+    /** The TLS handshake; only recorded when a new https connection was opened. */
+    TLS,
+    /** From the request being sent over an open connection until the response headers. */
+    FIRST_BYTE,
+    /** Reading the body after the headers. */
+    BODY,
+    /** The whole call, including the time spent in Rest-Assured. */
+    TOTAL
+  }
+
+  private final String serviceName;
+  private final Map<String, Endpoint> endpoints = new ConcurrentHashMap<String, Endpoint>();
+
+  /**
+   * Constructor for a filter whose histograms are not shared with other filters.
+   *
+   * @param serviceName name of the service, which is a mapping to the config folder in resources
+   */
+  public PhaseTimingFilter(String serviceName) {
+    this.serviceName = serviceName;
+  }
+
+  /**
+   * Returns the filter shared by all calls to a service, creating it on first use.
+   *
+   * @param serviceName name of the service, which is a mapping to the config folder in resources
+   * @return PhaseTimingFilter
+   */
+  public static PhaseTimingFilter forService(String serviceName) {
+    return filters.computeIfAbsent(serviceName, PhaseTimingFilter::new);
+  }
+
+  /**
+   *
+   * @return boolean indicator of whether the RestApiController adds the filter to every call
+   */
+  public static boolean isEnabled() {
+    return Boolean.getBoolean(ENABLED_PROPERTY);
+  }
+
+  @Override
+  public Response filter(FilterableRequestSpecification requestSpec,
+      FilterableResponseSpecification responseSpec, FilterContext ctx) {
+    CallPhases phases = CallPhases.start();
+    Response response;
+    try {
+      response = ctx.next(requestSpec, responseSpec);
+      // the body is part of the call, even if the caller never reads it
+      response.asByteArray();
+    } finally {
+      phases.finish();
+    }
+    if (!Warmup.isActive()) {
+      endpointFor(String.valueOf(requestSpec.getMethod()), requestSpec.getUserDefinedPath())
+          .record(phases);
+    }
+    return response;
+  }
+
+  private Endpoint endpointFor(String method, String path) {
+    String template = toTemplate(path);
+    String key = method + " " + template;
+    Endpoint endpoint = endpoints.get(key);
+    if (endpoint == null) {
+      endpoint = endpoints.computeIfAbsent(key, k -> new Endpoint(method, template));
+    }
+    return endpoint;
+  }
+
+  /**
+   * Strips the query of a path, and replaces its numeric and identifier-like segments with "{id}".
+   *
+   * @param path path of a call, i.e. "/users/1234?fields=name"
+   * @return String path template, i.e. "/users/{id}"
+   */
+  public static String toTemplate(String path) {
+    if (path == null || path.isEmpty()) {
+      return "/";
+    }
+    int query = path.indexOf('?');
+    if (query >= 0) {
+      path = path.substring(0, query);
+    }
+    StringBuilder template = null;
+    int start = 0;
+    while (start <= path.length()) {
+      int end = path.indexOf('/', start);
+      if (end < 0) {
+        end = path.length();
+      }
+      if (isIdentifier(path, start, end)) {
+        if (template == null) {
+          template = new StringBuilder(path.length()).append(path, 0, start);
+        }
+        template.append("{id}");
+      } else if (template != null) {
+        template.append(path, start, end);
+      }
+      if (end < path.length() && template != null) {
+        template.append('/');
+      }
+      start = end + 1;
+    }
+    return (template == null) ? path : template.toString();
+  }
+
+  private static boolean isIdentifier(String path, int start, int end) {
+    int length = end - start;
+    if (length == 0) {
+      return false;
+    }
+    boolean digits = true;
+    boolean hex = true;
+    boolean hasDigit = false;
+    for (int i = start; i < end; i++) {
+      char c = path.charAt(i);
+      boolean digit = c >= '0' && c <= '9';
+      hasDigit |= digit;
+      digits &= digit;
+      hex &= digit || (c >= 'a' && c <= 'f') || (c >= 'A' && c <= 'F') || c == '-';
+    }
+    // numbers, and UUIDs or hashes, which are long runs of hex digits
+    return digits || (hex && hasDigit && length >= 16);
+  }
+
+  /**
+   * Returns the current percentiles of every method and path called on the service so far.
+   *
+   * @return List of Snapshot
+   */
+  public List<Snapshot> snapshot() {
+    List<Snapshot> snapshots = new ArrayList<Snapshot>();
+    for (Endpoint endpoint : endpoints.values()) {
+      snapshots.add(endpoint.snapshot(serviceName));
+    }
+    return snapshots;
+  }
+
+  /**
+   * Returns the current percentiles of every method and path called on every service so far,
+   * through the filters returned by {@link #forService(String)}.
+   *
+   * @return List of Snapshot
+   */
+  public static List<Snapshot> snapshotAll() {
+    List<Snapshot> snapshots = new ArrayList<Snapshot>();
+    for (PhaseTimingFilter filter : filters.values()) {
+      snapshots.addAll(filter.snapshot());
+    }
+    return snapshots;
+  }
+
+  /**
+   * Discards everything recorded by this filter so far.
+   */
+  public void reset() {
+    endpoints.clear();
+  }
+
+  public String getServiceName() {
+    return serviceName;
+  }
+
+  /**
+   * Histograms of the phases of the calls to one method and path.
+   */
+  private static class Endpoint {
+    private final String method;
+    private final String path;
+    private final Map<Phase, Recorder> recorders = new EnumMap<Phase, Recorder>(Phase.class);
+    private final Map<Phase, Histogram> totals = new EnumMap<Phase, Histogram>(Phase.class);
+    private final Map<Phase, Histogram> intervals = new EnumMap<Phase, Histogram>(Phase.class);
+    private final ReentrantLock lock = new ReentrantLock();
+
+    Endpoint(String method, String path) {
+      this.method = method;
+      this.path = path;
+      for (Phase phase : Phase.values()) {
+        recorders.put(phase, new Recorder(PRECISION));
+        totals.put(phase, new Histogram(PRECISION));
+      }
+    }
+
+    void record(CallPhases phases) {
+      record(Phase.CONNECT, phases.getConnectNanos());
+      record(Phase.TLS, phases.getTlsNanos());
+      record(Phase.FIRST_BYTE, phases.getFirstByteNanos());
+      record(Phase.BODY, phases.getBodyNanos());
+      record(Phase.TOTAL, phases.getTotalNanos());
+    }
+
+    private void record(Phase phase, long nanos) {
+      if (nanos >= 0) {
+        recorders.get(phase).recordValue(nanos / 1000);
+      }
+    }
+
+    Snapshot snapshot(String serviceName) {
+      Map<Phase, PhaseStats> stats = new EnumMap<Phase, PhaseStats>(Phase.class);
+      lock.lock();
+      try {
+        for (Phase phase : Phase.values()) {
+          // the interval histogram is swapped out of the recorder, which carries on recording
+          Histogram interval = recorders.get(phase).getIntervalHistogram(intervals.get(phase));
+          intervals.put(phase, interval);
+          Histogram total = totals.get(phase);
+          total.add(interval);
+          stats.put(phase, new PhaseStats(total));
+        }
+      } finally {
+        lock.unlock();
+      }
+      return new Snapshot(serviceName, method, path, stats);
+    }
+  }
+
+  /**
+   * Percentiles of the phases of the calls to one method and path of a service.
+   */
+  public static class Snapshot {
+    private final String serviceName;
+    private final String method;
+    private final String path;
+    private final Map<Phase, PhaseStats> phases;
+
+    Snapshot(String serviceName, String method, String path, Map<Phase, PhaseStats> phases) {
+      this.serviceName = serviceName;
+      this.method = method;
+      this.path = path;
+      this.phases = Collections.unmodifiableMap(phases);
+    }
+
+    public String getServiceName() {
+      return serviceName;
+    }
+
+    public String getMethod() {
+      return method;
+    }
+
+    /**
+     *
+     * @return String path template of the calls, i.e. "/users/{id}"
+     */
+    public String getPath() {
+      return path;
+    }
+
+    /**
+     *
+     * @param phase phase of the calls
+     * @return PhaseStats
+     */
+    public PhaseStats getPhase(Phase phase) {
+      return phases.get(phase);
+    }
+
+    public Map<Phase, PhaseStats> getPhases() {
+      return phases;
+    }
+
+    @Override
+    public String toString() {
+      StringBuilder out = new StringBuilder(serviceName).append(' ').append(method).append(' ')
+          .append(path);
+      for (Map.Entry<Phase, PhaseStats> phase : phases.entrySet()) {
+        if (phase.getValue().getCount() > 0) {
+          out.append("; ").append(phase.getKey()).append(": ").append(phase.getValue());
+        }
+      }
+      return out.toString();
+    }
+  }
+
+  /**
+   * Percentiles of one phase, in milliseconds.
+   */
+  public static class PhaseStats {
+    private final long count;
+    private final double p50;
+    private final double p99;
+    private final double p999;
+    private final double max;
+
+    PhaseStats(Histogram histogram) {
+      count = histogram.getTotalCount();
+      p50 = histogram.getValueAtPercentile(50) / 1000.0;
+      p99 = histogram.getValueAtPercentile(99) / 1000.0;
+      p999 = histogram.getValueAtPercentile(99.9) / 1000.0;
+      max = histogram.getMaxValue() / 1000.0;
+    }
+
+    /**
+     *
+     * @return long number of calls in which the phase took place
+     */
+    public long getCount() {
+      return count;
+    }
+
+    public double getP50Millis() {
+      return p50;
+    }
+
+    public double getP99Millis() {
+      return p99;
+    }
+
+    public double getP999Millis() {
+      return p999;
+    }
+
+    public double getMaxMillis() {
+      return max;
+    }
+
+    @Override
+    public String toString() {
+      return "count " + count + ", p50/p99/p99.9/max " + p50 + "/" + p99 + "/" + p999 + "/" + max
+          + "ms";
+    }
+  }
+}
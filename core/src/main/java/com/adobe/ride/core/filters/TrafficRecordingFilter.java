@@ -0,0 +1,164 @@
+/*-
+Copyright 2018 Adobe. All rights reserved.
+This file is licensed to you under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License. You may obtain a copy
+of the License at http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software distributed under
+the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+OF ANY KIND, either express or implied. See the License for the specific language
+governing permissions and limitations under the License.
+*/
+
+package com.adobe.ride.core.filters;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import com.adobe.ride.core.traffic.TrafficLog;
+import io.restassured.filter.Filter;
+import io.restassured.filter.FilterContext;
+import io.restassured.http.Cookie;
+import io.restassured.http.Header;
+import io.restassured.response.Response;
+import io.restassured.specification.FilterableRequestSpecification;
+import io.restassured.specification.FilterableResponseSpecification;
+
+/**
+ * Filter which records every call it is applied to into a {@link TrafficLog}, so the calls can be
+ * replayed later with a {@link com.adobe.ride.core.traffic.TrafficReplayer}. The method, path
+ * relative to the url of the service, headers, cookies and body of each request are recorded,
+ * along with the time it was made and the status and latency of its response.
+ *
+ * Bodies sent as input streams cannot be read without consuming them, so they are recorded as
+ * empty. A call which cannot be written to the log is still made; the failure is only logged.
+ *
+ * @author tedcasey
+ *
+ */
+public class TrafficRecordingFilter implements Filter {
+
+  protected static final Logger logger = Logger.getLogger(TrafficRecordingFilter.class.getName());
+
+  private final TrafficLog log;
+  private final String serviceName;
+
+  /**
+   * Constructor for a filter recording the calls to a service.
+   *
+   * @param log log to which the calls are written, which may be shared with other filters
+   * @param serviceName name of the service, which is a mapping to the config folder in resources
+   */
+  public TrafficRecordingFilter(TrafficLog log, String serviceName) {
+    this.log = log;
+    this.serviceName = serviceName;
+  }
+
+  @Override
+  public Response filter(FilterableRequestSpecification requestSpec,
+      FilterableResponseSpecification responseSpec, FilterContext ctx) {
+    long start = System.nanoTime();
+    Response response = ctx.next(requestSpec, responseSpec);
+    // the body is part of the call, as it is when the call is replayed
+    response.asByteArray();
+    long latency = System.nanoTime() - start;
+    try {
+      log.write(new TrafficLog.Entry(start - log.getOriginNanos(), serviceName,
+          String.valueOf(requestSpec.getMethod()), relativePath(requestSpec),
+          headers(requestSpec), body(requestSpec), response.getStatusCode(), latency));
+    } catch (IOException | RuntimeException e) {
+      logger.log(Level.WARNING, "Unable to record call to " + requestSpec.getURI(), e);
+    }
+    return response;
+  }
+
+  /**
+   * Returns the path and query of a request with the base path of the service removed, so the
+   * call can be replayed against a service with a different base path.
+   */
+  private static String relativePath(FilterableRequestSpecification spec) {
+    String path;
+    String basePath;
+    try {
+      URI uri = new URI(spec.getURI());
+      path = (uri.getRawQuery() == null) ? uri.getRawPath()
+          : uri.getRawPath() + "?" + uri.getRawQuery();
+      String baseUriPath = new URI(spec.getBaseUri()).getRawPath();
+      basePath = ((baseUriPath == null) ? "" : baseUriPath)
+          + ((spec.getBasePath() == null) ? "" : spec.getBasePath());
+    } catch (URISyntaxException e) {
+      return spec.getUserDefinedPath();
+    }
+    basePath = basePath.replaceAll("/+$", "").replaceAll("/{2,}", "/");
+    if (!basePath.isEmpty() && path.startsWith(basePath)) {
+      String rest = path.substring(basePath.length());
+      if (rest.isEmpty() || rest.charAt(0) == '/' || rest.charAt(0) == '?') {
+        return rest;
+      }
+    }
+    return path;
+  }
+
+  private static List<Header> headers(FilterableRequestSpecification spec) {
+    List<Header> headers = new ArrayList<Header>();
+    boolean hasContentType = false;
+    for (Header header : spec.getHeaders()) {
+      hasContentType |= header.getName().equalsIgnoreCase("Content-Type");
+      headers.add(header);
+    }
+    if (!hasContentType && spec.getContentType() != null) {
+      headers.add(new Header("Content-Type", spec.getContentType()));
+    }
+    if (spec.getCookies().exist()) {
+      StringBuilder cookies = new StringBuilder();
+      for (Cookie cookie : spec.getCookies()) {
+        if (cookies.length() > 0) {
+          cookies.append("; ");
+        }
+        cookies.append(cookie.getName()).append('=').append(cookie.getValue());
+      }
+      headers.add(new Header("Cookie", cookies.toString()));
+    }
+    return headers;
+  }
+
+  private static byte[] body(FilterableRequestSpecification spec) throws IOException {
+    Object body = spec.getBody();
+    if (body instanceof String) {
+      return ((String) body).getBytes(StandardCharsets.UTF_8);
+    } else if (body instanceof byte[]) {
+      return (byte[]) body;
+    } else if (body instanceof File) {
+      return Files.readAllBytes(((File) body).toPath());
+    } else if (body == null && !spec.getFormParams().isEmpty()) {
+      return formBody(spec);
+    } else if (body != null && !(body instanceof InputStream)) {
+      return body.toString().getBytes(StandardCharsets.UTF_8);
+    }
+    return new byte[0];
+  }
+
+  private static byte[] formBody(FilterableRequestSpecification spec)
+      throws UnsupportedEncodingException {
+    StringBuilder form = new StringBuilder();
+    for (Entry<String, String> param : spec.getFormParams().entrySet()) {
+      if (form.length() > 0) {
+        form.append('&');
+      }
+      form.append(URLEncoder.encode(param.getKey(), "UTF-8")).append('=')
+          .append(URLEncoder.encode(String.valueOf(param.getValue()), "UTF-8"));
+    }
+    return form.toString().getBytes(StandardCharsets.UTF_8);
+  }
+}
@@ -0,0 +1,187 @@
+/*-
+Copyright 2018 Adobe. All rights reserved.
+This file is licensed to you under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License. You may obtain a copy
+of the License at http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software distributed under
+the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+OF ANY KIND, either express or implied. See the License for the specific language
+governing permissions and limitations under the License.
+*/
+
+package com.adobe.ride.core.http;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.asynchttpclient.AsyncHttpClient;
+import org.asynchttpclient.DefaultAsyncHttpClient;
+import org.asynchttpclient.DefaultAsyncHttpClientConfig;
+import org.asynchttpclient.RequestBuilder;
+import io.restassured.http.Cookie;
+import io.restassured.http.Header;
+import io.restassured.http.Headers;
+import io.restassured.http.Method;
+import io.restassured.response.Response;
+import io.restassured.specification.FilterableRequestSpecification;
+import io.restassured.specification.RequestSpecification;
+import io.restassured.specification.ResponseSpecification;
+
+/**
+ * Non-blocking client which sends requests described by Rest-Assured request specifications and
+ * completes with Rest-Assured responses. All requests share one client, whose few event loop
+ * threads can serve thousands of requests in flight.
+ *
+ * Rest-Assured filters can only run within a blocking Rest-Assured call, so they are not applied
+ * to requests sent through this client, and requests which carry filters other than logging are
+ * rejected (see {@link RideTransport#rejectFilters}) rather than sent without them.
+ *
+ * @author tedcasey
+ *
+ */
+public class AsyncRestClient {
+
+  protected static final Logger logger = Logger.getLogger(AsyncRestClient.class.getName());
+
+  private static final ReentrantLock clientLock = new ReentrantLock();
+  private static volatile AsyncHttpClient client;
+
+  private AsyncRestClient() {}
+
+  /**
+   * Returns the shared client, creating it on first use. Like the blocking calls, the client
+   * follows redirects and accepts any certificate.
+   *
+   * @return AsyncHttpClient
+   */
+  public static AsyncHttpClient getClient() {
+    AsyncHttpClient current = client;
+    if (current == null) {
+      clientLock.lock();
+      try {
+        current = client;
+        if (current == null) {
+          current = new DefaultAsyncHttpClient(new DefaultAsyncHttpClientConfig.Builder()
+              .setFollowRedirect(true).setAcceptAnyCertificate(true)
+              .setThreadPoolName("ride-async").build());
+          client = current;
+        }
+      } finally {
+        clientLock.unlock();
+      }
+    }
+    return current;
+  }
+
+  /**
+   * Closes the shared client. A new client is created on the next call.
+   */
+  public static void close() {
+    clientLock.lock();
+    try {
+      if (client != null) {
+        client.close();
+        client = null;
+      }
+    } catch (IOException e) {
+      logger.log(Level.WARNING, e.getMessage());
+    } finally {
+      clientLock.unlock();
+    }
+  }
+
+  /**
+   * Sends a request without blocking. The returned future completes with the response once it has
+   * been received and validated, or completes exceptionally if the request fails or the response
+   * does not meet the expected response specification.
+   *
+   * @param req Rest-Assured request specification, including the base uri of the service
+   * @param restAPI The specific API to test ex: "/myApi"
+   * @param expectedResponse Rest-Assured ResponseSpecification for validating the response, may be
+   *        null
+   * @param method http action to be invoked (i.e. POST, GET, etc.)
+   * @return CompletableFuture which completes with the Response
+   * @throws IllegalArgumentException if the request carries filters other than logging
+   */
+  public static CompletableFuture<Response> execute(RequestSpecification req, String restAPI,
+      ResponseSpecification expectedResponse, Method method) {
+    RideTransport.rejectFilters(req, "non-blocking calls");
+    RequestBuilder request;
+    try {
+      request = toRequest((FilterableRequestSpecification) req, restAPI, method);
+    } catch (RuntimeException e) {
+      CompletableFuture<Response> failed = new CompletableFuture<Response>();
+      failed.completeExceptionally(e);
+      return failed;
+    }
+
+    return getClient().executeRequest(request).toCompletableFuture()
+        .thenApplyAsync(received -> {
+          Response response = toResponse(received);
+          logger.log(Level.FINE, method + " " + received.getUri() + " " + response.getStatusLine());
+          if (expectedResponse != null) {
+            expectedResponse.validate(response);
+          }
+          return response;
+        });
+  }
+
+  private static RequestBuilder toRequest(FilterableRequestSpecification spec, String restAPI,
+      Method method) {
+    spec.path(restAPI);
+    // url encoding is left to the caller, as it is for the blocking calls
+    RequestBuilder request = new RequestBuilder(method.toString(), true).setUrl(spec.getURI());
+
+    for (Header header : spec.getHeaders()) {
+      request.addHeader(header.getName(), header.getValue());
+    }
+    if (spec.getCookies().exist()) {
+      StringBuilder cookies = new StringBuilder();
+      for (Cookie cookie : spec.getCookies()) {
+        if (cookies.length() > 0) {
+          cookies.append("; ");
+        }
+        cookies.append(cookie.getName()).append('=').append(cookie.getValue());
+      }
+      request.addHeader("Cookie", cookies.toString());
+    }
+    for (Entry<String, String> param : spec.getFormParams().entrySet()) {
+      request.addFormParam(param.getKey(), param.getValue());
+    }
+
+    // Rest-Assured serializes object bodies when they are set on the specification
+    Object body = spec.getBody();
+    if (body instanceof String) {
+      request.setBody(((String) body).getBytes(StandardCharsets.UTF_8));
+    } else if (body instanceof byte[]) {
+      request.setBody((byte[]) body);
+    } else if (body instanceof InputStream) {
+      request.setBody((InputStream) body);
+    } else if (body instanceof File) {
+      request.setBody((File) body);
+    } else if (body != null) {
+      request.setBody(body.toString().getBytes(StandardCharsets.UTF_8));
+    }
+    return request;
+  }
+
+  private static Response toResponse(org.asynchttpclient.Response received) {
+    List<Header> headers = new ArrayList<Header>();
+    for (Entry<String, String> header : received.getHeaders()) {
+      headers.add(new Header(header.getKey(), header.getValue()));
+    }
+
+    return ResponseFactory.create(received.getStatusCode(),
+        "HTTP/1.1 " + received.getStatusCode() + " " + received.getStatusText(),
+        new Headers(headers), received.getResponseBodyAsBytes());
+  }
+}
@@ -0,0 +1,163 @@
+/*-
+Copyright 2018 Adobe. All rights reserved.
+This file is licensed to you under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License. You may obtain a copy
+of the License at http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software distributed under
+the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+OF ANY KIND, either express or implied. See the License for the specific language
+governing permissions and limitations under the License.
+*/
+
+package com.adobe.ride.core.http;
+
+/**
+ * Timings of the phases of a single call: opening the connection, the TLS handshake, waiting for
+ * the first byte of the response, and transferring the body. The phases are marked by the sockets
+ * and clients of {@link ServiceConnectionPool} on the thread which sends the request, so a call
+ * must be started and finished on that thread, and only calls sent through a pool are broken down
+ * into phases.
+ *
+ * Phases which did not take place (i.e. connecting, when a pooled connection was reused) are
+ * reported as -1.
+ *
+ * @author tedcasey
+ *
+ */
+public class CallPhases {
+
+  private static final ThreadLocal<CallPhases> current = new ThreadLocal<CallPhases>();
+
+  private final long startNanos = System.nanoTime();
+  private long connectStartNanos = -1;
+  private long connectEndNanos = -1;
+  private long tlsEndNanos = -1;
+  private long requestNanos = -1;
+  private long headersNanos = -1;
+  private long endNanos = -1;
+
+  private CallPhases() {}
+
+  /**
+   * Starts timing a call on the calling thread.
+   *
+   * @return CallPhases
+   */
+  public static CallPhases start() {
+    CallPhases phases = new CallPhases();
+    current.set(phases);
+    return phases;
+  }
+
+  /**
+   * Finishes timing the call, once its body has been read.
+   */
+  public void finish() {
+    endNanos = System.nanoTime();
+    if (current.get() == this) {
+      current.remove();
+    }
+  }
+
+  static void connecting() {
+    CallPhases phases = current.get();
+    if (phases != null) {
+      phases.connectStartNanos = System.nanoTime();
+      phases.connectEndNanos = -1;
+      phases.tlsEndNanos = -1;
+    }
+  }
+
+  static void connected() {
+    CallPhases phases = current.get();
+    if (phases != null) {
+      phases.connectEndNanos = System.nanoTime();
+    }
+  }
+
+  static void handshaken() {
+    CallPhases phases = current.get();
+    if (phases != null) {
+      phases.tlsEndNanos = System.nanoTime();
+    }
+  }
+
+  static void requestSent() {
+    CallPhases phases = current.get();
+    if (phases != null) {
+      phases.requestNanos = System.nanoTime();
+    }
+  }
+
+  static void headersReceived() {
+    CallPhases phases = current.get();
+    if (phases != null) {
+      phases.headersNanos = System.nanoTime();
+    }
+  }
+
+  /**
+   *
+   * @return boolean indicator of whether a new connection was opened for the call
+   */
+  public boolean isNewConnection() {
+    return connectEndNanos >= 0;
+  }
+
+  /**
+   *
+   * @return long nanoseconds taken to open the connection, -1 if a pooled connection was reused
+   */
+  public long getConnectNanos() {
+    return isNewConnection() ? connectEndNanos - connectStartNanos : -1;
+  }
+
+  /**
+   *
+   * @return long nanoseconds taken by the TLS handshake, -1 if there was none
+   */
+  public long getTlsNanos() {
+    return (tlsEndNanos >= 0 && isNewConnection()) ? tlsEndNanos - connectEndNanos : -1;
+  }
+
+  /**
+   * Returns the time from the request being sent over an open connection until the response
+   * headers were received.
+   *
+   * @return long nanoseconds, -1 if no response was received or the call was not sent through a
+   *         pool
+   */
+  public long getFirstByteNanos() {
+    if (headersNanos < 0) {
+      return -1;
+    }
+    long ready = Math.max(Math.max(startNanos, requestNanos), Math.max(connectEndNanos,
+        tlsEndNanos));
+    return headersNanos - ready;
+  }
+
+  /**
+   *
+   * @return long nanoseconds taken to read the body after the headers were received, -1 if no
+   *         response was received or the call was not sent through a pool
+   */
+  public long getBodyNanos() {
+    return (headersNanos < 0 || endNanos < 0) ? -1 : endNanos - headersNanos;
+  }
+
+  /**
+   *
+   * @return long nanoseconds from the start to the finish of the call, -1 if it is not finished
+   */
+  public long getTotalNanos() {
+    return (endNanos < 0) ? -1 : endNanos - startNanos;
+  }
+
+  @Override
+  public String toString() {
+    return "connect: " + getConnectNanos() + "ns; tls: " + getTlsNanos() + "ns; first byte: "
+        + getFirstByteNanos() + "ns; body: " + getBodyNanos() + "ns; total: " + getTotalNanos()
+        + "ns";
+  }
+}
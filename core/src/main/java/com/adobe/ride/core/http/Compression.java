@@ -0,0 +1,182 @@
+/*-
+Copyright 2018 Adobe. All rights reserved.
+This file is licensed to you under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License. You may obtain a copy
+of the License at http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software distributed under
+the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+OF ANY KIND, either express or implied. See the License for the specific language
+governing permissions and limitations under the License.
+*/
+
+package com.adobe.ride.core.http;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Content codings with which request and response bodies can be compressed. Zstandard is only
+ * available when zstd-jni, an optional dependency of Ride, is on the classpath and its native
+ * library loads on the current platform.
+ *
+ * @author tedcasey
+ *
+ */
+public enum Compression {
+  IDENTITY("identity"), GZIP("gzip"), DEFLATE("deflate"), ZSTD("zstd");
+
+  protected static final Logger logger = Logger.getLogger(Compression.class.getName());
+
+  private static final int BUFFER_SIZE = 8192;
+
+  private final String value;
+
+  Compression(String value) {
+    this.value = value;
+  }
+
+  /**
+   *
+   * @return String name of the coding in Content-Encoding and Accept-Encoding headers
+   */
+  public String value() {
+    return value;
+  }
+
+  /**
+   * Returns the coding named in a Content-Encoding or Accept-Encoding header.
+   *
+   * @param value name of the coding, i.e. "gzip", with any quality value ignored
+   * @return Compression, IDENTITY if the value is null or empty, null if the coding is unknown
+   */
+  public static Compression fromValue(String value) {
+    if (value == null) {
+      return IDENTITY;
+    }
+    int parameters = value.indexOf(';');
+    String name = ((parameters < 0) ? value : value.substring(0, parameters)).trim();
+    if (name.isEmpty()) {
+      return IDENTITY;
+    }
+    if (name.equalsIgnoreCase("x-gzip")) {
+      return GZIP;
+    }
+    for (Compression compression : values()) {
+      if (compression.value.equalsIgnoreCase(name)) {
+        return compression;
+      }
+    }
+    return null;
+  }
+
+  /**
+   *
+   * @return boolean indicator of whether bodies can be compressed and decompressed with the coding
+   */
+  public boolean isAvailable() {
+    return this != ZSTD || Zstd.AVAILABLE;
+  }
+
+  /**
+   * Wraps a stream, compressing everything written to it. The returned stream must be closed to
+   * write the end of the compressed body.
+   *
+   * @param out stream to which the compressed body is written
+   * @return OutputStream
+   * @throws IOException if the compressed stream cannot be started
+   */
+  public OutputStream compress(OutputStream out) throws IOException {
+    switch (this) {
+      case GZIP:
+        return new GZIPOutputStream(out, BUFFER_SIZE);
+      case DEFLATE:
+        return new DeflaterOutputStream(out);
+      case ZSTD:
+        checkAvailable();
+        return Zstd.compress(out);
+      default:
+        return out;
+    }
+  }
+
+  /**
+   * Wraps a stream, decompressing it as it is read.
+   *
+   * @param in stream from which the compressed body is read
+   * @return InputStream
+   * @throws IOException if the compressed stream cannot be started
+   */
+  public InputStream decompress(InputStream in) throws IOException {
+    switch (this) {
+      case GZIP:
+        return new GZIPInputStream(in, BUFFER_SIZE);
+      case DEFLATE:
+        return new InflaterInputStream(in);
+      case ZSTD:
+        checkAvailable();
+        return Zstd.decompress(in);
+      default:
+        return in;
+    }
+  }
+
+  private void checkAvailable() {
+    if (!isAvailable()) {
+      throw new UnsupportedOperationException(value + " is not available; add zstd-jni to the "
+          + "classpath to use it");
+    }
+  }
+
+  /**
+   * Holder of the Zstandard streams, which is only loaded once zstd-jni is known to be present.
+   */
+  private static class Zstd {
+    static final boolean AVAILABLE = isAvailable();
+
+    private static boolean isAvailable() {
+      try {
+        Class.forName("com.github.luben.zstd.ZstdOutputStream");
+        ZstdStreams.load();
+        return true;
+      } catch (ClassNotFoundException e) {
+        return false;
+      } catch (LinkageError | RuntimeException e) {
+        logger.log(Level.WARNING, "zstd-jni is present but cannot be loaded", e);
+        return false;
+      }
+    }
+
+    static OutputStream compress(OutputStream out) throws IOException {
+      return ZstdStreams.compress(out);
+    }
+
+    static InputStream decompress(InputStream in) throws IOException {
+      return ZstdStreams.decompress(in);
+    }
+  }
+
+  /**
+   * Calls into zstd-jni, kept apart so that its classes are never resolved when it is absent.
+   */
+  private static class ZstdStreams {
+    static void load() {
+      com.github.luben.zstd.util.Native.load();
+    }
+
+    static OutputStream compress(OutputStream out) throws IOException {
+      return new com.github.luben.zstd.ZstdOutputStream(out);
+    }
+
+    static InputStream decompress(InputStream in) throws IOException {
+      return new com.github.luben.zstd.ZstdInputStream(in);
+    }
+  }
+}
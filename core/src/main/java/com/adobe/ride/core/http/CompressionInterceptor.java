@@ -0,0 +1,295 @@
+/*-
+Copyright 2018 Adobe. All rights reserved.
+This file is licensed to you under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License. You may obtain a copy
+of the License at http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software distributed under
+the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+OF ANY KIND, either express or implied. See the License for the specific language
+governing permissions and limitations under the License.
+*/
+
+package com.adobe.ride.core.http;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpEntityEnclosingRequest;
+import org.apache.http.HttpHeaders;
+import org.apache.http.HttpRequest;
+import org.apache.http.HttpRequestInterceptor;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpResponseInterceptor;
+import org.apache.http.entity.HttpEntityWrapper;
+import org.apache.http.message.BasicHeader;
+import org.apache.http.protocol.HttpContext;
+import com.adobe.ride.core.metrics.RideMetrics;
+
+/**
+ * Interceptor which applies the {@link CompressionPolicy} of a service to the calls sent through
+ * its pool. Request bodies are compressed as they are written, and compressed responses are
+ * decompressed as they are read, so neither is ever held in memory in both forms. The compressed
+ * and uncompressed sizes of each body, and the CPU time spent compressing or decompressing it, are
+ * recorded with {@link RideMetrics#recordCompression}.
+ *
+ * The interceptor must run before the standard interceptors, which derive the Content-Length and
+ * Content-Encoding headers from the request entity, and before any decoder Rest-Assured adds.
+ *
+ * @author tedcasey
+ *
+ */
+final class CompressionInterceptor implements HttpRequestInterceptor, HttpResponseInterceptor {
+
+  private static final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+  private static final boolean CPU_TIME_SUPPORTED = threads.isCurrentThreadCpuTimeSupported();
+
+  private final String serviceName;
+
+  CompressionInterceptor(String serviceName) {
+    this.serviceName = serviceName;
+  }
+
+  @Override
+  public void process(HttpRequest request, HttpContext context) {
+    CompressionPolicy policy = CompressionPolicy.effective(serviceName);
+    if (policy.getAcceptHeader() != null && !request.containsHeader(HttpHeaders.ACCEPT_ENCODING)) {
+      request.setHeader(HttpHeaders.ACCEPT_ENCODING, policy.getAcceptHeader());
+    }
+    Compression compression = policy.getRequest();
+    if (compression == Compression.IDENTITY || !(request instanceof HttpEntityEnclosingRequest)
+        || request.containsHeader(HttpHeaders.CONTENT_ENCODING)) {
+      return;
+    }
+    HttpEntityEnclosingRequest enclosing = (HttpEntityEnclosingRequest) request;
+    HttpEntity entity = enclosing.getEntity();
+    if (entity == null || entity.getContentEncoding() != null || entity.getContentLength() == 0) {
+      return;
+    }
+    enclosing.setEntity(new CompressingEntity(entity, compression, serviceName));
+    // the standard interceptors send the body chunked, with the coding of the entity
+    request.removeHeaders(HttpHeaders.CONTENT_LENGTH);
+  }
+
+  @Override
+  public void process(HttpResponse response, HttpContext context) {
+    HttpEntity entity = response.getEntity();
+    Header encoding = (entity == null) ? null : entity.getContentEncoding();
+    if (encoding == null) {
+      return;
+    }
+    Compression compression = Compression.fromValue(encoding.getValue());
+    if (compression == null || compression == Compression.IDENTITY
+        || !compression.isAvailable()) {
+      return;
+    }
+    response.setEntity(new DecompressingEntity(entity, compression, serviceName));
+    // the headers describe the body as it was sent, not as the caller will read it
+    response.removeHeaders(HttpHeaders.CONTENT_ENCODING);
+    response.removeHeaders(HttpHeaders.CONTENT_LENGTH);
+    response.removeHeaders(HttpHeaders.CONTENT_MD5);
+  }
+
+  /**
+   * Returns the CPU time of the calling thread, or 0 where it cannot be measured.
+   */
+  static long cpuNanos() {
+    if (!CPU_TIME_SUPPORTED) {
+      return 0;
+    }
+    long nanos = threads.getCurrentThreadCpuTime();
+    return (nanos < 0) ? 0 : nanos;
+  }
+
+  /**
+   * Request entity compressed as it is written to the connection.
+   */
+  static final class CompressingEntity extends HttpEntityWrapper {
+    private final Compression compression;
+    private final String serviceName;
+
+    CompressingEntity(HttpEntity entity, Compression compression, String serviceName) {
+      super(entity);
+      this.compression = compression;
+      this.serviceName = serviceName;
+    }
+
+    @Override
+    public Header getContentEncoding() {
+      return new BasicHeader(HttpHeaders.CONTENT_ENCODING, compression.value());
+    }
+
+    @Override
+    public long getContentLength() {
+      return -1;
+    }
+
+    @Override
+    public boolean isChunked() {
+      return true;
+    }
+
+    @Override
+    public InputStream getContent() {
+      throw new UnsupportedOperationException("Compressed bodies can only be written");
+    }
+
+    @Override
+    public void writeTo(OutputStream outstream) throws IOException {
+      long cpuStart = cpuNanos();
+      // closing the metered stream ends the compressed body without closing the connection
+      MeteredOutputStream compressed = new MeteredOutputStream(outstream, null);
+      OutputStream encoder = compression.compress(compressed);
+      MeteredOutputStream uncompressed = new MeteredOutputStream(encoder, null);
+      wrappedEntity.writeTo(uncompressed);
+      encoder.close();
+      RideMetrics.recordCompression(serviceName, RideMetrics.REQUEST_DIRECTION,
+          compression.value(), compressed.getByteCount(), uncompressed.getByteCount(),
+          cpuNanos() - cpuStart);
+    }
+  }
+
+  /**
+   * Response entity decompressed as it is read. Like the response it wraps, its content can only
+   * be read once.
+   */
+  static final class DecompressingEntity extends HttpEntityWrapper {
+    private final Compression compression;
+    private final String serviceName;
+    private InputStream content;
+
+    DecompressingEntity(HttpEntity entity, Compression compression, String serviceName) {
+      super(entity);
+      this.compression = compression;
+      this.serviceName = serviceName;
+    }
+
+    @Override
+    public Header getContentEncoding() {
+      return null;
+    }
+
+    @Override
+    public long getContentLength() {
+      return -1;
+    }
+
+    @Override
+    public InputStream getContent() throws IOException {
+      if (content == null) {
+        content = new DecompressingStream(wrappedEntity.getContent(), compression, serviceName);
+      }
+      return content;
+    }
+
+    @Override
+    public void writeTo(OutputStream outstream) throws IOException {
+      try (InputStream in = getContent()) {
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = in.read(buffer)) >= 0) {
+          outstream.write(buffer, 0, read);
+        }
+      }
+    }
+  }
+
+  /**
+   * Stream which decompresses a body, counting the bytes on both sides and the CPU time spent in
+   * reads. The totals are recorded once, when the end of the body is reached or the stream is
+   * closed.
+   */
+  static final class DecompressingStream extends FilterInputStream {
+    private final MeteredInputStream compressed;
+    private final Compression compression;
+    private final String serviceName;
+    private long uncompressed = 0;
+    private long cpu = 0;
+    private boolean recorded = false;
+
+    DecompressingStream(InputStream in, Compression compression, String serviceName) {
+      super(null);
+      this.compressed = new MeteredInputStream(in, null);
+      this.compression = compression;
+      this.serviceName = serviceName;
+    }
+
+    private InputStream decoder() throws IOException {
+      // the decoder reads the header of the body, so it is only created by the first read
+      if (in == null) {
+        in = compression.decompress(compressed);
+      }
+      return in;
+    }
+
+    @Override
+    public int read() throws IOException {
+      byte[] one = new byte[1];
+      int count = read(one, 0, 1);
+      return (count < 0) ? -1 : (one[0] & 0xff);
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      if (recorded) {
+        return -1;
+      }
+      long cpuStart = cpuNanos();
+      int count = decoder().read(b, off, len);
+      cpu += cpuNanos() - cpuStart;
+      if (count > 0) {
+        uncompressed += count;
+      } else if (count < 0) {
+        record();
+      }
+      return count;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+      byte[] buffer = new byte[(int) Math.min(8192, Math.max(n, 1))];
+      long remaining = n;
+      while (remaining > 0) {
+        int count = read(buffer, 0, (int) Math.min(buffer.length, remaining));
+        if (count < 0) {
+          break;
+        }
+        remaining -= count;
+      }
+      return n - remaining;
+    }
+
+    @Override
+    public int available() throws IOException {
+      return (in == null || recorded) ? 0 : in.available();
+    }
+
+    @Override
+    public boolean markSupported() {
+      return false;
+    }
+
+    @Override
+    public void close() throws IOException {
+      record();
+      if (in != null) {
+        in.close();
+      } else {
+        compressed.close();
+      }
+    }
+
+    private void record() {
+      if (!recorded) {
+        recorded = true;
+        RideMetrics.recordCompression(serviceName, RideMetrics.RESPONSE_DIRECTION,
+            compression.value(), compressed.getByteCount(), uncompressed, cpu);
+      }
+    }
+  }
+}
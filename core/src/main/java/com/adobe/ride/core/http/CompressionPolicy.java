@@ -0,0 +1,195 @@
+/*-
+Copyright 2018 Adobe. All rights reserved.
+This file is licensed to you under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License. You may obtain a copy
+of the License at http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software distributed under
+the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+OF ANY KIND, either express or implied. See the License for the specific language
+governing permissions and limitations under the License.
+*/
+
+package com.adobe.ride.core.http;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Logger;
+import com.adobe.ride.config.management.TestProperties;
+import com.adobe.ride.config.management.TestPropertyType;
+
+/**
+ * How the bodies of calls to a service are compressed: the coding applied to request bodies, and
+ * the codings offered for responses in the Accept-Encoding header, in order of preference.
+ * Compressed responses are decompressed as they are read, whatever coding they use.
+ *
+ * Policies are read from the environment properties, keyed by service name, i.e.:
+ *
+ * <pre>
+ * MyService.compression.request=gzip
+ * MyService.compression.accept=zstd,gzip,deflate
+ * </pre>
+ *
+ * and can be overridden for single calls with a
+ * {@link com.adobe.ride.core.filters.CompressionFilter}. Compression is applied to calls sent
+ * through a {@link ServiceConnectionPool}.
+ *
+ * @author tedcasey
+ *
+ */
+public final class CompressionPolicy {
+
+  protected static final Logger logger = Logger.getLogger(CompressionPolicy.class.getName());
+
+  public static final String REQUEST_KEY = "compression.request";
+  public static final String ACCEPT_KEY = "compression.accept";
+
+  /** Policy which neither compresses requests nor asks for compressed responses. */
+  public static final CompressionPolicy NONE = new CompressionPolicy(Compression.IDENTITY);
+
+  private static final Map<String, CompressionPolicy> policies =
+      new ConcurrentHashMap<String, CompressionPolicy>();
+  private static final ThreadLocal<CompressionPolicy> current =
+      new ThreadLocal<CompressionPolicy>();
+
+  private final Compression request;
+  private final List<Compression> accepted;
+  private final String acceptHeader;
+
+  /**
+   * Constructor for a policy. Offered codings which are not available (see
+   * {@link Compression#isAvailable()}) are left out of the Accept-Encoding header.
+   *
+   * @param request coding applied to request bodies, IDENTITY to send them as they are
+   * @param accepted codings offered for responses, in order of preference
+   */
+  public CompressionPolicy(Compression request, Compression... accepted) {
+    if (request == null) {
+      request = Compression.IDENTITY;
+    } else if (!request.isAvailable()) {
+      throw new IllegalArgumentException(request.value() + " is not available for requests");
+    }
+    List<Compression> offered = new ArrayList<Compression>();
+    for (Compression compression : accepted) {
+      if (compression == null || compression == Compression.IDENTITY) {
+        continue;
+      }
+      if (!compression.isAvailable()) {
+        logger.warning(compression.value() + " is not available and is not offered");
+      } else if (!offered.contains(compression)) {
+        offered.add(compression);
+      }
+    }
+    this.request = request;
+    this.accepted = Collections.unmodifiableList(offered);
+    StringBuilder header = new StringBuilder();
+    for (Compression compression : offered) {
+      if (header.length() > 0) {
+        header.append(", ");
+      }
+      header.append(compression.value());
+    }
+    acceptHeader = (header.length() == 0) ? null : header.toString();
+  }
+
+  /**
+   * Returns the policy of a service, read from the environment properties on first use.
+   *
+   * @param serviceName name of the service, which is a mapping to the config folder in resources
+   * @return CompressionPolicy, NONE if no compression is configured
+   */
+  public static CompressionPolicy forService(String serviceName) {
+    CompressionPolicy policy = policies.get(serviceName);
+    if (policy == null) {
+      policy = policies.computeIfAbsent(serviceName, CompressionPolicy::fromProperties);
+    }
+    return policy;
+  }
+
+  private static CompressionPolicy fromProperties(String serviceName) {
+    TestPropertyType env = TestPropertyType.environment;
+    String identity = Compression.IDENTITY.value();
+    String request = TestProperties.getServiceProperty(env, serviceName, REQUEST_KEY, identity);
+    String accept = TestProperties.getServiceProperty(env, serviceName, ACCEPT_KEY, identity);
+    if (request.equals(identity) && accept.equals(identity)) {
+      return NONE;
+    }
+    List<Compression> offered = new ArrayList<Compression>();
+    for (String value : accept.split(",")) {
+      if (!value.trim().isEmpty()) {
+        offered.add(parse(serviceName, ACCEPT_KEY, value));
+      }
+    }
+    CompressionPolicy policy = new CompressionPolicy(parse(serviceName, REQUEST_KEY, request),
+        offered.toArray(new Compression[offered.size()]));
+    logger.info("Compression of calls to " + serviceName + ": " + policy);
+    return policy;
+  }
+
+  private static Compression parse(String serviceName, String key, String value) {
+    Compression compression = Compression.fromValue(value);
+    if (compression == null) {
+      throw new IllegalArgumentException(
+          "Unknown coding in " + key + " for service " + serviceName + ": " + value);
+    }
+    return compression;
+  }
+
+  /**
+   * Overrides the policy of every service for calls made on the calling thread, until it is
+   * restored.
+   *
+   * @param policy policy to be applied, null to apply the policies of the services again
+   * @return CompressionPolicy override which was in place before, to be restored afterwards
+   */
+  public static CompressionPolicy setCurrent(CompressionPolicy policy) {
+    CompressionPolicy previous = current.get();
+    if (policy == null) {
+      current.remove();
+    } else {
+      current.set(policy);
+    }
+    return previous;
+  }
+
+  /**
+   * Returns the policy applied to a call to a service made on the calling thread.
+   */
+  static CompressionPolicy effective(String serviceName) {
+    CompressionPolicy policy = current.get();
+    return (policy != null) ? policy : forService(serviceName);
+  }
+
+  /**
+   *
+   * @return Compression coding applied to request bodies
+   */
+  public Compression getRequest() {
+    return request;
+  }
+
+  /**
+   *
+   * @return List of codings offered for responses, in order of preference
+   */
+  public List<Compression> getAccepted() {
+    return accepted;
+  }
+
+  /**
+   *
+   * @return String value of the Accept-Encoding header, null if no coding is offered
+   */
+  public String getAcceptHeader() {
+    return acceptHeader;
+  }
+
+  @Override
+  public String toString() {
+    return "request: " + request.value() + "; accept: "
+        + ((acceptHeader == null) ? "identity" : acceptHeader);
+  }
+}
@@ -0,0 +1,522 @@
+/*-
+Copyright 2018 Adobe. All rights reserved.
+This file is licensed to you under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License. You may obtain a copy
+of the License at http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software distributed under
+the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+OF ANY KIND, either express or implied. See the License for the specific language
+governing permissions and limitations under the License.
+*/
+
+package com.adobe.ride.core.http;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.GeneralSecurityException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Logger;
+import javax.net.ssl.SSLContext;
+import org.apache.hc.client5.http.async.methods.SimpleHttpRequest;
+import org.apache.hc.client5.http.async.methods.SimpleHttpResponse;
+import org.apache.hc.client5.http.async.methods.SimpleRequestProducer;
+import org.apache.hc.client5.http.async.methods.SimpleResponseConsumer;
+import org.apache.hc.client5.http.impl.async.CloseableHttpAsyncClient;
+import org.apache.hc.client5.http.impl.async.HttpAsyncClients;
+import org.apache.hc.client5.http.protocol.HttpClientContext;
+import org.apache.hc.client5.http.ssl.ClientTlsStrategyBuilder;
+import org.apache.hc.client5.http.ssl.NoopHostnameVerifier;
+import org.apache.hc.client5.http.ssl.TrustAllStrategy;
+import org.apache.hc.core5.concurrent.FutureCallback;
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.io.CloseMode;
+import org.apache.hc.core5.ssl.SSLContexts;
+import com.adobe.ride.config.aop.TargetServiceConfiguration;
+import com.adobe.ride.config.aop.TargetServiceConfiguration.Protocol;
+import com.adobe.ride.config.management.TestProperties;
+import com.adobe.ride.config.management.TestPropertyType;
+import com.adobe.ride.core.metrics.Timer;
+import io.restassured.http.Cookie;
+import io.restassured.http.Header;
+import io.restassured.http.Headers;
+import io.restassured.http.Method;
+import io.restassured.response.Response;
+import io.restassured.specification.FilterableRequestSpecification;
+import io.restassured.specification.RequestSpecification;
+import io.restassured.specification.ResponseSpecification;
+
+/**
+ * Transport which multiplexes the calls to a service over a small number of HTTP/2 connections,
+ * used for services whose protocol is set to h2 or h2c in the environment properties, i.e.:
+ *
+ * <pre>
+ * MyService.protocol=h2
+ * MyService.h2.connections=2
+ * </pre>
+ *
+ * h2 is negotiated with ALPN over TLS, which requires Java 8u252 or later; h2c is sent in cleartext
+ * with prior knowledge. Concurrent calls from any number of threads share the connections, each
+ * call being a stream, so load can be generated with realistic connection counts. The latency of
+ * each stream is recorded (see {@link #getStats()}), both until its response headers arrive and
+ * until its body is complete, so head-of-line effects can be measured.
+ *
+ * As with {@link LightweightTransport}, Rest-Assured filters are not applied, so requests carrying
+ * filters which would be skipped are rejected, and request bodies are sent from memory.
+ *
+ * @author tedcasey
+ *
+ */
+public class Http2Transport implements RideTransport, Closeable {
+
+  protected static final Logger logger = Logger.getLogger(Http2Transport.class.getName());
+
+  public static final String CONNECTIONS_KEY = "h2.connections";
+  public static final int DEFAULT_CONNECTIONS = 1;
+
+  private static final String STREAM_ATTRIBUTE = "ride.stream";
+  // connection-specific headers are not allowed in HTTP/2 requests
+  private static final Set<String> EXCLUDED_HEADERS = new HashSet<String>(
+      Arrays.asList("connection", "keep-alive", "proxy-connection", "transfer-encoding", "upgrade",
+          "host", "te", "content-length", "content-type"));
+
+  private static final Map<String, Protocol> protocols = new ConcurrentHashMap<String, Protocol>();
+  private static final Map<String, Http2Transport> transports =
+      new ConcurrentHashMap<String, Http2Transport>();
+
+  private final String serviceName;
+  private final Protocol protocol;
+  private final CloseableHttpAsyncClient[] clients;
+  private final AtomicInteger nextClient = new AtomicInteger();
+  private final StreamStats stats = new StreamStats();
+
+  /**
+   * Constructor for a transport with explicit settings.
+   *
+   * @param serviceName name of the service, which is a mapping to the config folder in resources
+   * @param protocol h2 or h2c
+   * @param connections number of connections over which calls are multiplexed
+   */
+  public Http2Transport(String serviceName, Protocol protocol, int connections) {
+    if (protocol == Protocol.H1) {
+      throw new IllegalArgumentException("Http2Transport requires h2 or h2c");
+    }
+    this.serviceName = serviceName;
+    this.protocol = protocol;
+    clients = new CloseableHttpAsyncClient[Math.max(1, connections)];
+    for (int i = 0; i < clients.length; i++) {
+      // each client holds a single connection to the service
+      clients[i] = HttpAsyncClients.customHttp2().setTlsStrategy(ClientTlsStrategyBuilder.create()
+          .setSslContext(trustAllContext()).setHostnameVerifier(NoopHostnameVerifier.INSTANCE)
+          .build()).addResponseInterceptorFirst((response, entity, context) -> {
+            Stream stream = (Stream) context.getAttribute(STREAM_ATTRIBUTE);
+            if (stream != null) {
+              stream.headersReceived();
+            }
+          }).build();
+      clients[i].start();
+    }
+  }
+
+  private static SSLContext trustAllContext() {
+    try {
+      // like the relaxed HTTPS validation applied to Rest-Assured calls
+      return SSLContexts.custom().loadTrustMaterial(TrustAllStrategy.INSTANCE).build();
+    } catch (GeneralSecurityException e) {
+      throw new IllegalStateException("Unable to relax https validation", e);
+    }
+  }
+
+  /**
+   * Returns the HTTP/2 transport of a declared service, creating it from the environment properties
+   * on first use. Returns null if the protocol of the service is h1.
+   *
+   * @param serviceName name of the service, which is a mapping to the config folder in resources
+   * @return Http2Transport
+   */
+  public static Http2Transport forService(String serviceName) {
+    Protocol protocol = protocols.computeIfAbsent(serviceName, name -> {
+      TargetServiceConfiguration config = TestProperties.getInstance().getTargetServiceConfig(name);
+      return (config == null) ? Protocol.H1 : config.protocol();
+    });
+    if (protocol == Protocol.H1) {
+      return null;
+    }
+    return transports.computeIfAbsent(serviceName, name -> {
+      Http2Transport transport = new Http2Transport(name, protocol, TestProperties.getPropertyAsInt(
+          TestPropertyType.environment, name, CONNECTIONS_KEY, DEFAULT_CONNECTIONS));
+      logger.info("Created " + protocol.value() + " transport for service " + name + " with "
+          + transport.clients.length + " connection(s)");
+      return transport;
+    });
+  }
+
+  @Override
+  public Response send(ServiceConnectionPool pool, RequestSpecification req, String restAPI,
+      ResponseSpecification expectedResponse, Method method, boolean logResponse) {
+    RideTransport.rejectFilters(req, "calls sent over HTTP/2");
+    try {
+      return sendAsync(req, restAPI, expectedResponse, method).join();
+    } catch (CompletionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      if (cause instanceof Error) {
+        throw (Error) cause;
+      }
+      if (cause instanceof IOException) {
+        throw new UncheckedIOException((IOException) cause);
+      }
+      throw e;
+    }
+  }
+
+  /**
+   * Sends a request as a new stream on one of the connections, without blocking the caller.
+   *
+   * @param req Rest-Assured request specification, including the base uri of the service
+   * @param restAPI The specific API to test ex: "/myApi"
+   * @param expectedResponse Rest-Assured ResponseSpecification for validating the response
+   * @param method http action to be invoked (i.e. POST, GET, etc.)
+   * @return CompletableFuture which completes with the validated Response
+   */
+  public CompletableFuture<Response> sendAsync(RequestSpecification req, String restAPI,
+      ResponseSpecification expectedResponse, Method method) {
+    SimpleHttpRequest request;
+    try {
+      request = toRequest((FilterableRequestSpecification) req, restAPI, method);
+    } catch (IOException e) {
+      CompletableFuture<Response> failed = new CompletableFuture<Response>();
+      failed.completeExceptionally(e);
+      return failed;
+    }
+
+    Stream stream = new Stream();
+    HttpClientContext context = HttpClientContext.create();
+    context.setAttribute(STREAM_ATTRIBUTE, stream);
+    CompletableFuture<SimpleHttpResponse> received = new CompletableFuture<SimpleHttpResponse>();
+    CloseableHttpAsyncClient client =
+        clients[Math.floorMod(nextClient.getAndIncrement(), clients.length)];
+    client.execute(SimpleRequestProducer.create(request), SimpleResponseConsumer.create(), context,
+        new FutureCallback<SimpleHttpResponse>() {
+          @Override
+          public void completed(SimpleHttpResponse result) {
+            stream.completed();
+            received.complete(result);
+          }
+
+          @Override
+          public void failed(Exception e) {
+            stream.failed();
+            received.completeExceptionally(e);
+          }
+
+          @Override
+          public void cancelled() {
+            stream.failed();
+            received.cancel(false);
+          }
+        });
+
+    return received.thenApply(result -> {
+      Response response = toResponse(result);
+      LightweightTransport.validate(expectedResponse, response);
+      return response;
+    });
+  }
+
+  private static SimpleHttpRequest toRequest(FilterableRequestSpecification spec, String restAPI,
+      Method method) throws IOException {
+    spec.path(restAPI);
+    SimpleHttpRequest request =
+        SimpleHttpRequest.create(method.toString(), URI.create(spec.getURI()));
+
+    String contentType = null;
+    for (Header header : spec.getHeaders()) {
+      String name = header.getName().toLowerCase(Locale.ROOT);
+      if (name.equals("content-type")) {
+        contentType = header.getValue();
+      }
+      if (!EXCLUDED_HEADERS.contains(name)) {
+        request.addHeader(header.getName(), header.getValue());
+      }
+    }
+    if (spec.getCookies().exist()) {
+      StringBuilder cookies = new StringBuilder();
+      for (Cookie cookie : spec.getCookies()) {
+        if (cookies.length() > 0) {
+          cookies.append("; ");
+        }
+        cookies.append(cookie.getName()).append('=').append(cookie.getValue());
+      }
+      request.addHeader("Cookie", cookies.toString());
+    }
+
+    byte[] body = null;
+    Object specBody = spec.getBody();
+    if (!spec.getFormParams().isEmpty()) {
+      StringBuilder form = new StringBuilder();
+      for (Entry<String, String> param : spec.getFormParams().entrySet()) {
+        if (form.length() > 0) {
+          form.append('&');
+        }
+        form.append(URLEncoder.encode(param.getKey(), "UTF-8")).append('=')
+            .append(URLEncoder.encode(param.getValue(), "UTF-8"));
+      }
+      body = form.toString().getBytes(StandardCharsets.UTF_8);
+      contentType = "application/x-www-form-urlencoded";
+    } else if (specBody instanceof byte[]) {
+      body = (byte[]) specBody;
+    } else if (specBody instanceof InputStream) {
+      body = readAll((InputStream) specBody);
+    } else if (specBody instanceof File) {
+      body = Files.readAllBytes(((File) specBody).toPath());
+    } else if (specBody != null) {
+      body = specBody.toString().getBytes(StandardCharsets.UTF_8);
+    }
+    if (body != null) {
+      request.setBody(body, (contentType == null) ? ContentType.APPLICATION_OCTET_STREAM
+          : ContentType.parse(contentType));
+    }
+    return request;
+  }
+
+  private static byte[] readAll(InputStream in) throws IOException {
+    try (InputStream stream = in) {
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      byte[] buffer = new byte[8192];
+      int count;
+      while ((count = stream.read(buffer)) >= 0) {
+        out.write(buffer, 0, count);
+      }
+      return out.toByteArray();
+    }
+  }
+
+  private static Response toResponse(SimpleHttpResponse received) {
+    List<Header> headers = new ArrayList<Header>();
+    for (org.apache.hc.core5.http.Header header : received.getHeaders()) {
+      headers.add(new Header(header.getName(), header.getValue()));
+    }
+    if (received.getContentType() != null && received.getFirstHeader("Content-Type") == null) {
+      headers.add(new Header("Content-Type", received.getContentType().toString()));
+    }
+    byte[] body = received.getBodyBytes();
+    return ResponseFactory.create(received.getCode(), "HTTP/2.0 " + received.getCode() + " "
+        + ((received.getReasonPhrase() == null) ? "" : received.getReasonPhrase()),
+        new Headers(headers), (body == null) ? new byte[0] : body);
+  }
+
+  /**
+   *
+   * @return String name of the service to which the transport connects
+   */
+  public String getServiceName() {
+    return serviceName;
+  }
+
+  public Protocol getProtocol() {
+    return protocol;
+  }
+
+  /**
+   *
+   * @return int number of connections over which calls are multiplexed
+   */
+  public int getConnectionCount() {
+    return clients.length;
+  }
+
+  /**
+   * Returns the latency statistics of the streams sent so far.
+   *
+   * @return StreamStats
+   */
+  public StreamStats getStats() {
+    return stats;
+  }
+
+  /**
+   * Returns the statistics of the HTTP/2 transports of all services used so far.
+   *
+   * @return Map of service name to stream statistics
+   */
+  public static Map<String, StreamStats> getAllStats() {
+    Map<String, StreamStats> all = new ConcurrentHashMap<String, StreamStats>();
+    for (Http2Transport transport : transports.values()) {
+      all.put(transport.getServiceName(), transport.getStats());
+    }
+    return all;
+  }
+
+  /**
+   * Closes the connections of the transport and removes it, so a new transport is created on the
+   * next call to the service.
+   */
+  @Override
+  public void close() {
+    transports.remove(serviceName, this);
+    for (CloseableHttpAsyncClient client : clients) {
+      client.close(CloseMode.GRACEFUL);
+    }
+  }
+
+  /**
+   * Closes the HTTP/2 transport of a service, if one has been created, and forgets its protocol, so
+   * it is read again from the configuration of the service on the next call.
+   *
+   * @param serviceName name of the service, which is a mapping to the config folder in resources
+   */
+  public static void closeForService(String serviceName) {
+    protocols.remove(serviceName);
+    Http2Transport transport = transports.get(serviceName);
+    if (transport != null) {
+      transport.close();
+    }
+  }
+
+  /**
+   * Closes the HTTP/2 transports of all services, and forgets their protocols, so they are read
+   * again from the environment properties.
+   */
+  public static void closeAll() {
+    for (Http2Transport transport : transports.values()) {
+      transport.close();
+    }
+    protocols.clear();
+  }
+
+  /**
+   * Timing of a single stream.
+   */
+  private class Stream {
+    private final long start = System.nanoTime();
+    private volatile long headers = -1;
+
+    Stream() {
+      stats.started();
+    }
+
+    void headersReceived() {
+      headers = System.nanoTime();
+    }
+
+    void completed() {
+      long end = System.nanoTime();
+      stats.completed((headers < 0) ? end - start : headers - start, end - start);
+    }
+
+    void failed() {
+      stats.failed();
+    }
+  }
+
+  /**
+   * Latency statistics of the streams of a transport: the time until the response headers arrive,
+   * which grows when streams queue behind each other, and the time until the response is complete,
+   * along with the number of streams in flight. Latencies are recorded into HdrHistograms (see
+   * {@link Timer}), so percentiles cover every completed stream.
+   */
+  public static class StreamStats {
+
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger peakInFlight = new AtomicInteger();
+    private final Timer headerLatency = new Timer();
+    private final Timer totalLatency = new Timer();
+
+    void started() {
+      int current = inFlight.incrementAndGet();
+      peakInFlight.accumulateAndGet(current, Math::max);
+    }
+
+    void completed(long headerNanos, long totalNanos) {
+      inFlight.decrementAndGet();
+      completed.increment();
+      headerLatency.record(headerNanos);
+      totalLatency.record(totalNanos);
+    }
+
+    void failed() {
+      inFlight.decrementAndGet();
+      failed.increment();
+    }
+
+    public long getCompletedCount() {
+      return completed.sum();
+    }
+
+    public long getFailedCount() {
+      return failed.sum();
+    }
+
+    /**
+     *
+     * @return int number of streams currently open
+     */
+    public int getInFlight() {
+      return inFlight.get();
+    }
+
+    /**
+     *
+     * @return int largest number of streams open at once
+     */
+    public int getPeakInFlight() {
+      return peakInFlight.get();
+    }
+
+    /**
+     * Returns the time until the response headers arrived, below which the given percentage of
+     * the streams fall.
+     *
+     * @param percentile percentage between 0 and 100 (i.e. 99 for the 99th percentile)
+     * @return double latency in milliseconds, 0 if no streams have completed
+     */
+    public double getHeaderLatencyPercentileMillis(double percentile) {
+      return headerLatency.getQuantileSeconds(percentile / 100) * 1000;
+    }
+
+    /**
+     * Returns the time until the response was complete, below which the given percentage of the
+     * streams fall.
+     *
+     * @param percentile percentage between 0 and 100 (i.e. 99 for the 99th percentile)
+     * @return double latency in milliseconds, 0 if no streams have completed
+     */
+    public double getTotalLatencyPercentileMillis(double percentile) {
+      return totalLatency.getQuantileSeconds(percentile / 100) * 1000;
+    }
+
+    @Override
+    public String toString() {
+      return "completed: " + getCompletedCount() + "; failed: " + getFailedCount()
+          + "; in flight: " + getInFlight() + "; peak in flight: " + getPeakInFlight()
+          + "; headers p50/p99: " + getHeaderLatencyPercentileMillis(50) + "/"
+          + getHeaderLatencyPercentileMillis(99) + "ms; total p50/p99: "
+          + getTotalLatencyPercentileMillis(50) + "/" + getTotalLatencyPercentileMillis(99) + "ms";
+    }
+  }
+}
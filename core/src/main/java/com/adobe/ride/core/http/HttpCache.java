@@ -0,0 +1,721 @@
+/*-
+Copyright 2018 Adobe. All rights reserved.
+This file is licensed to you under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License. You may obtain a copy
+of the License at http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software distributed under
+the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+OF ANY KIND, either express or implied. See the License for the specific language
+governing permissions and limitations under the License.
+*/
+
+package com.adobe.ride.core.http;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiFunction;
+import java.util.logging.Logger;
+import org.apache.http.client.utils.DateUtils;
+import com.adobe.ride.config.management.TestProperties;
+import com.adobe.ride.config.management.TestPropertyType;
+import com.adobe.ride.core.metrics.RideMetrics;
+import io.restassured.builder.RequestSpecBuilder;
+import io.restassured.builder.ResponseSpecBuilder;
+import io.restassured.http.Header;
+import io.restassured.http.Headers;
+import io.restassured.response.Response;
+import io.restassured.specification.FilterableRequestSpecification;
+import io.restassured.specification.RequestSpecification;
+import io.restassured.specification.ResponseSpecification;
+
+/**
+ * Size-bounded client-side cache of the GET responses of a service, which behaves like the cache
+ * of a browser or SDK: responses are stored by url and the request headers named in their Vary
+ * header, and the least recently used urls are evicted once the cache is full. A stored response
+ * is served without a request while it is fresh (Cache-Control max-age, or Expires), and is
+ * otherwise revalidated with If-None-Match and If-Modified-Since; a 304 response counts as a hit
+ * and is answered with the stored body.
+ *
+ * Caches are off by default, and are enabled in the environment properties, keyed by service name,
+ * i.e.:
+ *
+ * <pre>
+ * MyService.cache.enabled=true
+ * MyService.cache.maxBytes=33554432
+ * </pre>
+ *
+ * or at runtime with {@link #enable(String, int)}. The hit, miss and revalidation ratios of each
+ * cache are available from {@link #getStats()}, and are recorded with
+ * {@link RideMetrics#recordCacheLookup}.
+ *
+ * @author tedcasey
+ *
+ */
+public class HttpCache {
+
+  protected static final Logger logger = Logger.getLogger(HttpCache.class.getName());
+
+  public static final String ENABLED_KEY = "cache.enabled";
+  public static final String MAX_BYTES_KEY = "cache.maxBytes";
+
+  public static final int DEFAULT_MAX_BYTES = 32 * 1024 * 1024;
+
+  /** Largest number of variants (see the Vary header) stored for a single url. */
+  private static final int MAX_VARIANTS = 8;
+
+  /**
+   * Outcome of a lookup.
+   */
+  public enum Result {
+    /** A fresh response was served without a request. */
+    FRESH,
+    /** A stored response was revalidated, and the service answered 304 Not Modified. */
+    NOT_MODIFIED,
+    /** A stored response was revalidated, and the service sent a new response. */
+    MODIFIED,
+    /** No response was stored for the request. */
+    MISS
+  }
+
+  private static final Map<String, HttpCache> caches = new ConcurrentHashMap<String, HttpCache>();
+
+  private final String serviceName;
+  private final int maxBytes;
+  private final LinkedHashMap<String, List<Entry>> entries =
+      new LinkedHashMap<String, List<Entry>>(64, 0.75f, true);
+  private long bytes = 0;
+  // guards entries, whose iteration order is updated by lookups, and bytes
+  private final ReentrantLock lock = new ReentrantLock();
+  private final LongAdder[] results = new LongAdder[Result.values().length];
+  private final LongAdder bypassed = new LongAdder();
+  private final LongAdder evictions = new LongAdder();
+
+  /**
+   * Constructor for a cache which is not registered for a service.
+   *
+   * @param serviceName name of the service whose responses are cached
+   * @param maxBytes maximum size of the stored bodies and headers
+   */
+  public HttpCache(String serviceName, int maxBytes) {
+    if (maxBytes < 1) {
+      throw new IllegalArgumentException("maxBytes must be greater than 0");
+    }
+    this.serviceName = serviceName;
+    this.maxBytes = maxBytes;
+    for (int i = 0; i < results.length; i++) {
+      results[i] = new LongAdder();
+    }
+  }
+
+  /**
+   * Returns the cache of a service, creating it from the environment properties on first use.
+   * Returns null if caching is not enabled for the service.
+   *
+   * @param serviceName name of the service, which is a mapping to the config folder in resources
+   * @return HttpCache
+   */
+  public static HttpCache forService(String serviceName) {
+    HttpCache cache = caches.get(serviceName);
+    if (cache == null && isEnabled(serviceName)) {
+      cache = caches.computeIfAbsent(serviceName, HttpCache::fromProperties);
+    }
+    return cache;
+  }
+
+  private static boolean isEnabled(String serviceName) {
+    return Boolean.parseBoolean(TestProperties.getServiceProperty(TestPropertyType.environment,
+        serviceName, ENABLED_KEY, "false"));
+  }
+
+  private static HttpCache fromProperties(String serviceName) {
+    return register(new HttpCache(serviceName, TestProperties.getPropertyAsInt(
+        TestPropertyType.environment, serviceName, MAX_BYTES_KEY, DEFAULT_MAX_BYTES)));
+  }
+
+  private static HttpCache register(HttpCache cache) {
+    logger.info("Caching responses of service " + cache.serviceName + " in up to "
+        + cache.maxBytes + " bytes");
+    RideMetrics.registerCache(cache);
+    return cache;
+  }
+
+  /**
+   * Enables caching of the GET responses of a service, replacing any cache it already has.
+   *
+   * @param serviceName name of the service, which is a mapping to the config folder in resources
+   * @param maxBytes maximum size of the stored bodies and headers
+   * @return HttpCache
+   */
+  public static HttpCache enable(String serviceName, int maxBytes) {
+    // the gauge of the new cache replaces that of any previous one
+    HttpCache cache = register(new HttpCache(serviceName, maxBytes));
+    caches.put(serviceName, cache);
+    return cache;
+  }
+
+  /**
+   * Removes the cache of a service, which is then only cached again if it is enabled in the
+   * environment properties.
+   *
+   * @param serviceName name of the service, which is a mapping to the config folder in resources
+   */
+  public static void disable(String serviceName) {
+    HttpCache cache = caches.remove(serviceName);
+    if (cache != null) {
+      RideMetrics.unregisterCache(cache);
+    }
+  }
+
+  /**
+   * Sends a GET request through the cache. The expected response is validated against the
+   * response returned to the caller, so a revalidated response is validated like the one it
+   * replaces. Requests which already carry conditional headers, or which ask not to be answered
+   * from a cache, bypass it.
+   *
+   * @param req Rest-Assured request specification, including the base uri of the service
+   * @param restAPI The specific API to test ex: "/myApi"
+   * @param expectedResponse Rest-Assured ResponseSpecification for validating the response
+   * @param sender sends a request, validating its response against the given specification
+   * @return Response
+   */
+  public Response get(RequestSpecification req, String restAPI,
+      ResponseSpecification expectedResponse,
+      BiFunction<RequestSpecification, ResponseSpecification, Response> sender) {
+    FilterableRequestSpecification spec = (FilterableRequestSpecification) req;
+    Headers requestHeaders = spec.getHeaders();
+    if (requestHeaders.hasHeaderWithName("If-None-Match")
+        || requestHeaders.hasHeaderWithName("If-Modified-Since")
+        || hasDirective(requestHeaders.getValue("Cache-Control"), "no-store")) {
+      bypassed.increment();
+      return sender.apply(req, expectedResponse);
+    }
+
+    String key = key(spec, restAPI);
+    Entry entry = find(key, requestHeaders);
+    if (entry != null && entry.isFresh(System.nanoTime())
+        && !hasDirective(requestHeaders.getValue("Cache-Control"), "no-cache")) {
+      record(Result.FRESH, 0);
+      Response response = entry.toResponse();
+      LightweightTransport.validate(expectedResponse, response);
+      return response;
+    }
+    RequestSpecification sent = req;
+    if (entry != null) {
+      // the request may be the caller's own builder state, so the conditional headers go on a
+      // copy; otherwise the next lookup with the same builder would bypass the cache
+      RequestSpecBuilder conditional = new RequestSpecBuilder().addRequestSpecification(req);
+      if (entry.etag != null) {
+        conditional.addHeader("If-None-Match", entry.etag);
+      }
+      if (entry.lastModified != null) {
+        conditional.addHeader("If-Modified-Since", entry.lastModified);
+      }
+      sent = conditional.build();
+    }
+
+    long start = System.nanoTime();
+    // any status is accepted here, since a 304 is answered with the stored response
+    Response response = sender.apply(sent, new ResponseSpecBuilder().build());
+    long nanos = System.nanoTime() - start;
+    if (entry != null && response.getStatusCode() == 304) {
+      entry = entry.revalidated(response.getHeaders(), System.nanoTime());
+      store(key, entry);
+      record(Result.NOT_MODIFIED, nanos);
+      response = entry.toResponse();
+    } else {
+      record((entry == null) ? Result.MISS : Result.MODIFIED, nanos);
+      Entry fetched = Entry.of(requestHeaders, response, System.nanoTime());
+      if (fetched != null && fetched.size <= maxBytes) {
+        store(key, fetched);
+      } else if (entry != null) {
+        remove(key, entry);
+      }
+    }
+    LightweightTransport.validate(expectedResponse, response);
+    return response;
+  }
+
+  private void record(Result result, long nanos) {
+    results[result.ordinal()].increment();
+    RideMetrics.recordCacheLookup(serviceName, result.name().toLowerCase(Locale.ROOT), nanos);
+  }
+
+  private static String key(FilterableRequestSpecification spec, String restAPI) {
+    StringBuilder key = new StringBuilder(spec.getBaseUri()).append(spec.getBasePath())
+        .append(restAPI);
+    if (!spec.getPathParams().isEmpty()) {
+      key.append(' ').append(new TreeMap<String, String>(spec.getPathParams()));
+    }
+    if (!spec.getQueryParams().isEmpty()) {
+      key.append('?').append(new TreeMap<String, String>(spec.getQueryParams()));
+    }
+    if (!spec.getRequestParams().isEmpty()) {
+      key.append('&').append(new TreeMap<String, String>(spec.getRequestParams()));
+    }
+    return key.toString();
+  }
+
+  private Entry find(String key, Headers requestHeaders) {
+    lock.lock();
+    try {
+      List<Entry> variants = entries.get(key);
+      if (variants != null) {
+        for (Entry entry : variants) {
+          if (entry.matches(requestHeaders)) {
+            return entry;
+          }
+        }
+      }
+      return null;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private void store(String key, Entry entry) {
+    lock.lock();
+    try {
+      List<Entry> variants = entries.get(key);
+      if (variants == null) {
+        variants = new ArrayList<Entry>(1);
+        entries.put(key, variants);
+      }
+      for (Iterator<Entry> i = variants.iterator(); i.hasNext();) {
+        Entry variant = i.next();
+        if (variant.varyValues.equals(entry.varyValues)) {
+          i.remove();
+          bytes -= variant.size;
+        }
+      }
+      if (variants.size() >= MAX_VARIANTS) {
+        bytes -= variants.remove(0).size;
+      }
+      variants.add(entry);
+      bytes += entry.size;
+
+      Iterator<List<Entry>> eldest = entries.values().iterator();
+      while (bytes > maxBytes && eldest.hasNext()) {
+        for (Entry evicted : eldest.next()) {
+          bytes -= evicted.size;
+          evictions.increment();
+        }
+        eldest.remove();
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private void remove(String key, Entry entry) {
+    lock.lock();
+    try {
+      List<Entry> variants = entries.get(key);
+      if (variants != null && variants.remove(entry)) {
+        bytes -= entry.size;
+        if (variants.isEmpty()) {
+          entries.remove(key);
+        }
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Removes every stored response, leaving the statistics as they are.
+   */
+  public void clear() {
+    lock.lock();
+    try {
+      entries.clear();
+      bytes = 0;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   *
+   * @return String name of the service whose responses are cached
+   */
+  public String getServiceName() {
+    return serviceName;
+  }
+
+  /**
+   *
+   * @return int maximum size of the stored bodies and headers
+   */
+  public int getMaxBytes() {
+    return maxBytes;
+  }
+
+  /**
+   *
+   * @return long current size of the stored bodies and headers
+   */
+  public long getBytes() {
+    lock.lock();
+    try {
+      return bytes;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Returns the statistics of the cache so far.
+   *
+   * @return Stats
+   */
+  public Stats getStats() {
+    long[] counts = new long[results.length];
+    for (int i = 0; i < counts.length; i++) {
+      counts[i] = results[i].sum();
+    }
+    int stored;
+    long size;
+    lock.lock();
+    try {
+      stored = entries.size();
+      size = bytes;
+    } finally {
+      lock.unlock();
+    }
+    return new Stats(serviceName, counts, bypassed.sum(), evictions.sum(), stored, size);
+  }
+
+  /**
+   * Returns the statistics of the caches of all services used so far.
+   *
+   * @return Map of service name to cache statistics
+   */
+  public static Map<String, Stats> getAllStats() {
+    Map<String, Stats> stats = new ConcurrentHashMap<String, Stats>();
+    for (HttpCache cache : caches.values()) {
+      stats.put(cache.getServiceName(), cache.getStats());
+    }
+    return stats;
+  }
+
+  private static boolean hasDirective(String cacheControl, String directive) {
+    return directiveValue(cacheControl, directive) != null;
+  }
+
+  /**
+   * Returns the value of a Cache-Control directive, an empty string for a directive without a
+   * value, or null if the directive is absent.
+   */
+  private static String directiveValue(String cacheControl, String directive) {
+    if (cacheControl == null) {
+      return null;
+    }
+    for (String part : cacheControl.split(",")) {
+      String[] pair = part.trim().split("=", 2);
+      if (pair[0].trim().equalsIgnoreCase(directive)) {
+        return (pair.length == 1) ? "" : pair[1].trim().replace("\"", "");
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Stored response, with the request header values it varies on and the time until which it is
+   * fresh.
+   */
+  private static final class Entry {
+    private final Map<String, String> varyValues;
+    private final int statusCode;
+    private final String statusLine;
+    private final Headers headers;
+    private final byte[] body;
+    private final String etag;
+    private final String lastModified;
+    private final long freshUntil;
+    private final long size;
+
+    private Entry(Map<String, String> varyValues, int statusCode, String statusLine,
+        Headers headers, byte[] body, long now) {
+      this.varyValues = varyValues;
+      this.statusCode = statusCode;
+      this.statusLine = statusLine;
+      this.headers = headers;
+      this.body = body;
+      etag = headers.getValue("ETag");
+      lastModified = headers.getValue("Last-Modified");
+      freshUntil = now + freshnessNanos(headers);
+      long headerSize = 0;
+      for (Header header : headers) {
+        headerSize += header.getName().length() + header.getValue().length() + 4;
+      }
+      size = body.length + headerSize;
+    }
+
+    /**
+     * Returns an entry for a response, or null if the response cannot be stored.
+     */
+    static Entry of(Headers requestHeaders, Response response, long now) {
+      if (response.getStatusCode() != 200) {
+        return null;
+      }
+      Headers headers = response.getHeaders();
+      String cacheControl = headers.getValue("Cache-Control");
+      String vary = headers.getValue("Vary");
+      if (hasDirective(cacheControl, "no-store") || (vary != null && vary.contains("*"))) {
+        return null;
+      }
+      if (!headers.hasHeaderWithName("ETag") && !headers.hasHeaderWithName("Last-Modified")
+          && freshnessNanos(headers) <= 0) {
+        // nothing to revalidate with, and never fresh
+        return null;
+      }
+      Map<String, String> varyValues = new TreeMap<String, String>();
+      if (vary != null) {
+        for (String name : vary.split(",")) {
+          name = name.trim().toLowerCase(Locale.ROOT);
+          if (!name.isEmpty()) {
+            varyValues.put(name, valueOf(requestHeaders, name));
+          }
+        }
+      }
+      return new Entry(varyValues, response.getStatusCode(), response.getStatusLine(),
+          stripped(headers), response.asByteArray(), now);
+    }
+
+    /**
+     * Returns the entry updated with the headers of a 304 response which revalidated it.
+     */
+    Entry revalidated(Headers notModified, long now) {
+      Map<String, Header> merged = new LinkedHashMap<String, Header>();
+      for (Header header : headers) {
+        merged.put(header.getName().toLowerCase(Locale.ROOT), header);
+      }
+      for (String name : new String[] {"ETag", "Last-Modified", "Cache-Control", "Expires",
+          "Date", "Age"}) {
+        Header header = notModified.get(name);
+        if (header != null) {
+          merged.put(name.toLowerCase(Locale.ROOT), header);
+        }
+      }
+      return new Entry(varyValues, statusCode, statusLine,
+          new Headers(new ArrayList<Header>(merged.values())), body, now);
+    }
+
+    boolean matches(Headers requestHeaders) {
+      for (Map.Entry<String, String> vary : varyValues.entrySet()) {
+        if (!vary.getValue().equals(valueOf(requestHeaders, vary.getKey()))) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    boolean isFresh(long now) {
+      return now - freshUntil < 0;
+    }
+
+    Response toResponse() {
+      return ResponseFactory.create(statusCode, statusLine, headers, body);
+    }
+
+    private static String valueOf(Headers requestHeaders, String name) {
+      return String.join(",", requestHeaders.getValues(name));
+    }
+
+    /**
+     * Removes the headers which describe the transfer rather than the stored body.
+     */
+    private static Headers stripped(Headers headers) {
+      List<Header> kept = new ArrayList<Header>();
+      for (Header header : headers) {
+        String name = header.getName();
+        if (!name.equalsIgnoreCase("Transfer-Encoding") && !name.equalsIgnoreCase("Connection")
+            && !name.equalsIgnoreCase("Keep-Alive") && !name.equalsIgnoreCase("Content-Encoding")) {
+          kept.add(header);
+        }
+      }
+      return new Headers(kept);
+    }
+
+    /**
+     * Returns how long a response stays fresh, from its Cache-Control max-age or its Expires
+     * header. Responses with neither are revalidated every time.
+     */
+    private static long freshnessNanos(Headers headers) {
+      String cacheControl = headers.getValue("Cache-Control");
+      if (hasDirective(cacheControl, "no-cache")) {
+        return 0;
+      }
+      long age = 0;
+      try {
+        String ageHeader = headers.getValue("Age");
+        age = (ageHeader == null) ? 0 : Long.parseLong(ageHeader.trim());
+      } catch (NumberFormatException e) {
+        age = 0;
+      }
+      String maxAge = directiveValue(cacheControl, "max-age");
+      if (maxAge != null) {
+        try {
+          return Math.max(0, Long.parseLong(maxAge) - age) * 1000000000L;
+        } catch (NumberFormatException e) {
+          return 0;
+        }
+      }
+      String expires = headers.getValue("Expires");
+      if (expires != null) {
+        Date expiry = DateUtils.parseDate(expires);
+        String dateHeader = headers.getValue("Date");
+        Date date = (dateHeader == null) ? null : DateUtils.parseDate(dateHeader);
+        long origin = (date == null) ? System.currentTimeMillis() : date.getTime();
+        return (expiry == null) ? 0
+            : Math.max(0, expiry.getTime() - origin - age * 1000) * 1000000L;
+      }
+      return 0;
+    }
+  }
+
+  /**
+   * Statistics of a cache. Hits are responses served from the cache, whether fresh or revalidated
+   * with a 304; misses are responses sent by the service, whether nothing was stored or the stored
+   * response had changed.
+   */
+  public static class Stats {
+    private final String serviceName;
+    private final long[] results;
+    private final long bypassed;
+    private final long evictions;
+    private final int urls;
+    private final long bytes;
+
+    Stats(String serviceName, long[] results, long bypassed, long evictions, int urls,
+        long bytes) {
+      this.serviceName = serviceName;
+      this.results = results;
+      this.bypassed = bypassed;
+      this.evictions = evictions;
+      this.urls = urls;
+      this.bytes = bytes;
+    }
+
+    /**
+     *
+     * @param result outcome of lookups
+     * @return long number of lookups with the given outcome
+     */
+    public long getCount(Result result) {
+      return results[result.ordinal()];
+    }
+
+    /**
+     *
+     * @return long number of requests looked up in the cache, excluding those which bypassed it
+     */
+    public long getLookups() {
+      long total = 0;
+      for (long count : results) {
+        total += count;
+      }
+      return total;
+    }
+
+    /**
+     *
+     * @return long number of responses served from the cache
+     */
+    public long getHits() {
+      return getCount(Result.FRESH) + getCount(Result.NOT_MODIFIED);
+    }
+
+    /**
+     *
+     * @return long number of responses sent by the service
+     */
+    public long getMisses() {
+      return getCount(Result.MISS) + getCount(Result.MODIFIED);
+    }
+
+    /**
+     *
+     * @return long number of conditional requests sent to revalidate stored responses
+     */
+    public long getRevalidations() {
+      return getCount(Result.NOT_MODIFIED) + getCount(Result.MODIFIED);
+    }
+
+    public double getHitRatio() {
+      return ratio(getHits(), getLookups());
+    }
+
+    public double getMissRatio() {
+      return ratio(getMisses(), getLookups());
+    }
+
+    public double getRevalidationRatio() {
+      return ratio(getRevalidations(), getLookups());
+    }
+
+    /**
+     *
+     * @return double share of the revalidations which the service answered with 304 Not Modified
+     */
+    public double getNotModifiedRatio() {
+      return ratio(getCount(Result.NOT_MODIFIED), getRevalidations());
+    }
+
+    /**
+     *
+     * @return long number of requests which bypassed the cache
+     */
+    public long getBypassed() {
+      return bypassed;
+    }
+
+    /**
+     *
+     * @return long number of stored responses evicted to make room for others
+     */
+    public long getEvictions() {
+      return evictions;
+    }
+
+    /**
+     *
+     * @return int number of urls with stored responses
+     */
+    public int getUrls() {
+      return urls;
+    }
+
+    /**
+     *
+     * @return long size of the stored bodies and headers
+     */
+    public long getBytes() {
+      return bytes;
+    }
+
+    private static double ratio(long count, long total) {
+      return (total == 0) ? 0 : (double) count / total;
+    }
+
+    @Override
+    public String toString() {
+      return String.format(Locale.ROOT,
+          "%s: %d lookups, hit %.1f%%, miss %.1f%%, revalidated %.1f%% (%.1f%% not modified), "
+              + "%d bypassed, %d urls in %d bytes, %d evictions",
+          serviceName, getLookups(), getHitRatio() * 100, getMissRatio() * 100,
+          getRevalidationRatio() * 100, getNotModifiedRatio() * 100, bypassed, urls, bytes,
+          evictions);
+    }
+  }
+}
@@ -0,0 +1,385 @@
+/*-
+Copyright 2018 Adobe. All rights reserved.
+This file is licensed to you under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License. You may obtain a copy
+of the License at http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software distributed under
+the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+OF ANY KIND, either express or implied. See the License for the specific language
+governing permissions and limitations under the License.
+*/
+
+package com.adobe.ride.core.http;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonStreamContext;
+import com.fasterxml.jackson.core.JsonToken;
+import io.restassured.response.Response;
+
+/**
+ * Extracts values from JSON bodies with a streaming parser, reading the body only as far as the
+ * requested values, and skipping over everything else without building it. This avoids parsing
+ * large responses into a JSONObject when only a few fields are needed.
+ *
+ * Values are located with JSON pointers (i.e. "/items/0/id"), or with simple JsonPath expressions
+ * made of field names and array indexes (i.e. "$.items[0].id"); wildcards and filters are not
+ * supported. Values are returned as json-simple types, as they would be by
+ * {@link org.json.simple.parser.JSONParser}: objects as JSONObject, arrays as JSONArray, integers
+ * as Long, decimals as Double.
+ *
+ * All methods are thread-safe. Each call reads and then closes the stream it is given, so
+ * extracting from a {@link StreamingResponse} releases its connection once the values have been
+ * found.
+ *
+ * @author tedcasey
+ *
+ */
+public class JsonStreamExtractor {
+
+  private static final JsonFactory factory = new JsonFactory();
+  private static final Object MISSING = new Object();
+
+  private JsonStreamExtractor() {}
+
+  /**
+   * Extracts a single value from a JSON body.
+   *
+   * @param body JSON body, which is closed once the value has been read
+   * @param path JSON pointer or JsonPath expression of the value
+   * @return Object value, or null if it is absent or null
+   */
+  public static Object extractValue(InputStream body, String path) {
+    return extract(body, new String[] {path}).get(path);
+  }
+
+  /**
+   * Extracts several values from a JSON body in a single pass. Parsing stops as soon as all values
+   * have been found.
+   *
+   * @param body JSON body, which is closed once the values have been read
+   * @param paths JSON pointers or JsonPath expressions of the values
+   * @return Map of each path to its value; paths which are absent from the body are not mapped
+   */
+  public static Map<String, Object> extract(InputStream body, String... paths) {
+    Map<String, String> pending = new LinkedHashMap<String, String>();
+    for (String path : paths) {
+      pending.put(toPointer(path), path);
+    }
+    Map<String, Object> values = new LinkedHashMap<String, Object>();
+    try (JsonParser parser = factory.createParser(body)) {
+      JsonToken token;
+      while (!pending.isEmpty() && (token = parser.nextToken()) != null) {
+        if (token == JsonToken.FIELD_NAME || token.isStructEnd()) {
+          continue;
+        }
+        String pointer = currentPointer(parser);
+        String path = pending.remove(pointer);
+        if (path != null) {
+          values.put(path, readValue(parser));
+          // other paths may lie within the value which has just been read
+          for (String other : new ArrayList<String>(pending.keySet())) {
+            if (isWithin(other, pointer)) {
+              Object value = locate(values.get(path), other.substring(pointer.length()));
+              if (value != MISSING) {
+                values.put(pending.get(other), value);
+              }
+              pending.remove(other);
+            }
+          }
+        } else if (token.isStructStart() && !leadsTo(pointer, pending.keySet())) {
+          parser.skipChildren();
+        }
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return values;
+  }
+
+  /**
+   * Extracts values from the body of a Rest-Assured response.
+   *
+   * @param response response holding a JSON body
+   * @param paths JSON pointers or JsonPath expressions of the values
+   * @return Map of each path to its value; paths which are absent from the body are not mapped
+   */
+  public static Map<String, Object> extract(Response response, String... paths) {
+    return extract(response.asInputStream(), paths);
+  }
+
+  /**
+   * Extracts values from a streamed response, reading the body only as far as the values.
+   *
+   * @param response streamed response holding a JSON body, which is closed once the values have
+   *        been read
+   * @param paths JSON pointers or JsonPath expressions of the values
+   * @return Map of each path to its value; paths which are absent from the body are not mapped
+   */
+  public static Map<String, Object> extract(StreamingResponse response, String... paths) {
+    return extract(response.getInputStream(), paths);
+  }
+
+  /**
+   * Iterates over the elements of an array within a JSON body, reading one element at a time, so
+   * arrays of any size can be processed without being held in memory. The iterator must be closed
+   * if it is not read to the end.
+   *
+   * @param body JSON body, which is closed with the iterator
+   * @param path JSON pointer or JsonPath expression of the array, i.e. "" or "$" for a body which
+   *        is itself an array
+   * @return ArrayIterator
+   */
+  public static ArrayIterator iterate(InputStream body, String path) {
+    String target = toPointer(path);
+    JsonParser parser = null;
+    try {
+      parser = factory.createParser(body);
+      JsonToken token;
+      while ((token = parser.nextToken()) != null) {
+        if (token == JsonToken.FIELD_NAME || token.isStructEnd()) {
+          continue;
+        }
+        String pointer = currentPointer(parser);
+        if (pointer.equals(target)) {
+          if (token != JsonToken.START_ARRAY) {
+            throw new IllegalArgumentException("Value at " + path + " is not an array");
+          }
+          return new ArrayIterator(parser);
+        }
+        if (token.isStructStart() && !isWithin(target, pointer)) {
+          parser.skipChildren();
+        }
+      }
+      throw new IllegalArgumentException("No array found at " + path);
+    } catch (IOException e) {
+      closeQuietly(parser);
+      throw new UncheckedIOException(e);
+    } catch (RuntimeException e) {
+      closeQuietly(parser);
+      throw e;
+    }
+  }
+
+  /**
+   * Iterates over the elements of an array within a streamed response.
+   *
+   * @param response streamed response holding a JSON body, which is closed with the iterator
+   * @param path JSON pointer or JsonPath expression of the array
+   * @return ArrayIterator
+   */
+  public static ArrayIterator iterate(StreamingResponse response, String path) {
+    return iterate(response.getInputStream(), path);
+  }
+
+  /**
+   * Converts a JsonPath expression made of field names and array indexes to a JSON pointer.
+   * Expressions which do not start with "$" are taken to be JSON pointers already.
+   *
+   * @param path JSON pointer or JsonPath expression
+   * @return String JSON pointer
+   */
+  public static String toPointer(String path) {
+    if (!path.startsWith("$")) {
+      return path;
+    }
+    StringBuilder pointer = new StringBuilder();
+    int i = 1;
+    while (i < path.length()) {
+      char c = path.charAt(i);
+      int end;
+      String segment;
+      if (c == '.') {
+        end = i + 1;
+        while (end < path.length() && path.charAt(end) != '.' && path.charAt(end) != '[') {
+          end++;
+        }
+        segment = path.substring(i + 1, end);
+      } else if (c == '[') {
+        end = path.indexOf(']', i);
+        if (end < 0) {
+          throw new IllegalArgumentException("Unclosed bracket in JsonPath: " + path);
+        }
+        segment = path.substring(i + 1, end).trim();
+        if (segment.length() > 1 && (segment.charAt(0) == '\'' || segment.charAt(0) == '"')) {
+          segment = segment.substring(1, segment.length() - 1);
+        }
+        end++;
+      } else {
+        throw new IllegalArgumentException("Unsupported JsonPath: " + path);
+      }
+      if (segment.isEmpty() || segment.equals("*") || segment.startsWith("?")) {
+        throw new IllegalArgumentException("Unsupported JsonPath: " + path);
+      }
+      pointer.append('/').append(segment.replace("~", "~0").replace("/", "~1"));
+      i = end;
+    }
+    return pointer.toString();
+  }
+
+  private static String currentPointer(JsonParser parser) {
+    JsonStreamContext context = parser.getParsingContext();
+    // a container which has just been opened is located by its parent context
+    if (parser.currentToken().isStructStart()) {
+      context = context.getParent();
+    }
+    return context.pathAsPointer().toString();
+  }
+
+  private static boolean isWithin(String pointer, String container) {
+    return pointer.startsWith(container)
+        && (pointer.length() == container.length() || pointer.charAt(container.length()) == '/');
+  }
+
+  private static boolean leadsTo(String container, Iterable<String> pointers) {
+    for (String pointer : pointers) {
+      if (isWithin(pointer, container)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static Object locate(Object value, String pointer) {
+    if (pointer.isEmpty()) {
+      return value;
+    }
+    Object current = value;
+    for (String segment : pointer.substring(1).split("/", -1)) {
+      segment = segment.replace("~1", "/").replace("~0", "~");
+      if (current instanceof JSONObject && ((JSONObject) current).containsKey(segment)) {
+        current = ((JSONObject) current).get(segment);
+      } else if (current instanceof JSONArray && segment.matches("\\d+")
+          && Integer.parseInt(segment) < ((JSONArray) current).size()) {
+        current = ((JSONArray) current).get(Integer.parseInt(segment));
+      } else {
+        return MISSING;
+      }
+    }
+    return current;
+  }
+
+  /**
+   * Reads the value at the current token, building only that value.
+   */
+  @SuppressWarnings("unchecked")
+  private static Object readValue(JsonParser parser) throws IOException {
+    switch (parser.currentToken()) {
+      case START_OBJECT:
+        JSONObject object = new JSONObject();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+          String name = parser.getCurrentName();
+          parser.nextToken();
+          object.put(name, readValue(parser));
+        }
+        return object;
+      case START_ARRAY:
+        JSONArray array = new JSONArray();
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+          array.add(readValue(parser));
+        }
+        return array;
+      case VALUE_STRING:
+        return parser.getText();
+      case VALUE_NUMBER_INT:
+        return (parser.getNumberType() == JsonParser.NumberType.BIG_INTEGER)
+            ? parser.getBigIntegerValue() : (Object) parser.getLongValue();
+      case VALUE_NUMBER_FLOAT:
+        return parser.getDoubleValue();
+      case VALUE_TRUE:
+        return Boolean.TRUE;
+      case VALUE_FALSE:
+        return Boolean.FALSE;
+      default:
+        return null;
+    }
+  }
+
+  private static void closeQuietly(JsonParser parser) {
+    if (parser != null) {
+      try {
+        parser.close();
+      } catch (IOException e) {
+        // the body is no longer needed
+      }
+    }
+  }
+
+  /**
+   * Iterator over the elements of a JSON array, which reads each element from the body only when
+   * it is requested. The body is closed when the end of the array is reached or the iterator is
+   * closed.
+   */
+  public static class ArrayIterator implements Iterator<Object>, Iterable<Object>, Closeable {
+    private final JsonParser parser;
+    private JsonToken next;
+    private boolean closed = false;
+
+    ArrayIterator(JsonParser parser) {
+      this.parser = parser;
+    }
+
+    @Override
+    public boolean hasNext() {
+      if (closed) {
+        return false;
+      }
+      if (next == null) {
+        try {
+          next = parser.nextToken();
+        } catch (IOException e) {
+          close();
+          throw new UncheckedIOException(e);
+        }
+        if (next == null || next == JsonToken.END_ARRAY) {
+          close();
+          return false;
+        }
+      }
+      return true;
+    }
+
+    @Override
+    public Object next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      next = null;
+      try {
+        return readValue(parser);
+      } catch (IOException e) {
+        close();
+        throw new UncheckedIOException(e);
+      }
+    }
+
+    /**
+     * Returns this iterator, so the array can be read with a for-each loop. The array can only be
+     * read once.
+     */
+    @Override
+    public Iterator<Object> iterator() {
+      return this;
+    }
+
+    @Override
+    public void close() {
+      if (!closed) {
+        closed = true;
+        closeQuietly(parser);
+      }
+    }
+  }
+}
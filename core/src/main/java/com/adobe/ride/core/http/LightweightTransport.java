@@ -0,0 +1,181 @@
+/*-
+Copyright 2018 Adobe. All rights reserved.
+This file is licensed to you under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License. You may obtain a copy
+of the License at http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software distributed under
+the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+OF ANY KIND, either express or implied. See the License for the specific language
+governing permissions and limitations under the License.
+*/
+
+package com.adobe.ride.core.http;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.HttpClient;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.conn.ssl.NoopHostnameVerifier;
+import org.apache.http.impl.NoConnectionReuseStrategy;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.ssl.SSLContexts;
+import org.apache.http.util.EntityUtils;
+import org.hamcrest.Matcher;
+import org.hamcrest.StringDescription;
+import groovy.lang.GroovyObject;
+import io.restassured.RestAssured;
+import io.restassured.http.Header;
+import io.restassured.http.Headers;
+import io.restassured.http.Method;
+import io.restassured.internal.ResponseSpecificationImpl;
+import io.restassured.response.Response;
+import io.restassured.specification.FilterableRequestSpecification;
+import io.restassured.specification.RequestSpecification;
+import io.restassured.specification.ResponseSpecification;
+
+/**
+ * Transport which sends requests directly with HttpClient over the pooled connections of the
+ * service, bypassing the Groovy request pipeline of Rest-Assured, so a single JVM can generate
+ * considerably more load.
+ *
+ * HttpClient 4 is used, rather than the HttpClient 5 of {@link Http2Transport}, because the
+ * requests share the {@link ServiceConnectionPool} of the service with the calls sent through
+ * Rest-Assured, which only takes HttpClient 4 clients: pool limits, warm-up, compression and the
+ * pool metrics apply alike to both transports.
+ *
+ * The request uri, headers, cookies, form parameters and body are sent; Rest-Assured filters are
+ * not applied, so requests carrying filters other than Ride's logging and timing filters are
+ * rejected (see {@link RideTransport#rejectFilters(RequestSpecification, String)}). Status code and
+ * status line expectations are checked directly; expected responses with header, cookie, content
+ * type or body expectations are validated by Rest-Assured, as with the default transport.
+ *
+ * @author tedcasey
+ *
+ */
+public class LightweightTransport implements RideTransport {
+
+  public static final LightweightTransport INSTANCE = new LightweightTransport();
+
+  protected LightweightTransport() {}
+
+  @Override
+  public Response send(ServiceConnectionPool pool, RequestSpecification req, String restAPI,
+      ResponseSpecification expectedResponse, Method method, boolean logResponse) {
+    RideTransport.rejectFilters(req, "calls sent by the lightweight transport");
+    HttpUriRequest request =
+        StreamingResponse.toRequest((FilterableRequestSpecification) req, restAPI, method, null);
+    HttpClient client = (pool != null) ? pool.getHttpClient() : Unpooled.CLIENT;
+    Response response;
+    try {
+      response = execute(client, request);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    if (logResponse) {
+      log(response, RestAssured.config().getLogConfig().defaultStream());
+    }
+    validate(expectedResponse, response);
+    return response;
+  }
+
+  private static Response execute(HttpClient client, HttpUriRequest request) throws IOException {
+    HttpResponse httpResponse = client.execute(request);
+    // reading the whole body returns the connection to the pool
+    HttpEntity entity = httpResponse.getEntity();
+    byte[] body = (entity == null) ? new byte[0] : EntityUtils.toByteArray(entity);
+
+    List<Header> headerList = new ArrayList<Header>();
+    for (org.apache.http.Header header : httpResponse.getAllHeaders()) {
+      headerList.add(new Header(header.getName(), header.getValue()));
+    }
+    return ResponseFactory.create(httpResponse.getStatusLine().getStatusCode(),
+        httpResponse.getStatusLine().toString(), new Headers(headerList), body);
+  }
+
+  /**
+   * Client for services whose pooling is disabled, which opens a new connection for each request
+   * and closes it once the response has been read.
+   */
+  private static class Unpooled {
+    static final CloseableHttpClient CLIENT = create();
+
+    private static CloseableHttpClient create() {
+      try {
+        // like the relaxed HTTPS validation applied to Rest-Assured calls
+        return HttpClients.custom()
+            .setSSLContext(
+                SSLContexts.custom().loadTrustMaterial((chain, authType) -> true).build())
+            .setSSLHostnameVerifier(NoopHostnameVerifier.INSTANCE)
+            .setConnectionReuseStrategy(NoConnectionReuseStrategy.INSTANCE)
+            .setMaxConnTotal(Integer.MAX_VALUE).setMaxConnPerRoute(Integer.MAX_VALUE).build();
+      } catch (GeneralSecurityException e) {
+        throw new IllegalStateException("Unable to relax https validation", e);
+      }
+    }
+  }
+
+  /**
+   * Checks status expectations directly, handing any other expectations to Rest-Assured.
+   */
+  static void validate(ResponseSpecification expectedResponse, Response response) {
+    if (expectedResponse == null) {
+      return;
+    }
+    if (!(expectedResponse instanceof ResponseSpecificationImpl)) {
+      expectedResponse.validate(response);
+      return;
+    }
+    ResponseSpecificationImpl spec = (ResponseSpecificationImpl) expectedResponse;
+    if (spec.hasBodyAssertionsDefined() || spec.hasHeaderAssertions()
+        || spec.hasCookieAssertions() || expectsContentType(spec)) {
+      expectedResponse.validate(response);
+      return;
+    }
+    List<String> failures = new ArrayList<String>();
+    check(failures, "status code", spec.getStatusCode(), response.getStatusCode());
+    check(failures, "status line", spec.getStatusLine(), response.getStatusLine());
+    if (!failures.isEmpty()) {
+      StringBuilder message = new StringBuilder().append(failures.size())
+          .append((failures.size() == 1) ? " expectation failed." : " expectations failed.");
+      for (String failure : failures) {
+        message.append(System.lineSeparator()).append(failure);
+      }
+      throw new AssertionError(message.toString());
+    }
+  }
+
+  private static boolean expectsContentType(ResponseSpecificationImpl spec) {
+    // getResponseContentType() of Rest-Assured 3.0 recurses endlessly, so the property is read
+    return ((GroovyObject) spec).getProperty("contentType") != null;
+  }
+
+  private static <T> void check(List<String> failures, String name, Matcher<T> matcher,
+      T actual) {
+    if (matcher != null && !matcher.matches(actual)) {
+      failures.add("Expected " + name + " " + StringDescription.toString(matcher) + " but was <"
+          + actual + ">.");
+    }
+  }
+
+  private static void log(Response response, PrintStream stream) {
+    StringBuilder out = new StringBuilder(response.getStatusLine()).append(System.lineSeparator());
+    for (Header header : response.getHeaders()) {
+      out.append(header.getName()).append(": ").append(header.getValue())
+          .append(System.lineSeparator());
+    }
+    out.append(System.lineSeparator())
+        .append(new String(response.asByteArray(), StandardCharsets.UTF_8))
+        .append(System.lineSeparator());
+    stream.print(out);
+    stream.flush();
+  }
+}
@@ -0,0 +1,182 @@
+/*-
+Copyright 2018 Adobe. All rights reserved.
+This file is licensed to you under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License. You may obtain a copy
+of the License at http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software distributed under
+the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+OF ANY KIND, either express or implied. See the License for the specific language
+governing permissions and limitations under the License.
+*/
+
+package com.adobe.ride.core.http;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+
+/**
+ * Stream which counts, hashes and times the bytes read through it, so large bodies can be verified
+ * and metered as they are consumed, without being held in memory.
+ *
+ * @author tedcasey
+ *
+ */
+public class MeteredInputStream extends FilterInputStream {
+
+  public static final String DEFAULT_ALGORITHM = "MD5";
+
+  private final MessageDigest digest;
+  private final long start = System.nanoTime();
+  private long byteCount = 0;
+  private long end = -1;
+
+  /**
+   * Constructor for a stream hashed with MD5, matching the Content-MD5 header.
+   *
+   * @param in stream to be metered
+   */
+  public MeteredInputStream(InputStream in) {
+    this(in, DEFAULT_ALGORITHM);
+  }
+
+  /**
+   * Constructor for a stream hashed with the given algorithm.
+   *
+   * @param in stream to be metered
+   * @param algorithm name of the MessageDigest algorithm (i.e. MD5, SHA-256), or null for no hash
+   */
+  public MeteredInputStream(InputStream in, String algorithm) {
+    super(in);
+    try {
+      digest = (algorithm == null) ? null : MessageDigest.getInstance(algorithm);
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalArgumentException("Unsupported digest algorithm: " + algorithm, e);
+    }
+  }
+
+  @Override
+  public int read() throws IOException {
+    int b = in.read();
+    if (b >= 0) {
+      byteCount++;
+      if (digest != null) {
+        digest.update((byte) b);
+      }
+    } else {
+      finish();
+    }
+    return b;
+  }
+
+  @Override
+  public int read(byte[] b, int off, int len) throws IOException {
+    int count = in.read(b, off, len);
+    if (count > 0) {
+      byteCount += count;
+      if (digest != null) {
+        digest.update(b, off, count);
+      }
+    } else if (count < 0) {
+      finish();
+    }
+    return count;
+  }
+
+  /**
+   * Skipped bytes are still read, so that they are counted and hashed.
+   */
+  @Override
+  public long skip(long n) throws IOException {
+    byte[] buffer = new byte[(int) Math.min(8192, Math.max(n, 1))];
+    long remaining = n;
+    while (remaining > 0) {
+      int count = read(buffer, 0, (int) Math.min(buffer.length, remaining));
+      if (count < 0) {
+        break;
+      }
+      remaining -= count;
+    }
+    return n - remaining;
+  }
+
+  @Override
+  public boolean markSupported() {
+    return false;
+  }
+
+  @Override
+  public void close() throws IOException {
+    finish();
+    super.close();
+  }
+
+  private void finish() {
+    if (end < 0) {
+      end = System.nanoTime();
+    }
+  }
+
+  /**
+   *
+   * @return long number of bytes read so far
+   */
+  public long getByteCount() {
+    return byteCount;
+  }
+
+  /**
+   * Returns the hash of the bytes read so far; this is the hash of the whole body once the end of
+   * the stream has been reached.
+   *
+   * @return byte[] hash, or null if the stream is not hashed
+   */
+  public byte[] getDigest() {
+    if (digest == null) {
+      return null;
+    }
+    try {
+      return ((MessageDigest) digest.clone()).digest();
+    } catch (CloneNotSupportedException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /**
+   *
+   * @return String Base64 encoded hash of the bytes read so far, as used by the Content-MD5 header
+   */
+  public String getEncodedDigest() {
+    byte[] hash = getDigest();
+    return (hash == null) ? null : Base64.getEncoder().encodeToString(hash);
+  }
+
+  /**
+   *
+   * @return boolean indicator of whether the end of the stream has been reached or it was closed
+   */
+  public boolean isFinished() {
+    return end >= 0;
+  }
+
+  /**
+   *
+   * @return long nanoseconds from the creation of the stream until it finished, or until now
+   */
+  public long getElapsedNanos() {
+    return ((end < 0) ? System.nanoTime() : end) - start;
+  }
+
+  /**
+   *
+   * @return double average throughput in bytes per second
+   */
+  public double getBytesPerSecond() {
+    long elapsed = getElapsedNanos();
+    return (elapsed == 0) ? 0 : byteCount * 1e9 / elapsed;
+  }
+}
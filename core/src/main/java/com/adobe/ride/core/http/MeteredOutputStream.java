@@ -0,0 +1,152 @@
+/*-
+Copyright 2018 Adobe. All rights reserved.
+This file is licensed to you under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License. You may obtain a copy
+of the License at http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software distributed under
+the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+OF ANY KIND, either express or implied. See the License for the specific language
+governing permissions and limitations under the License.
+*/
+
+package com.adobe.ride.core.http;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+
+/**
+ * Stream which counts, hashes and times the bytes written through it, so large uploads can be
+ * verified and metered as they are sent, without being held in memory.
+ *
+ * @author tedcasey
+ *
+ */
+public class MeteredOutputStream extends FilterOutputStream {
+
+  private final MessageDigest digest;
+  private final long start = System.nanoTime();
+  private long byteCount = 0;
+  private long end = -1;
+
+  /**
+   * Constructor for a stream hashed with MD5, matching the Content-MD5 header.
+   *
+   * @param out stream to be metered
+   */
+  public MeteredOutputStream(OutputStream out) {
+    this(out, MeteredInputStream.DEFAULT_ALGORITHM);
+  }
+
+  /**
+   * Constructor for a stream hashed with the given algorithm.
+   *
+   * @param out stream to be metered
+   * @param algorithm name of the MessageDigest algorithm (i.e. MD5, SHA-256), or null for no hash
+   */
+  public MeteredOutputStream(OutputStream out, String algorithm) {
+    super(out);
+    try {
+      digest = (algorithm == null) ? null : MessageDigest.getInstance(algorithm);
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalArgumentException("Unsupported digest algorithm: " + algorithm, e);
+    }
+  }
+
+  @Override
+  public void write(int b) throws IOException {
+    out.write(b);
+    byteCount++;
+    if (digest != null) {
+      digest.update((byte) b);
+    }
+  }
+
+  @Override
+  public void write(byte[] b, int off, int len) throws IOException {
+    out.write(b, off, len);
+    byteCount += len;
+    if (digest != null) {
+      digest.update(b, off, len);
+    }
+  }
+
+  /**
+   * Records the end of the transfer without closing the underlying stream, which may belong to a
+   * connection that is reused.
+   */
+  public void finish() {
+    if (end < 0) {
+      end = System.nanoTime();
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    finish();
+    super.close();
+  }
+
+  /**
+   *
+   * @return long number of bytes written so far
+   */
+  public long getByteCount() {
+    return byteCount;
+  }
+
+  /**
+   * Returns the hash of the bytes written so far.
+   *
+   * @return byte[] hash, or null if the stream is not hashed
+   */
+  public byte[] getDigest() {
+    if (digest == null) {
+      return null;
+    }
+    try {
+      return ((MessageDigest) digest.clone()).digest();
+    } catch (CloneNotSupportedException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /**
+   *
+   * @return String Base64 encoded hash of the bytes written so far, as used by the Content-MD5
+   *         header
+   */
+  public String getEncodedDigest() {
+    byte[] hash = getDigest();
+    return (hash == null) ? null : Base64.getEncoder().encodeToString(hash);
+  }
+
+  /**
+   *
+   * @return boolean indicator of whether the transfer has finished
+   */
+  public boolean isFinished() {
+    return end >= 0;
+  }
+
+  /**
+   *
+   * @return long nanoseconds from the creation of the stream until it finished, or until now
+   */
+  public long getElapsedNanos() {
+    return ((end < 0) ? System.nanoTime() : end) - start;
+  }
+
+  /**
+   *
+   * @return double average throughput in bytes per second
+   */
+  public double getBytesPerSecond() {
+    long elapsed = getElapsedNanos();
+    return (elapsed == 0) ? 0 : byteCount * 1e9 / elapsed;
+  }
+}
@@ -0,0 +1,47 @@
+/*-
+Copyright 2018 Adobe. All rights reserved.
+This file is licensed to you under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License. You may obtain a copy
+of the License at http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software distributed under
+the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+OF ANY KIND, either express or implied. See the License for the specific language
+governing permissions and limitations under the License.
+*/
+
+package com.adobe.ride.core.http;
+
+import io.restassured.RestAssured;
+import io.restassured.builder.ResponseBuilder;
+import io.restassured.http.Headers;
+import io.restassured.internal.RestAssuredResponseImpl;
+import io.restassured.response.Response;
+
+/**
+ * Builds Rest-Assured responses for exchanges made without Rest-Assured, so they can be used like
+ * any other response (i.e. with jsonPath() or then()).
+ *
+ * @author tedcasey
+ *
+ */
+final class ResponseFactory {
+
+  private ResponseFactory() {}
+
+  static Response create(int statusCode, String statusLine, Headers headers, byte[] body) {
+    ResponseBuilder builder = new ResponseBuilder();
+    String contentType = headers.getValue("Content-Type");
+    if (contentType != null) {
+      // set before the headers, which replace the header added with it
+      builder.setContentType(contentType);
+    }
+    Response response = builder.setStatusCode(statusCode).setStatusLine(statusLine)
+        .setHeaders(headers).setBody(body).build();
+    // built responses carry no config, which body parsing requires
+    if (response instanceof RestAssuredResponseImpl) {
+      ((RestAssuredResponseImpl) response).setConfig(RestAssured.config());
+    }
+    return response;
+  }
+}
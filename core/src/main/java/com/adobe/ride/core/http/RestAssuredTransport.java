@@ -0,0 +1,102 @@
+/*-
+Copyright 2018 Adobe. All rights reserved.
+This file is licensed to you under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License. You may obtain a copy
+of the License at http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software distributed under
+the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+OF ANY KIND, either express or implied. See the License for the specific language
+governing permissions and limitations under the License.
+*/
+
+package com.adobe.ride.core.http;
+
+import static io.restassured.RestAssured.given;
+import io.restassured.RestAssured;
+import io.restassured.config.RestAssuredConfig;
+import io.restassured.http.Method;
+import io.restassured.response.Response;
+import io.restassured.specification.FilterableRequestSpecification;
+import io.restassured.specification.RequestSpecification;
+import io.restassured.specification.ResponseSpecification;
+
+/**
+ * Default transport, which sends requests through Rest-Assured, so all Rest-Assured filters,
+ * logging and response validation are applied.
+ *
+ * @author tedcasey
+ *
+ */
+public class RestAssuredTransport implements RideTransport {
+
+  public static final RestAssuredTransport INSTANCE = new RestAssuredTransport();
+
+  protected RestAssuredTransport() {}
+
+  @Override
+  public Response send(ServiceConnectionPool pool, RequestSpecification req, String restAPI,
+      ResponseSpecification expectedResponse, Method method, boolean logResponse) {
+    // share pooled keep-alive connections to the service across calls and threads
+    if (pool != null) {
+      FilterableRequestSpecification spec = (FilterableRequestSpecification) req;
+      RestAssuredConfig config = spec.getConfig();
+      spec.config(pool.applyTo((config == null) ? RestAssured.config() : config));
+      // the request is the builder's own, so a builder reused across calls already has it
+      if (!spec.getDefinedFilters().contains(ServiceConnectionPool.RELEASE_FILTER)) {
+        spec.filter(ServiceConnectionPool.RELEASE_FILTER);
+      }
+    }
+    return logResponse ? sendLogged(req, restAPI, expectedResponse, method)
+        : sendRequest(req, restAPI, expectedResponse, method);
+  }
+
+  private static Response sendLogged(RequestSpecification req, String restAPI,
+      ResponseSpecification expectedResponse, Method method) {
+    switch (method) {
+      case DELETE:
+        return given(req).expect().spec(expectedResponse).log().all().when().delete(restAPI);
+      case GET:
+        return given(req).expect().spec(expectedResponse).log().all().when().get(restAPI);
+      case HEAD:
+        return given(req).expect().spec(expectedResponse).log().all().when().head(restAPI);
+      case OPTIONS:
+        return given(req).expect().spec(expectedResponse).log().all().when().options(restAPI);
+      case PATCH:
+        return given(req).expect().spec(expectedResponse).log().all().when().patch(restAPI);
+      case POST:
+        return given(req).expect().spec(expectedResponse).log().all().when().post(restAPI);
+      case PUT:
+        return given(req).expect().spec(expectedResponse).log().all().when().put(restAPI);
+      case TRACE:
+        return given(req).expect().spec(expectedResponse).log().all().when().request(method,
+            restAPI);
+      default:
+        return null;
+    }
+  }
+
+  private static Response sendRequest(RequestSpecification req, String restAPI,
+      ResponseSpecification expectedResponse, Method method) {
+    switch (method) {
+      case DELETE:
+        return given(req).expect().spec(expectedResponse).when().delete(restAPI);
+      case GET:
+        return given(req).expect().spec(expectedResponse).when().get(restAPI);
+      case HEAD:
+        return given(req).expect().spec(expectedResponse).when().head(restAPI);
+      case OPTIONS:
+        return given(req).expect().spec(expectedResponse).when().options(restAPI);
+      case PATCH:
+        return given(req).expect().spec(expectedResponse).when().patch(restAPI);
+      case POST:
+        return given(req).expect().spec(expectedResponse).when().post(restAPI);
+      case PUT:
+        return given(req).expect().spec(expectedResponse).when().put(restAPI);
+      case TRACE:
+        return given(req).expect().spec(expectedResponse).when().request(method, restAPI);
+      default:
+        return null;
+    }
+  }
+}
@@ -0,0 +1,124 @@
+/*-
+Copyright 2018 Adobe. All rights reserved.
+This file is licensed to you under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License. You may obtain a copy
+of the License at http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software distributed under
+the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+OF ANY KIND, either express or implied. See the License for the specific language
+governing permissions and limitations under the License.
+*/
+
+package com.adobe.ride.core.http;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import com.adobe.ride.core.filters.OnFailureLogFilter;
+import com.adobe.ride.core.filters.PhaseTimingFilter;
+import io.restassured.filter.Filter;
+import io.restassured.filter.log.ErrorLoggingFilter;
+import io.restassured.filter.log.RequestLoggingFilter;
+import io.restassured.filter.log.ResponseLoggingFilter;
+import io.restassured.http.Method;
+import io.restassured.response.Response;
+import io.restassured.specification.FilterableRequestSpecification;
+import io.restassured.specification.RequestSpecification;
+import io.restassured.specification.ResponseSpecification;
+
+/**
+ * Transport which sends the requests made through the RestApiController. Rest-Assured is the
+ * default ({@link RestAssuredTransport}); {@link LightweightTransport} sends requests with much
+ * less overhead per request, for generating load, at the cost of applying no Rest-Assured filters:
+ * a request carrying filters it would skip is rejected.
+ *
+ * The default transport is chosen with the system property <code>ride.transport</code>, set to
+ * <code>restassured</code> or <code>lightweight</code>, and can be changed at runtime with
+ * RestApiController.setTransport.
+ *
+ * @author tedcasey
+ *
+ */
+public interface RideTransport {
+
+  String TRANSPORT_PROPERTY = "ride.transport";
+
+  /**
+   * Sends a request and validates its response.
+   *
+   * @param pool pool of connections to the target service, null if pooling is disabled
+   * @param req Rest-Assured request specification, including the base uri of the service
+   * @param restAPI The specific API to test ex: "/myApi"
+   * @param expectedResponse Rest-Assured ResponseSpecification for validating the response
+   * @param method http action to be invoked (i.e. POST, GET, etc.)
+   * @param logResponse whether the response is logged
+   * @return Response
+   */
+  Response send(ServiceConnectionPool pool, RequestSpecification req, String restAPI,
+      ResponseSpecification expectedResponse, Method method, boolean logResponse);
+
+  /**
+   * Throws if a request carries Rest-Assured filters which are about to be skipped, because the
+   * call is sent without Rest-Assured. The logging and timing filters Ride adds itself are allowed,
+   * as skipping them changes nothing about the request; any other filter, i.e. one adding
+   * authentication, would leave the request without what it adds.
+   *
+   * @param req Rest-Assured request specification
+   * @param calls description of the calls which skip filters, for the message
+   * @throws IllegalArgumentException if the request carries a filter which would be skipped
+   */
+  static void rejectFilters(RequestSpecification req, String calls) {
+    rejectFilters(((FilterableRequestSpecification) req).getDefinedFilters(), calls);
+  }
+
+  /**
+   * Throws if any of the given filters would be skipped, as for
+   * {@link #rejectFilters(RequestSpecification, String)}.
+   *
+   * @param filters Rest-Assured filters, which may hold nulls
+   * @param calls description of the calls which skip filters, for the message
+   * @throws IllegalArgumentException if a filter would be skipped
+   */
+  static void rejectFilters(Collection<Filter> filters, String calls) {
+    List<String> skipped = new ArrayList<String>();
+    for (Filter filter : filters) {
+      if (filter != null && !isSkippable(filter)) {
+        skipped.add(filter.getClass().getName());
+      }
+    }
+    if (!skipped.isEmpty()) {
+      throw new IllegalArgumentException("Rest-Assured filters are not applied to " + calls
+          + ", so these would be skipped: " + skipped
+          + ". Send the call with fireRestCall, or set what the filters add on the request "
+          + "builder.");
+    }
+  }
+
+  /**
+   * Returns whether a filter can be skipped without changing the request or its validation: the
+   * logging and timing filters Ride adds itself.
+   *
+   * @param filter Rest-Assured filter
+   * @return boolean indicator of whether the filter can be skipped
+   */
+  static boolean isSkippable(Filter filter) {
+    return filter instanceof RequestLoggingFilter || filter instanceof ResponseLoggingFilter
+        || filter instanceof ErrorLoggingFilter || filter instanceof OnFailureLogFilter
+        || filter instanceof PhaseTimingFilter;
+  }
+
+  /**
+   * Returns the transport named by the <code>ride.transport</code> system property, Rest-Assured
+   * if it is not set.
+   *
+   * @return RideTransport
+   */
+  static RideTransport fromSystemProperty() {
+    String name = System.getProperty(TRANSPORT_PROPERTY, "restassured");
+    if (name.equalsIgnoreCase("lightweight")) {
+      return LightweightTransport.INSTANCE;
+    }
+    return RestAssuredTransport.INSTANCE;
+  }
+}
@@ -0,0 +1,387 @@
+/*-
+Copyright 2018 Adobe. All rights reserved.
+This file is licensed to you under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License. You may obtain a copy
+of the License at http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software distributed under
+the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+OF ANY KIND, either express or implied. See the License for the specific language
+governing permissions and limitations under the License.
+*/
+
+package com.adobe.ride.core.http;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.security.GeneralSecurityException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.apache.http.HttpHost;
+import org.apache.http.HttpRequestInterceptor;
+import org.apache.http.HttpResponseInterceptor;
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
+import org.apache.http.conn.ConnectionPoolTimeoutException;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.pool.PoolStats;
+import org.apache.http.protocol.BasicHttpContext;
+import com.adobe.ride.config.aop.TargetServiceConfiguration;
+import com.adobe.ride.config.management.TestProperties;
+import com.adobe.ride.config.management.TestPropertyType;
+import com.adobe.ride.core.metrics.RideMetrics;
+import io.restassured.config.ConnectionConfig;
+import io.restassured.config.HttpClientConfig;
+import io.restassured.config.RestAssuredConfig;
+import io.restassured.filter.Filter;
+import io.restassured.response.Response;
+
+/**
+ * Pool of keep-alive HTTP connections to a single target service, shared by all threads making
+ * calls to that service through the RestApiController.
+ *
+ * Pool settings are read from the environment properties, keyed by service name, i.e.:
+ *
+ * <pre>
+ * MyService.pool.enabled=true
+ * MyService.pool.maxTotal=200
+ * MyService.pool.maxPerRoute=100
+ * MyService.pool.idleTimeoutMillis=30000
+ * MyService.pool.ttlMillis=0
+ * MyService.pool.keepAliveMillis=30000
+ * </pre>
+ *
+ * Bodies of calls sent through the pool are compressed according to the {@link CompressionPolicy}
+ * of the service.
+ *
+ * @author tedcasey
+ *
+ */
+@SuppressWarnings("deprecation")
+public class ServiceConnectionPool implements Closeable {
+
+  protected static final Logger logger = Logger.getLogger(ServiceConnectionPool.class.getName());
+
+  public static final String ENABLED_KEY = "pool.enabled";
+  public static final String MAX_TOTAL_KEY = "pool.maxTotal";
+  public static final String MAX_PER_ROUTE_KEY = "pool.maxPerRoute";
+  public static final String IDLE_TIMEOUT_KEY = "pool.idleTimeoutMillis";
+  public static final String TTL_KEY = "pool.ttlMillis";
+  public static final String KEEP_ALIVE_KEY = "pool.keepAliveMillis";
+
+  public static final int DEFAULT_MAX_TOTAL = 200;
+  public static final int DEFAULT_MAX_PER_ROUTE = 100;
+  public static final int DEFAULT_IDLE_TIMEOUT_MILLIS = 30000;
+  public static final int DEFAULT_TTL_MILLIS = 0;
+  public static final int DEFAULT_KEEP_ALIVE_MILLIS = 30000;
+
+  /**
+   * Filter which reads the body of each response as soon as it is received, so its connection is
+   * returned to the pool even if the caller never reads the body. The body remains available from
+   * the response.
+   */
+  public static final Filter RELEASE_FILTER = (requestSpec, responseSpec, ctx) -> {
+    Response response = ctx.next(requestSpec, responseSpec);
+    response.asByteArray();
+    return response;
+  };
+
+  private static final HttpRequestInterceptor REQUEST_PHASE =
+      (request, context) -> CallPhases.requestSent();
+  private static final HttpResponseInterceptor RESPONSE_PHASE =
+      (response, context) -> CallPhases.headersReceived();
+
+  private static final Map<String, ServiceConnectionPool> pools =
+      new ConcurrentHashMap<String, ServiceConnectionPool>();
+  private static final ScheduledExecutorService evictor =
+      Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "ride-connection-evictor");
+        thread.setDaemon(true);
+        return thread;
+      });
+
+  private final String serviceName;
+  private final org.apache.http.impl.conn.PoolingClientConnectionManager connectionManager;
+  private final ConnectionKeepAliveStrategy keepAliveStrategy;
+  private final org.apache.http.impl.client.DefaultHttpClient httpClient;
+  private final HttpClientConfig httpClientConfig;
+  private final ConnectionConfig connectionConfig;
+  private final ScheduledFuture<?> eviction;
+  private final CompressionInterceptor compression;
+  private final long keepAliveMillis;
+
+  /**
+   * Constructor for a pool with explicit settings.
+   *
+   * @param serviceName name of the service, which is a mapping to the config folder in resources
+   * @param maxTotal maximum number of connections in the pool
+   * @param maxPerRoute maximum number of connections to a single host and port
+   * @param idleTimeoutMillis time after which idle connections are closed
+   * @param ttlMillis maximum lifetime of a connection, 0 for no limit
+   * @param keepAliveMillis time a connection is kept alive when the service does not send a
+   *        Keep-Alive header
+   */
+  public ServiceConnectionPool(String serviceName, int maxTotal, int maxPerRoute,
+      long idleTimeoutMillis, long ttlMillis, long keepAliveMillis) {
+    this.serviceName = serviceName;
+    compression = new CompressionInterceptor(serviceName);
+    this.keepAliveMillis = keepAliveMillis;
+    connectionManager = new org.apache.http.impl.conn.PoolingClientConnectionManager(
+        createSchemeRegistry(), (ttlMillis > 0) ? ttlMillis : -1, TimeUnit.MILLISECONDS);
+    connectionManager.setMaxTotal(maxTotal);
+    connectionManager.setDefaultMaxPerRoute(maxPerRoute);
+
+    DefaultConnectionKeepAliveStrategy serverStrategy = new DefaultConnectionKeepAliveStrategy();
+    keepAliveStrategy = (response, context) -> {
+      long serverKeepAlive = serverStrategy.getKeepAliveDuration(response, context);
+      return (serverKeepAlive > 0) ? serverKeepAlive : keepAliveMillis;
+    };
+
+    httpClient = newHttpClient();
+    // Rest-Assured alters its client on every request, so each request gets its own lightweight
+    // client, while the connections themselves are shared through the pooled manager
+    httpClientConfig = HttpClientConfig.httpClientConfig().httpClientFactory(this::newHttpClient);
+    // idle connections are left open after each response and evicted in the background instead
+    connectionConfig = new ConnectionConfig();
+
+    long evictionPeriod = Math.max(1000, idleTimeoutMillis / 2);
+    eviction = evictor.scheduleAtFixedRate(() -> {
+      connectionManager.closeExpiredConnections();
+      connectionManager.closeIdleConnections(idleTimeoutMillis, TimeUnit.MILLISECONDS);
+    }, evictionPeriod, evictionPeriod, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Creates the scheme registry used for connections to services. Like the relaxed HTTPS
+   * validation applied to Rest-Assured calls, any certificate and host name is accepted. The
+   * connect and TLS handshake of each new connection are timed for {@link CallPhases}.
+   *
+   * @return SchemeRegistry
+   */
+  public static org.apache.http.conn.scheme.SchemeRegistry createSchemeRegistry() {
+    org.apache.http.conn.scheme.SchemeRegistry registry =
+        org.apache.http.impl.conn.SchemeRegistryFactory.createDefault();
+    try {
+      registry.register(new org.apache.http.conn.scheme.Scheme("https", 443,
+          new org.apache.http.conn.ssl.SSLSocketFactory((chain, authType) -> true,
+              org.apache.http.conn.ssl.SSLSocketFactory.ALLOW_ALL_HOSTNAME_VERIFIER)));
+    } catch (GeneralSecurityException e) {
+      logger.log(Level.WARNING, "Unable to relax https validation: " + e.getMessage());
+    }
+    for (String name : registry.getSchemeNames()) {
+      org.apache.http.conn.scheme.Scheme scheme = registry.getScheme(name);
+      registry.register(new org.apache.http.conn.scheme.Scheme(name, scheme.getDefaultPort(),
+          TimedSocketFactory.wrap(scheme.getSchemeSocketFactory())));
+    }
+    return registry;
+  }
+
+  /**
+   * Returns a new client whose connections are taken from this pool. Clients are cheap to create,
+   * and releasing a response returns its connection to the pool, so a client can be created for
+   * each request.
+   *
+   * @return DefaultHttpClient
+   */
+  public org.apache.http.impl.client.DefaultHttpClient newHttpClient() {
+    org.apache.http.impl.client.DefaultHttpClient client =
+        new org.apache.http.impl.client.DefaultHttpClient(connectionManager);
+    client.setKeepAliveStrategy(keepAliveStrategy);
+    // interceptors run once the connection is open and once the response headers have arrived
+    client.addRequestInterceptor(REQUEST_PHASE);
+    client.addResponseInterceptor(RESPONSE_PHASE);
+    // compression runs first, so the body is framed and decoded as it is actually sent and read
+    client.addRequestInterceptor(compression, 0);
+    client.addResponseInterceptor(compression, 0);
+    return client;
+  }
+
+  /**
+   * Returns the client shared by all callers which send requests through this pool directly,
+   * rather than through Rest-Assured. The client is thread-safe and must not be reconfigured.
+   *
+   * @return DefaultHttpClient
+   */
+  public org.apache.http.impl.client.DefaultHttpClient getHttpClient() {
+    return httpClient;
+  }
+
+  /**
+   * Returns the pool for a declared service, creating it from the environment properties on first
+   * use. Returns null if pooling has been disabled for the service.
+   *
+   * @param serviceName name of the service, which is a mapping to the config folder in resources
+   * @return ServiceConnectionPool
+   */
+  public static ServiceConnectionPool forService(String serviceName) {
+    ServiceConnectionPool pool = pools.get(serviceName);
+    if (pool == null && isEnabled(serviceName)) {
+      pool = pools.computeIfAbsent(serviceName, ServiceConnectionPool::fromProperties);
+    }
+    return pool;
+  }
+
+  private static boolean isEnabled(String serviceName) {
+    return Boolean.parseBoolean(TestProperties.getServiceProperty(TestPropertyType.environment,
+        serviceName, ENABLED_KEY, "true"));
+  }
+
+  private static ServiceConnectionPool fromProperties(String serviceName) {
+    TestPropertyType env = TestPropertyType.environment;
+    ServiceConnectionPool pool = new ServiceConnectionPool(serviceName,
+        TestProperties.getPropertyAsInt(env, serviceName, MAX_TOTAL_KEY, DEFAULT_MAX_TOTAL),
+        TestProperties.getPropertyAsInt(env, serviceName, MAX_PER_ROUTE_KEY,
+            DEFAULT_MAX_PER_ROUTE),
+        TestProperties.getPropertyAsInt(env, serviceName, IDLE_TIMEOUT_KEY,
+            DEFAULT_IDLE_TIMEOUT_MILLIS),
+        TestProperties.getPropertyAsInt(env, serviceName, TTL_KEY, DEFAULT_TTL_MILLIS),
+        TestProperties.getPropertyAsInt(env, serviceName, KEEP_ALIVE_KEY,
+            DEFAULT_KEEP_ALIVE_MILLIS));
+    logger.info("Created connection pool for service " + serviceName + ": " + pool.getStats());
+    RideMetrics.registerPool(pool);
+    return pool;
+  }
+
+  /**
+   * Opens connections to the service ahead of the first calls, completing the TLS handshake of
+   * https connections, and leaves them idle in the pool. Connections which are already open count
+   * towards the number requested.
+   *
+   * @param connections number of connections wanted, limited to the maximum per route
+   * @param timeoutMillis time allowed for opening each connection
+   * @return int number of connections opened by this call
+   * @throws IOException if a connection cannot be opened
+   */
+  public int prewarm(int connections, int timeoutMillis) throws IOException {
+    TargetServiceConfiguration config =
+        TestProperties.getInstance().getTargetServiceConfig(serviceName);
+    // the route must match the one planned for calls, secure for https, or they never lease these
+    HttpRoute route = new HttpRoute(new HttpHost(config.endpoint(), config.port(), config.schema()),
+        null, "https".equalsIgnoreCase(config.schema()));
+    int wanted = Math.min(connections, connectionManager.getMaxPerRoute(route));
+    org.apache.http.params.HttpParams params = new org.apache.http.params.BasicHttpParams();
+    org.apache.http.params.HttpConnectionParams.setConnectionTimeout(params, timeoutMillis);
+    org.apache.http.params.HttpConnectionParams.setSoTimeout(params, timeoutMillis);
+
+    // connections are all leased at once, so each lease yields a different connection
+    List<org.apache.http.conn.ManagedClientConnection> leased =
+        new ArrayList<org.apache.http.conn.ManagedClientConnection>();
+    int opened = 0;
+    try {
+      for (int i = 0; i < wanted; i++) {
+        org.apache.http.conn.ManagedClientConnection connection;
+        try {
+          connection = connectionManager.requestConnection(route, null)
+              .getConnection(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (ConnectionPoolTimeoutException | InterruptedException e) {
+          logger.warning("Pre-warmed " + leased.size() + " connections to " + serviceName
+              + ", as no more could be leased: " + e.getMessage());
+          if (e instanceof InterruptedException) {
+            Thread.currentThread().interrupt();
+          }
+          break;
+        }
+        leased.add(connection);
+        if (!connection.isOpen()) {
+          connection.open(route, new BasicHttpContext(), params);
+          // reading the session completes the handshake of https connections
+          connection.getSSLSession();
+          opened++;
+        }
+        connection.markReusable();
+      }
+    } finally {
+      for (org.apache.http.conn.ManagedClientConnection connection : leased) {
+        connectionManager.releaseConnection(connection, keepAliveMillis, TimeUnit.MILLISECONDS);
+      }
+    }
+    return opened;
+  }
+
+  /**
+   * Applies this pool to a Rest-Assured config, unless the config already carries an http client
+   * configured by the caller.
+   *
+   * @param config config of the request
+   * @return RestAssuredConfig
+   */
+  public RestAssuredConfig applyTo(RestAssuredConfig config) {
+    if (config.getHttpClientConfig().isUserConfigured()) {
+      return config;
+    }
+    return config.httpClient(httpClientConfig).connectionConfig(connectionConfig);
+  }
+
+  /**
+   *
+   * @return String name of the service to which the pool connects
+   */
+  public String getServiceName() {
+    return serviceName;
+  }
+
+  /**
+   * Returns the current statistics of the pool: leased, available and pending connections, and the
+   * maximum number of connections.
+   *
+   * @return PoolStats
+   */
+  public PoolStats getStats() {
+    return connectionManager.getTotalStats();
+  }
+
+  /**
+   * Returns the statistics of the pools of all services used so far.
+   *
+   * @return Map of service name to pool statistics
+   */
+  public static Map<String, PoolStats> getAllStats() {
+    Map<String, PoolStats> stats = new ConcurrentHashMap<String, PoolStats>();
+    for (ServiceConnectionPool pool : pools.values()) {
+      stats.put(pool.getServiceName(), pool.getStats());
+    }
+    return stats;
+  }
+
+  /**
+   * Closes all connections of the pool and removes it, so a new pool is created on the next call to
+   * the service.
+   */
+  @Override
+  public void close() {
+    pools.remove(serviceName, this);
+    eviction.cancel(false);
+    connectionManager.shutdown();
+    RideMetrics.unregisterPool(this);
+  }
+
+  /**
+   * Closes the pool of a service, if one has been created, so a new pool is created on the next
+   * call to the service (i.e. after its target has been changed).
+   *
+   * @param serviceName name of the service, which is a mapping to the config folder in resources
+   */
+  public static void closeForService(String serviceName) {
+    ServiceConnectionPool pool = pools.get(serviceName);
+    if (pool != null) {
+      pool.close();
+    }
+  }
+
+  /**
+   * Closes the pools of all services.
+   */
+  public static void closeAll() {
+    for (ServiceConnectionPool pool : pools.values()) {
+      pool.close();
+    }
+  }
+}
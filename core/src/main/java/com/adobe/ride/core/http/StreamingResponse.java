@@ -0,0 +1,362 @@
+/*-
+Copyright 2018 Adobe. All rights reserved.
+This file is licensed to you under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License. You may obtain a copy
+of the License at http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software distributed under
+the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+OF ANY KIND, either express or implied. See the License for the specific language
+governing permissions and limitations under the License.
+*/
+
+package com.adobe.ride.core.http;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.logging.Logger;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.HttpClient;
+import org.apache.http.client.entity.UrlEncodedFormEntity;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.client.methods.RequestBuilder;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.entity.FileEntity;
+import org.apache.http.entity.InputStreamEntity;
+import org.apache.http.message.BasicNameValuePair;
+import io.restassured.http.Cookie;
+import io.restassured.http.Header;
+import io.restassured.http.Headers;
+import io.restassured.http.Method;
+import io.restassured.response.Response;
+import io.restassured.specification.FilterableRequestSpecification;
+import io.restassured.specification.RequestSpecification;
+import io.restassured.specification.ResponseSpecification;
+
+/**
+ * Response whose body is read directly from the connection as it arrives, rather than being held
+ * in memory, so bodies of any size can be downloaded. The status line and headers are validated
+ * as soon as they are received; the body is then available as a {@link MeteredInputStream}, which
+ * hashes, counts and times the bytes as they are read.
+ *
+ * The response must be closed, which returns its connection to the pool. Closing it before the
+ * end of the body has been seen reads what is left, up to {@value #DRAIN_LIMIT} bytes, so a reader
+ * which stopped after exactly the declared length still returns the connection; a longer remainder
+ * discards the connection instead.
+ *
+ * @author tedcasey
+ *
+ */
+@SuppressWarnings("deprecation")
+public class StreamingResponse implements Closeable {
+
+  protected static final Logger logger = Logger.getLogger(StreamingResponse.class.getName());
+
+  /** Most bytes read on close to reach the end of the body, rather than discard the connection. */
+  public static final int DRAIN_LIMIT = 64 * 1024;
+
+  private final HttpUriRequest request;
+  private final HttpResponse response;
+  private final Headers headers;
+  private final BodyStream body;
+  private org.apache.http.conn.ClientConnectionManager ownedManager;
+  private boolean closed = false;
+
+  private StreamingResponse(HttpUriRequest request, HttpResponse response) throws IOException {
+    this.request = request;
+    this.response = response;
+
+    List<Header> headerList = new ArrayList<Header>();
+    for (org.apache.http.Header header : response.getAllHeaders()) {
+      headerList.add(new Header(header.getName(), header.getValue()));
+    }
+    headers = new Headers(headerList);
+
+    HttpEntity entity = response.getEntity();
+    InputStream content =
+        (entity == null) ? new ByteArrayInputStream(new byte[0]) : entity.getContent();
+    body = new BodyStream(content);
+  }
+
+  /**
+   * Sends a request and returns as soon as the status line and headers of the response have been
+   * received and validated. Only the status line and header expectations of the expected response
+   * can be met, as the body has not been read when it is validated.
+   *
+   * @param client client used to send the request (i.e.
+   *        {@link ServiceConnectionPool#newHttpClient()})
+   * @param req Rest-Assured request specification, including the base uri of the service
+   * @param restAPI The specific API to test ex: "/myApi"
+   * @param expectedResponse Rest-Assured ResponseSpecification for validating the status line and
+   *        headers, may be null
+   * @param method http action to be invoked (i.e. POST, GET, etc.)
+   * @return StreamingResponse
+   * @throws IOException if the request cannot be sent
+   */
+  public static StreamingResponse open(HttpClient client, RequestSpecification req,
+      String restAPI, ResponseSpecification expectedResponse, Method method) throws IOException {
+    return open(client, null, req, restAPI, expectedResponse, method, null);
+  }
+
+  /**
+   * Sends a request through a connection of the given pool, or through a dedicated connection,
+   * closed with the response, if the pool is null (i.e. pooling is disabled for the service).
+   *
+   * @param pool pool of the target service, may be null
+   * @param req Rest-Assured request specification, including the base uri of the service
+   * @param restAPI The specific API to test ex: "/myApi"
+   * @param expectedResponse Rest-Assured ResponseSpecification for validating the status line and
+   *        headers, may be null
+   * @param method http action to be invoked (i.e. POST, GET, etc.)
+   * @return StreamingResponse
+   * @throws IOException if the request cannot be sent
+   */
+  public static StreamingResponse open(ServiceConnectionPool pool, RequestSpecification req,
+      String restAPI, ResponseSpecification expectedResponse, Method method) throws IOException {
+    return open(pool, req, restAPI, expectedResponse, method, null);
+  }
+
+  /**
+   * Sends a request with a streamed body (see {@link UploadBody}) through a connection of the
+   * given pool, or through a dedicated connection if the pool is null.
+   *
+   * @param pool pool of the target service, may be null
+   * @param req Rest-Assured request specification, including the base uri of the service
+   * @param restAPI The specific API to test ex: "/myApi"
+   * @param expectedResponse Rest-Assured ResponseSpecification for validating the status line and
+   *        headers, may be null
+   * @param method http action to be invoked (i.e. POST, GET, etc.)
+   * @param body body sent in place of the body of the request specification, may be null
+   * @return StreamingResponse
+   * @throws IOException if the request cannot be sent
+   */
+  public static StreamingResponse open(ServiceConnectionPool pool, RequestSpecification req,
+      String restAPI, ResponseSpecification expectedResponse, Method method, HttpEntity body)
+      throws IOException {
+    if (pool != null) {
+      return open(pool.newHttpClient(), null, req, restAPI, expectedResponse, method, body);
+    }
+    org.apache.http.conn.ClientConnectionManager manager =
+        new org.apache.http.impl.conn.BasicClientConnectionManager(
+            ServiceConnectionPool.createSchemeRegistry());
+    try {
+      return open(new org.apache.http.impl.client.DefaultHttpClient(manager), manager, req,
+          restAPI, expectedResponse, method, body);
+    } catch (IOException | RuntimeException | Error e) {
+      manager.shutdown();
+      throw e;
+    }
+  }
+
+  private static StreamingResponse open(HttpClient client,
+      org.apache.http.conn.ClientConnectionManager ownedManager, RequestSpecification req,
+      String restAPI, ResponseSpecification expectedResponse, Method method, HttpEntity body)
+      throws IOException {
+    HttpUriRequest request =
+        toRequest((FilterableRequestSpecification) req, restAPI, method, body);
+    StreamingResponse streaming = new StreamingResponse(request, client.execute(request));
+    streaming.ownedManager = ownedManager;
+    if (expectedResponse != null) {
+      try {
+        expectedResponse.validate(streaming.toResponse());
+      } catch (RuntimeException | Error e) {
+        streaming.close();
+        throw e;
+      }
+    }
+    return streaming;
+  }
+
+  /**
+   * Builds an HttpClient request from a Rest-Assured request specification: its uri, headers,
+   * cookies and form parameters, and its body or the given entity.
+   */
+  static HttpUriRequest toRequest(FilterableRequestSpecification spec, String restAPI,
+      Method method, HttpEntity entity) {
+    spec.path(restAPI);
+    RequestBuilder request = RequestBuilder.create(method.toString()).setUri(spec.getURI());
+
+    for (Header header : spec.getHeaders()) {
+      request.addHeader(header.getName(), header.getValue());
+    }
+    if (spec.getCookies().exist()) {
+      StringBuilder cookies = new StringBuilder();
+      for (Cookie cookie : spec.getCookies()) {
+        if (cookies.length() > 0) {
+          cookies.append("; ");
+        }
+        cookies.append(cookie.getName()).append('=').append(cookie.getValue());
+      }
+      request.addHeader("Cookie", cookies.toString());
+    }
+
+    Object body = spec.getBody();
+    if (entity != null) {
+      request.setEntity(entity);
+      String contentMd5 =
+          (entity instanceof UploadBody) ? ((UploadBody) entity).getContentMd5() : null;
+      if (contentMd5 != null) {
+        request.setHeader(com.adobe.ride.core.globals.Headers.CONTENT_MD5.toString(), contentMd5);
+      }
+    } else if (!spec.getFormParams().isEmpty()) {
+      List<BasicNameValuePair> params = new ArrayList<BasicNameValuePair>();
+      for (Entry<String, String> param : spec.getFormParams().entrySet()) {
+        params.add(new BasicNameValuePair(param.getKey(), param.getValue()));
+      }
+      request.setEntity(new UrlEncodedFormEntity(params, StandardCharsets.UTF_8));
+    } else if (body instanceof byte[]) {
+      request.setEntity(new ByteArrayEntity((byte[]) body));
+    } else if (body instanceof InputStream) {
+      request.setEntity(new InputStreamEntity((InputStream) body));
+    } else if (body instanceof File) {
+      request.setEntity(new FileEntity((File) body));
+    } else if (body != null) {
+      // Rest-Assured serializes object bodies when they are set on the specification
+      request.setEntity(new ByteArrayEntity(body.toString().getBytes(StandardCharsets.UTF_8)));
+    }
+    return request.build();
+  }
+
+  /**
+   * Returns a Rest-Assured response holding the status line and headers, but no body.
+   *
+   * @return Response
+   */
+  public Response toResponse() {
+    return ResponseFactory.create(getStatusCode(), getStatusLine(), headers, new byte[0]);
+  }
+
+  public int getStatusCode() {
+    return response.getStatusLine().getStatusCode();
+  }
+
+  public String getStatusLine() {
+    return response.getStatusLine().toString();
+  }
+
+  public Headers getHeaders() {
+    return headers;
+  }
+
+  /**
+   *
+   * @param name name of the header
+   * @return String value of the header, null if it is not present
+   */
+  public String getHeader(String name) {
+    return headers.getValue(name);
+  }
+
+  /**
+   *
+   * @return long length of the body declared by the service, -1 if it is unknown
+   */
+  public long getContentLength() {
+    HttpEntity entity = response.getEntity();
+    return (entity == null) ? 0 : entity.getContentLength();
+  }
+
+  /**
+   * Returns the body, read from the connection as it is consumed. Closing the stream closes the
+   * response.
+   *
+   * @return MeteredInputStream
+   */
+  public MeteredInputStream getInputStream() {
+    return body;
+  }
+
+  /**
+   * Returns the body as a channel, read from the connection as it is consumed. Closing the channel
+   * closes the response.
+   *
+   * @return ReadableByteChannel
+   */
+  public ReadableByteChannel getChannel() {
+    return Channels.newChannel(body);
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    if (!body.isFinished() && !body.drain(remaining())) {
+      // reading the rest of a large body only to reuse the connection is not worth it
+      request.abort();
+    }
+    try {
+      body.closeContent();
+    } catch (IOException e) {
+      // the connection has been aborted
+    } finally {
+      if (ownedManager != null) {
+        ownedManager.shutdown();
+      }
+    }
+  }
+
+  /**
+   * Returns the number of bytes of the body not yet read, or -1 if the length is unknown.
+   */
+  private long remaining() {
+    long length = getContentLength();
+    return (length < 0) ? -1 : Math.max(0, length - body.getByteCount());
+  }
+
+  /**
+   * Body stream, which closes the response when it is closed.
+   */
+  private class BodyStream extends MeteredInputStream {
+    BodyStream(InputStream content) {
+      super(content);
+    }
+
+    /**
+     * Reads the rest of the body, without counting or hashing it, unless it is known or found to
+     * be longer than {@link StreamingResponse#DRAIN_LIMIT}.
+     *
+     * @param remaining number of bytes left, -1 if unknown
+     * @return boolean indicator of whether the end of the body was reached
+     */
+    boolean drain(long remaining) {
+      if (remaining > DRAIN_LIMIT) {
+        return false;
+      }
+      byte[] buffer = new byte[8192];
+      long drained = 0;
+      try {
+        int count;
+        while ((count = in.read(buffer)) >= 0) {
+          drained += count;
+          if (drained > DRAIN_LIMIT) {
+            return false;
+          }
+        }
+        return true;
+      } catch (IOException e) {
+        return false;
+      }
+    }
+
+    @Override
+    public void close() throws IOException {
+      StreamingResponse.this.close();
+    }
+
+    void closeContent() throws IOException {
+      super.close();
+    }
+  }
+}
@@ -0,0 +1,103 @@
+/*-
+Copyright 2018 Adobe. All rights reserved.
+This file is licensed to you under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License. You may obtain a copy
+of the License at http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software distributed under
+the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+OF ANY KIND, either express or implied. See the License for the specific language
+governing permissions and limitations under the License.
+*/
+
+package com.adobe.ride.core.http;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketAddress;
+import java.net.UnknownHostException;
+import org.apache.http.conn.ConnectTimeoutException;
+
+/**
+ * Socket factory which marks the connect and TLS handshake phases of the current call (see
+ * {@link CallPhases}). Sockets are created unconnected by this factory and connected by the
+ * wrapped factory, which then performs any handshake, so the end of the TCP connect is marked by
+ * the socket itself.
+ *
+ * @author tedcasey
+ *
+ */
+@SuppressWarnings("deprecation")
+class TimedSocketFactory implements org.apache.http.conn.scheme.SchemeSocketFactory {
+
+  protected final org.apache.http.conn.scheme.SchemeSocketFactory delegate;
+
+  TimedSocketFactory(org.apache.http.conn.scheme.SchemeSocketFactory delegate) {
+    this.delegate = delegate;
+  }
+
+  /**
+   * Wraps a factory, keeping it layered if it can secure existing sockets (i.e. for https).
+   */
+  static org.apache.http.conn.scheme.SchemeSocketFactory wrap(
+      org.apache.http.conn.scheme.SchemeSocketFactory delegate) {
+    return (delegate instanceof org.apache.http.conn.scheme.SchemeLayeredSocketFactory)
+        ? new Layered((org.apache.http.conn.scheme.SchemeLayeredSocketFactory) delegate)
+        : new TimedSocketFactory(delegate);
+  }
+
+  @Override
+  public Socket createSocket(org.apache.http.params.HttpParams params) throws IOException {
+    return new TimedSocket();
+  }
+
+  @Override
+  public Socket connectSocket(Socket socket, InetSocketAddress remoteAddress,
+      InetSocketAddress localAddress, org.apache.http.params.HttpParams params)
+      throws IOException, UnknownHostException, ConnectTimeoutException {
+    CallPhases.connecting();
+    Socket connected = delegate.connectSocket(socket, remoteAddress, localAddress, params);
+    if (!(socket instanceof TimedSocket)) {
+      // the socket was made elsewhere, so the connect and handshake cannot be told apart
+      CallPhases.connected();
+    }
+    if (this instanceof Layered) {
+      CallPhases.handshaken();
+    }
+    return connected;
+  }
+
+  @Override
+  public boolean isSecure(Socket socket) throws IllegalArgumentException {
+    return delegate.isSecure(socket);
+  }
+
+  /**
+   * Factory for schemes whose connections are secured, which can also secure a tunnelled socket.
+   */
+  static class Layered extends TimedSocketFactory
+      implements org.apache.http.conn.scheme.SchemeLayeredSocketFactory {
+    Layered(org.apache.http.conn.scheme.SchemeLayeredSocketFactory delegate) {
+      super(delegate);
+    }
+
+    @Override
+    public Socket createLayeredSocket(Socket socket, String target, int port,
+        org.apache.http.params.HttpParams params) throws IOException, UnknownHostException {
+      return ((org.apache.http.conn.scheme.SchemeLayeredSocketFactory) delegate)
+          .createLayeredSocket(socket, target, port, params);
+    }
+  }
+
+  /**
+   * Socket which marks the end of its TCP connect.
+   */
+  private static class TimedSocket extends Socket {
+    @Override
+    public void connect(SocketAddress endpoint, int timeout) throws IOException {
+      super.connect(endpoint, timeout);
+      CallPhases.connected();
+    }
+  }
+}
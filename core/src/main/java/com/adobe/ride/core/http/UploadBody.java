@@ -0,0 +1,262 @@
+/*-
+Copyright 2018 Adobe. All rights reserved.
+This file is licensed to you under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License. You may obtain a copy
+of the License at http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software distributed under
+the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+OF ANY KIND, either express or implied. See the License for the specific language
+governing permissions and limitations under the License.
+*/
+
+package com.adobe.ride.core.http;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.logging.Logger;
+import org.apache.http.entity.AbstractHttpEntity;
+import com.adobe.ride.core.globals.Headers;
+
+/**
+ * Request body which is streamed to the service as it is sent, rather than being built in memory,
+ * so uploads of any size can be made with a flat heap. The body is read from an InputStream or a
+ * file, or written by a callback, and is sent with a Content-Length header when its length is
+ * known, or with chunked transfer encoding otherwise.
+ *
+ * The bytes sent are counted, hashed and timed, so the MD5 of the body and the upload throughput
+ * are available once the upload has completed. For files, the Content-MD5 header can also be sent
+ * with the request (see {@link #withContentMd5()}).
+ *
+ * @author tedcasey
+ *
+ */
+public class UploadBody extends AbstractHttpEntity {
+
+  protected static final Logger logger = Logger.getLogger(UploadBody.class.getName());
+
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  /**
+   * Callback which writes a body to the request, i.e. to generate large bodies on the fly.
+   */
+  @FunctionalInterface
+  public interface BodyWriter {
+    void writeTo(OutputStream out) throws IOException;
+  }
+
+  private final InputStream stream;
+  private final Path path;
+  private final BodyWriter writer;
+  private final long length;
+  private String contentMd5;
+  private volatile MeteredOutputStream metered;
+
+  private UploadBody(InputStream stream, Path path, BodyWriter writer, long length) {
+    this.stream = stream;
+    this.path = path;
+    this.writer = writer;
+    this.length = length;
+    setChunked(length < 0);
+  }
+
+  /**
+   * Body read from a stream of unknown length, sent with chunked transfer encoding.
+   *
+   * @param stream stream from which the body is read; it is closed once it has been sent
+   * @return UploadBody
+   */
+  public static UploadBody of(InputStream stream) {
+    return of(stream, -1);
+  }
+
+  /**
+   * Body read from a stream.
+   *
+   * @param stream stream from which the body is read; it is closed once it has been sent
+   * @param length number of bytes to send, or -1 to send the whole stream with chunked transfer
+   *        encoding
+   * @return UploadBody
+   */
+  public static UploadBody of(InputStream stream, long length) {
+    return new UploadBody(stream, null, null, length);
+  }
+
+  /**
+   * Body read from a file, sent with its size as the Content-Length.
+   *
+   * @param path file holding the body
+   * @return UploadBody
+   * @throws IOException if the size of the file cannot be read
+   */
+  public static UploadBody of(Path path) throws IOException {
+    return new UploadBody(null, path, null, Files.size(path));
+  }
+
+  /**
+   * Body written by a callback, sent with chunked transfer encoding.
+   *
+   * @param writer callback writing the body
+   * @return UploadBody
+   */
+  public static UploadBody of(BodyWriter writer) {
+    return of(writer, -1);
+  }
+
+  /**
+   * Body written by a callback.
+   *
+   * @param writer callback writing the body
+   * @param length number of bytes the callback writes, or -1 for chunked transfer encoding
+   * @return UploadBody
+   */
+  public static UploadBody of(BodyWriter writer, long length) {
+    return new UploadBody(null, null, writer, length);
+  }
+
+  /**
+   * Sets the Content-Type of the body.
+   *
+   * @param contentType content type (i.e. application/octet-stream)
+   * @return UploadBody
+   */
+  public UploadBody withContentType(String contentType) {
+    setContentType(contentType);
+    return this;
+  }
+
+  /**
+   * Computes the MD5 of a file body before it is sent, so it can be sent in the Content-MD5
+   * header. The file is read twice, but never held in memory. Bodies read from a stream or written
+   * by a callback can only be read once, so their MD5 is only known after the upload (see
+   * {@link #getEncodedDigest()}).
+   *
+   * @return UploadBody
+   * @throws IOException if the file cannot be read
+   */
+  public UploadBody withContentMd5() throws IOException {
+    if (path == null) {
+      throw new IllegalStateException(
+          "The " + Headers.CONTENT_MD5 + " header can only be computed in advance for files");
+    }
+    try (MeteredOutputStream out = new MeteredOutputStream(new OutputStream() {
+      @Override
+      public void write(int b) {}
+
+      @Override
+      public void write(byte[] b, int off, int len) {}
+    })) {
+      Files.copy(path, out);
+      contentMd5 = out.getEncodedDigest();
+    }
+    return this;
+  }
+
+  /**
+   *
+   * @return String Base64 encoded MD5 of the body to be sent in the Content-MD5 header, null if it
+   *         has not been computed
+   */
+  public String getContentMd5() {
+    return contentMd5;
+  }
+
+  @Override
+  public boolean isRepeatable() {
+    return path != null;
+  }
+
+  @Override
+  public boolean isStreaming() {
+    return stream != null && metered == null;
+  }
+
+  @Override
+  public long getContentLength() {
+    return length;
+  }
+
+  @Override
+  public InputStream getContent() throws IOException {
+    if (path != null) {
+      return Files.newInputStream(path);
+    }
+    if (stream != null) {
+      return stream;
+    }
+    throw new UnsupportedOperationException("Bodies written by a callback have no content stream");
+  }
+
+  @Override
+  public void writeTo(OutputStream outstream) throws IOException {
+    // the connection stream is not closed, so the connection can be reused
+    MeteredOutputStream out = new MeteredOutputStream(outstream);
+    metered = out;
+    if (writer != null) {
+      writer.writeTo(out);
+    } else {
+      try (InputStream in = getContent()) {
+        copy(in, out);
+      }
+    }
+    out.flush();
+    out.finish();
+    if (length >= 0 && out.getByteCount() != length) {
+      throw new IOException("Upload body declared " + length + " bytes but "
+          + out.getByteCount() + " were sent");
+    }
+    logger.info("Uploaded " + out.getByteCount() + " bytes at "
+        + String.format("%.1f", out.getBytesPerSecond() / (1024 * 1024)) + " MB/s");
+  }
+
+  private void copy(InputStream in, OutputStream out) throws IOException {
+    byte[] buffer = new byte[BUFFER_SIZE];
+    long remaining = (length < 0) ? Long.MAX_VALUE : length;
+    int count;
+    while (remaining > 0
+        && (count = in.read(buffer, 0, (int) Math.min(buffer.length, remaining))) >= 0) {
+      out.write(buffer, 0, count);
+      remaining -= count;
+    }
+  }
+
+  /**
+   *
+   * @return long number of bytes sent so far
+   */
+  public long getByteCount() {
+    MeteredOutputStream out = metered;
+    return (out == null) ? 0 : out.getByteCount();
+  }
+
+  /**
+   *
+   * @return String Base64 encoded MD5 of the bytes sent so far, which is the MD5 of the whole body
+   *         once the upload has completed; null if nothing has been sent
+   */
+  public String getEncodedDigest() {
+    MeteredOutputStream out = metered;
+    return (out == null) ? null : out.getEncodedDigest();
+  }
+
+  /**
+   *
+   * @return double average upload throughput in bytes per second
+   */
+  public double getBytesPerSecond() {
+    MeteredOutputStream out = metered;
+    return (out == null) ? 0 : out.getBytesPerSecond();
+  }
+
+  /**
+   *
+   * @return long duration of the upload in milliseconds
+   */
+  public long getElapsedMillis() {
+    MeteredOutputStream out = metered;
+    return (out == null) ? 0 : out.getElapsedNanos() / 1000000;
+  }
+}
@@ -0,0 +1,64 @@
+/*-
+Copyright 2018 Adobe. All rights reserved.
+This file is licensed to you under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License. You may obtain a copy
+of the License at http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software distributed under
+the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+OF ANY KIND, either express or implied. See the License for the specific language
+governing permissions and limitations under the License.
+*/
+
+package com.adobe.ride.core.metrics;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counter which only increases. Increments are striped across cells, so many threads can count
+ * at once without contending.
+ *
+ * @author tedcasey
+ *
+ */
+public class Counter extends Metric {
+
+  private final LongAdder count = new LongAdder();
+
+  Counter() {}
+
+  public void increment() {
+    count.increment();
+  }
+
+  /**
+   *
+   * @param amount amount to be added, which must not be negative
+   */
+  public void add(long amount) {
+    if (amount < 0) {
+      throw new IllegalArgumentException("Counters cannot be decreased");
+    }
+    count.add(amount);
+  }
+
+  /**
+   *
+   * @return long current count
+   */
+  public long get() {
+    return count.sum();
+  }
+
+  @Override
+  void writeSamples(String name, String labels, StringBuilder out) {
+    appendSample(out, name, labels, null, get());
+  }
+
+  @Override
+  Map<String, Object> getValues() {
+    return Collections.<String, Object>singletonMap("Count", get());
+  }
+}
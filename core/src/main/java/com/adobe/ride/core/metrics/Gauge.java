@@ -0,0 +1,51 @@
+/*-
+Copyright 2018 Adobe. All rights reserved.
+This file is licensed to you under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License. You may obtain a copy
+of the License at http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software distributed under
+the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+OF ANY KIND, either express or implied. See the License for the specific language
+governing permissions and limitations under the License.
+*/
+
+package com.adobe.ride.core.metrics;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.function.DoubleSupplier;
+
+/**
+ * Series whose value is read from a function whenever it is exported, i.e. the number of
+ * connections leased from a pool, or a total kept elsewhere.
+ *
+ * @author tedcasey
+ *
+ */
+public class Gauge extends Metric {
+
+  private final DoubleSupplier value;
+
+  Gauge(DoubleSupplier value) {
+    this.value = value;
+  }
+
+  /**
+   *
+   * @return double current value
+   */
+  public double get() {
+    return value.getAsDouble();
+  }
+
+  @Override
+  void writeSamples(String name, String labels, StringBuilder out) {
+    appendSample(out, name, labels, null, get());
+  }
+
+  @Override
+  Map<String, Object> getValues() {
+    return Collections.<String, Object>singletonMap("Value", get());
+  }
+}
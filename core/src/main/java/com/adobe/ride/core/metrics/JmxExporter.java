@@ -0,0 +1,146 @@
+/*-
+Copyright 2018 Adobe. All rights reserved.
+This file is licensed to you under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License. You may obtain a copy
+of the License at http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software distributed under
+the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+OF ANY KIND, either express or implied. See the License for the specific language
+governing permissions and limitations under the License.
+*/
+
+package com.adobe.ride.core.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.ReflectionException;
+import com.adobe.ride.core.metrics.MetricsRegistry.Family;
+
+/**
+ * Exposes the families of a registry as MBeans of the platform MBean server, named
+ * <code>com.adobe.ride:type=Metrics,name=&lt;family&gt;</code>. Each value of each series is a
+ * read-only attribute named after the value and the labels of the series, i.e.
+ * <code>Count{service="sampleService",status="200"}</code>. Families created after registration
+ * are exposed as they are created, and series as they appear.
+ *
+ * @author tedcasey
+ *
+ */
+public class JmxExporter {
+
+  protected static final Logger logger = Logger.getLogger(JmxExporter.class.getName());
+
+  public static final String DOMAIN = "com.adobe.ride";
+
+  private JmxExporter() {}
+
+  /**
+   * Registers MBeans for all current and future families of the registry.
+   *
+   * @param registry registry to be exposed
+   */
+  public static void register(MetricsRegistry registry) {
+    registry.addListener(JmxExporter::register);
+    for (Family family : registry.getFamilies()) {
+      register(family);
+    }
+  }
+
+  private static void register(Family family) {
+    MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+    String name = family.getName();
+    try {
+      server.registerMBean(new FamilyMBean(family), new ObjectName(DOMAIN + ":type=Metrics,name="
+          + ((name.indexOf(':') < 0) ? name : ObjectName.quote(name))));
+    } catch (InstanceAlreadyExistsException e) {
+      logger.log(Level.FINE, "MBean of metric " + family.getName() + " is already registered");
+    } catch (JMException e) {
+      logger.log(Level.WARNING, "Unable to register MBean of metric " + family.getName(), e);
+    }
+  }
+
+  /**
+   * MBean whose attributes are the values of the series of a family, read when they are
+   * requested.
+   */
+  private static class FamilyMBean implements DynamicMBean {
+    private final Family family;
+
+    FamilyMBean(Family family) {
+      this.family = family;
+    }
+
+    @Override
+    public Object getAttribute(String attribute) throws AttributeNotFoundException {
+      int brace = attribute.indexOf('{');
+      String value = (brace < 0) ? attribute : attribute.substring(0, brace);
+      String labels =
+          (brace < 0) ? "" : attribute.substring(brace + 1, attribute.length() - 1);
+      Metric metric = family.getSeries().get(labels);
+      Object result = (metric == null) ? null : metric.getValues().get(value);
+      if (result == null) {
+        throw new AttributeNotFoundException(attribute);
+      }
+      return result;
+    }
+
+    @Override
+    public AttributeList getAttributes(String[] attributes) {
+      AttributeList list = new AttributeList();
+      for (String attribute : attributes) {
+        try {
+          list.add(new Attribute(attribute, getAttribute(attribute)));
+        } catch (AttributeNotFoundException e) {
+          // the series has been removed since the attributes were listed
+        }
+      }
+      return list;
+    }
+
+    @Override
+    public void setAttribute(Attribute attribute) throws AttributeNotFoundException {
+      throw new AttributeNotFoundException("Metric " + attribute.getName() + " is read-only");
+    }
+
+    @Override
+    public AttributeList setAttributes(AttributeList attributes) {
+      return new AttributeList();
+    }
+
+    @Override
+    public Object invoke(String actionName, Object[] params, String[] signature)
+        throws ReflectionException {
+      throw new ReflectionException(new NoSuchMethodException(actionName));
+    }
+
+    @Override
+    public MBeanInfo getMBeanInfo() {
+      List<MBeanAttributeInfo> attributes = new ArrayList<MBeanAttributeInfo>();
+      for (Map.Entry<String, Metric> series : family.getSeries().entrySet()) {
+        for (Map.Entry<String, Object> value : series.getValue().getValues().entrySet()) {
+          String name = series.getKey().isEmpty() ? value.getKey()
+              : value.getKey() + "{" + series.getKey() + "}";
+          attributes.add(new MBeanAttributeInfo(name, value.getValue().getClass().getName(),
+              family.getHelp(), true, false, false));
+        }
+      }
+      return new MBeanInfo(FamilyMBean.class.getName(), family.getHelp(),
+          attributes.toArray(new MBeanAttributeInfo[attributes.size()]), null, null, null);
+    }
+  }
+}
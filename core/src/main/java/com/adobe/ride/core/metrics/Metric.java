@@ -0,0 +1,61 @@
+/*-
+Copyright 2018 Adobe. All rights reserved.
+This file is licensed to you under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License. You may obtain a copy
+of the License at http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software distributed under
+the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+OF ANY KIND, either express or implied. See the License for the specific language
+governing permissions and limitations under the License.
+*/
+
+package com.adobe.ride.core.metrics;
+
+import java.util.Map;
+
+/**
+ * A single series of a metric family, identified within the family by its labels.
+ *
+ * @author tedcasey
+ *
+ */
+public abstract class Metric {
+
+  Metric() {}
+
+  /**
+   * Appends the samples of the series in the Prometheus text format.
+   *
+   * @param name name of the family
+   * @param labels labels of the series, rendered as they appear between braces, may be empty
+   * @param out buffer to which the samples are appended
+   */
+  abstract void writeSamples(String name, String labels, StringBuilder out);
+
+  /**
+   * Returns the current values of the series, as exposed through JMX.
+   *
+   * @return Map of value name to value
+   */
+  abstract Map<String, Object> getValues();
+
+  static void appendSample(StringBuilder out, String name, String labels, String extraLabel,
+      double value) {
+    out.append(name);
+    if (!labels.isEmpty() || extraLabel != null) {
+      out.append('{').append(labels);
+      if (extraLabel != null) {
+        out.append(labels.isEmpty() ? "" : ",").append(extraLabel);
+      }
+      out.append('}');
+    }
+    out.append(' ');
+    if (value == Math.rint(value) && !Double.isInfinite(value) && Math.abs(value) < 1e15) {
+      out.append((long) value);
+    } else {
+      out.append(value);
+    }
+    out.append('\n');
+  }
+}
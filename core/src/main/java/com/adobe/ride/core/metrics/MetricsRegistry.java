@@ -0,0 +1,280 @@
+/*-
+Copyright 2018 Adobe. All rights reserved.
+This file is licensed to you under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License. You may obtain a copy
+of the License at http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software distributed under
+the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+OF ANY KIND, either express or implied. See the License for the specific language
+governing permissions and limitations under the License.
+*/
+
+package com.adobe.ride.core.metrics;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.function.DoubleSupplier;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+
+/**
+ * Registry of metric families, named and labelled as in Prometheus. Each family holds one series
+ * for each combination of label values; series are created on first use, so callers simply ask for
+ * the series they want to update:
+ *
+ * <pre>
+ * registry.counter("ride_requests_total", "Requests sent", "service", "sampleService",
+ *     "status", "200").increment();
+ * </pre>
+ *
+ * Labels are given as alternating names and values. The registry is thread-safe; it can be
+ * exported with {@link PrometheusExporter} and {@link JmxExporter}.
+ *
+ * @author tedcasey
+ *
+ */
+public class MetricsRegistry {
+
+  private static final Pattern NAME = Pattern.compile("[a-zA-Z_:][a-zA-Z0-9_:]*");
+  private static final MetricsRegistry defaultRegistry = new MetricsRegistry();
+
+  /**
+   * Types of metric family, as declared in the Prometheus text format.
+   */
+  public enum Type {
+    COUNTER("counter"), GAUGE("gauge"), SUMMARY("summary");
+
+    private final String value;
+
+    Type(String value) {
+      this.value = value;
+    }
+
+    @Override
+    public String toString() {
+      return value;
+    }
+  }
+
+  private final Map<String, Family> families = new ConcurrentHashMap<String, Family>();
+  private final List<Consumer<Family>> listeners = new CopyOnWriteArrayList<Consumer<Family>>();
+
+  /**
+   * Returns the registry fed by the RestApiController, the fuzz engines and model generation (see
+   * {@link RideMetrics}).
+   *
+   * @return MetricsRegistry
+   */
+  public static MetricsRegistry getDefault() {
+    return defaultRegistry;
+  }
+
+  /**
+   * Returns a series of a counter family, creating it on first use.
+   *
+   * @param name name of the family, i.e. "ride_requests_total"
+   * @param help description of the family
+   * @param labels alternating label names and values
+   * @return Counter
+   */
+  public Counter counter(String name, String help, String... labels) {
+    return series(name, help, Type.COUNTER, Counter.class, Counter::new, labels);
+  }
+
+  /**
+   * Returns a series of a timer family, creating it on first use.
+   *
+   * @param name name of the family, i.e. "ride_request_duration_seconds"
+   * @param help description of the family
+   * @param labels alternating label names and values
+   * @return Timer
+   */
+  public Timer timer(String name, String help, String... labels) {
+    return series(name, help, Type.SUMMARY, Timer.class, Timer::new, labels);
+  }
+
+  /**
+   * Registers a series whose value is read from a function, replacing any existing series with
+   * the same labels.
+   *
+   * @param name name of the family
+   * @param help description of the family
+   * @param value function returning the current value
+   * @param labels alternating label names and values
+   * @return Gauge
+   */
+  public Gauge gauge(String name, String help, DoubleSupplier value, String... labels) {
+    return register(name, help, Type.GAUGE, new Gauge(value), labels);
+  }
+
+  /**
+   * Registers a counter series whose value is read from a function, for totals which are already
+   * kept elsewhere, replacing any existing series with the same labels.
+   *
+   * @param name name of the family
+   * @param help description of the family
+   * @param value function returning the current total, which must only increase
+   * @param labels alternating label names and values
+   * @return Gauge
+   */
+  public Gauge functionCounter(String name, String help, DoubleSupplier value,
+      String... labels) {
+    return register(name, help, Type.COUNTER, new Gauge(value), labels);
+  }
+
+  /**
+   * Removes a series, i.e. one which reads from an object which has been closed.
+   *
+   * @param name name of the family
+   * @param labels alternating label names and values
+   * @return boolean indicator of whether the series existed
+   */
+  public boolean remove(String name, String... labels) {
+    Family family = families.get(name);
+    return family != null && family.series.remove(renderLabels(labels)) != null;
+  }
+
+  /**
+   * Returns all families, ordered by name.
+   *
+   * @return List of Family
+   */
+  public List<Family> getFamilies() {
+    List<Family> list = new ArrayList<Family>(families.values());
+    list.sort(Comparator.comparing(Family::getName));
+    return list;
+  }
+
+  /**
+   * Registers a listener which is called with each family created from now on.
+   *
+   * @param listener listener to be called
+   */
+  void addListener(Consumer<Family> listener) {
+    listeners.add(listener);
+  }
+
+  private <T extends Metric> T series(String name, String help, Type type, Class<T> kind,
+      Supplier<T> factory, String... labels) {
+    Family family = family(name, help, type);
+    String key = renderLabels(labels);
+    Metric metric = family.series.get(key);
+    if (metric == null) {
+      metric = family.series.computeIfAbsent(key, k -> factory.get());
+    }
+    if (!kind.isInstance(metric)) {
+      throw new IllegalArgumentException("Series " + name + "{" + key + "} is not a "
+          + kind.getSimpleName().toLowerCase());
+    }
+    return kind.cast(metric);
+  }
+
+  private <T extends Metric> T register(String name, String help, Type type, T metric,
+      String... labels) {
+    family(name, help, type).series.put(renderLabels(labels), metric);
+    return metric;
+  }
+
+  private Family family(String name, String help, Type type) {
+    Family family = families.get(name);
+    if (family == null) {
+      if (!NAME.matcher(name).matches()) {
+        throw new IllegalArgumentException("Invalid metric name: " + name);
+      }
+      boolean[] created = new boolean[1];
+      family = families.computeIfAbsent(name, n -> {
+        created[0] = true;
+        return new Family(n, help, type);
+      });
+      if (created[0]) {
+        for (Consumer<Family> listener : listeners) {
+          listener.accept(family);
+        }
+      }
+    }
+    if (family.type != type) {
+      throw new IllegalArgumentException(
+          "Metric " + name + " is a " + family.type + ", not a " + type);
+    }
+    return family;
+  }
+
+  /**
+   * Renders labels as they appear between the braces of a sample, escaping their values.
+   */
+  static String renderLabels(String... labels) {
+    if (labels == null || labels.length == 0) {
+      return "";
+    }
+    if (labels.length % 2 != 0) {
+      throw new IllegalArgumentException("Labels must be given as names and values");
+    }
+    StringBuilder out = new StringBuilder();
+    for (int i = 0; i < labels.length; i += 2) {
+      if (!NAME.matcher(labels[i]).matches()) {
+        throw new IllegalArgumentException("Invalid label name: " + labels[i]);
+      }
+      if (i > 0) {
+        out.append(',');
+      }
+      out.append(labels[i]).append("=\"");
+      String value = String.valueOf(labels[i + 1]);
+      for (int c = 0; c < value.length(); c++) {
+        char ch = value.charAt(c);
+        if (ch == '\\' || ch == '"') {
+          out.append('\\').append(ch);
+        } else if (ch == '\n') {
+          out.append("\\n");
+        } else {
+          out.append(ch);
+        }
+      }
+      out.append('"');
+    }
+    return out.toString();
+  }
+
+  /**
+   * Metric family: a name, description and type, and one series for each set of labels.
+   */
+  public static class Family {
+    private final String name;
+    private final String help;
+    private final Type type;
+    private final Map<String, Metric> series = new ConcurrentHashMap<String, Metric>();
+
+    Family(String name, String help, Type type) {
+      this.name = name;
+      this.help = help;
+      this.type = type;
+    }
+
+    public String getName() {
+      return name;
+    }
+
+    public String getHelp() {
+      return help;
+    }
+
+    public Type getType() {
+      return type;
+    }
+
+    /**
+     *
+     * @return Map of the rendered labels of each series (i.e. service="sampleService") to the
+     *         series
+     */
+    public Map<String, Metric> getSeries() {
+      return Collections.unmodifiableMap(series);
+    }
+  }
+}
@@ -0,0 +1,143 @@
+/*-
+Copyright 2018 Adobe. All rights reserved.
+This file is licensed to you under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License. You may obtain a copy
+of the License at http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software distributed under
+the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+OF ANY KIND, either express or implied. See the License for the specific language
+governing permissions and limitations under the License.
+*/
+
+package com.adobe.ride.core.metrics;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.logging.Logger;
+import com.adobe.ride.core.metrics.MetricsRegistry.Family;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Exports a registry in the Prometheus text format, as a string, as a file (i.e. for the textfile
+ * collector of the node exporter), or from an embedded HTTP endpoint bound to the loopback
+ * interface.
+ *
+ * @author tedcasey
+ *
+ */
+public class PrometheusExporter {
+
+  protected static final Logger logger = Logger.getLogger(PrometheusExporter.class.getName());
+
+  public static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+  public static final String PATH = "/metrics";
+
+  private PrometheusExporter() {}
+
+  /**
+   * Renders the current values of all series of the registry.
+   *
+   * @param registry registry to be exported
+   * @return String metrics in the Prometheus text format
+   */
+  public static String scrape(MetricsRegistry registry) {
+    StringBuilder out = new StringBuilder(4096);
+    for (Family family : registry.getFamilies()) {
+      if (family.getSeries().isEmpty()) {
+        continue;
+      }
+      out.append("# HELP ").append(family.getName()).append(' ')
+          .append(family.getHelp().replace("\\", "\\\\").replace("\n", "\\n")).append('\n');
+      out.append("# TYPE ").append(family.getName()).append(' ').append(family.getType())
+          .append('\n');
+      for (Map.Entry<String, Metric> series : family.getSeries().entrySet()) {
+        series.getValue().writeSamples(family.getName(), series.getKey(), out);
+      }
+    }
+    return out.toString();
+  }
+
+  /**
+   * Writes the registry to a file. The file is replaced atomically, so a collector never reads a
+   * partly written file.
+   *
+   * @param registry registry to be exported
+   * @param file file to be written, i.e. "ride.prom"
+   * @throws IOException if the file cannot be written
+   */
+  public static void writeTo(MetricsRegistry registry, Path file) throws IOException {
+    Path absolute = file.toAbsolutePath();
+    Path temp =
+        Files.createTempFile(absolute.getParent(), absolute.getFileName().toString(), ".tmp");
+    try {
+      Files.write(temp, scrape(registry).getBytes(StandardCharsets.UTF_8));
+      Files.move(temp, absolute, StandardCopyOption.REPLACE_EXISTING,
+          StandardCopyOption.ATOMIC_MOVE);
+    } finally {
+      Files.deleteIfExists(temp);
+    }
+  }
+
+  /**
+   * Starts an HTTP endpoint serving the registry at {@link #PATH}. The endpoint only listens on
+   * the loopback interface.
+   *
+   * @param registry registry to be exported
+   * @param port port to listen on, 0 for any free port
+   * @return Endpoint, which must be closed to stop it
+   * @throws IOException if the port cannot be bound
+   */
+  public static Endpoint start(MetricsRegistry registry, int port) throws IOException {
+    HttpServer server =
+        HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+    server.createContext(PATH, exchange -> {
+      byte[] body = scrape(registry).getBytes(StandardCharsets.UTF_8);
+      exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+      boolean head = "HEAD".equals(exchange.getRequestMethod());
+      exchange.sendResponseHeaders(200, head ? -1 : body.length);
+      if (!head) {
+        try (OutputStream stream = exchange.getResponseBody()) {
+          stream.write(body);
+        }
+      }
+      exchange.close();
+    });
+    server.start();
+    Endpoint endpoint = new Endpoint(server);
+    logger.info("Serving metrics at http://localhost:" + endpoint.getPort() + PATH);
+    return endpoint;
+  }
+
+  /**
+   * Running HTTP endpoint.
+   */
+  public static class Endpoint implements Closeable {
+    private final HttpServer server;
+
+    Endpoint(HttpServer server) {
+      this.server = server;
+    }
+
+    /**
+     *
+     * @return int port on which the endpoint listens
+     */
+    public int getPort() {
+      return server.getAddress().getPort();
+    }
+
+    @Override
+    public void close() {
+      server.stop(0);
+    }
+  }
+}
@@ -0,0 +1,346 @@
+/*-
+Copyright 2018 Adobe. All rights reserved.
+This file is licensed to you under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License. You may obtain a copy
+of the License at http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software distributed under
+the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+OF ANY KIND, either express or implied. See the License for the specific language
+governing permissions and limitations under the License.
+*/
+
+package com.adobe.ride.core.metrics;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import com.adobe.ride.core.execution.Warmup;
+import com.adobe.ride.core.http.HttpCache;
+import com.adobe.ride.core.http.ServiceConnectionPool;
+import com.adobe.ride.utilities.model.GenerationStats;
+import groovy.lang.GroovyRuntimeException;
+import io.restassured.http.Method;
+import io.restassured.response.Response;
+import io.restassured.specification.FilterableRequestSpecification;
+import io.restassured.specification.RequestSpecification;
+
+/**
+ * Metrics of the health of the test client, recorded into the default registry (see
+ * {@link MetricsRegistry#getDefault()}) by the RestApiController, the connection pools, the fuzz
+ * engines and model generation.
+ *
+ * The metrics can be exported by setting system properties:
+ *
+ * <pre>
+ * -Dride.metrics.port=9464          serve them at http://localhost:9464/metrics
+ * -Dride.metrics.file=/tmp/ride.prom  rewrite them to a file every 15 seconds
+ * -Dride.metrics.jmx=true            register them as MBeans
+ * </pre>
+ *
+ * @author tedcasey
+ *
+ */
+public class RideMetrics {
+
+  protected static final Logger logger = Logger.getLogger(RideMetrics.class.getName());
+
+  public static final String PORT_PROPERTY = "ride.metrics.port";
+  public static final String FILE_PROPERTY = "ride.metrics.file";
+  public static final String JMX_PROPERTY = "ride.metrics.jmx";
+  public static final long FILE_PERIOD_SECONDS = 15;
+
+  public static final String REQUESTS = "ride_requests_total";
+  public static final String REQUEST_ERRORS = "ride_request_errors_total";
+  public static final String REQUEST_DURATION = "ride_request_duration_seconds";
+  public static final String BYTES_SENT = "ride_request_bytes_total";
+  public static final String BYTES_RECEIVED = "ride_response_bytes_total";
+  public static final String POOL_CONNECTIONS = "ride_pool_connections";
+  public static final String FUZZ_CASES = "ride_fuzz_cases_total";
+  public static final String MODEL_INSTANCES = "ride_model_instances_total";
+  public static final String MODEL_SECONDS = "ride_model_generation_seconds_total";
+  public static final String COMPRESSION_BYTES = "ride_compression_bytes_total";
+  public static final String COMPRESSION_CPU = "ride_compression_cpu_seconds";
+  public static final String CACHE_LOOKUPS = "ride_cache_lookups_total";
+  public static final String CACHE_FETCH_DURATION = "ride_cache_fetch_duration_seconds";
+  public static final String CACHE_BYTES = "ride_cache_bytes";
+  public static final String REQUEST_DIRECTION = "request";
+  public static final String RESPONSE_DIRECTION = "response";
+
+  private static final MetricsRegistry registry = MetricsRegistry.getDefault();
+  private static PrometheusExporter.Endpoint endpoint;
+
+  static {
+    registry.functionCounter(MODEL_INSTANCES, "Model instances built",
+        GenerationStats::getInstanceCount);
+    registry.functionCounter(MODEL_SECONDS, "Time spent building model instances",
+        () -> GenerationStats.getGenerationNanos() / 1e9);
+    startExporters();
+  }
+
+  private RideMetrics() {}
+
+  private static void startExporters() {
+    if (Boolean.getBoolean(JMX_PROPERTY)) {
+      JmxExporter.register(registry);
+    }
+    Integer port = Integer.getInteger(PORT_PROPERTY);
+    if (port != null) {
+      try {
+        endpoint = PrometheusExporter.start(registry, port);
+      } catch (IOException e) {
+        logger.log(Level.WARNING, "Unable to serve metrics on port " + port, e);
+      }
+    }
+    String file = System.getProperty(FILE_PROPERTY);
+    if (file != null) {
+      ScheduledExecutorService writer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "ride-metrics-writer");
+        thread.setDaemon(true);
+        return thread;
+      });
+      Runnable write = () -> {
+        try {
+          PrometheusExporter.writeTo(registry, Paths.get(file));
+        } catch (IOException e) {
+          logger.log(Level.WARNING, "Unable to write metrics to " + file, e);
+        }
+      };
+      writer.scheduleAtFixedRate(write, FILE_PERIOD_SECONDS, FILE_PERIOD_SECONDS,
+          TimeUnit.SECONDS);
+      // the last values are written as the JVM exits, so short runs are captured too
+      Runtime.getRuntime().addShutdownHook(new Thread(write, "ride-metrics-final-write"));
+    }
+  }
+
+  /**
+   * Returns the default registry, once the standard metrics and exporters have been set up.
+   *
+   * @return MetricsRegistry
+   */
+  public static MetricsRegistry registry() {
+    return registry;
+  }
+
+  /**
+   *
+   * @return Endpoint serving the metrics, null if {@value #PORT_PROPERTY} is not set
+   */
+  public static PrometheusExporter.Endpoint getEndpoint() {
+    return endpoint;
+  }
+
+  /**
+   * Records a call which returned a response, whatever its status.
+   *
+   * @param serviceName name of the target service
+   * @param method http action which was invoked
+   * @param req request which was sent
+   * @param response response received
+   * @param nanos duration of the call
+   */
+  public static void recordCall(String serviceName, Method method, RequestSpecification req,
+      Response response, long nanos) {
+    // warm-up calls would skew every series towards cold-start latencies
+    if (Warmup.isActive()) {
+      return;
+    }
+    String name = String.valueOf(method);
+    registry.counter(REQUESTS, "Requests sent, by status of the response", "service",
+        serviceName, "method", name, "status", String.valueOf(response.getStatusCode()))
+        .increment();
+    recordTraffic(serviceName, name, req, nanos);
+    registry.counter(BYTES_RECEIVED, "Bytes of response bodies received", "service", serviceName)
+        .add(response.asByteArray().length);
+  }
+
+  /**
+   * Records a call which failed, either because no response was received or because the response
+   * did not meet the expected response.
+   *
+   * @param serviceName name of the target service
+   * @param method http action which was invoked
+   * @param req request which was sent
+   * @param failure exception or error thrown by the call
+   * @param nanos duration of the call
+   */
+  public static void recordFailure(String serviceName, Method method, RequestSpecification req,
+      Throwable failure, long nanos) {
+    if (Warmup.isActive()) {
+      return;
+    }
+    String name = String.valueOf(method);
+    Throwable cause = (failure instanceof CompletionException && failure.getCause() != null)
+        ? failure.getCause() : failure;
+    String type = isValidationFailure(cause) ? "validation" : cause.getClass().getSimpleName();
+    registry.counter(REQUEST_ERRORS, "Calls which failed, by type of failure", "service",
+        serviceName, "method", name, "type", type).increment();
+    recordTraffic(serviceName, name, req, nanos);
+  }
+
+  /**
+   * Returns whether a failure is a response which did not meet the expected response. On newer
+   * runtimes, the Groovy code of Rest-Assured cannot create its AssertionError, and throws the
+   * reason it could not instead.
+   */
+  private static boolean isValidationFailure(Throwable failure) {
+    return (failure instanceof AssertionError) || (failure instanceof GroovyRuntimeException
+        && String.valueOf(failure.getMessage()).contains(AssertionError.class.getName()));
+  }
+
+  private static void recordTraffic(String serviceName, String method, RequestSpecification req,
+      long nanos) {
+    registry.timer(REQUEST_DURATION, "Duration of calls", "service", serviceName, "method",
+        method).record(nanos);
+    long sent = requestBytes(req);
+    if (sent > 0) {
+      registry.counter(BYTES_SENT, "Bytes of request bodies sent", "service", serviceName)
+          .add(sent);
+    }
+  }
+
+  /**
+   * Returns the size of the body of a request, where it is known without serializing it again.
+   */
+  private static long requestBytes(RequestSpecification req) {
+    Object body = (req instanceof FilterableRequestSpecification)
+        ? ((FilterableRequestSpecification) req).getBody() : null;
+    if (body instanceof byte[]) {
+      return ((byte[]) body).length;
+    } else if (body instanceof String) {
+      return utf8Length((String) body);
+    } else if (body instanceof File) {
+      return ((File) body).length();
+    }
+    return 0;
+  }
+
+  private static long utf8Length(String text) {
+    long length = 0;
+    for (int i = 0; i < text.length(); i++) {
+      char c = text.charAt(i);
+      if (c < 0x80) {
+        length++;
+      } else if (c < 0x800) {
+        length += 2;
+      } else if (Character.isHighSurrogate(c)) {
+        length += 4;
+        i++;
+      } else {
+        length += 3;
+      }
+    }
+    return length;
+  }
+
+  /**
+   * Records a body which was compressed before it was sent, or decompressed as it was read.
+   *
+   * @param serviceName name of the target service
+   * @param direction {@value #REQUEST_DIRECTION} or {@value #RESPONSE_DIRECTION}
+   * @param encoding content coding of the body (i.e. gzip)
+   * @param compressedBytes size of the body as it was sent
+   * @param uncompressedBytes size of the body before compression, or after decompression
+   * @param cpuNanos CPU time spent compressing or decompressing the body, 0 if it is not known
+   */
+  public static void recordCompression(String serviceName, String direction, String encoding,
+      long compressedBytes, long uncompressedBytes, long cpuNanos) {
+    if (Warmup.isActive()) {
+      return;
+    }
+    String help = "Bytes of compressed bodies, by form in which they were counted";
+    registry.counter(COMPRESSION_BYTES, help, "service", serviceName, "direction", direction,
+        "encoding", encoding, "form", "compressed").add(compressedBytes);
+    registry.counter(COMPRESSION_BYTES, help, "service", serviceName, "direction", direction,
+        "encoding", encoding, "form", "uncompressed").add(uncompressedBytes);
+    registry.timer(COMPRESSION_CPU, "CPU time spent compressing or decompressing each body",
+        "service", serviceName, "direction", direction, "encoding", encoding).record(cpuNanos);
+  }
+
+  /**
+   * Records a GET request looked up in a client-side cache.
+   *
+   * @param serviceName name of the target service
+   * @param result outcome of the lookup (i.e. fresh, not_modified, modified, miss)
+   * @param nanos duration of the request sent to the service, 0 if none was sent
+   */
+  public static void recordCacheLookup(String serviceName, String result, long nanos) {
+    if (Warmup.isActive()) {
+      return;
+    }
+    registry.counter(CACHE_LOOKUPS, "Requests looked up in the client-side cache, by outcome",
+        "service", serviceName, "result", result).increment();
+    if (nanos > 0) {
+      registry.timer(CACHE_FETCH_DURATION,
+          "Duration of the requests sent on a cache miss or to revalidate a stored response",
+          "service", serviceName, "result", result).record(nanos);
+    }
+  }
+
+  /**
+   * Registers a gauge of the size of a client-side cache.
+   *
+   * @param cache cache to be watched
+   */
+  public static void registerCache(HttpCache cache) {
+    registry.gauge(CACHE_BYTES, "Size of the responses stored in the client-side cache",
+        cache::getBytes, "service", cache.getServiceName());
+  }
+
+  /**
+   * Removes the gauge of a cache which is no longer used.
+   *
+   * @param cache cache which is no longer watched
+   */
+  public static void unregisterCache(HttpCache cache) {
+    registry.remove(CACHE_BYTES, "service", cache.getServiceName());
+  }
+
+  /**
+   * Records a fuzz case.
+   *
+   * @param engine name of the fuzz engine
+   * @param expectSuccess indicator of whether the service was expected to accept the value
+   * @param passed indicator of whether the service responded as expected
+   */
+  public static void recordFuzzCase(String engine, boolean expectSuccess, boolean passed) {
+    registry.counter(FUZZ_CASES, "Fuzz cases run, by expectation and outcome", "engine", engine,
+        "expected", expectSuccess ? "success" : "failure", "outcome", passed ? "pass" : "fail")
+        .increment();
+  }
+
+  /**
+   * Registers gauges of the connections of a pool.
+   *
+   * @param pool pool to be watched
+   */
+  public static void registerPool(ServiceConnectionPool pool) {
+    String service = pool.getServiceName();
+    String help = "Connections of the pool of a service, by state";
+    registry.gauge(POOL_CONNECTIONS, help, () -> pool.getStats().getLeased(), "service", service,
+        "state", "leased");
+    registry.gauge(POOL_CONNECTIONS, help, () -> pool.getStats().getAvailable(), "service",
+        service, "state", "available");
+    registry.gauge(POOL_CONNECTIONS, help, () -> pool.getStats().getPending(), "service",
+        service, "state", "pending");
+    registry.gauge(POOL_CONNECTIONS, help, () -> pool.getStats().getMax(), "service", service,
+        "state", "max");
+  }
+
+  /**
+   * Removes the gauges of a pool which has been closed.
+   *
+   * @param pool pool which is no longer watched
+   */
+  public static void unregisterPool(ServiceConnectionPool pool) {
+    for (String state : new String[] {"leased", "available", "pending", "max"}) {
+      registry.remove(POOL_CONNECTIONS, "service", pool.getServiceName(), "state", state);
+    }
+  }
+}
@@ -0,0 +1,148 @@
+/*-
+Copyright 2018 Adobe. All rights reserved.
+This file is licensed to you under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License. You may obtain a copy
+of the License at http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software distributed under
+the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+OF ANY KIND, either express or implied. See the License for the specific language
+governing permissions and limitations under the License.
+*/
+
+package com.adobe.ride.core.metrics;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+/**
+ * Timer which records durations into an HdrHistogram, exported as a summary in seconds. Recording
+ * is wait-free; the histogram is only merged when the timer is read.
+ *
+ * @author tedcasey
+ *
+ */
+public class Timer extends Metric {
+
+  /** Quantiles exported for each timer. */
+  static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+
+  private final LongAdder count = new LongAdder();
+  private final LongAdder sumNanos = new LongAdder();
+  private final Recorder recorder = new Recorder(3);
+  private final Histogram total = new Histogram(3);
+  private Histogram interval;
+  private final ReentrantLock lock = new ReentrantLock();
+
+  /**
+   * Constructor for a timer which is not registered, i.e. to summarize the calls of one run. Timers
+   * exported with the metrics of a registry are created by
+   * {@link MetricsRegistry#timer(String, String, String...)}.
+   */
+  public Timer() {}
+
+  /**
+   *
+   * @param nanos duration in nanoseconds
+   */
+  public void record(long nanos) {
+    if (nanos < 0) {
+      return;
+    }
+    count.increment();
+    sumNanos.add(nanos);
+    recorder.recordValue(nanos / 1000);
+  }
+
+  /**
+   *
+   * @return long number of durations recorded
+   */
+  public long getCount() {
+    return count.sum();
+  }
+
+  /**
+   *
+   * @return double sum of the durations recorded, in seconds
+   */
+  public double getSumSeconds() {
+    return sumNanos.sum() / 1e9;
+  }
+
+  /**
+   *
+   * @param quantile quantile between 0 and 1 (i.e. 0.99)
+   * @return double duration below which the given quantile of the durations fall, in seconds
+   */
+  public double getQuantileSeconds(double quantile) {
+    lock.lock();
+    try {
+      return merged().getValueAtPercentile(quantile * 100) / 1e6;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   *
+   * @return double largest duration recorded, in seconds
+   */
+  public double getMaxSeconds() {
+    lock.lock();
+    try {
+      return merged().getMaxValue() / 1e6;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /** Must be called holding the lock, which also guards reads of the returned histogram. */
+  private Histogram merged() {
+    // the interval histogram is swapped out of the recorder, which carries on recording
+    interval = recorder.getIntervalHistogram(interval);
+    total.add(interval);
+    return total;
+  }
+
+  @Override
+  void writeSamples(String name, String labels, StringBuilder out) {
+    double[] values = new double[QUANTILES.length];
+    lock.lock();
+    try {
+      Histogram histogram = merged();
+      for (int i = 0; i < QUANTILES.length; i++) {
+        values[i] = histogram.getValueAtPercentile(QUANTILES[i] * 100) / 1e6;
+      }
+    } finally {
+      lock.unlock();
+    }
+    for (int i = 0; i < QUANTILES.length; i++) {
+      appendSample(out, name, labels, "quantile=\"" + QUANTILES[i] + "\"", values[i]);
+    }
+    appendSample(out, name + "_sum", labels, null, getSumSeconds());
+    appendSample(out, name + "_count", labels, null, getCount());
+  }
+
+  @Override
+  Map<String, Object> getValues() {
+    Map<String, Object> values = new LinkedHashMap<String, Object>();
+    values.put("Count", getCount());
+    values.put("SumSeconds", getSumSeconds());
+    lock.lock();
+    try {
+      Histogram histogram = merged();
+      values.put("P50Seconds", histogram.getValueAtPercentile(50) / 1e6);
+      values.put("P99Seconds", histogram.getValueAtPercentile(99) / 1e6);
+      values.put("P999Seconds", histogram.getValueAtPercentile(99.9) / 1e6);
+      values.put("MaxSeconds", histogram.getMaxValue() / 1e6);
+    } finally {
+      lock.unlock();
+    }
+    return values;
+  }
+}
@@ -0,0 +1,83 @@
+/*-
+Copyright 2018 Adobe. All rights reserved.
+This file is licensed to you under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License. You may obtain a copy
+of the License at http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software distributed under
+the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+OF ANY KIND, either express or implied. See the License for the specific language
+governing permissions and limitations under the License.
+*/
+
+package com.adobe.ride.core.stub;
+
+import java.util.Random;
+
+/**
+ * Distribution from which the latency or size of stubbed responses is drawn. Real services rarely
+ * respond in a fixed time, so a long-tailed distribution (i.e. {@link #logNormal(double, double)})
+ * gives a more faithful picture of how the client behaves under load.
+ *
+ * @author tedcasey
+ *
+ */
+@FunctionalInterface
+public interface Distribution {
+
+  /**
+   * Draws a value from the distribution.
+   *
+   * @param random source of randomness, which is not shared between threads
+   * @return double value, never negative
+   */
+  double sample(Random random);
+
+  /**
+   *
+   * @param value the value always drawn
+   * @return Distribution
+   */
+  static Distribution fixed(double value) {
+    return random -> value;
+  }
+
+  /**
+   *
+   * @param min smallest value drawn
+   * @param max largest value drawn
+   * @return Distribution of values spread evenly between min and max
+   */
+  static Distribution uniform(double min, double max) {
+    if (max < min) {
+      throw new IllegalArgumentException("max must not be less than min");
+    }
+    return random -> min + random.nextDouble() * (max - min);
+  }
+
+  /**
+   *
+   * @param mean mean of the values drawn
+   * @return Distribution of values exponentially distributed around the mean
+   */
+  static Distribution exponential(double mean) {
+    return random -> -mean * Math.log(1 - random.nextDouble());
+  }
+
+  /**
+   * Returns a long-tailed distribution described by its median and 99th percentile, which is how
+   * the latency of services is usually reported.
+   *
+   * @param median value below which half of the values fall
+   * @param p99 value below which 99% of the values fall
+   * @return Distribution of log-normally distributed values
+   */
+  static Distribution logNormal(double median, double p99) {
+    if (median <= 0 || p99 < median) {
+      throw new IllegalArgumentException("median must be positive and no greater than p99");
+    }
+    // 2.326 is the number of standard deviations below which 99% of a normal distribution falls
+    double sigma = Math.log(p99 / median) / 2.326;
+    return random -> median * Math.exp(sigma * random.nextGaussian());
+  }
+}
@@ -0,0 +1,202 @@
+/*-
+Copyright 2018 Adobe. All rights reserved.
+This file is licensed to you under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License. You may obtain a copy
+of the License at http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software distributed under
+the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+OF ANY KIND, either express or implied. See the License for the specific language
+governing permissions and limitations under the License.
+*/
+
+package com.adobe.ride.core.stub;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import com.adobe.ride.utilities.model.ModelObject;
+
+/**
+ * Response served by a {@link StubServer}: a status, headers, and a body which is either fixed,
+ * generated from the schema of a {@link ModelObject}, or filler of a size drawn from a
+ * {@link Distribution}. A latency distribution can be added to any response, so that the client is
+ * measured against a service which responds as slowly, and as unevenly, as the real one.
+ *
+ * <pre>
+ * stub.route("GET", "/users/{id}",
+ *     StubResponse.fromModel(new ModelObject("sampleService", "user", null, false), 1000)
+ *         .latency(Distribution.logNormal(5, 40)));
+ * </pre>
+ *
+ * @author tedcasey
+ *
+ */
+public class StubResponse {
+
+  public static final String JSON = "application/json";
+
+  private static final byte[] EMPTY = new byte[0];
+  private static final byte[] FILLER_START = "{\"data\":\"".getBytes(StandardCharsets.US_ASCII);
+  private static final byte[] FILLER_END = "\"}".getBytes(StandardCharsets.US_ASCII);
+
+  private final int status;
+  private final Map<String, String> headers = new LinkedHashMap<String, String>();
+  private final Function<Random, byte[]> body;
+  private Distribution latencyMillis;
+
+  /**
+   * Constructor for a response with no body.
+   *
+   * @param status status code of the response
+   */
+  public StubResponse(int status) {
+    this(status, null, random -> EMPTY);
+  }
+
+  private StubResponse(int status, String contentType, Function<Random, byte[]> body) {
+    this.status = status;
+    this.body = body;
+    if (contentType != null) {
+      headers.put("Content-Type", contentType);
+    }
+  }
+
+  /**
+   *
+   * @param status status code of the response
+   * @param contentType content type of the body
+   * @param body body served with every response
+   * @return StubResponse
+   */
+  public static StubResponse of(int status, String contentType, String body) {
+    return of(status, contentType, body.getBytes(StandardCharsets.UTF_8));
+  }
+
+  /**
+   * Returns a response serving the given bytes as they are, i.e. a body which has already been
+   * compressed, along with a matching Content-Encoding header.
+   *
+   * @param status status code of the response
+   * @param contentType content type of the body
+   * @param body body served with every response
+   * @return StubResponse
+   */
+  public static StubResponse of(int status, String contentType, byte[] body) {
+    byte[] bytes = body.clone();
+    return new StubResponse(status, contentType, random -> bytes);
+  }
+
+  /**
+   *
+   * @param body JSON body served with every response
+   * @return StubResponse with status 200
+   */
+  public static StubResponse json(String body) {
+    return of(200, JSON, body);
+  }
+
+  /**
+   * Returns a response whose body is a valid instance of the model. Instances can be generated up
+   * front, so that generating them takes nothing away from the client being measured, or for every
+   * request, so that every response differs.
+   *
+   * @param model model from which instances are generated
+   * @param instances number of instances generated up front and served at random, 0 to generate
+   *        an instance for every request
+   * @return StubResponse with status 200
+   */
+  public static StubResponse fromModel(ModelObject model, int instances) {
+    if (instances > 0) {
+      byte[][] bodies = new byte[instances][];
+      for (int i = 0; i < instances; i++) {
+        bodies[i] = generate(model);
+      }
+      return new StubResponse(200, JSON, random -> bodies[random.nextInt(bodies.length)]);
+    }
+    // models are not thread-safe, so instances are generated one at a time
+    ReentrantLock lock = new ReentrantLock();
+    return new StubResponse(200, JSON, random -> {
+      lock.lock();
+      try {
+        return generate(model);
+      } finally {
+        lock.unlock();
+      }
+    });
+  }
+
+  private static byte[] generate(ModelObject model) {
+    model.buildValidModelInstance();
+    return model.getMetadataString().getBytes(StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Returns a response whose body is a JSON object holding a single string, padded to a size
+   * drawn from the distribution for every request.
+   *
+   * @param bytes distribution of the size of the body in bytes
+   * @return StubResponse with status 200
+   */
+  public static StubResponse sized(Distribution bytes) {
+    return new StubResponse(200, JSON, random -> {
+      int minimum = FILLER_START.length + FILLER_END.length;
+      int size = Math.max(minimum, (int) Math.round(bytes.sample(random)));
+      byte[] body = new byte[size];
+      System.arraycopy(FILLER_START, 0, body, 0, FILLER_START.length);
+      Arrays.fill(body, FILLER_START.length, size - FILLER_END.length, (byte) 'x');
+      System.arraycopy(FILLER_END, 0, body, size - FILLER_END.length, FILLER_END.length);
+      return body;
+    });
+  }
+
+  /**
+   * Adds a header to every response.
+   *
+   * @param name name of the header
+   * @param value value of the header
+   * @return StubResponse
+   */
+  public StubResponse header(String name, String value) {
+    headers.put(name, value);
+    return this;
+  }
+
+  /**
+   * Delays every response by a time drawn from the distribution.
+   *
+   * @param millis distribution of the latency in milliseconds, null for no delay
+   * @return StubResponse
+   */
+  public StubResponse latency(Distribution millis) {
+    latencyMillis = millis;
+    return this;
+  }
+
+  public int getStatus() {
+    return status;
+  }
+
+  public Map<String, String> getHeaders() {
+    return Collections.unmodifiableMap(headers);
+  }
+
+  /**
+   *
+   * @param random source of randomness, which is not shared between threads
+   * @return long nanoseconds by which the response is delayed
+   */
+  long sampleLatencyNanos(Random random) {
+    return (latencyMillis == null) ? 0
+        : (long) (Math.max(0, latencyMillis.sample(random)) * 1000000);
+  }
+
+  byte[] body(Random random) {
+    return body.apply(random);
+  }
+}
@@ -0,0 +1,373 @@
+/*-
+Copyright 2018 Adobe. All rights reserved.
+This file is licensed to you under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License. You may obtain a copy
+of the License at http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software distributed under
+the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+OF ANY KIND, either express or implied. See the License for the specific language
+governing permissions and limitations under the License.
+*/
+
+package com.adobe.ride.core.stub;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.net.ssl.SSLContext;
+import com.adobe.ride.config.aop.TargetServiceConfiguration;
+import com.adobe.ride.config.management.TestProperties;
+import com.adobe.ride.core.controllers.RestApiController;
+import com.adobe.ride.core.execution.RideExecutors;
+import com.adobe.ride.core.filters.PhaseTimingFilter;
+import com.adobe.ride.core.http.Http2Transport;
+import com.adobe.ride.core.http.ServiceConnectionPool;
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import com.sun.net.httpserver.HttpsConfigurator;
+import com.sun.net.httpserver.HttpsServer;
+
+/**
+ * Embedded HTTP server which stands in for a service, so that the overhead of Ride itself (the
+ * controllers, filters, fuzzers and transports) can be measured on one machine, with no network
+ * and no service to hold it back. Each method and path template is routed to a
+ * {@link StubResponse}; numeric and identifier-like path segments are matched by "{id}", as in
+ * {@link PhaseTimingFilter}. Requests run on virtual threads where the runtime supports them, so
+ * responses with long latencies do not limit the number of calls in flight. A response carrying an
+ * ETag header is answered with 304 Not Modified, and no body, to requests whose If-None-Match
+ * header matches it, so client-side caches can be exercised against the stub.
+ *
+ * Binding the server to a service replaces the TargetServiceConfiguration of the service, so every
+ * call made to it through the RestApiController reaches the stub instead, until the server is
+ * closed. The connection pool, HTTP/2 transport and request templates of the service are reset
+ * both when it is bound and when it is restored, so no connection opened to one target is reused
+ * for the other; calls to the service should not be in flight at either time.
+ *
+ * Starting a server sets the JVM-wide system property <code>sun.net.httpserver.nodelay</code> to
+ * true, unless it is already set, so other <code>com.sun.net.httpserver</code> servers created in
+ * the same JVM afterwards also disable Nagle's algorithm. The JDK reads the property once, so
+ * setting it to false before the first server is started keeps it off for all of them.
+ *
+ * <pre>
+ * try (StubServer stub = StubServer.start()) {
+ *   stub.route("GET", "/users/{id}", StubResponse.sized(Distribution.uniform(512, 4096))
+ *       .latency(Distribution.logNormal(2, 20)));
+ *   stub.bind("sampleService");
+ *   ... calls to sampleService ...
+ * }
+ * </pre>
+ *
+ * @author tedcasey
+ *
+ */
+public class StubServer implements Closeable {
+
+  protected static final Logger logger = Logger.getLogger(StubServer.class.getName());
+
+  /** Method under which routes match any method. */
+  public static final String ANY_METHOD = "*";
+
+  private static final int MAX_PLATFORM_THREADS = 256;
+  private static final String NODELAY_PROPERTY = "sun.net.httpserver.nodelay";
+
+  private final HttpServer server;
+  private final ExecutorService executor;
+  private final Map<String, StubResponse> routes = new ConcurrentHashMap<String, StubResponse>();
+  private final Map<String, TargetServiceConfiguration> replaced =
+      new LinkedHashMap<String, TargetServiceConfiguration>();
+  private final ReentrantLock lock = new ReentrantLock();
+  private volatile StubResponse defaultResponse = new StubResponse(404);
+  private final LongAdder requests = new LongAdder();
+  private final LongAdder bytesReceived = new LongAdder();
+  private final LongAdder bytesSent = new LongAdder();
+  private volatile Headers lastRequestHeaders;
+
+  private StubServer(int port, SSLContext tls) throws IOException {
+    // responses are written as soon as they are ready, rather than held back for more data; the
+    // property applies to every server of the JVM, so a value set elsewhere is left as it is
+    if (System.getProperty(NODELAY_PROPERTY) == null) {
+      System.setProperty(NODELAY_PROPERTY, "true");
+    }
+    InetSocketAddress address = new InetSocketAddress(InetAddress.getLoopbackAddress(), port);
+    if (tls == null) {
+      server = HttpServer.create(address, 0);
+    } else {
+      HttpsServer https = HttpsServer.create(address, 0);
+      https.setHttpsConfigurator(new HttpsConfigurator(tls));
+      server = https;
+    }
+    executor = RideExecutors.newExecutor("ride-stub", MAX_PLATFORM_THREADS);
+    server.setExecutor(executor);
+    server.createContext("/", this::handle);
+    server.start();
+  }
+
+  /**
+   * Starts a server on a free port of the loopback interface.
+   *
+   * @return StubServer
+   * @throws IOException if the server cannot be started
+   */
+  public static StubServer start() throws IOException {
+    return start(0);
+  }
+
+  /**
+   * Starts a server on the given port of the loopback interface.
+   *
+   * @param port port on which the server listens, 0 for any free port
+   * @return StubServer
+   * @throws IOException if the server cannot be started
+   */
+  public static StubServer start(int port) throws IOException {
+    return start(port, null);
+  }
+
+  /**
+   * Starts a server serving https on the given port of the loopback interface, i.e. to measure TLS
+   * handshakes. Ride accepts any certificate, so a self-signed one will do.
+   *
+   * @param port port on which the server listens, 0 for any free port
+   * @param tls context holding the key and certificate of the server, null to serve http
+   * @return StubServer
+   * @throws IOException if the server cannot be started
+   */
+  public static StubServer start(int port, SSLContext tls) throws IOException {
+    StubServer stub = new StubServer(port, tls);
+    logger.info("Stub server listening on port " + stub.getPort()
+        + ((tls == null) ? "" : " (https)"));
+    return stub;
+  }
+
+  /**
+   * Routes calls to a method and path to a response, replacing any earlier route for them.
+   *
+   * @param method http method (i.e. GET), or {@link #ANY_METHOD}
+   * @param path path relative to the url of the service, with "{id}" for identifier segments (i.e.
+   *        "/users/{id}")
+   * @param response response served
+   * @return StubServer
+   */
+  public StubServer route(String method, String path, StubResponse response) {
+    routes.put(method.toUpperCase() + " " + PhaseTimingFilter.toTemplate(path), response);
+    return this;
+  }
+
+  /**
+   * Sets the response served to calls which match no route, a 404 with no body by default.
+   *
+   * @param response response served
+   * @return StubServer
+   */
+  public StubServer setDefaultResponse(StubResponse response) {
+    defaultResponse = response;
+    return this;
+  }
+
+  /**
+   * Returns a configuration which targets this server, for callers which take one directly (i.e.
+   * {@link com.adobe.ride.core.traffic.TrafficReplayer}).
+   *
+   * @param serviceName name of the service the server stands in for
+   * @return TargetServiceConfiguration
+   */
+  public TargetServiceConfiguration getTargetServiceConfig(String serviceName) {
+    return new TargetServiceConfiguration(serviceName,
+        (server instanceof HttpsServer) ? "https" : "http",
+        server.getAddress().getAddress().getHostAddress(), String.valueOf(getPort()), "/");
+  }
+
+  /**
+   * Points every call to a service at this server until it is closed.
+   *
+   * @param serviceName name of the service, which is a mapping to the config folder in resources
+   * @return StubServer
+   */
+  public StubServer bind(String serviceName) {
+    lock.lock();
+    try {
+      TargetServiceConfiguration previous = TestProperties.getInstance()
+          .setTargetServiceConfig(serviceName, getTargetServiceConfig(serviceName));
+      if (!replaced.containsKey(serviceName)) {
+        replaced.put(serviceName, previous);
+      }
+      reset(serviceName);
+    } finally {
+      lock.unlock();
+    }
+    logger.info("Calls to " + serviceName + " are served by the stub on port " + getPort());
+    return this;
+  }
+
+  /**
+   * Drops everything created for the previous target of a service.
+   */
+  private static void reset(String serviceName) {
+    ServiceConnectionPool.closeForService(serviceName);
+    Http2Transport.closeForService(serviceName);
+    RestApiController.clearRequestTemplates();
+  }
+
+  private void handle(HttpExchange exchange) throws IOException {
+    try {
+      requests.increment();
+      lastRequestHeaders = exchange.getRequestHeaders();
+      bytesReceived.add(drain(exchange.getRequestBody()));
+      StubResponse response = find(exchange.getRequestMethod(),
+          exchange.getRequestURI().getRawPath());
+      ThreadLocalRandom random = ThreadLocalRandom.current();
+      long delay = response.sampleLatencyNanos(random);
+      if (delay > 0) {
+        Thread.sleep(delay / 1000000, (int) (delay % 1000000));
+      }
+      int status = response.getStatus();
+      String etag = null;
+      for (Map.Entry<String, String> header : response.getHeaders().entrySet()) {
+        exchange.getResponseHeaders().set(header.getKey(), header.getValue());
+        if (header.getKey().equalsIgnoreCase("ETag")) {
+          etag = header.getValue();
+        }
+      }
+      if (etag != null && matches(exchange.getRequestHeaders().getFirst("If-None-Match"), etag)) {
+        status = 304;
+      }
+      byte[] body = (status == 304) ? new byte[0] : response.body(random);
+      boolean noBody = body.length == 0 || exchange.getRequestMethod().equals("HEAD");
+      exchange.sendResponseHeaders(status, noBody ? -1 : body.length);
+      if (!noBody) {
+        try (OutputStream out = exchange.getResponseBody()) {
+          out.write(body);
+        }
+        bytesSent.add(body.length);
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (IOException | RuntimeException e) {
+      logger.log(Level.FINE, "Stub failed to respond to " + exchange.getRequestURI(), e);
+      throw e;
+    } finally {
+      exchange.close();
+    }
+  }
+
+  private StubResponse find(String method, String path) {
+    if (path.contains("//")) {
+      // a base path of "/" joined to a path which also starts with "/"
+      path = path.replaceAll("/{2,}", "/");
+    }
+    String template = PhaseTimingFilter.toTemplate(path);
+    StubResponse response = routes.get(method + " " + template);
+    if (response == null) {
+      response = routes.get(ANY_METHOD + " " + template);
+    }
+    return (response == null) ? defaultResponse : response;
+  }
+
+  /**
+   * Returns whether an If-None-Match header lists the given entity tag, compared weakly.
+   */
+  private static boolean matches(String ifNoneMatch, String etag) {
+    if (ifNoneMatch == null) {
+      return false;
+    }
+    String tag = etag.trim().replaceFirst("^W/", "");
+    for (String candidate : ifNoneMatch.split(",")) {
+      candidate = candidate.trim();
+      if (candidate.equals("*") || candidate.replaceFirst("^W/", "").equals(tag)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static long drain(InputStream in) throws IOException {
+    byte[] buffer = new byte[8192];
+    long total = 0;
+    int read;
+    while ((read = in.read(buffer)) >= 0) {
+      total += read;
+    }
+    return total;
+  }
+
+  public int getPort() {
+    return server.getAddress().getPort();
+  }
+
+  /**
+   *
+   * @return long number of requests received so far
+   */
+  public long getRequestCount() {
+    return requests.sum();
+  }
+
+  /**
+   *
+   * @return long number of request body bytes received so far
+   */
+  public long getBytesReceived() {
+    return bytesReceived.sum();
+  }
+
+  /**
+   *
+   * @return long number of response body bytes sent so far
+   */
+  public long getBytesSent() {
+    return bytesSent.sum();
+  }
+
+  /**
+   * Returns a header of the request received last, i.e. to check the framing or headers a client
+   * sent. With calls in flight concurrently, which request was received last is not defined.
+   *
+   * @param name name of the header, in any case
+   * @return String first value of the header, null if the header was not sent or no request has
+   *         been received
+   */
+  public String getLastRequestHeader(String name) {
+    Headers headers = lastRequestHeaders;
+    return (headers == null) ? null : headers.getFirst(name);
+  }
+
+  /**
+   * Stops the server, and restores the configuration of every service bound to it, resetting their
+   * pools, HTTP/2 transports and request templates.
+   */
+  @Override
+  public void close() {
+    lock.lock();
+    try {
+      server.stop(0);
+      executor.shutdown();
+      try {
+        executor.awaitTermination(5, TimeUnit.SECONDS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      for (Map.Entry<String, TargetServiceConfiguration> service : replaced.entrySet()) {
+        TestProperties.getInstance().setTargetServiceConfig(service.getKey(), service.getValue());
+        reset(service.getKey());
+      }
+      replaced.clear();
+    } finally {
+      lock.unlock();
+    }
+  }
+}
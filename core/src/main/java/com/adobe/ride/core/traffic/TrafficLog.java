@@ -0,0 +1,445 @@
+/*-
+Copyright 2018 Adobe. All rights reserved.
+This file is licensed to you under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License. You may obtain a copy
+of the License at http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software distributed under
+the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+OF ANY KIND, either express or implied. See the License for the specific language
+governing permissions and limitations under the License.
+*/
+
+package com.adobe.ride.core.traffic;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Logger;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+import io.restassured.http.Header;
+
+/**
+ * Compact, append-only binary log of the calls made to services, from which the same sequence of
+ * calls can be replayed (see {@link TrafficReplayer}). Each call is written as one length-prefixed
+ * record holding its arrival time, method, path, headers and body, along with the status and
+ * latency of the original response. Records are optionally deflated; small records are always
+ * stored as they are, since compressing them costs more than it saves.
+ *
+ * Since every record carries its own length, a log cut short (i.e. by the process being killed
+ * while recording) can still be read up to its last complete record.
+ *
+ * <pre>
+ * TrafficLog log = new TrafficLog(new FileOutputStream("checkout.traffic"), true);
+ * RestApiController.fireRestCall(..., new TrafficRecordingFilter(log, "sampleService"));
+ * ...
+ * log.close();
+ * </pre>
+ *
+ * @author tedcasey
+ *
+ */
+public class TrafficLog implements Closeable, Flushable {
+
+  protected static final Logger logger = Logger.getLogger(TrafficLog.class.getName());
+
+  private static final int MAGIC = 0x52494454;
+  private static final byte VERSION = 1;
+  private static final byte DEFLATED = 1;
+  /** Records smaller than this many bytes are never compressed. */
+  private static final int MIN_COMPRESSED_SIZE = 256;
+
+  private final DataOutputStream out;
+  private final boolean compress;
+  private final long originNanos = System.nanoTime();
+  private final ByteArrayOutputStream record = new ByteArrayOutputStream(1024);
+  private final DataOutputStream recordOut = new DataOutputStream(record);
+  private final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+  private byte[] deflated = new byte[1024];
+  private long count;
+  private final ReentrantLock lock = new ReentrantLock();
+
+  /**
+   * Constructor which opens an uncompressed log on the given stream.
+   *
+   * @param stream stream to which the log is written
+   * @throws IOException if the log header cannot be written
+   */
+  public TrafficLog(OutputStream stream) throws IOException {
+    this(stream, false);
+  }
+
+  /**
+   * Constructor which opens a log on the given stream.
+   *
+   * @param stream stream to which the log is written
+   * @param compress whether records are deflated
+   * @throws IOException if the log header cannot be written
+   */
+  public TrafficLog(OutputStream stream, boolean compress) throws IOException {
+    this.compress = compress;
+    out = new DataOutputStream(new BufferedOutputStream(stream));
+    out.writeInt(MAGIC);
+    out.writeByte(VERSION);
+  }
+
+  /**
+   *
+   * @return long time at which the log was opened, in {@link System#nanoTime()} terms, from which
+   *         the arrival times of the entries are measured
+   */
+  public long getOriginNanos() {
+    return originNanos;
+  }
+
+  /**
+   *
+   * @return long number of entries written so far
+   */
+  public long getCount() {
+    lock.lock();
+    try {
+      return count;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Appends an entry to the log.
+   *
+   * @param entry entry to be written
+   * @throws IOException if the entry cannot be written
+   */
+  public void write(Entry entry) throws IOException {
+    lock.lock();
+    try {
+      record.reset();
+      recordOut.writeLong(entry.offsetNanos);
+      writeString(recordOut, entry.serviceName);
+      writeString(recordOut, entry.method);
+      writeString(recordOut, entry.path);
+      recordOut.writeShort(entry.headers.size());
+      for (Header header : entry.headers) {
+        writeString(recordOut, header.getName());
+        writeString(recordOut, header.getValue());
+      }
+      recordOut.writeInt(entry.body.length);
+      recordOut.write(entry.body);
+      recordOut.writeShort(entry.status);
+      recordOut.writeLong(entry.latencyNanos);
+
+      int size = record.size();
+      if (compress && size >= MIN_COMPRESSED_SIZE) {
+        int length = deflate(record.toByteArray());
+        out.writeInt(length + 5);
+        out.writeByte(DEFLATED);
+        out.writeInt(size);
+        out.write(deflated, 0, length);
+      } else {
+        out.writeInt(size + 1);
+        out.writeByte(0);
+        record.writeTo(out);
+      }
+      count++;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private int deflate(byte[] bytes) {
+    deflater.reset();
+    deflater.setInput(bytes);
+    deflater.finish();
+    int length = 0;
+    while (!deflater.finished()) {
+      if (length == deflated.length) {
+        deflated = Arrays.copyOf(deflated, deflated.length * 2);
+      }
+      length += deflater.deflate(deflated, length, deflated.length - length);
+    }
+    return length;
+  }
+
+  @Override
+  public void flush() throws IOException {
+    lock.lock();
+    try {
+      out.flush();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    lock.lock();
+    try {
+      out.close();
+      deflater.end();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Opens a log for reading. Entries are read one at a time as the reader is iterated, so logs
+   * larger than the heap can be replayed.
+   *
+   * @param stream stream from which the log is read
+   * @return Reader
+   * @throws IOException if the stream is not a traffic log or cannot be read
+   */
+  public static Reader reader(InputStream stream) throws IOException {
+    return new Reader(stream);
+  }
+
+  /**
+   * Reads all of the entries of a log. The stream is closed once the log has been read.
+   *
+   * @param stream stream from which the log is read
+   * @return List of entries, in the order they were written
+   * @throws IOException if the stream is not a traffic log or cannot be read
+   */
+  public static List<Entry> read(InputStream stream) throws IOException {
+    List<Entry> entries = new ArrayList<Entry>();
+    try (Reader reader = new Reader(stream)) {
+      while (reader.hasNext()) {
+        entries.add(reader.next());
+      }
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    }
+    return entries;
+  }
+
+  private static void writeString(DataOutputStream out, String value) throws IOException {
+    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+
+  private static String readString(DataInputStream in) throws IOException {
+    byte[] bytes = new byte[in.readInt()];
+    in.readFully(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Iterator over the entries of a log, in the order they were written.
+   */
+  public static class Reader implements Iterator<Entry>, Closeable {
+    private final DataInputStream in;
+    private final Inflater inflater = new Inflater();
+    private Entry next;
+    private boolean done;
+
+    Reader(InputStream stream) throws IOException {
+      in = new DataInputStream(new BufferedInputStream(stream));
+      try {
+        if (in.readInt() != MAGIC || in.readByte() != VERSION) {
+          throw new IOException("The stream is not a supported traffic log");
+        }
+      } catch (EOFException e) {
+        throw new IOException("The stream is not a supported traffic log", e);
+      }
+    }
+
+    @Override
+    public boolean hasNext() {
+      if (next == null && !done) {
+        try {
+          next = readEntry();
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+        done = (next == null);
+      }
+      return next != null;
+    }
+
+    @Override
+    public Entry next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      Entry entry = next;
+      next = null;
+      return entry;
+    }
+
+    private Entry readEntry() throws IOException {
+      byte[] frame;
+      try {
+        frame = new byte[in.readInt()];
+      } catch (EOFException e) {
+        return null;
+      }
+      try {
+        in.readFully(frame);
+      } catch (EOFException e) {
+        logger.warning("The traffic log ends with an incomplete record, which was skipped");
+        return null;
+      }
+
+      byte[] bytes = frame;
+      int offset = 1;
+      int length = frame.length - 1;
+      if (frame[0] == DEFLATED) {
+        bytes = new byte[readInt(frame, 1)];
+        inflater.reset();
+        inflater.setInput(frame, 5, frame.length - 5);
+        try {
+          if (inflater.inflate(bytes) != bytes.length) {
+            throw new IOException("Corrupt record in traffic log");
+          }
+        } catch (DataFormatException e) {
+          throw new IOException("Corrupt record in traffic log", e);
+        }
+        offset = 0;
+        length = bytes.length;
+      }
+
+      DataInputStream record =
+          new DataInputStream(new ByteArrayInputStream(bytes, offset, length));
+      long offsetNanos = record.readLong();
+      String serviceName = readString(record);
+      String method = readString(record);
+      String path = readString(record);
+      int headerCount = record.readUnsignedShort();
+      List<Header> headers = new ArrayList<Header>(headerCount);
+      for (int i = 0; i < headerCount; i++) {
+        headers.add(new Header(readString(record), readString(record)));
+      }
+      byte[] body = new byte[record.readInt()];
+      record.readFully(body);
+      int status = record.readUnsignedShort();
+      long latencyNanos = record.readLong();
+      return new Entry(offsetNanos, serviceName, method, path, headers, body, status,
+          latencyNanos);
+    }
+
+    private static int readInt(byte[] bytes, int offset) {
+      return ((bytes[offset] & 0xff) << 24) | ((bytes[offset + 1] & 0xff) << 16)
+          | ((bytes[offset + 2] & 0xff) << 8) | (bytes[offset + 3] & 0xff);
+    }
+
+    @Override
+    public void close() throws IOException {
+      inflater.end();
+      in.close();
+    }
+  }
+
+  /**
+   * Record of a single call.
+   */
+  public static class Entry {
+    private final long offsetNanos;
+    private final String serviceName;
+    private final String method;
+    private final String path;
+    private final List<Header> headers;
+    private final byte[] body;
+    private final int status;
+    private final long latencyNanos;
+
+    /**
+     * Constructor for an entry.
+     *
+     * @param offsetNanos time at which the call was made, relative to the opening of the log
+     * @param serviceName name of the service, which is a mapping to the config folder in resources
+     * @param method http action invoked (i.e. POST, GET, etc.)
+     * @param path path and query of the call, relative to the url of the service
+     * @param headers headers sent with the call
+     * @param body body sent with the call, empty if there was none
+     * @param status status code of the original response
+     * @param latencyNanos time taken by the original call, including reading its response
+     */
+    public Entry(long offsetNanos, String serviceName, String method, String path,
+        List<Header> headers, byte[] body, int status, long latencyNanos) {
+      this.offsetNanos = offsetNanos;
+      this.serviceName = serviceName;
+      this.method = method;
+      this.path = path;
+      this.headers = Collections.unmodifiableList(headers);
+      this.body = (body == null) ? new byte[0] : body;
+      this.status = status;
+      this.latencyNanos = latencyNanos;
+    }
+
+    /**
+     *
+     * @return long time at which the call was made, in nanoseconds after the log was opened
+     */
+    public long getOffsetNanos() {
+      return offsetNanos;
+    }
+
+    public String getServiceName() {
+      return serviceName;
+    }
+
+    public String getMethod() {
+      return method;
+    }
+
+    /**
+     *
+     * @return String path and query of the call, relative to the url of the service
+     */
+    public String getPath() {
+      return path;
+    }
+
+    public List<Header> getHeaders() {
+      return headers;
+    }
+
+    public byte[] getBody() {
+      return body;
+    }
+
+    /**
+     *
+     * @return int status code of the original response
+     */
+    public int getStatus() {
+      return status;
+    }
+
+    /**
+     *
+     * @return long nanoseconds taken by the original call, including reading its response
+     */
+    public long getLatencyNanos() {
+      return latencyNanos;
+    }
+
+    @Override
+    public String toString() {
+      return serviceName + " " + method + " " + path + " -> " + status + " in "
+          + (latencyNanos / 1000000.0) + "ms";
+    }
+  }
+}
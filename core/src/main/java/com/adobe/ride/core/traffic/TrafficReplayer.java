@@ -0,0 +1,587 @@
+/*-
+Copyright 2018 Adobe. All rights reserved.
+This file is licensed to you under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License. You may obtain a copy
+of the License at http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software distributed under
+the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+OF ANY KIND, either express or implied. See the License for the specific language
+governing permissions and limitations under the License.
+*/
+
+package com.adobe.ride.core.traffic;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.methods.RequestBuilder;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.util.EntityUtils;
+import com.adobe.ride.config.aop.TargetServiceConfiguration;
+import com.adobe.ride.core.execution.RideExecutors;
+import com.adobe.ride.core.execution.TokenBucket;
+import com.adobe.ride.core.filters.PhaseTimingFilter;
+import com.adobe.ride.core.http.AsyncRestClient;
+import com.adobe.ride.core.http.ServiceConnectionPool;
+import io.restassured.http.Header;
+
+/**
+ * Replayer which re-issues the calls of a {@link TrafficLog} against a service, keeping the
+ * original time between calls divided by a speed factor, so production-like traffic can be
+ * reproduced against another environment at its original rate or several times faster. Calls are
+ * sent on schedule however slowly the service responds (an open model, as with
+ * {@link com.adobe.ride.core.execution.RateDriver}).
+ *
+ * Calls are sent either through a connection pool owned by the replay, from a thread per call
+ * (virtual where the runtime supports them), or through the shared {@link AsyncRestClient}. The
+ * report compares the latency of every method and path template between the original and replayed
+ * calls, and counts replayed calls whose status differs from the original.
+ *
+ * <pre>
+ * TrafficReplayer replayer = new TrafficReplayer(
+ *     TestProperties.getInstance().getTargetServiceConfig("sampleService"), 5, Client.POOLED);
+ * TrafficReplayer.Report report = replayer.replay(new FileInputStream("checkout.traffic"));
+ * </pre>
+ *
+ * @author tedcasey
+ *
+ */
+public class TrafficReplayer {
+
+  protected static final Logger logger = Logger.getLogger(TrafficReplayer.class.getName());
+
+  private static final int MAX_PLATFORM_THREADS = 512;
+  private static final int POOL_SIZE = 512;
+  private static final long POOL_IDLE_MILLIS = 30000;
+  /** Number of significant digits kept by the histograms. */
+  private static final int PRECISION = 3;
+
+  /**
+   * Client through which the calls are replayed.
+   */
+  public enum Client {
+    /** Blocking calls over a connection pool, one thread per call in flight. */
+    POOLED,
+    /** Non-blocking calls through the shared {@link AsyncRestClient}. */
+    ASYNC
+  }
+
+  private final Function<String, TargetServiceConfiguration> targets;
+  private final double speed;
+  private final Client client;
+
+  /**
+   * Constructor for a replayer which sends every call of the log to one service.
+   *
+   * @param target service to which the calls are sent, whatever service they were recorded for
+   * @param speed factor by which the original time between calls is divided (i.e. 5 for 5x)
+   * @param client client through which the calls are sent
+   */
+  public TrafficReplayer(TargetServiceConfiguration target, double speed, Client client) {
+    this(serviceName -> target, speed, client);
+  }
+
+  /**
+   * Constructor for a replayer which sends the calls of each service in the log to the service
+   * returned for it. Calls to services for which no target is returned are skipped.
+   *
+   * @param targets function returning the target of the calls recorded for a service name
+   * @param speed factor by which the original time between calls is divided (i.e. 5 for 5x)
+   * @param client client through which the calls are sent
+   */
+  public TrafficReplayer(Function<String, TargetServiceConfiguration> targets, double speed,
+      Client client) {
+    if (!(speed > 0)) {
+      throw new IllegalArgumentException("speed must be greater than 0");
+    }
+    this.targets = targets;
+    this.speed = speed;
+    this.client = (client == null) ? Client.POOLED : client;
+  }
+
+  /**
+   * Replays every call of a log, then waits for the calls in flight to finish. The stream is
+   * closed once the log has been read.
+   *
+   * @param log stream from which the log is read
+   * @return Report
+   * @throws IOException if the stream is not a traffic log or cannot be read
+   * @throws InterruptedException if the calling thread is interrupted while waiting
+   */
+  public Report replay(InputStream log) throws IOException, InterruptedException {
+    try (TrafficLog.Reader reader = TrafficLog.reader(log)) {
+      return replay(reader);
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    }
+  }
+
+  /**
+   * Replays the given calls, then waits for the calls in flight to finish.
+   *
+   * @param entries calls to be replayed, in the order they were recorded
+   * @return Report
+   * @throws InterruptedException if the calling thread is interrupted while waiting
+   */
+  public Report replay(Iterator<TrafficLog.Entry> entries) throws InterruptedException {
+    Report report = new Report(speed);
+    InFlight inFlight = new InFlight();
+    ServiceConnectionPool pool = null;
+    ExecutorService executor = null;
+    if (client == Client.POOLED) {
+      pool = new ServiceConnectionPool("ride-replay", POOL_SIZE, POOL_SIZE, POOL_IDLE_MILLIS, 0,
+          POOL_IDLE_MILLIS);
+      executor = RideExecutors.newExecutor("ride-replay", MAX_PLATFORM_THREADS);
+    } else {
+      // the client is created before the first call is due, so creating it adds no lag
+      AsyncRestClient.getClient();
+    }
+
+    long start = System.nanoTime();
+    long firstOffset = -1;
+    try {
+      while (entries.hasNext()) {
+        TrafficLog.Entry entry = entries.next();
+        TargetServiceConfiguration target = targets.apply(entry.getServiceName());
+        if (target == null) {
+          report.skipped.increment();
+          continue;
+        }
+        if (firstOffset < 0) {
+          firstOffset = entry.getOffsetNanos();
+        }
+        long scheduled = start + (long) ((entry.getOffsetNanos() - firstOffset) / speed);
+        TokenBucket.awaitNanoTime(scheduled);
+        report.lag.accumulateAndGet(System.nanoTime() - scheduled, Math::max);
+        report.issued.increment();
+        String url = toUrl(target, entry.getPath());
+        Endpoint endpoint = report.endpointFor(entry);
+        inFlight.started();
+        if (client == Client.POOLED) {
+          ServiceConnectionPool replayPool = pool;
+          executor.execute(() -> {
+            try {
+              send(replayPool, entry, url, scheduled, endpoint, report);
+            } finally {
+              inFlight.finished();
+            }
+          });
+        } else {
+          sendAsync(entry, url, scheduled, endpoint, report, inFlight);
+        }
+      }
+      report.originalSpanNanos = (firstOffset < 0) ? 0 : report.lastOffset - firstOffset;
+    } finally {
+      try {
+        inFlight.await();
+      } finally {
+        if (executor != null) {
+          executor.shutdown();
+        }
+        if (pool != null) {
+          pool.close();
+        }
+        report.elapsedNanos = System.nanoTime() - start;
+      }
+    }
+    logger.info("Traffic replay finished: " + report);
+    return report;
+  }
+
+  private static String toUrl(TargetServiceConfiguration target, String path) {
+    String base = target.getURL();
+    if (base.endsWith("/") && path.startsWith("/")) {
+      return base + path.substring(1);
+    }
+    return (path.isEmpty() || path.startsWith("/") || path.startsWith("?") || base.endsWith("/"))
+        ? base + path : base + "/" + path;
+  }
+
+  /**
+   * Returns whether a recorded header is sent again; headers describing the original connection
+   * or body framing are left to the client.
+   */
+  private static boolean isReplayed(Header header) {
+    String name = header.getName();
+    return !(name.equalsIgnoreCase("Host") || name.equalsIgnoreCase("Content-Length")
+        || name.equalsIgnoreCase("Transfer-Encoding") || name.equalsIgnoreCase("Connection"));
+  }
+
+  private static void send(ServiceConnectionPool pool, TrafficLog.Entry entry, String url,
+      long scheduled, Endpoint endpoint, Report report) {
+    RequestBuilder request = RequestBuilder.create(entry.getMethod()).setUri(url);
+    for (Header header : entry.getHeaders()) {
+      if (isReplayed(header)) {
+        request.addHeader(header.getName(), header.getValue());
+      }
+    }
+    if (entry.getBody().length > 0) {
+      request.setEntity(new ByteArrayEntity(entry.getBody()));
+    }
+    try {
+      HttpResponse response = pool.getHttpClient().execute(request.build());
+      // reading the whole body returns the connection to the pool
+      HttpEntity entity = response.getEntity();
+      if (entity != null) {
+        EntityUtils.consume(entity);
+      }
+      report.completed(entry, endpoint, response.getStatusLine().getStatusCode(),
+          System.nanoTime() - scheduled);
+    } catch (IOException | RuntimeException e) {
+      report.failed(entry, e);
+    }
+  }
+
+  private static void sendAsync(TrafficLog.Entry entry, String url, long scheduled,
+      Endpoint endpoint, Report report, InFlight inFlight) {
+    org.asynchttpclient.RequestBuilder request =
+        new org.asynchttpclient.RequestBuilder(entry.getMethod(), true).setUrl(url);
+    for (Header header : entry.getHeaders()) {
+      if (isReplayed(header)) {
+        request.addHeader(header.getName(), header.getValue());
+      }
+    }
+    if (entry.getBody().length > 0) {
+      request.setBody(entry.getBody());
+    }
+    try {
+      AsyncRestClient.getClient().executeRequest(request).toCompletableFuture()
+          .whenComplete((response, error) -> {
+            try {
+              if (error != null) {
+                report.failed(entry, error);
+              } else {
+                report.completed(entry, endpoint, response.getStatusCode(),
+                    System.nanoTime() - scheduled);
+              }
+            } finally {
+              inFlight.finished();
+            }
+          });
+    } catch (RuntimeException e) {
+      report.failed(entry, e);
+      inFlight.finished();
+    }
+  }
+
+  /**
+   * Count of the calls of a replay which have not finished, plus one for the replaying thread
+   * until it awaits them, so the count only reaches zero once every call has been issued and has
+   * finished. Unlike a Phaser, it does not limit the number of calls in flight.
+   */
+  private static final class InFlight {
+    private final AtomicLong calls = new AtomicLong(1);
+    private final CountDownLatch done = new CountDownLatch(1);
+
+    void started() {
+      calls.incrementAndGet();
+    }
+
+    void finished() {
+      if (calls.decrementAndGet() == 0) {
+        done.countDown();
+      }
+    }
+
+    /**
+     * Waits for every call started so far to finish; no call may be started afterwards.
+     */
+    void await() throws InterruptedException {
+      finished();
+      done.await();
+    }
+  }
+
+  /**
+   * Outcome of a replay. Replayed latency is measured from the time at which each call was
+   * scheduled to be sent, so any delay in sending it is included rather than omitted.
+   */
+  public static class Report {
+    private final double speed;
+    private final LongAdder issued = new LongAdder();
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder skipped = new LongAdder();
+    private final LongAdder statusMismatches = new LongAdder();
+    private final AtomicLong lag = new AtomicLong();
+    private final Map<String, Endpoint> endpoints = new ConcurrentHashMap<String, Endpoint>();
+    private final Endpoint overall = new Endpoint(null, null, null);
+    private volatile long lastOffset;
+    private volatile long originalSpanNanos;
+    private volatile long elapsedNanos;
+
+    Report(double speed) {
+      this.speed = speed;
+    }
+
+    private Endpoint endpointFor(TrafficLog.Entry entry) {
+      lastOffset = entry.getOffsetNanos();
+      String template = PhaseTimingFilter.toTemplate(entry.getPath());
+      String key = entry.getServiceName() + " " + entry.getMethod() + " " + template;
+      Endpoint endpoint = endpoints.get(key);
+      if (endpoint == null) {
+        endpoint = endpoints.computeIfAbsent(key,
+            k -> new Endpoint(entry.getServiceName(), entry.getMethod(), template));
+      }
+      return endpoint;
+    }
+
+    private void completed(TrafficLog.Entry entry, Endpoint endpoint, int status,
+        long latencyNanos) {
+      completed.increment();
+      if (status != entry.getStatus()) {
+        statusMismatches.increment();
+        logger.fine("Replayed " + entry + " returned " + status);
+      }
+      endpoint.record(entry.getLatencyNanos(), latencyNanos);
+      overall.record(entry.getLatencyNanos(), latencyNanos);
+    }
+
+    private void failed(TrafficLog.Entry entry, Throwable t) {
+      failures.increment();
+      logger.log(Level.FINE, "Replayed " + entry + " failed", t);
+    }
+
+    /**
+     *
+     * @return double factor by which the original time between calls was divided
+     */
+    public double getSpeed() {
+      return speed;
+    }
+
+    /**
+     *
+     * @return long number of calls sent
+     */
+    public long getIssued() {
+      return issued.sum();
+    }
+
+    /**
+     *
+     * @return long number of calls which received a response, whatever its status
+     */
+    public long getCompleted() {
+      return completed.sum();
+    }
+
+    /**
+     *
+     * @return long number of calls which received no response
+     */
+    public long getFailures() {
+      return failures.sum();
+    }
+
+    /**
+     *
+     * @return long number of recorded calls not sent, as no target was given for their service
+     */
+    public long getSkipped() {
+      return skipped.sum();
+    }
+
+    /**
+     *
+     * @return long number of calls whose status differed from that of the original response
+     */
+    public long getStatusMismatches() {
+      return statusMismatches.sum();
+    }
+
+    /**
+     *
+     * @return double largest delay between the scheduled and actual sending of a call, in
+     *         milliseconds
+     */
+    public double getMaxLagMillis() {
+      return lag.get() / 1000000.0;
+    }
+
+    /**
+     *
+     * @return long time between the first and last of the original calls, in milliseconds
+     */
+    public long getOriginalSpanMillis() {
+      return originalSpanNanos / 1000000;
+    }
+
+    /**
+     *
+     * @return long duration of the replay in milliseconds, including waiting for the last calls
+     */
+    public long getElapsedMillis() {
+      return elapsedNanos / 1000000;
+    }
+
+    /**
+     *
+     * @return Comparison of the original and replayed latency of all calls
+     */
+    public Comparison getOverall() {
+      return overall.compare();
+    }
+
+    /**
+     *
+     * @return List of Comparison of the original and replayed latency of each method and path
+     */
+    public List<Comparison> getComparisons() {
+      List<Comparison> comparisons = new ArrayList<Comparison>();
+      for (Endpoint endpoint : endpoints.values()) {
+        comparisons.add(endpoint.compare());
+      }
+      Collections.sort(comparisons,
+          (a, b) -> (a.serviceName + a.method + a.path).compareTo(b.serviceName + b.method
+              + b.path));
+      return comparisons;
+    }
+
+    @Override
+    public String toString() {
+      return "speed: " + speed + "x; issued: " + getIssued() + "; completed: " + getCompleted()
+          + "; failures: " + getFailures() + "; skipped: " + getSkipped()
+          + "; status mismatches: " + getStatusMismatches() + "; max lag: " + getMaxLagMillis()
+          + "ms; original span: " + getOriginalSpanMillis() + "ms; elapsed: "
+          + getElapsedMillis() + "ms; " + getOverall();
+    }
+  }
+
+  /**
+   * Histograms of the original and replayed latency of the calls to one method and path.
+   */
+  private static class Endpoint {
+    private final String serviceName;
+    private final String method;
+    private final String path;
+    private final Histogram original = new ConcurrentHistogram(PRECISION);
+    private final Histogram replayed = new ConcurrentHistogram(PRECISION);
+
+    Endpoint(String serviceName, String method, String path) {
+      this.serviceName = serviceName;
+      this.method = method;
+      this.path = path;
+    }
+
+    void record(long originalNanos, long replayedNanos) {
+      original.recordValue(Math.max(0, originalNanos / 1000));
+      replayed.recordValue(Math.max(0, replayedNanos / 1000));
+    }
+
+    Comparison compare() {
+      return new Comparison(serviceName, method, path, original.copy(), replayed.copy());
+    }
+  }
+
+  /**
+   * Percentiles of the original and replayed latency of the calls to one method and path of a
+   * service, in milliseconds. Only calls which received a response on replay are included.
+   */
+  public static class Comparison {
+    private final String serviceName;
+    private final String method;
+    private final String path;
+    private final long count;
+    private final double[] original;
+    private final double[] replayed;
+
+    Comparison(String serviceName, String method, String path, Histogram original,
+        Histogram replayed) {
+      this.serviceName = serviceName;
+      this.method = method;
+      this.path = path;
+      count = replayed.getTotalCount();
+      this.original = percentiles(original);
+      this.replayed = percentiles(replayed);
+    }
+
+    private static double[] percentiles(Histogram histogram) {
+      return new double[] {histogram.getValueAtPercentile(50) / 1000.0,
+          histogram.getValueAtPercentile(99) / 1000.0, histogram.getMaxValue() / 1000.0};
+    }
+
+    public String getServiceName() {
+      return serviceName;
+    }
+
+    public String getMethod() {
+      return method;
+    }
+
+    /**
+     *
+     * @return String path template of the calls, i.e. "/users/{id}", null for all calls
+     */
+    public String getPath() {
+      return path;
+    }
+
+    /**
+     *
+     * @return long number of calls compared
+     */
+    public long getCount() {
+      return count;
+    }
+
+    public double getOriginalP50Millis() {
+      return original[0];
+    }
+
+    public double getOriginalP99Millis() {
+      return original[1];
+    }
+
+    public double getOriginalMaxMillis() {
+      return original[2];
+    }
+
+    public double getReplayedP50Millis() {
+      return replayed[0];
+    }
+
+    public double getReplayedP99Millis() {
+      return replayed[1];
+    }
+
+    public double getReplayedMaxMillis() {
+      return replayed[2];
+    }
+
+    /**
+     *
+     * @return double replayed p99 latency divided by the original, 0 if there were no calls
+     */
+    public double getP99Ratio() {
+      return (original[1] == 0) ? 0 : replayed[1] / original[1];
+    }
+
+    @Override
+    public String toString() {
+      String calls = (serviceName == null) ? "all calls" : serviceName + " " + method + " " + path;
+      return calls + "; count " + count
+          + ", original p50/p99/max " + original[0] + "/" + original[1] + "/" + original[2]
+          + "ms, replayed p50/p99/max " + replayed[0] + "/" + replayed[1] + "/" + replayed[2]
+          + "ms, p99 x" + String.format("%.2f", getP99Ratio());
+    }
+  }
+}
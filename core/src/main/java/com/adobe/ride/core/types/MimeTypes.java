@@ -26,6 +26,8 @@ public enum MimeTypes {
   MP4("video/mp4"),
   MPEG("video/mpeg"),
   APP_JSON("application/JSON"),
+  JSON_PATCH("application/json-patch+json"),
+  MERGE_PATCH("application/merge-patch+json"),
   APP_ZIP("application/ZIP"),
   ARTICLE_ZIP("application/vnd.adobe.article+zip"),
   FOLIO_ZIP("application/vnd.adobe.folio+zip"),
@@ -0,0 +1,103 @@
+/*-
+Copyright 2018 Adobe. All rights reserved.
+This file is licensed to you under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License. You may obtain a copy
+of the License at http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software distributed under
+the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+OF ANY KIND, either express or implied. See the License for the specific language
+governing permissions and limitations under the License.
+*/
+
+package com.adobe.ride.core.controllers;
+
+import java.lang.management.ManagementFactory;
+import java.util.function.Supplier;
+import com.adobe.ride.core.globals.Headers;
+import com.adobe.ride.core.globals.CoreGlobals;
+import com.adobe.ride.core.types.LogLevel;
+import io.restassured.RestAssured;
+import io.restassured.builder.RequestSpecBuilder;
+import io.restassured.config.ConnectionConfig;
+import io.restassured.config.EncoderConfig;
+import io.restassured.config.RestAssuredConfig;
+import io.restassured.filter.Filter;
+import io.restassured.filter.log.LogDetail;
+
+/**
+ * Measures the cost of preparing a request: the time and the heap allocated per built request
+ * specification, with a new filter on every call as authentication filters usually are, for
+ * {@link RestApiController#getRequestBuilder} and for the per-call setup it replaced. Run with:
+ *
+ * <pre>
+ * java com.adobe.ride.core.controllers.RequestBuilderBenchmark [requests]
+ * </pre>
+ *
+ * @author tedcasey
+ *
+ */
+public class RequestBuilderBenchmark {
+
+  private RequestBuilderBenchmark() {}
+
+  public static void main(String[] args) {
+    int requests = (args.length > 0) ? Integer.parseInt(args[0]) : 20000;
+    CoreGlobals.INSTANCE.setLogLevel(LogLevel.ON_FAILURE);
+    Supplier<RequestSpecBuilder> previous = () -> previousRequestBuilder(perCallFilter());
+    Supplier<RequestSpecBuilder> current =
+        () -> RestApiController.getRequestBuilder(true, perCallFilter());
+    // warm up both before measuring either
+    run("warm-up", previous, requests);
+    run("warm-up", current, requests);
+    System.out.println(run("per-call setup", previous, requests));
+    System.out.println(run("getRequestBuilder", current, requests));
+  }
+
+  private static Filter perCallFilter() {
+    return (request, response, ctx) -> ctx.next(request, response);
+  }
+
+  /**
+   * The setup getRequestBuilder performed on every call before request templates were cached.
+   */
+  private static RequestSpecBuilder previousRequestBuilder(Filter... filters) {
+    RestAssured.useRelaxedHTTPSValidation();
+    RestAssured.config = RestAssured.config().connectionConfig(new ConnectionConfig());
+    RequestSpecBuilder tmp = new RequestSpecBuilder();
+    tmp.setUrlEncodingEnabled(false);
+    RestAssuredConfig config = RestAssured.config().encoderConfig(
+        (EncoderConfig.encoderConfig().appendDefaultContentCharsetToContentTypeIfUndefined(false)));
+    tmp.setConfig(config);
+    for (Filter f : filters) {
+      tmp.addFilter(f);
+    }
+    tmp.log(LogDetail.ALL);
+    tmp.addHeaders(RestApiController.getContentAcceptsHeaders());
+    tmp.addHeader(Headers.CLIENT_API_KEY.toString(), Headers.CLIENT_API_KEY.defaultValue());
+    return tmp;
+  }
+
+  private static String run(String name, Supplier<RequestSpecBuilder> builders, int requests) {
+    long allocatedBefore = allocatedBytes();
+    long start = System.nanoTime();
+    int headers = 0;
+    for (int i = 0; i < requests; i++) {
+      headers += builders.get().build().hashCode() & 1;
+    }
+    long elapsed = System.nanoTime() - start;
+    long allocated = allocatedBytes() - allocatedBefore;
+    return String.format("%s: %d requests, %.2f us/request, %d bytes allocated/request (%d)",
+        name, requests, elapsed / 1000.0 / requests,
+        (allocatedBefore < 0) ? -1 : allocated / requests, headers);
+  }
+
+  private static long allocatedBytes() {
+    java.lang.management.ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+    if (threads instanceof com.sun.management.ThreadMXBean) {
+      return ((com.sun.management.ThreadMXBean) threads)
+          .getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+    return -1;
+  }
+}
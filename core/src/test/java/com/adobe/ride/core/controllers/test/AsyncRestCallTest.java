@@ -0,0 +1,101 @@
+/*-
+Copyright 2018 Adobe. All rights reserved.
+This file is licensed to you under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License. You may obtain a copy
+of the License at http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software distributed under
+the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+OF ANY KIND, either express or implied. See the License for the specific language
+governing permissions and limitations under the License.
+*/
+
+package com.adobe.ride.core.controllers.test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertThrows;
+import static org.testng.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import com.adobe.ride.core.controllers.RestApiController;
+import com.adobe.ride.core.stub.Distribution;
+import com.adobe.ride.core.stub.StubResponse;
+import com.adobe.ride.core.stub.StubServer;
+import com.adobe.ride.core.types.ExpectedResponse;
+import io.restassured.builder.RequestSpecBuilder;
+import io.restassured.http.ContentType;
+import io.restassured.response.Response;
+
+/**
+ * @author tedcasey
+ *
+ */
+public class AsyncRestCallTest {
+
+  private static final String SERVICE = "StubService";
+
+  private StubServer stub;
+
+  @BeforeMethod
+  public void startStub() throws IOException {
+    stub = StubServer.start().bind(SERVICE);
+    stub.route("GET", "/slow", StubResponse.json("{\"id\":\"0001\"}")
+        .latency(Distribution.fixed(200)));
+    stub.route("POST", "/users", new StubResponse(201));
+  }
+
+  @AfterMethod(alwaysRun = true)
+  public void stopStub() {
+    stub.close();
+  }
+
+  @Test
+  public void testCallsInFlightTogether() throws Exception {
+    // the first call starts the shared client, which is not what is measured
+    RestApiController.postAsync(SERVICE, "/users", RestApiController.getRequestBuilder(false),
+        ExpectedResponse.CREATED_RESPONSE).get(10, TimeUnit.SECONDS);
+    long start = System.nanoTime();
+    List<CompletableFuture<Response>> calls = new ArrayList<CompletableFuture<Response>>();
+    for (int i = 0; i < 10; i++) {
+      calls.add(RestApiController.getAsync(SERVICE, "/slow",
+          RestApiController.getRequestBuilder(false), ExpectedResponse.OK_RESPONSE));
+    }
+    for (CompletableFuture<Response> call : calls) {
+      assertEquals(call.get(10, TimeUnit.SECONDS).jsonPath().getString("id"), "0001");
+    }
+    // ten calls of 200ms each, sent one after the other, would take two seconds
+    assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(1));
+    assertEquals(stub.getRequestCount(), 11);
+  }
+
+  @Test
+  public void testBodySentAndStatusValidated() throws Exception {
+    RequestSpecBuilder builder = RestApiController.getRequestBuilder(false)
+        .setContentType(ContentType.JSON).setBody("{\"name\":\"ride\"}");
+    Response response = RestApiController.postAsync(SERVICE, "/users", builder,
+        ExpectedResponse.CREATED_RESPONSE).get(10, TimeUnit.SECONDS);
+    assertEquals(response.getStatusCode(), 201);
+    assertEquals(stub.getBytesReceived(), 15);
+
+    CompletableFuture<Response> failed = RestApiController.getAsync(SERVICE, "/missing",
+        RestApiController.getRequestBuilder(false), ExpectedResponse.OK_RESPONSE);
+    assertThrows(ExecutionException.class, () -> failed.get(10, TimeUnit.SECONDS));
+  }
+
+  @Test
+  public void testFiltersRejected() {
+    RequestSpecBuilder builder = RestApiController.getRequestBuilder(false)
+        .addFilter((requestSpec, responseSpec, ctx) -> ctx.next(requestSpec, responseSpec));
+    assertThrows(IllegalArgumentException.class, () -> RestApiController.getAsync(SERVICE,
+        "/slow", builder, ExpectedResponse.OK_RESPONSE));
+    assertEquals(stub.getRequestCount(), 0);
+  }
+}
@@ -0,0 +1,105 @@
+/*-
+Copyright 2018 Adobe. All rights reserved.
+This file is licensed to you under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License. You may obtain a copy
+of the License at http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software distributed under
+the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+OF ANY KIND, either express or implied. See the License for the specific language
+governing permissions and limitations under the License.
+*/
+
+package com.adobe.ride.core.controllers.test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import com.adobe.ride.core.controllers.BatchResult;
+import com.adobe.ride.core.controllers.RestApiController;
+import com.adobe.ride.core.controllers.RideCall;
+import com.adobe.ride.core.stub.Distribution;
+import com.adobe.ride.core.stub.StubResponse;
+import com.adobe.ride.core.stub.StubServer;
+import com.adobe.ride.core.types.ExpectedResponse;
+import io.restassured.builder.RequestSpecBuilder;
+import io.restassured.http.Method;
+import io.restassured.specification.FilterableRequestSpecification;
+
+/**
+ * @author tedcasey
+ *
+ */
+public class BatchTest {
+
+  private static final String SERVICE = "StubService";
+
+  private StubServer stub;
+
+  @BeforeMethod
+  public void startStub() throws IOException {
+    stub = StubServer.start().bind(SERVICE);
+    stub.route("GET", "/users/{id}", StubResponse.json("{\"id\":\"0001\"}")
+        .latency(Distribution.fixed(20)));
+  }
+
+  @AfterMethod(alwaysRun = true)
+  public void stopStub() {
+    stub.close();
+  }
+
+  private static List<RideCall> calls(String... paths) {
+    List<RideCall> calls = new ArrayList<RideCall>();
+    for (String path : paths) {
+      calls.add(new RideCall(SERVICE, path, RestApiController.getRequestBuilder(false),
+          ExpectedResponse.OK_RESPONSE, Method.GET));
+    }
+    return calls;
+  }
+
+  @Test
+  public void testFailFastSkipsRemainingCalls() {
+    BatchResult result = RestApiController.fireBatch(
+        calls("/users/1", "/missing", "/users/2", "/users/3"), 1, BatchResult.Mode.FAIL_FAST);
+    assertFalse(result.isSuccess());
+    assertEquals(result.getSuccessCount(), 1);
+    assertEquals(result.getFailureCount(), 1);
+    assertEquals(result.getSkippedCount(), 2);
+    assertEquals(result.getFailures().get(0).getIndex(), 1);
+    assertTrue(result.getOutcomes().get(3).isSkipped());
+    assertEquals(stub.getRequestCount(), 2);
+  }
+
+  @Test
+  public void testContinueOnErrorFiresEveryCall() {
+    BatchResult result =
+        RestApiController.fireBatch(calls("/users/1", "/missing", "/users/2", "/users/3"), 2);
+    assertEquals(result.getSuccessCount(), 3);
+    assertEquals(result.getFailureCount(), 1);
+    assertEquals(result.getSkippedCount(), 0);
+    assertEquals(result.getOutcomes().get(2).getResponse().jsonPath().getString("id"), "0001");
+    assertEquals(stub.getRequestCount(), 4);
+  }
+
+  @Test
+  public void testSharedBuilderLeftAsItIs() {
+    RequestSpecBuilder shared = RestApiController.getRequestBuilder(false);
+    String baseUri = ((FilterableRequestSpecification) shared.build()).getBaseUri();
+    List<RideCall> calls = new ArrayList<RideCall>();
+    for (int i = 0; i < 20; i++) {
+      calls.add(new RideCall(SERVICE, "/users/" + i, shared, ExpectedResponse.OK_RESPONSE,
+          Method.GET));
+    }
+    BatchResult result = RestApiController.fireBatch(calls, 8);
+    assertTrue(result.isSuccess(), result.toString());
+    assertEquals(stub.getRequestCount(), 20);
+    assertEquals(((FilterableRequestSpecification) shared.build()).getBaseUri(), baseUri);
+  }
+}
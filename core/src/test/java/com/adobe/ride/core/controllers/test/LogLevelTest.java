@@ -0,0 +1,107 @@
+/*-
+Copyright 2018 Adobe. All rights reserved.
+This file is licensed to you under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License. You may obtain a copy
+of the License at http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software distributed under
+the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+OF ANY KIND, either express or implied. See the License for the specific language
+governing permissions and limitations under the License.
+*/
+
+package com.adobe.ride.core.controllers.test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertThrows;
+import static org.testng.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import com.adobe.ride.core.controllers.RestApiController;
+import com.adobe.ride.core.globals.CoreGlobals;
+import com.adobe.ride.core.stub.StubResponse;
+import com.adobe.ride.core.stub.StubServer;
+import com.adobe.ride.core.types.ExpectedResponse;
+import com.adobe.ride.core.types.LogLevel;
+import io.restassured.RestAssured;
+import io.restassured.config.LogConfig;
+import io.restassured.config.RestAssuredConfig;
+import io.restassured.http.Method;
+
+/**
+ * @author tedcasey
+ *
+ */
+public class LogLevelTest {
+
+  private static final String SERVICE = "StubService";
+
+  private StubServer stub;
+  private LogLevel logLevel;
+  private RestAssuredConfig config;
+  private ByteArrayOutputStream log;
+
+  @BeforeMethod
+  public void startStub() throws IOException {
+    stub = StubServer.start().bind(SERVICE);
+    stub.route("GET", "/users/{id}", StubResponse.json("{\"id\":\"0001\"}"));
+    logLevel = CoreGlobals.INSTANCE.getLogLevel();
+    config = RestAssured.config;
+    log = new ByteArrayOutputStream();
+    RestAssured.config = config.logConfig(LogConfig.logConfig()
+        .defaultStream(new PrintStream(log, true)));
+  }
+
+  @AfterMethod(alwaysRun = true)
+  public void stopStub() {
+    RestAssured.config = config;
+    CoreGlobals.INSTANCE.setLogLevel(logLevel);
+    stub.close();
+  }
+
+  private static void get(String restAPI) {
+    RestApiController.fireRestCall(SERVICE, restAPI, RestApiController.getRequestBuilder(false),
+        ExpectedResponse.OK_RESPONSE, Method.GET);
+  }
+
+  private String logged() {
+    return new String(log.toByteArray(), StandardCharsets.UTF_8);
+  }
+
+  @Test
+  public void testAllLogsEveryCall() {
+    CoreGlobals.INSTANCE.setLogLevel(LogLevel.ALL);
+    get("/users/1");
+    assertTrue(logged().contains("/users/1"), logged());
+  }
+
+  @Test
+  public void testOnFailureLogsOnlyFailedCalls() {
+    CoreGlobals.INSTANCE.setLogLevel(LogLevel.ON_FAILURE);
+    get("/users/1");
+    assertEquals(logged(), "");
+
+    assertThrows(Throwable.class, () -> get("/missing"));
+    String logged = logged();
+    assertTrue(logged.contains("/missing"), logged);
+    assertTrue(logged.contains("404"), logged);
+    // the exchanges of the successful call were not kept for the failed one
+    assertFalse(logged.contains("/users/1"), logged);
+  }
+
+  @Test
+  public void testNoneLogsNothing() {
+    CoreGlobals.INSTANCE.setLogLevel(LogLevel.NONE);
+    get("/users/1");
+    assertThrows(Throwable.class, () -> get("/missing"));
+    assertEquals(logged(), "");
+    assertEquals(stub.getRequestCount(), 2);
+  }
+}
@@ -0,0 +1,135 @@
+/*-
+Copyright 2018 Adobe. All rights reserved.
+This file is licensed to you under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License. You may obtain a copy
+of the License at http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software distributed under
+the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+OF ANY KIND, either express or implied. See the License for the specific language
+governing permissions and limitations under the License.
+*/
+
+package com.adobe.ride.core.controllers.test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.json.simple.JSONObject;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import com.adobe.ride.core.controllers.BatchResult;
+import com.adobe.ride.core.controllers.BoilerPlateRestController.TestType;
+import com.adobe.ride.core.controllers.NegativeTestCase;
+import com.adobe.ride.core.controllers.NegativeTestMatrix;
+import com.adobe.ride.core.controllers.RestApiController;
+import com.adobe.ride.core.stub.Distribution;
+import com.adobe.ride.core.stub.StubResponse;
+import com.adobe.ride.core.stub.StubServer;
+import com.adobe.ride.core.types.ExpectedResponse;
+import com.adobe.ride.utilities.model.ModelObject;
+import io.restassured.filter.Filter;
+import io.restassured.http.Method;
+
+/**
+ * @author tedcasey
+ *
+ */
+public class NegativeTestMatrixTest {
+
+  private static final String SERVICE = "StubService";
+
+  private StubServer stub;
+  private ModelObject object;
+  private int bodyLength;
+
+  @SuppressWarnings("unchecked")
+  @BeforeMethod
+  public void startStub() throws IOException {
+    // every call is refused as Not Acceptable, which only the INVALID cases expect
+    stub = StubServer.start().bind(SERVICE);
+    stub.route(StubServer.ANY_METHOD, "/items/{id}",
+        new StubResponse(406).latency(Distribution.fixed(200)));
+
+    JSONObject instance = new JSONObject();
+    instance.put("name", "ride");
+    object = new ModelObject() {
+      @Override
+      public JSONObject getObjectMetadata() {
+        return instance;
+      }
+    };
+    object.setObjectPath("/items/1");
+    bodyLength = instance.toJSONString().getBytes(StandardCharsets.UTF_8).length;
+  }
+
+  @AfterMethod(alwaysRun = true)
+  public void stopStub() {
+    stub.close();
+  }
+
+  @Test
+  public void testCasesRunConcurrently() {
+    NegativeTestMatrix matrix = new NegativeTestMatrix(SERVICE, object).concurrency(16);
+    // GET with Accept, POST and PUT with Accept and Content-Type, each INVALID and UNSUPPORTED,
+    // then GET, POST, PUT and DELETE without authorization
+    assertEquals(matrix.cases().size(), 14);
+
+    // the first call of a run pays for starting Rest-Assured, which is not what is measured
+    RestApiController.fireRestCall(SERVICE, "/items/0", RestApiController.getRequestBuilder(false),
+        ExpectedResponse.NO_RESPONSE, Method.GET);
+    long start = System.nanoTime();
+    BatchResult result = matrix.run();
+    // fourteen calls of 200ms each, fired one after the other, would take 2.8 seconds
+    assertTrue(System.nanoTime() - start < 1000000000L, result.toString());
+    assertEquals(stub.getRequestCount(), 15);
+    assertEquals(result.getSuccessCount(), 5);
+    assertEquals(result.getFailureCount(), 9);
+    for (BatchResult.Outcome outcome : result.getOutcomes()) {
+      NegativeTestCase testCase = (NegativeTestCase) outcome.getCall();
+      assertEquals(outcome.isSuccess(), testCase.getTestType() == TestType.INVALID,
+          outcome.toString());
+    }
+    // the object is only sent with the methods which carry a body
+    assertEquals(stub.getBytesReceived(), 10L * bodyLength);
+  }
+
+  @Test
+  public void testAuthCasesSentWithoutFilters() {
+    // every call is refused as Unauthorized, which only the authorization cases expect
+    stub.route(StubServer.ANY_METHOD, "/items/{id}", new StubResponse(401));
+    AtomicInteger authenticated = new AtomicInteger();
+    Filter auth = (req, res, ctx) -> {
+      authenticated.incrementAndGet();
+      req.header("Authorization", "Bearer token");
+      return ctx.next(req, res);
+    };
+    AtomicInteger unauthenticated = new AtomicInteger();
+    Filter counter = (req, res, ctx) -> {
+      unauthenticated.incrementAndGet();
+      assertFalse(req.getHeaders().hasHeaderWithName("Authorization"));
+      return ctx.next(req, res);
+    };
+
+    BatchResult result = new NegativeTestMatrix(SERVICE, object, auth).authFilters(counter).run();
+    assertEquals(authenticated.get(), 10);
+    assertEquals(unauthenticated.get(), 4);
+    for (BatchResult.Outcome outcome : result.getOutcomes()) {
+      NegativeTestCase testCase = (NegativeTestCase) outcome.getCall();
+      assertEquals(outcome.isSuccess(), testCase.isAuthCase(), outcome.toString());
+    }
+  }
+
+  @Test
+  public void testMatrixNarrowed() {
+    BatchResult result = new NegativeTestMatrix(SERVICE, object).testTypes(TestType.INVALID)
+        .authMethods().run();
+    assertTrue(result.isSuccess(), result.getFailures().toString());
+    assertEquals(result.getOutcomes().size(), 5);
+  }
+}
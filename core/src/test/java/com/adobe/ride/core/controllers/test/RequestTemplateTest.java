@@ -0,0 +1,152 @@
+/*-
+Copyright 2018 Adobe. All rights reserved.
+This file is licensed to you under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License. You may obtain a copy
+of the License at http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software distributed under
+the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+OF ANY KIND, either express or implied. See the License for the specific language
+governing permissions and limitations under the License.
+*/
+
+package com.adobe.ride.core.controllers.test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertThrows;
+import static org.testng.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.GeneralSecurityException;
+import java.security.KeyStore;
+import java.util.List;
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SSLContext;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import com.adobe.ride.core.controllers.RestApiController;
+import com.adobe.ride.core.filters.OnFailureLogFilter;
+import com.adobe.ride.core.globals.CoreGlobals;
+import com.adobe.ride.core.globals.Headers;
+import com.adobe.ride.core.globals.Headers.HeaderItem;
+import com.adobe.ride.core.stub.StubResponse;
+import com.adobe.ride.core.stub.StubServer;
+import com.adobe.ride.core.types.ExpectedResponse;
+import com.adobe.ride.core.types.LogLevel;
+import io.restassured.RestAssured;
+import io.restassured.config.RestAssuredConfig;
+import io.restassured.filter.Filter;
+import io.restassured.http.Method;
+import io.restassured.specification.FilterableRequestSpecification;
+
+/**
+ * @author tedcasey
+ *
+ */
+public class RequestTemplateTest {
+
+  private static final String SERVICE = "StubService";
+
+  private LogLevel logLevel;
+  private HeaderItem apiKey;
+  private RestAssuredConfig config;
+
+  @BeforeMethod
+  public void saveSettings() {
+    logLevel = CoreGlobals.INSTANCE.getLogLevel();
+    apiKey = Headers.CLIENT_API_KEY;
+    config = RestAssured.config;
+  }
+
+  @AfterMethod(alwaysRun = true)
+  public void restoreSettings() {
+    CoreGlobals.INSTANCE.setLogLevel(logLevel);
+    Headers.CLIENT_API_KEY = apiKey;
+    RestAssured.config = config;
+    RestApiController.clearRequestTemplates();
+  }
+
+  private static FilterableRequestSpecification build(boolean useDefaultHeaders,
+      Filter... filters) {
+    return (FilterableRequestSpecification) RestApiController
+        .getRequestBuilder(useDefaultHeaders, filters).build();
+  }
+
+  @Test
+  public void testTemplateKeyedOnLogLevel() {
+    CoreGlobals.INSTANCE.setLogLevel(LogLevel.ON_FAILURE);
+    assertTrue(build(false).getDefinedFilters().contains(OnFailureLogFilter.INSTANCE));
+    CoreGlobals.INSTANCE.setLogLevel(LogLevel.NONE);
+    assertTrue(build(false).getDefinedFilters().isEmpty());
+    CoreGlobals.INSTANCE.setLogLevel(LogLevel.ON_FAILURE);
+    assertTrue(build(false).getDefinedFilters().contains(OnFailureLogFilter.INSTANCE));
+  }
+
+  @Test
+  public void testFiltersNotCachedWithTemplate() {
+    CoreGlobals.INSTANCE.setLogLevel(LogLevel.NONE);
+    Filter filter = (req, res, ctx) -> ctx.next(req, res);
+    List<Filter> filters = build(true, filter).getDefinedFilters();
+    assertEquals(filters.size(), 1);
+    assertTrue(filters.contains(filter));
+    // filters passed for one builder are not carried by the next, whose template is the same
+    assertTrue(build(true).getDefinedFilters().isEmpty());
+  }
+
+  @Test
+  public void testTemplateKeyedOnDefaultHeaderValues() {
+    CoreGlobals.INSTANCE.setLogLevel(LogLevel.NONE);
+    RestApiController.clearRequestTemplates();
+    assertEquals(build(true).getHeaders().getValue("x-api-key"), apiKey.defaultValue());
+    assertFalse(build(false).getHeaders().hasHeaderWithName("x-api-key"));
+
+    // every new default value needs a template, but the number kept stays bounded
+    for (int i = 0; i < 200; i++) {
+      Headers.CLIENT_API_KEY = new HeaderItem("x-api-key", "key-" + i);
+      assertEquals(build(true).getHeaders().getValue("x-api-key"), "key-" + i);
+      assertTrue(RestApiController.getRequestTemplateCount() <= 64,
+          String.valueOf(RestApiController.getRequestTemplateCount()));
+    }
+    Headers.CLIENT_API_KEY = apiKey;
+    assertEquals(build(true).getHeaders().getValue("x-api-key"), apiKey.defaultValue());
+  }
+
+  private static SSLContext serverContext() throws IOException, GeneralSecurityException {
+    char[] password = "changeit".toCharArray();
+    KeyStore keys = KeyStore.getInstance("PKCS12");
+    try (InputStream in =
+        RequestTemplateTest.class.getClassLoader().getResourceAsStream("stub.p12")) {
+      keys.load(in, password);
+    }
+    KeyManagerFactory factory =
+        KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
+    factory.init(keys, password);
+    SSLContext context = SSLContext.getInstance("TLS");
+    context.init(factory.getKeyManagers(), null, null);
+    return context;
+  }
+
+  @Test
+  public void testHttpsCallsWithAndWithoutConfigure()
+      throws IOException, GeneralSecurityException {
+    try (StubServer stub = StubServer.start(0, serverContext())) {
+      stub.setDefaultResponse(StubResponse.json("{}")).bind(SERVICE);
+      String url = "https://localhost:" + stub.getPort() + "/";
+      // the stub certificate is self-signed, so only relaxed validation accepts it; Ride's own
+      // requests relax it without changing the global config
+      RestApiController.fireRestCall(SERVICE, "/", RestApiController.getRequestBuilder(false),
+          ExpectedResponse.OK_RESPONSE, Method.GET);
+      assertThrows(Throwable.class, () -> RestAssured.given().get(url));
+
+      RestApiController.configure();
+      RestApiController.fireRestCall(SERVICE, "/", RestApiController.getRequestBuilder(false),
+          ExpectedResponse.OK_RESPONSE, Method.GET);
+      // code calling Rest-Assured directly gets the same settings once configure() has run
+      RestAssured.given().get(url).then().statusCode(200);
+      assertEquals(stub.getRequestCount(), 3);
+    }
+  }
+}
@@ -0,0 +1,99 @@
+/*-
+Copyright 2018 Adobe. All rights reserved.
+This file is licensed to you under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License. You may obtain a copy
+of the License at http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software distributed under
+the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+OF ANY KIND, either express or implied. See the License for the specific language
+governing permissions and limitations under the License.
+*/
+
+package com.adobe.ride.core.execution.test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertThrows;
+import static org.testng.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import com.adobe.ride.core.controllers.RestApiController;
+import com.adobe.ride.core.execution.RateDriver;
+import com.adobe.ride.core.execution.TokenBucket;
+import com.adobe.ride.core.stub.Distribution;
+import com.adobe.ride.core.stub.StubResponse;
+import com.adobe.ride.core.stub.StubServer;
+import com.adobe.ride.core.types.ExpectedResponse;
+import io.restassured.http.Method;
+
+/**
+ * @author tedcasey
+ *
+ */
+public class RateDriverTest {
+
+  private static final String SERVICE = "StubService";
+
+  private StubServer stub;
+
+  @BeforeMethod
+  public void startStub() throws IOException {
+    stub = StubServer.start().bind(SERVICE);
+    stub.route("GET", "/slow", StubResponse.json("{}").latency(Distribution.fixed(100)));
+  }
+
+  @AfterMethod(alwaysRun = true)
+  public void stopStub() {
+    stub.close();
+  }
+
+  @Test
+  public void testCallsStartedAtBucketRate() throws InterruptedException {
+    // warms the pool, so the first iterations do not wait for connections to be opened
+    RestApiController.fireRestCall(SERVICE, "/slow", RestApiController.getRequestBuilder(false),
+        ExpectedResponse.OK_RESPONSE, Method.GET);
+    RateDriver.Result result = new RateDriver(new TokenBucket(50, 1)).run(50,
+        iteration -> RestApiController.fireRestCall(SERVICE, "/slow",
+            RestApiController.getRequestBuilder(false), ExpectedResponse.OK_RESPONSE,
+            Method.GET));
+    assertEquals(result.getIssued(), 50);
+    assertEquals(result.getSuccesses(), 50);
+    assertEquals(stub.getRequestCount(), 51);
+    // 50 calls at 50 per second are issued over 980ms, whatever the latency of the service
+    assertTrue(result.getAchievedRate() > 45 && result.getAchievedRate() < 55, result.toString());
+    assertTrue(result.getElapsedMillis() >= 1000 && result.getElapsedMillis() < 1500,
+        result.toString());
+    // calls of 100ms started every 20ms overlap, rather than waiting for each other
+    assertTrue(result.getPeakInFlight() > 1, result.toString());
+    assertTrue(result.getServiceTimePercentileMillis(50) >= 100, result.toString());
+    assertTrue(result.getLatencyPercentileMillis(50) >= result.getServiceTimePercentileMillis(50),
+        result.toString());
+  }
+
+  @Test
+  public void testBurstAfterIdle() throws InterruptedException {
+    TokenBucket bucket = new TokenBucket(10, 5);
+    Thread.sleep(600);
+    for (int i = 0; i < 5; i++) {
+      assertTrue(bucket.reserve() <= System.nanoTime(),
+          "token " + i + " of the burst was not available");
+    }
+    long now = System.nanoTime();
+    // once the burst is spent, tokens are issued at the rate, 100ms apart
+    long sixth = bucket.reserve();
+    long seventh = bucket.reserve();
+    assertTrue(sixth - now > TimeUnit.MILLISECONDS.toNanos(50));
+    assertEquals(seventh - sixth, TimeUnit.MILLISECONDS.toNanos(100));
+  }
+
+  @Test
+  public void testInvalidSettingsRejected() {
+    assertThrows(IllegalArgumentException.class, () -> new TokenBucket(0, 1));
+    assertThrows(IllegalArgumentException.class, () -> new TokenBucket(10, 0));
+    assertThrows(IllegalArgumentException.class, () -> RateDriver.forService(SERVICE));
+  }
+}
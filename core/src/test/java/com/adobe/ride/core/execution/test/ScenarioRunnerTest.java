@@ -0,0 +1,79 @@
+/*-
+Copyright 2018 Adobe. All rights reserved.
+This file is licensed to you under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License. You may obtain a copy
+of the License at http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software distributed under
+the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+OF ANY KIND, either express or implied. See the License for the specific language
+governing permissions and limitations under the License.
+*/
+
+package com.adobe.ride.core.execution.test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertThrows;
+import static org.testng.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import com.adobe.ride.core.controllers.RestApiController;
+import com.adobe.ride.core.execution.ScenarioRunner;
+import com.adobe.ride.core.stub.Distribution;
+import com.adobe.ride.core.stub.StubResponse;
+import com.adobe.ride.core.stub.StubServer;
+import com.adobe.ride.core.types.ExpectedResponse;
+import io.restassured.http.Method;
+
+/**
+ * @author tedcasey
+ *
+ */
+public class ScenarioRunnerTest {
+
+  private static final String SERVICE = "StubService";
+
+  private StubServer stub;
+
+  @BeforeMethod
+  public void startStub() throws IOException {
+    stub = StubServer.start().bind(SERVICE);
+    stub.route("GET", "/slow", StubResponse.json("{}").latency(Distribution.fixed(50)));
+  }
+
+  @AfterMethod(alwaysRun = true)
+  public void stopStub() {
+    stub.close();
+  }
+
+  @Test
+  public void testInFlightBoundedAndFailuresRecorded() throws InterruptedException {
+    AtomicInteger running = new AtomicInteger();
+    AtomicInteger maxRunning = new AtomicInteger();
+    ScenarioRunner.Result result = new ScenarioRunner(4).run(40, iteration -> {
+      maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+      try {
+        // odd iterations call a path the stub does not route, which fails validation
+        RestApiController.fireRestCall(SERVICE, (iteration % 2 == 0) ? "/slow" : "/missing",
+            RestApiController.getRequestBuilder(false), ExpectedResponse.OK_RESPONSE, Method.GET);
+      } finally {
+        running.decrementAndGet();
+      }
+    });
+    assertEquals(result.getIterations(), 40);
+    assertEquals(result.getSuccesses(), 20);
+    assertEquals(result.getFailures(), 20);
+    assertEquals(result.getRecordedFailures().size(), 20);
+    assertEquals(stub.getRequestCount(), 40);
+    assertTrue(maxRunning.get() > 1 && maxRunning.get() <= 4, "max in flight " + maxRunning);
+  }
+
+  @Test
+  public void testInvalidBoundRejected() {
+    assertThrows(IllegalArgumentException.class, () -> new ScenarioRunner(0));
+  }
+}
@@ -0,0 +1,96 @@
+/*-
+Copyright 2018 Adobe. All rights reserved.
+This file is licensed to you under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License. You may obtain a copy
+of the License at http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software distributed under
+the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+OF ANY KIND, either express or implied. See the License for the specific language
+governing permissions and limitations under the License.
+*/
+
+package com.adobe.ride.core.execution.test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.GeneralSecurityException;
+import java.security.KeyStore;
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SSLContext;
+import org.apache.http.pool.PoolStats;
+import org.testng.annotations.Test;
+import com.adobe.ride.core.controllers.RestApiController;
+import com.adobe.ride.core.execution.Warmup;
+import com.adobe.ride.core.http.ServiceConnectionPool;
+import com.adobe.ride.core.stub.StubResponse;
+import com.adobe.ride.core.stub.StubServer;
+import com.adobe.ride.core.types.ExpectedResponse;
+import io.restassured.http.Method;
+
+/**
+ * @author tedcasey
+ *
+ */
+public class WarmupTest {
+
+  private static final String SERVICE = "StubService";
+
+  private static SSLContext serverContext() throws IOException, GeneralSecurityException {
+    char[] password = "changeit".toCharArray();
+    KeyStore keys = KeyStore.getInstance("PKCS12");
+    try (InputStream in = WarmupTest.class.getClassLoader().getResourceAsStream("stub.p12")) {
+      keys.load(in, password);
+    }
+    KeyManagerFactory factory =
+        KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
+    factory.init(keys, password);
+    SSLContext context = SSLContext.getInstance("TLS");
+    context.init(factory.getKeyManagers(), null, null);
+    return context;
+  }
+
+  private static void assertCallsUseWarmedConnections(StubServer stub) {
+    Warmup.Report report = Warmup.run(SERVICE, 2, 0, Method.GET, "/");
+    assertNull(report.getConnectFailure());
+    assertEquals(report.getConnectionsOpened(), 2);
+
+    RestApiController.fireRestCall(SERVICE, "/", RestApiController.getRequestBuilder(false),
+        ExpectedResponse.OK_RESPONSE, Method.GET);
+    // a call which did not lease a warmed connection would have opened a third one
+    PoolStats stats = ServiceConnectionPool.forService(SERVICE).getStats();
+    assertEquals(stats.getAvailable() + stats.getLeased(), 2);
+    assertEquals(stub.getRequestCount(), 1);
+  }
+
+  @Test
+  public void testHttpCallLeasesWarmedConnection() throws IOException {
+    try (StubServer stub = StubServer.start()) {
+      stub.setDefaultResponse(StubResponse.json("{}")).bind(SERVICE);
+      assertCallsUseWarmedConnections(stub);
+    }
+  }
+
+  @Test
+  public void testHttpsCallLeasesWarmedConnection() throws IOException, GeneralSecurityException {
+    try (StubServer stub = StubServer.start(0, serverContext())) {
+      stub.setDefaultResponse(StubResponse.json("{}")).bind(SERVICE);
+      assertCallsUseWarmedConnections(stub);
+    }
+  }
+
+  @Test
+  public void testWarmupCallsReported() throws IOException {
+    try (StubServer stub = StubServer.start()) {
+      stub.setDefaultResponse(StubResponse.json("{}")).bind(SERVICE);
+      Warmup.Report report = Warmup.run(SERVICE, 2, 40, Method.GET, "/");
+      assertEquals(report.getRequests(), 40);
+      assertEquals(report.getFailures(), 0);
+      assertEquals(report.getWindowMedianMillis().length, 40 / Warmup.WINDOW);
+      assertEquals(stub.getRequestCount(), 40);
+    }
+  }
+}
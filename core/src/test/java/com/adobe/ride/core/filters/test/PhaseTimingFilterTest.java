@@ -0,0 +1,99 @@
+/*-
+Copyright 2018 Adobe. All rights reserved.
+This file is licensed to you under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License. You may obtain a copy
+of the License at http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software distributed under
+the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+OF ANY KIND, either express or implied. See the License for the specific language
+governing permissions and limitations under the License.
+*/
+
+package com.adobe.ride.core.filters.test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.List;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import com.adobe.ride.core.controllers.RestApiController;
+import com.adobe.ride.core.filters.PhaseTimingFilter;
+import com.adobe.ride.core.filters.PhaseTimingFilter.Phase;
+import com.adobe.ride.core.filters.PhaseTimingFilter.Snapshot;
+import com.adobe.ride.core.stub.Distribution;
+import com.adobe.ride.core.stub.StubResponse;
+import com.adobe.ride.core.stub.StubServer;
+import com.adobe.ride.core.types.ExpectedResponse;
+import io.restassured.http.Method;
+
+/**
+ * @author tedcasey
+ *
+ */
+public class PhaseTimingFilterTest {
+
+  private static final String SERVICE = "StubService";
+
+  private StubServer stub;
+
+  @BeforeMethod
+  public void startStub() throws IOException {
+    stub = StubServer.start().bind(SERVICE);
+    stub.route("GET", "/users/{id}", StubResponse.json("{\"id\":\"0001\"}")
+        .latency(Distribution.fixed(100)));
+    stub.route("GET", "/health", StubResponse.json("{}"));
+  }
+
+  @AfterMethod(alwaysRun = true)
+  public void stopStub() {
+    stub.close();
+  }
+
+  private static void get(String restAPI, PhaseTimingFilter timing) {
+    RestApiController.fireRestCall(SERVICE, restAPI, RestApiController.getRequestBuilder(false),
+        ExpectedResponse.OK_RESPONSE, Method.GET, timing);
+  }
+
+  @Test
+  public void testPhasesRecordedPerPathTemplate() {
+    PhaseTimingFilter timing = new PhaseTimingFilter(SERVICE);
+    get("/users/1", timing);
+    get("/users/2?fields=name", timing);
+    get("/users/3", timing);
+    get("/health", timing);
+
+    List<Snapshot> snapshots = timing.snapshot();
+    assertEquals(snapshots.size(), 2);
+    Snapshot users = snapshots.stream().filter(s -> s.getPath().equals("/users/{id}"))
+        .findFirst().get();
+    assertEquals(users.getMethod(), "GET");
+    assertEquals(users.getPhase(Phase.TOTAL).getCount(), 3);
+    assertEquals(users.getPhase(Phase.FIRST_BYTE).getCount(), 3);
+    assertEquals(users.getPhase(Phase.BODY).getCount(), 3);
+    // only the first call opened a connection, and none was secured
+    assertEquals(users.getPhase(Phase.CONNECT).getCount(), 1);
+    assertEquals(users.getPhase(Phase.TLS).getCount(), 0);
+    assertTrue(users.getPhase(Phase.FIRST_BYTE).getP50Millis() >= 99, users.toString());
+    assertTrue(users.getPhase(Phase.TOTAL).getMaxMillis() >= users.getPhase(Phase.FIRST_BYTE)
+        .getMaxMillis(), users.toString());
+
+    // snapshots accumulate, rather than only covering the calls since the last one
+    get("/users/4", timing);
+    assertEquals(timing.snapshot().stream().filter(s -> s.getPath().equals("/users/{id}"))
+        .findFirst().get().getPhase(Phase.TOTAL).getCount(), 4);
+    timing.reset();
+    assertTrue(timing.snapshot().isEmpty());
+  }
+
+  @Test
+  public void testPathTemplates() {
+    assertEquals(PhaseTimingFilter.toTemplate("/users/1234?fields=name"), "/users/{id}");
+    assertEquals(PhaseTimingFilter.toTemplate("/users/3f2504e0-4f89-11d3-9a0c-0305e82c3301/tags"),
+        "/users/{id}/tags");
+    assertEquals(PhaseTimingFilter.toTemplate("/health"), "/health");
+  }
+}
@@ -0,0 +1,118 @@
+/*-
+Copyright 2018 Adobe. All rights reserved.
+This file is licensed to you under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License. You may obtain a copy
+of the License at http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software distributed under
+the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+OF ANY KIND, either express or implied. See the License for the specific language
+governing permissions and limitations under the License.
+*/
+
+package com.adobe.ride.core.http;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import com.sun.net.httpserver.HttpServer;
+import io.restassured.builder.RequestSpecBuilder;
+import io.restassured.builder.ResponseSpecBuilder;
+import io.restassured.http.Method;
+import io.restassured.specification.ResponseSpecification;
+
+/**
+ * Measures the client-side overhead of each transport per request: the time and the heap
+ * allocated by the calling thread for a small JSON GET against a local server, so that the cost of
+ * the client is not hidden behind network latency. Run with:
+ *
+ * <pre>
+ * java com.adobe.ride.core.http.TransportBenchmark [requests]
+ * </pre>
+ *
+ * @author tedcasey
+ *
+ */
+public class TransportBenchmark {
+
+  private static final byte[] BODY =
+      "{\"id\":\"0001\",\"name\":\"benchmark\",\"tags\":[\"a\",\"b\",\"c\"]}"
+          .getBytes(StandardCharsets.UTF_8);
+
+  private TransportBenchmark() {}
+
+  public static void main(String[] args) throws IOException {
+    int requests = (args.length > 0) ? Integer.parseInt(args[0]) : 5000;
+    // without this the server waits for delayed acknowledgements, which dwarfs the client cost
+    System.setProperty("sun.net.httpserver.nodelay", "true");
+    HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 1024);
+    ExecutorService serverThreads = Executors.newFixedThreadPool(2);
+    server.setExecutor(serverThreads);
+    server.createContext("/benchmark", exchange -> {
+      exchange.getResponseHeaders().add("Content-Type", "application/json");
+      exchange.sendResponseHeaders(200, BODY.length);
+      try (OutputStream out = exchange.getResponseBody()) {
+        out.write(BODY);
+      }
+    });
+    server.start();
+    String baseUri = "http://localhost:" + server.getAddress().getPort();
+    ServiceConnectionPool pool = new ServiceConnectionPool("benchmark",
+        ServiceConnectionPool.DEFAULT_MAX_TOTAL, ServiceConnectionPool.DEFAULT_MAX_PER_ROUTE,
+        ServiceConnectionPool.DEFAULT_IDLE_TIMEOUT_MILLIS, ServiceConnectionPool.DEFAULT_TTL_MILLIS,
+        ServiceConnectionPool.DEFAULT_KEEP_ALIVE_MILLIS);
+    try {
+      RideTransport[] transports = {RestAssuredTransport.INSTANCE, LightweightTransport.INSTANCE};
+      // warm up both transports before measuring either
+      for (RideTransport transport : transports) {
+        run(transport, pool, baseUri, Math.max(100, requests / 5));
+      }
+      for (RideTransport transport : transports) {
+        System.out.println(run(transport, pool, baseUri, requests));
+      }
+    } finally {
+      pool.close();
+      server.stop(0);
+      serverThreads.shutdown();
+    }
+  }
+
+  /**
+   * Sends requests sequentially through a transport and returns the cost per request.
+   *
+   * @param transport transport to be measured
+   * @param pool pool of connections to the server
+   * @param baseUri base uri of the server
+   * @param requests number of requests to send
+   * @return String summary of the time and allocation per request
+   */
+  public static String run(RideTransport transport, ServiceConnectionPool pool, String baseUri,
+      int requests) {
+    ResponseSpecification expected = new ResponseSpecBuilder().expectStatusCode(200).build();
+    long allocatedBefore = allocatedBytes();
+    long start = System.nanoTime();
+    for (int i = 0; i < requests; i++) {
+      RequestSpecBuilder builder = new RequestSpecBuilder().setBaseUri(baseUri)
+          .addHeader("Accept", "application/json").setUrlEncodingEnabled(false);
+      transport.send(pool, builder.build(), "/benchmark", expected, Method.GET, false);
+    }
+    long elapsed = System.nanoTime() - start;
+    long allocated = allocatedBytes() - allocatedBefore;
+    return String.format("%s: %d requests, %.1f us/request, %d KB allocated/request",
+        transport.getClass().getSimpleName(), requests, elapsed / 1000.0 / requests,
+        (allocatedBefore < 0) ? -1 : allocated / 1024 / requests);
+  }
+
+  private static long allocatedBytes() {
+    java.lang.management.ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+    if (threads instanceof com.sun.management.ThreadMXBean) {
+      return ((com.sun.management.ThreadMXBean) threads)
+          .getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+    return -1;
+  }
+}
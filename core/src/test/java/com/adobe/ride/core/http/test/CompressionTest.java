@@ -0,0 +1,123 @@
+/*-
+Copyright 2018 Adobe. All rights reserved.
+This file is licensed to you under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License. You may obtain a copy
+of the License at http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software distributed under
+the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+OF ANY KIND, either express or implied. See the License for the specific language
+governing permissions and limitations under the License.
+*/
+
+package com.adobe.ride.core.http.test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import com.adobe.ride.core.controllers.RestApiController;
+import com.adobe.ride.core.filters.CompressionFilter;
+import com.adobe.ride.core.http.Compression;
+import com.adobe.ride.core.stub.StubResponse;
+import com.adobe.ride.core.stub.StubServer;
+import com.adobe.ride.core.types.ExpectedResponse;
+import io.restassured.http.ContentType;
+import io.restassured.http.Method;
+import io.restassured.response.Response;
+
+/**
+ * @author tedcasey
+ *
+ */
+public class CompressionTest {
+
+  private static final String SERVICE = "StubService";
+
+  private StubServer stub;
+  private String body;
+
+  @BeforeMethod
+  public void startStub() throws IOException {
+    StringBuilder items = new StringBuilder("{\"items\":[");
+    for (int i = 0; i < 500; i++) {
+      items.append((i == 0) ? "" : ",").append("{\"id\":").append(i)
+          .append(",\"type\":\"sample\"}");
+    }
+    body = items.append("]}").toString();
+    stub = StubServer.start().bind(SERVICE);
+    stub.route("GET", "/items", StubResponse.of(200, StubResponse.JSON,
+        encode(Compression.GZIP, body.getBytes(StandardCharsets.UTF_8)))
+        .header("Content-Encoding", "gzip"));
+    stub.route("POST", "/items", new StubResponse(201));
+  }
+
+  @AfterMethod(alwaysRun = true)
+  public void stopStub() {
+    stub.close();
+  }
+
+  private static byte[] encode(Compression coding, byte[] bytes) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try (OutputStream compressed = coding.compress(out)) {
+      compressed.write(bytes);
+    }
+    return out.toByteArray();
+  }
+
+  private static byte[] decode(Compression coding, byte[] bytes) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try (InputStream in = coding.decompress(new ByteArrayInputStream(bytes))) {
+      byte[] chunk = new byte[4096];
+      int read;
+      while ((read = in.read(chunk)) >= 0) {
+        out.write(chunk, 0, read);
+      }
+    }
+    return out.toByteArray();
+  }
+
+  @Test
+  public void testGzipResponseDecompressed() {
+    Response response = RestApiController.fireRestCall(SERVICE, "/items",
+        RestApiController.getRequestBuilder(false), ExpectedResponse.OK_RESPONSE, Method.GET,
+        new CompressionFilter(Compression.IDENTITY, Compression.GZIP));
+    assertEquals(response.asString(), body);
+    assertEquals(response.jsonPath().getInt("items[499].id"), 499);
+    assertTrue(stub.getBytesSent() < body.length() / 10, "sent " + stub.getBytesSent());
+  }
+
+  @Test
+  public void testGzipRequestCompressed() {
+    RestApiController.fireRestCall(SERVICE, "/items",
+        RestApiController.getRequestBuilder(false).setContentType(ContentType.JSON).setBody(body),
+        ExpectedResponse.CREATED_RESPONSE, Method.POST,
+        new CompressionFilter(Compression.GZIP, Compression.GZIP));
+    long compressed = stub.getBytesReceived();
+    assertTrue(compressed > 0 && compressed < body.length() / 10, "received " + compressed);
+
+    // without the filter, the body is sent as it is
+    RestApiController.fireRestCall(SERVICE, "/items",
+        RestApiController.getRequestBuilder(false).setContentType(ContentType.JSON).setBody(body),
+        ExpectedResponse.CREATED_RESPONSE, Method.POST);
+    assertEquals(stub.getBytesReceived() - compressed, body.length());
+  }
+
+  @Test
+  public void testCodingsRoundTrip() throws IOException {
+    byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+    for (Compression coding : Compression.values()) {
+      if (coding.isAvailable()) {
+        assertEquals(decode(coding, encode(coding, bytes)), bytes, coding.value());
+      }
+    }
+  }
+}
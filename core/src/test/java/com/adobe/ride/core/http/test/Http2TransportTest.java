@@ -0,0 +1,148 @@
+/*-
+Copyright 2018 Adobe. All rights reserved.
+This file is licensed to you under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License. You may obtain a copy
+of the License at http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software distributed under
+the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+OF ANY KIND, either express or implied. See the License for the specific language
+governing permissions and limitations under the License.
+*/
+
+package com.adobe.ride.core.http.test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertThrows;
+import static org.testng.Assert.assertTrue;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.EntityDetails;
+import org.apache.hc.core5.http.HttpRequest;
+import org.apache.hc.core5.http.Message;
+import org.apache.hc.core5.http.URIScheme;
+import org.apache.hc.core5.http.impl.bootstrap.HttpAsyncServer;
+import org.apache.hc.core5.http.nio.AsyncRequestConsumer;
+import org.apache.hc.core5.http.nio.AsyncServerRequestHandler;
+import org.apache.hc.core5.http.nio.entity.StringAsyncEntityConsumer;
+import org.apache.hc.core5.http.nio.support.AsyncResponseBuilder;
+import org.apache.hc.core5.http.nio.support.BasicRequestConsumer;
+import org.apache.hc.core5.http.protocol.HttpContext;
+import org.apache.hc.core5.http.protocol.HttpCoreContext;
+import org.apache.hc.core5.http2.HttpVersionPolicy;
+import org.apache.hc.core5.http2.impl.nio.bootstrap.H2ServerBootstrap;
+import org.apache.hc.core5.io.CloseMode;
+import org.apache.hc.core5.reactor.ListenerEndpoint;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import com.adobe.ride.config.aop.TargetServiceConfiguration.Protocol;
+import com.adobe.ride.core.http.Http2Transport;
+import com.adobe.ride.core.types.ExpectedResponse;
+import io.restassured.builder.RequestSpecBuilder;
+import io.restassured.http.Method;
+import io.restassured.response.Response;
+import io.restassured.specification.RequestSpecification;
+
+/**
+ * The stub server is built on the JDK http server, which only speaks HTTP/1.1, so these tests
+ * serve h2c from the HTTP/2 server of HttpCore instead.
+ *
+ * @author tedcasey
+ *
+ */
+public class Http2TransportTest {
+
+  private static final long LATENCY_MILLIS = 200;
+
+  private final Set<String> connections = ConcurrentHashMap.newKeySet();
+  private ScheduledExecutorService scheduler;
+  private HttpAsyncServer server;
+  private Http2Transport transport;
+  private RequestSpecification req;
+
+  @BeforeMethod
+  public void startServer() throws Exception {
+    scheduler = Executors.newSingleThreadScheduledExecutor();
+    server = H2ServerBootstrap.bootstrap().setVersionPolicy(HttpVersionPolicy.FORCE_HTTP_2)
+        .register("*", new AsyncServerRequestHandler<Message<HttpRequest, String>>() {
+          @Override
+          public AsyncRequestConsumer<Message<HttpRequest, String>> prepare(HttpRequest request,
+              EntityDetails entityDetails, HttpContext context) {
+            return new BasicRequestConsumer<String>(new StringAsyncEntityConsumer());
+          }
+
+          @Override
+          public void handle(Message<HttpRequest, String> message, ResponseTrigger trigger,
+              HttpContext context) {
+            connections.add(String.valueOf(
+                HttpCoreContext.adapt(context).getEndpointDetails().getRemoteAddress()));
+            scheduler.schedule(() -> {
+              trigger.submitResponse(AsyncResponseBuilder.create(200)
+                  .setEntity("{\"path\":\"" + message.getHead().getPath() + "\"}",
+                      ContentType.APPLICATION_JSON)
+                  .build(), context);
+              return null;
+            }, LATENCY_MILLIS, TimeUnit.MILLISECONDS);
+          }
+        }).create();
+    server.start();
+    ListenerEndpoint endpoint = server.listen(new InetSocketAddress("127.0.0.1", 0), URIScheme.HTTP)
+        .get();
+    int port = ((InetSocketAddress) endpoint.getAddress()).getPort();
+    req = new RequestSpecBuilder().setBaseUri("http://127.0.0.1:" + port).build();
+    transport = new Http2Transport("h2c", Protocol.H2C, 1);
+  }
+
+  @AfterMethod(alwaysRun = true)
+  public void stopServer() {
+    transport.close();
+    server.close(CloseMode.IMMEDIATE);
+    scheduler.shutdownNow();
+  }
+
+  @Test
+  public void testStreamsMultiplexedOverOneConnection() throws Exception {
+    // the first call opens the connection, which is not what is measured
+    transport.send(null, req, "/first", ExpectedResponse.OK_RESPONSE, Method.GET, false);
+    long start = System.nanoTime();
+    List<CompletableFuture<Response>> calls = new ArrayList<CompletableFuture<Response>>();
+    for (int i = 0; i < 10; i++) {
+      calls.add(transport.sendAsync(req, "/users/" + i, ExpectedResponse.OK_RESPONSE,
+          Method.GET));
+    }
+    for (int i = 0; i < calls.size(); i++) {
+      Response response = calls.get(i).get(10, TimeUnit.SECONDS);
+      assertEquals(response.jsonPath().getString("path"), "/users/" + i);
+    }
+    // ten calls of 200ms each, sent one after the other, would take two seconds
+    assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(1));
+    assertEquals(connections.size(), 1, connections.toString());
+    Http2Transport.StreamStats stats = transport.getStats();
+    assertEquals(stats.getCompletedCount(), 11);
+    assertEquals(stats.getInFlight(), 0);
+    assertTrue(stats.getPeakInFlight() > 1, stats.toString());
+    assertTrue(stats.getHeaderLatencyPercentileMillis(50) >= LATENCY_MILLIS, stats.toString());
+  }
+
+  @Test
+  public void testValidationAndFilters() {
+    assertThrows(AssertionError.class, () -> transport.send(null, req, "/users/1",
+        ExpectedResponse.CREATED_RESPONSE, Method.GET, false));
+    RequestSpecification filtered = new RequestSpecBuilder().addRequestSpecification(req)
+        .addFilter((requestSpec, responseSpec, ctx) -> ctx.next(requestSpec, responseSpec))
+        .build();
+    assertThrows(IllegalArgumentException.class, () -> transport.send(null, filtered, "/users/1",
+        ExpectedResponse.OK_RESPONSE, Method.GET, false));
+    assertEquals(transport.getStats().getCompletedCount(), 1);
+  }
+}
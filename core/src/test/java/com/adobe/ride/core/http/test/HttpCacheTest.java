@@ -0,0 +1,133 @@
+/*-
+Copyright 2018 Adobe. All rights reserved.
+This file is licensed to you under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License. You may obtain a copy
+of the License at http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software distributed under
+the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+OF ANY KIND, either express or implied. See the License for the specific language
+governing permissions and limitations under the License.
+*/
+
+package com.adobe.ride.core.http.test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertThrows;
+
+import java.io.IOException;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import com.adobe.ride.core.controllers.RestApiController;
+import com.adobe.ride.core.http.HttpCache;
+import com.adobe.ride.core.stub.StubResponse;
+import com.adobe.ride.core.stub.StubServer;
+import com.adobe.ride.core.types.ExpectedResponse;
+import io.restassured.builder.RequestSpecBuilder;
+import io.restassured.http.Headers;
+import io.restassured.response.Response;
+import io.restassured.specification.FilterableRequestSpecification;
+import io.restassured.specification.ResponseSpecification;
+
+/**
+ * @author tedcasey
+ *
+ */
+public class HttpCacheTest {
+
+  private static final String SERVICE = "StubService";
+  private static final String FIRST = "{\"version\":1}";
+
+  private StubServer stub;
+  private HttpCache cache;
+
+  @BeforeMethod
+  public void startStub() throws IOException {
+    stub = StubServer.start().bind(SERVICE);
+    stub.route("GET", "/documents/{id}", StubResponse.json(FIRST).header("ETag", "\"v1\"")
+        .header("Cache-Control", "no-cache"));
+    stub.route("GET", "/settings", StubResponse.json("{\"fresh\":true}")
+        .header("Cache-Control", "max-age=60"));
+    cache = HttpCache.enable(SERVICE, 1024 * 1024);
+  }
+
+  @AfterMethod(alwaysRun = true)
+  public void stopStub() {
+    HttpCache.disable(SERVICE);
+    stub.close();
+  }
+
+  private static Response get(String restAPI, ResponseSpecification expectedResponse) {
+    return RestApiController.get(SERVICE, restAPI, RestApiController.getRequestBuilder(false),
+        expectedResponse);
+  }
+
+  @Test
+  public void testNotModifiedCountedAsHit() {
+    assertEquals(get("/documents/1", ExpectedResponse.OK_RESPONSE).asString(), FIRST);
+    Response revalidated = get("/documents/1", ExpectedResponse.OK_RESPONSE);
+    // the 304 is answered with the stored response
+    assertEquals(revalidated.getStatusCode(), 200);
+    assertEquals(revalidated.asString(), FIRST);
+    assertEquals(stub.getRequestCount(), 2);
+    assertEquals(stub.getBytesSent(), FIRST.length());
+
+    HttpCache.Stats stats = cache.getStats();
+    assertEquals(stats.getCount(HttpCache.Result.MISS), 1);
+    assertEquals(stats.getCount(HttpCache.Result.NOT_MODIFIED), 1);
+    assertEquals(stats.getHits(), 1);
+    assertEquals(stats.getRevalidations(), 1);
+    assertEquals(stats.getNotModifiedRatio(), 1.0);
+    assertEquals(stats.getHitRatio(), 0.5);
+  }
+
+  @Test
+  public void testReusedBuilderRevalidatedEachTime() {
+    RequestSpecBuilder builder = RestApiController.getRequestBuilder(false);
+    for (int i = 0; i < 4; i++) {
+      Response response =
+          RestApiController.get(SERVICE, "/documents/1", builder, ExpectedResponse.OK_RESPONSE);
+      assertEquals(response.asString(), FIRST);
+    }
+    // the conditional headers of a revalidation are not left on the caller's builder
+    Headers headers = ((FilterableRequestSpecification) builder.build()).getHeaders();
+    assertFalse(headers.hasHeaderWithName("If-None-Match"));
+
+    HttpCache.Stats stats = cache.getStats();
+    assertEquals(stats.getCount(HttpCache.Result.MISS), 1);
+    assertEquals(stats.getCount(HttpCache.Result.NOT_MODIFIED), 3);
+    assertEquals(stats.getBypassed(), 0);
+    assertEquals(stub.getRequestCount(), 4);
+    assertEquals(stub.getBytesSent(), FIRST.length());
+  }
+
+  @Test
+  public void testModifiedResponseReplacesStoredOne() {
+    get("/documents/1", ExpectedResponse.OK_RESPONSE);
+    String second = "{\"version\":2}";
+    stub.route("GET", "/documents/{id}", StubResponse.json(second).header("ETag", "\"v2\"")
+        .header("Cache-Control", "no-cache"));
+    assertEquals(get("/documents/1", ExpectedResponse.OK_RESPONSE).asString(), second);
+    assertEquals(get("/documents/1", ExpectedResponse.OK_RESPONSE).asString(), second);
+
+    HttpCache.Stats stats = cache.getStats();
+    assertEquals(stats.getCount(HttpCache.Result.MODIFIED), 1);
+    assertEquals(stats.getCount(HttpCache.Result.NOT_MODIFIED), 1);
+    assertEquals(stub.getRequestCount(), 3);
+  }
+
+  @Test
+  public void testFreshResponseServedWithoutRequest() {
+    get("/settings", ExpectedResponse.OK_RESPONSE);
+    assertEquals(get("/settings", ExpectedResponse.OK_RESPONSE).jsonPath().getBoolean("fresh"),
+        true);
+    assertEquals(stub.getRequestCount(), 1);
+    assertEquals(cache.getStats().getCount(HttpCache.Result.FRESH), 1);
+
+    // responses served from the cache are still checked against the expected response
+    assertThrows(Throwable.class, () -> get("/settings", ExpectedResponse.CREATED_RESPONSE));
+    assertEquals(stub.getRequestCount(), 1);
+  }
+}
@@ -0,0 +1,117 @@
+/*-
+Copyright 2018 Adobe. All rights reserved.
+This file is licensed to you under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License. You may obtain a copy
+of the License at http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software distributed under
+the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+OF ANY KIND, either express or implied. See the License for the specific language
+governing permissions and limitations under the License.
+*/
+
+package com.adobe.ride.core.http.test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertThrows;
+import static org.testng.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import org.json.simple.JSONObject;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import com.adobe.ride.core.controllers.RestApiController;
+import com.adobe.ride.core.http.JsonStreamExtractor;
+import com.adobe.ride.core.http.StreamingResponse;
+import com.adobe.ride.core.stub.StubResponse;
+import com.adobe.ride.core.stub.StubServer;
+import io.restassured.builder.RequestSpecBuilder;
+import io.restassured.http.Method;
+
+/**
+ * @author tedcasey
+ *
+ */
+public class JsonStreamExtractorTest {
+
+  private static final String SERVICE = "StubService";
+  private static final int ITEMS = 20000;
+
+  private StubServer stub;
+  private int length;
+
+  @BeforeMethod
+  public void startStub() throws IOException {
+    StringBuilder body = new StringBuilder("{\"total\":").append(ITEMS).append(",\"items\":[");
+    for (int i = 0; i < ITEMS; i++) {
+      body.append((i == 0) ? "" : ",").append("{\"id\":").append(i)
+          .append(",\"name\":\"item").append(i).append("\",\"tags\":[\"a\",\"b\"]}");
+    }
+    body.append("],\"meta\":{\"name\":\"list\"}}");
+    length = body.length();
+    stub = StubServer.start().bind(SERVICE);
+    stub.route("GET", "/items", StubResponse.json(body.toString()));
+  }
+
+  @AfterMethod(alwaysRun = true)
+  public void stopStub() {
+    stub.close();
+  }
+
+  private static StreamingResponse stream() {
+    return RestApiController.streamRestCall(SERVICE, "/items", new RequestSpecBuilder(), null,
+        Method.GET);
+  }
+
+  @Test
+  public void testExtractionStopsOnceValuesFound() throws IOException {
+    try (StreamingResponse response = stream()) {
+      Map<String, Object> values =
+          JsonStreamExtractor.extract(response, "$.total", "/items/2/name", "$.items[1]");
+      assertEquals(values.get("$.total"), Long.valueOf(ITEMS));
+      assertEquals(values.get("/items/2/name"), "item2");
+      assertEquals(((JSONObject) values.get("$.items[1]")).get("id"), Long.valueOf(1));
+      // the rest of the list was neither read nor built
+      assertTrue(response.getInputStream().getByteCount() < length / 2);
+    }
+  }
+
+  @Test
+  public void testValuesAfterLargeArray() throws IOException {
+    try (StreamingResponse response = stream()) {
+      Map<String, Object> values = JsonStreamExtractor.extract(response, "/meta/name", "/absent");
+      assertEquals(values.get("/meta/name"), "list");
+      assertFalse(values.containsKey("/absent"));
+    }
+  }
+
+  @Test
+  public void testIterateArray() throws IOException {
+    long ids = 0;
+    int count = 0;
+    try (StreamingResponse response = stream();
+        JsonStreamExtractor.ArrayIterator items =
+            JsonStreamExtractor.iterate(response, "$.items")) {
+      for (Object item : items) {
+        ids += (Long) ((JSONObject) item).get("id");
+        count++;
+      }
+    }
+    assertEquals(count, ITEMS);
+    assertEquals(ids, (long) ITEMS * (ITEMS - 1) / 2);
+  }
+
+  @Test
+  public void testUnsupportedPathsRejected() {
+    byte[] body = "{\"items\":[]}".getBytes(StandardCharsets.UTF_8);
+    assertThrows(IllegalArgumentException.class,
+        () -> JsonStreamExtractor.extract(new ByteArrayInputStream(body), "$.items[*].id"));
+    assertThrows(IllegalArgumentException.class,
+        () -> JsonStreamExtractor.iterate(new ByteArrayInputStream(body), "/absent"));
+  }
+}
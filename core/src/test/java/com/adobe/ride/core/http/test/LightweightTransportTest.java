@@ -0,0 +1,108 @@
+/*-
+Copyright 2018 Adobe. All rights reserved.
+This file is licensed to you under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License. You may obtain a copy
+of the License at http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software distributed under
+the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+OF ANY KIND, either express or implied. See the License for the specific language
+governing permissions and limitations under the License.
+*/
+
+package com.adobe.ride.core.http.test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertThrows;
+
+import java.io.IOException;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import com.adobe.ride.core.http.LightweightTransport;
+import com.adobe.ride.core.http.ServiceConnectionPool;
+import com.adobe.ride.core.stub.StubResponse;
+import com.adobe.ride.core.stub.StubServer;
+import io.restassured.builder.RequestSpecBuilder;
+import io.restassured.builder.ResponseSpecBuilder;
+import io.restassured.http.ContentType;
+import io.restassured.http.Method;
+import io.restassured.response.Response;
+import io.restassured.specification.RequestSpecification;
+
+/**
+ * @author tedcasey
+ *
+ */
+public class LightweightTransportTest {
+
+  private StubServer stub;
+  private ServiceConnectionPool pool;
+
+  @BeforeMethod
+  public void startStub() throws IOException {
+    stub = StubServer.start();
+    stub.route("GET", "/users/{id}", StubResponse.json("{\"id\":\"0001\"}"));
+    stub.route("POST", "/users", new StubResponse(201));
+    pool = new ServiceConnectionPool("lightweight", ServiceConnectionPool.DEFAULT_MAX_TOTAL,
+        ServiceConnectionPool.DEFAULT_MAX_PER_ROUTE,
+        ServiceConnectionPool.DEFAULT_IDLE_TIMEOUT_MILLIS, ServiceConnectionPool.DEFAULT_TTL_MILLIS,
+        ServiceConnectionPool.DEFAULT_KEEP_ALIVE_MILLIS);
+  }
+
+  @AfterMethod(alwaysRun = true)
+  public void stopStub() {
+    pool.close();
+    stub.close();
+  }
+
+  private RequestSpecBuilder builder() {
+    return new RequestSpecBuilder().setBaseUri("http://127.0.0.1:" + stub.getPort())
+        .setUrlEncodingEnabled(false);
+  }
+
+  @Test
+  public void testSendOverPooledConnection() {
+    for (int i = 0; i < 3; i++) {
+      Response response = LightweightTransport.INSTANCE.send(pool, builder().build(),
+          "/users/" + i, new ResponseSpecBuilder().expectStatusCode(200).build(), Method.GET,
+          false);
+      assertEquals(response.jsonPath().getString("id"), "0001");
+    }
+    assertEquals(pool.getStats().getAvailable(), 1);
+    assertEquals(stub.getRequestCount(), 3);
+  }
+
+  @Test
+  public void testSendBodyWithoutPool() {
+    RequestSpecification req = builder().setBody("{\"name\":\"ride\"}").build();
+    Response response = LightweightTransport.INSTANCE.send(null, req, "/users",
+        new ResponseSpecBuilder().expectStatusCode(201).build(), Method.POST, false);
+    assertEquals(response.getStatusCode(), 201);
+    assertEquals(stub.getBytesReceived(), 15);
+  }
+
+  @Test
+  public void testExpectationsValidated() {
+    assertThrows(AssertionError.class, () -> LightweightTransport.INSTANCE.send(pool,
+        builder().build(), "/users/1", new ResponseSpecBuilder().expectStatusCode(204).build(),
+        Method.GET, false));
+    // content type expectations are handed to Rest-Assured, whose Groovy code cannot create its
+    // AssertionError on newer runtimes
+    assertThrows(Throwable.class, () -> LightweightTransport.INSTANCE.send(pool,
+        builder().build(), "/users/1",
+        new ResponseSpecBuilder().expectContentType(ContentType.XML).build(), Method.GET, false));
+    LightweightTransport.INSTANCE.send(pool, builder().build(), "/users/1",
+        new ResponseSpecBuilder().expectContentType(ContentType.JSON).build(), Method.GET, false);
+  }
+
+  @Test
+  public void testFiltersRejected() {
+    RequestSpecification req = builder()
+        .addFilter((requestSpec, responseSpec, ctx) -> ctx.next(requestSpec, responseSpec))
+        .build();
+    assertThrows(IllegalArgumentException.class,
+        () -> LightweightTransport.INSTANCE.send(pool, req, "/users/1", null, Method.GET, false));
+    assertEquals(stub.getRequestCount(), 0);
+  }
+}
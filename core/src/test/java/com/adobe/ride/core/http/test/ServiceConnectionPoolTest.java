@@ -0,0 +1,120 @@
+/*-
+Copyright 2018 Adobe. All rights reserved.
+This file is licensed to you under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License. You may obtain a copy
+of the License at http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software distributed under
+the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+OF ANY KIND, either express or implied. See the License for the specific language
+governing permissions and limitations under the License.
+*/
+
+package com.adobe.ride.core.http.test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotSame;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.apache.http.pool.PoolStats;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import com.adobe.ride.core.controllers.RestApiController;
+import com.adobe.ride.core.http.ServiceConnectionPool;
+import com.adobe.ride.core.stub.Distribution;
+import com.adobe.ride.core.stub.StubResponse;
+import com.adobe.ride.core.stub.StubServer;
+import com.adobe.ride.core.types.ExpectedResponse;
+import io.restassured.builder.RequestSpecBuilder;
+import io.restassured.filter.Filter;
+import io.restassured.http.Method;
+import io.restassured.response.Response;
+import io.restassured.specification.FilterableRequestSpecification;
+
+/**
+ * @author tedcasey
+ *
+ */
+public class ServiceConnectionPoolTest {
+
+  private static final String SERVICE = "StubService";
+
+  private StubServer stub;
+
+  @BeforeMethod
+  public void startStub() throws IOException {
+    stub = StubServer.start().bind(SERVICE);
+    stub.route("GET", "/users/{id}", StubResponse.json("{\"id\":\"0001\"}"));
+    stub.route("GET", "/slow", StubResponse.json("{}").latency(Distribution.fixed(100)));
+  }
+
+  @AfterMethod(alwaysRun = true)
+  public void stopStub() {
+    stub.close();
+  }
+
+  private static Response get(String restAPI) {
+    return RestApiController.fireRestCall(SERVICE, restAPI,
+        RestApiController.getRequestBuilder(false), ExpectedResponse.OK_RESPONSE, Method.GET);
+  }
+
+  @Test
+  public void testSequentialCallsReuseOneConnection() {
+    for (int i = 0; i < 20; i++) {
+      assertEquals(get("/users/" + i).jsonPath().getString("id"), "0001");
+    }
+    PoolStats stats = ServiceConnectionPool.forService(SERVICE).getStats();
+    assertEquals(stats.getAvailable(), 1);
+    assertEquals(stats.getLeased(), 0);
+    assertEquals(stub.getRequestCount(), 20);
+  }
+
+  @Test
+  public void testReusedBuilderGetsOneReleaseFilter() {
+    RequestSpecBuilder builder = RestApiController.getRequestBuilder(false);
+    int before = ((FilterableRequestSpecification) builder.build()).getDefinedFilters().size();
+    for (int i = 0; i < 50; i++) {
+      RestApiController.fireRestCall(SERVICE, "/users/" + i, builder, ExpectedResponse.OK_RESPONSE,
+          Method.GET);
+    }
+    List<Filter> filters = ((FilterableRequestSpecification) builder.build()).getDefinedFilters();
+    assertEquals(filters.size(), before + 1);
+    assertTrue(filters.contains(ServiceConnectionPool.RELEASE_FILTER));
+    assertEquals(ServiceConnectionPool.forService(SERVICE).getStats().getAvailable(), 1);
+  }
+
+  @Test
+  public void testConcurrentCallsReturnTheirConnections() throws Exception {
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      List<Future<Response>> calls = new ArrayList<Future<Response>>();
+      for (int i = 0; i < 8; i++) {
+        calls.add(executor.submit(() -> get("/slow")));
+      }
+      for (Future<Response> call : calls) {
+        assertEquals(call.get().getStatusCode(), 200);
+      }
+    } finally {
+      executor.shutdown();
+    }
+    PoolStats stats = ServiceConnectionPool.forService(SERVICE).getStats();
+    assertEquals(stats.getLeased(), 0);
+    assertTrue(stats.getAvailable() >= 1 && stats.getAvailable() <= 4, stats.toString());
+  }
+
+  @Test
+  public void testPoolSharedUntilClosed() {
+    ServiceConnectionPool pool = ServiceConnectionPool.forService(SERVICE);
+    assertSame(ServiceConnectionPool.forService(SERVICE), pool);
+    pool.close();
+    assertNotSame(ServiceConnectionPool.forService(SERVICE), pool);
+  }
+}
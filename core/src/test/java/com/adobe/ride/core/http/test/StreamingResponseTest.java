@@ -0,0 +1,170 @@
+/*-
+Copyright 2018 Adobe. All rights reserved.
+This file is licensed to you under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License. You may obtain a copy
+of the License at http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software distributed under
+the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+OF ANY KIND, either express or implied. See the License for the specific language
+governing permissions and limitations under the License.
+*/
+
+package com.adobe.ride.core.http.test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertThrows;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import com.adobe.ride.core.controllers.RestApiController;
+import com.adobe.ride.core.http.MeteredInputStream;
+import com.adobe.ride.core.http.ServiceConnectionPool;
+import com.adobe.ride.core.http.StreamingResponse;
+import com.adobe.ride.core.stub.StubResponse;
+import com.adobe.ride.core.stub.StubServer;
+import com.adobe.ride.core.types.ExpectedResponse;
+import io.restassured.builder.RequestSpecBuilder;
+import io.restassured.filter.Filter;
+import io.restassured.http.Method;
+
+/**
+ * @author tedcasey
+ *
+ */
+public class StreamingResponseTest {
+
+  private static final String SERVICE = "StubService";
+
+  private StubServer stub;
+
+  @BeforeMethod
+  public void startStub() throws IOException {
+    stub = StubServer.start().bind(SERVICE);
+    stub.route("GET", "/small", StubResponse.of(200, "application/octet-stream", body(1000)));
+    stub.route("GET", "/large", StubResponse.of(200, "application/octet-stream",
+        body(StreamingResponse.DRAIN_LIMIT * 4)));
+  }
+
+  @AfterMethod(alwaysRun = true)
+  public void stopStub() {
+    // closing the stub also closes the pool of the service, so each test starts with no connection
+    stub.close();
+  }
+
+  private static String body(int length) {
+    char[] chars = new char[length];
+    Arrays.fill(chars, 'x');
+    return new String(chars);
+  }
+
+  private static StreamingResponse stream(String restAPI) {
+    return RestApiController.streamRestCall(SERVICE, restAPI, new RequestSpecBuilder(), null,
+        Method.GET);
+  }
+
+  @Test
+  public void testBodyStreamedAndHashed() throws Exception {
+    String expected = Base64.getEncoder().encodeToString(MessageDigest.getInstance("MD5")
+        .digest(body(StreamingResponse.DRAIN_LIMIT * 4).getBytes(StandardCharsets.UTF_8)));
+    try (StreamingResponse response = stream("/large")) {
+      ReadableByteChannel channel = response.getChannel();
+      ByteBuffer buffer = ByteBuffer.allocate(8192);
+      while (channel.read(buffer) >= 0) {
+        buffer.clear();
+      }
+      assertEquals(response.getInputStream().getByteCount(), StreamingResponse.DRAIN_LIMIT * 4);
+      assertEquals(response.getInputStream().getEncodedDigest(), expected);
+    }
+    assertEquals(ServiceConnectionPool.forService(SERVICE).getStats().getAvailable(), 1);
+
+    MeteredInputStream in = (MeteredInputStream) RestApiController.openRestStream(SERVICE,
+        "/large", new RequestSpecBuilder(), null, Method.GET);
+    try {
+      byte[] chunk = new byte[8192];
+      while (in.read(chunk) >= 0) {
+        // the body is only hashed as it is read
+      }
+    } finally {
+      in.close();
+    }
+    assertEquals(in.getEncodedDigest(), expected);
+    assertEquals(ServiceConnectionPool.forService(SERVICE).getStats().getAvailable(), 1);
+  }
+
+  @Test
+  public void testExactLengthReadReturnsConnection() throws IOException {
+    try (StreamingResponse response = stream("/small")) {
+      byte[] read = new byte[(int) response.getContentLength()];
+      // reads exactly the declared length, so the end of the stream is never seen
+      new DataInputStream(response.getInputStream()).readFully(read);
+      assertEquals(read.length, 1000);
+    }
+    assertEquals(ServiceConnectionPool.forService(SERVICE).getStats().getAvailable(), 1);
+
+    try (StreamingResponse response = stream("/small")) {
+      assertEquals(response.getStatusCode(), 200);
+    }
+    assertEquals(ServiceConnectionPool.forService(SERVICE).getStats().getAvailable(), 1);
+  }
+
+  @Test
+  public void testLargeRemainderDiscardsConnection() throws IOException {
+    try (StreamingResponse response = stream("/large")) {
+      InputStream in = response.getInputStream();
+      assertEquals(in.read(new byte[10]), 10);
+    }
+    assertEquals(ServiceConnectionPool.forService(SERVICE).getStats().getAvailable(), 0);
+    assertEquals(ServiceConnectionPool.forService(SERVICE).getStats().getLeased(), 0);
+  }
+
+  @Test
+  public void testFiltersRejected() {
+    RequestSpecBuilder builder = new RequestSpecBuilder()
+        .addFilter((requestSpec, responseSpec, ctx) -> ctx.next(requestSpec, responseSpec));
+    assertThrows(IllegalArgumentException.class, () -> RestApiController.streamRestCall(SERVICE,
+        "/small", builder, null, Method.GET));
+    assertEquals(stub.getRequestCount(), 0);
+  }
+
+  @Test
+  public void testOpenRestStreamAppliesFilters() throws IOException {
+    AtomicInteger applied = new AtomicInteger();
+    Filter auth = (requestSpec, responseSpec, ctx) -> {
+      applied.incrementAndGet();
+      requestSpec.header("Authorization", "Bearer token");
+      return ctx.next(requestSpec, responseSpec);
+    };
+    try (InputStream in = RestApiController.openRestStream(SERVICE, "/small",
+        new RequestSpecBuilder(), ExpectedResponse.OK_RESPONSE, Method.GET, auth)) {
+      assertEquals(readAll(in), 1000);
+    }
+    try (InputStream in = RestApiController.openRestStream(SERVICE, "/small",
+        new RequestSpecBuilder().addFilter(auth), ExpectedResponse.OK_RESPONSE, Method.GET)) {
+      assertEquals(readAll(in), 1000);
+    }
+    assertEquals(applied.get(), 2);
+    assertEquals(stub.getRequestCount(), 2);
+  }
+
+  private static long readAll(InputStream in) throws IOException {
+    byte[] chunk = new byte[8192];
+    long total = 0;
+    int count;
+    while ((count = in.read(chunk)) >= 0) {
+      total += count;
+    }
+    return total;
+  }
+}
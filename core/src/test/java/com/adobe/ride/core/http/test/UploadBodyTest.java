@@ -0,0 +1,153 @@
+/*-
+Copyright 2018 Adobe. All rights reserved.
+This file is licensed to you under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License. You may obtain a copy
+of the License at http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software distributed under
+the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+OF ANY KIND, either express or implied. See the License for the specific language
+governing permissions and limitations under the License.
+*/
+
+package com.adobe.ride.core.http.test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertThrows;
+import static org.testng.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.Random;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import com.adobe.ride.core.controllers.RestApiController;
+import com.adobe.ride.core.http.ServiceConnectionPool;
+import com.adobe.ride.core.http.StreamingResponse;
+import com.adobe.ride.core.http.UploadBody;
+import com.adobe.ride.core.stub.StubResponse;
+import com.adobe.ride.core.stub.StubServer;
+import com.adobe.ride.core.types.ExpectedResponse;
+import io.restassured.builder.RequestSpecBuilder;
+import io.restassured.http.Method;
+
+/**
+ * @author tedcasey
+ *
+ */
+public class UploadBodyTest {
+
+  private static final String SERVICE = "StubService";
+  private static final int LENGTH = 1024 * 1024 + 17;
+
+  private StubServer stub;
+  private byte[] content;
+
+  @BeforeMethod
+  public void startStub() throws IOException {
+    stub = StubServer.start().bind(SERVICE);
+    stub.route(StubServer.ANY_METHOD, "/uploads/{id}", StubResponse.json("{}"));
+    content = new byte[LENGTH];
+    new Random(7).nextBytes(content);
+  }
+
+  @AfterMethod(alwaysRun = true)
+  public void stopStub() {
+    stub.close();
+  }
+
+  private static StreamingResponse upload(UploadBody body) {
+    return RestApiController.uploadRestCall(SERVICE, "/uploads/1", new RequestSpecBuilder(), body,
+        ExpectedResponse.OK_RESPONSE, Method.PUT);
+  }
+
+  private static String md5(byte[] bytes) throws NoSuchAlgorithmException {
+    return Base64.getEncoder().encodeToString(MessageDigest.getInstance("MD5").digest(bytes));
+  }
+
+  @Test
+  public void testFileSentWithLengthAndContentMd5() throws Exception {
+    Path file = Files.createTempFile("ride-upload", ".bin");
+    try {
+      Files.write(file, content);
+      UploadBody body = UploadBody.of(file).withContentType("application/octet-stream")
+          .withContentMd5();
+      assertEquals(body.getContentMd5(), md5(content));
+      try (StreamingResponse response = upload(body)) {
+        assertEquals(response.getStatusCode(), 200);
+      }
+      assertEquals(body.getByteCount(), LENGTH);
+      assertEquals(body.getEncodedDigest(), md5(content));
+      assertTrue(body.getBytesPerSecond() > 0);
+      assertEquals(stub.getBytesReceived(), LENGTH);
+      assertEquals(stub.getLastRequestHeader("Content-Length"), String.valueOf(LENGTH));
+      assertEquals(stub.getLastRequestHeader("Content-MD5"), md5(content));
+      assertNull(stub.getLastRequestHeader("Transfer-Encoding"));
+    } finally {
+      Files.delete(file);
+    }
+    assertEquals(ServiceConnectionPool.forService(SERVICE).getStats().getAvailable(), 1);
+  }
+
+  @Test
+  public void testUnknownLengthSentChunked() throws Exception {
+    UploadBody body = UploadBody.of(out -> {
+      // written in pieces, as a generator would
+      for (int offset = 0; offset < LENGTH; offset += 8192) {
+        out.write(content, offset, Math.min(8192, LENGTH - offset));
+      }
+    });
+    try (StreamingResponse response = upload(body)) {
+      assertEquals(response.getStatusCode(), 200);
+    }
+    assertEquals(body.getByteCount(), LENGTH);
+    assertEquals(body.getEncodedDigest(), md5(content));
+    assertEquals(stub.getBytesReceived(), LENGTH);
+    assertEquals(stub.getLastRequestHeader("Transfer-Encoding"), "chunked");
+    assertNull(stub.getLastRequestHeader("Content-MD5"));
+  }
+
+  @Test
+  public void testStreamCutToDeclaredLength() throws Exception {
+    UploadBody body = UploadBody.of(new ByteArrayInputStream(content), 1000);
+    try (StreamingResponse response = upload(body)) {
+      assertEquals(response.getStatusCode(), 200);
+    }
+    byte[] sent = new byte[1000];
+    System.arraycopy(content, 0, sent, 0, sent.length);
+    assertEquals(body.getEncodedDigest(), md5(sent));
+    assertEquals(stub.getBytesReceived(), 1000);
+    assertEquals(stub.getLastRequestHeader("Content-Length"), "1000");
+  }
+
+  @Test
+  public void testShortBodyRejected() throws IOException {
+    UploadBody body = UploadBody.of(out -> out.write(content, 0, 50), 100);
+    UncheckedIOException thrown = null;
+    try (StreamingResponse response = upload(body)) {
+      assertEquals(response.getStatusCode(), 200);
+    } catch (UncheckedIOException e) {
+      thrown = e;
+    }
+    // the client reports the failure of the original attempt as the cause of its failed retry
+    Throwable cause = thrown;
+    while (cause != null && !String.valueOf(cause.getMessage()).contains("declared 100 bytes")) {
+      cause = cause.getCause();
+    }
+    assertTrue(cause instanceof IOException, String.valueOf(thrown));
+  }
+
+  @Test
+  public void testContentMd5OnlyComputedForFiles() {
+    assertThrows(IllegalStateException.class,
+        () -> UploadBody.of(new ByteArrayInputStream(content)).withContentMd5());
+  }
+}
@@ -0,0 +1,156 @@
+/*-
+Copyright 2018 Adobe. All rights reserved.
+This file is licensed to you under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License. You may obtain a copy
+of the License at http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software distributed under
+the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+OF ANY KIND, either express or implied. See the License for the specific language
+governing permissions and limitations under the License.
+*/
+
+package com.adobe.ride.core.metrics.test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertThrows;
+import static org.testng.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Scanner;
+import javax.management.ObjectName;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import com.adobe.ride.core.controllers.RestApiController;
+import com.adobe.ride.core.metrics.Counter;
+import com.adobe.ride.core.metrics.JmxExporter;
+import com.adobe.ride.core.metrics.Metric;
+import com.adobe.ride.core.metrics.MetricsRegistry;
+import com.adobe.ride.core.metrics.PrometheusExporter;
+import com.adobe.ride.core.metrics.RideMetrics;
+import com.adobe.ride.core.metrics.Timer;
+import com.adobe.ride.core.stub.StubResponse;
+import com.adobe.ride.core.stub.StubServer;
+import com.adobe.ride.core.types.ExpectedResponse;
+import io.restassured.http.Method;
+
+/**
+ * @author tedcasey
+ *
+ */
+public class RideMetricsTest {
+
+  private static final String SERVICE = "StubService";
+  private static final String OK_LABELS = "service=\"StubService\",method=\"GET\",status=\"200\"";
+
+  private StubServer stub;
+
+  @BeforeMethod
+  public void startStub() throws IOException {
+    stub = StubServer.start().bind(SERVICE);
+    stub.route("GET", "/users/{id}", StubResponse.json("{\"id\":\"0001\"}"));
+  }
+
+  @AfterMethod(alwaysRun = true)
+  public void stopStub() {
+    stub.close();
+  }
+
+  private static void get(String restAPI) {
+    RestApiController.fireRestCall(SERVICE, restAPI, RestApiController.getRequestBuilder(false),
+        ExpectedResponse.OK_RESPONSE, Method.GET);
+  }
+
+  /**
+   * Returns the current value of a series of the default registry, which is shared with the other
+   * tests, so only changes are checked. Series are looked up rather than created, so that the
+   * families keep the help text given by RideMetrics.
+   */
+  private static long count(String name, String labels) {
+    for (MetricsRegistry.Family family : RideMetrics.registry().getFamilies()) {
+      Metric metric = family.getName().equals(name) ? family.getSeries().get(labels) : null;
+      if (metric instanceof Counter) {
+        return ((Counter) metric).get();
+      } else if (metric instanceof Timer) {
+        return ((Timer) metric).getCount();
+      }
+    }
+    return 0;
+  }
+
+  private static long requests() {
+    return count(RideMetrics.REQUESTS, OK_LABELS);
+  }
+
+  private static long validationErrors() {
+    return count(RideMetrics.REQUEST_ERRORS,
+        "service=\"StubService\",method=\"GET\",type=\"validation\"");
+  }
+
+  private static long timed() {
+    return count(RideMetrics.REQUEST_DURATION, "service=\"StubService\",method=\"GET\"");
+  }
+
+  @Test
+  public void testCallsRecorded() {
+    long requests = requests();
+    long errors = validationErrors();
+    long timed = timed();
+    for (int i = 0; i < 3; i++) {
+      get("/users/" + i);
+    }
+    assertThrows(Throwable.class, () -> get("/missing"));
+    assertEquals(requests(), requests + 3);
+    // the failed validation is counted as such, whatever the runtime made of its AssertionError
+    assertEquals(validationErrors(), errors + 1);
+    assertEquals(timed(), timed + 4);
+  }
+
+  @Test
+  public void testPrometheusText() throws IOException {
+    get("/users/1");
+    String scrape = PrometheusExporter.scrape(RideMetrics.registry());
+    assertTrue(scrape.contains("# HELP " + RideMetrics.REQUESTS + " Requests sent"), scrape);
+    assertTrue(scrape.contains("# TYPE " + RideMetrics.REQUESTS + " counter\n"), scrape);
+    assertTrue(scrape.contains(RideMetrics.REQUESTS + "{" + OK_LABELS + "} " + requests()
+        + "\n"), scrape);
+    assertTrue(scrape.contains(RideMetrics.REQUEST_DURATION
+        + "_count{service=\"StubService\",method=\"GET\"} " + timed() + "\n"), scrape);
+
+    try (PrometheusExporter.Endpoint endpoint =
+        PrometheusExporter.start(RideMetrics.registry(), 0)) {
+      HttpURLConnection connection = (HttpURLConnection) new URL(
+          "http://127.0.0.1:" + endpoint.getPort() + PrometheusExporter.PATH).openConnection();
+      assertEquals(connection.getResponseCode(), 200);
+      assertEquals(connection.getContentType(), PrometheusExporter.CONTENT_TYPE);
+      try (InputStream in = connection.getInputStream();
+          Scanner body = new Scanner(in, StandardCharsets.UTF_8.name()).useDelimiter("\\A")) {
+        assertTrue(body.next().contains(RideMetrics.REQUESTS + "{" + OK_LABELS + "} "));
+      }
+    }
+  }
+
+  @Test
+  public void testJmxAttributes() throws Exception {
+    JmxExporter.register(RideMetrics.registry());
+    get("/users/1");
+    ObjectName name =
+        new ObjectName(JmxExporter.DOMAIN + ":type=Metrics,name=" + RideMetrics.REQUESTS);
+    assertEquals(ManagementFactory.getPlatformMBeanServer().getAttribute(name,
+        "Count{" + OK_LABELS + "}"), requests());
+
+    // families created after registration are exported as well
+    MetricsRegistry registry = new MetricsRegistry();
+    JmxExporter.register(registry);
+    registry.counter("ride_test_events_total", "Events counted by the test").add(5);
+    assertEquals(ManagementFactory.getPlatformMBeanServer().getAttribute(
+        new ObjectName(JmxExporter.DOMAIN + ":type=Metrics,name=ride_test_events_total"),
+        "Count"), 5L);
+  }
+}
@@ -0,0 +1,81 @@
+/*-
+Copyright 2018 Adobe. All rights reserved.
+This file is licensed to you under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License. You may obtain a copy
+of the License at http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software distributed under
+the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+OF ANY KIND, either express or implied. See the License for the specific language
+governing permissions and limitations under the License.
+*/
+
+package com.adobe.ride.core.stub.test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotSame;
+import static org.testng.Assert.assertTrue;
+
+import java.io.IOException;
+import org.testng.annotations.Test;
+import com.adobe.ride.config.management.TestProperties;
+import com.adobe.ride.core.controllers.RestApiController;
+import com.adobe.ride.core.http.ServiceConnectionPool;
+import com.adobe.ride.core.stub.Distribution;
+import com.adobe.ride.core.stub.StubResponse;
+import com.adobe.ride.core.stub.StubServer;
+import com.adobe.ride.core.types.ExpectedResponse;
+import io.restassured.http.Method;
+import io.restassured.response.Response;
+
+/**
+ * @author tedcasey
+ *
+ */
+public class StubServerTest {
+
+  private static final String SERVICE = "StubService";
+
+  private static Response get(String restAPI) {
+    return RestApiController.fireRestCall(SERVICE, restAPI,
+        RestApiController.getRequestBuilder(false), ExpectedResponse.OK_RESPONSE, Method.GET);
+  }
+
+  @Test
+  public void testRoutesAndLatency() throws IOException {
+    try (StubServer stub = StubServer.start()) {
+      stub.route("GET", "/users/{id}", StubResponse.json("{\"id\":\"0001\"}")
+          .latency(Distribution.fixed(50)));
+      stub.bind(SERVICE);
+      long start = System.nanoTime();
+      Response response = get("/users/1234");
+      assertTrue(System.nanoTime() - start >= 50000000L);
+      assertEquals(response.jsonPath().getString("id"), "0001");
+      assertEquals(stub.getRequestCount(), 1);
+    }
+  }
+
+  @Test
+  public void testRebindResetsPoolAndCloseRestores() throws IOException {
+    int configuredPort = TestProperties.getInstance().getTargetServiceConfig(SERVICE).port();
+    try (StubServer first = StubServer.start()) {
+      first.setDefaultResponse(StubResponse.json("{\"stub\":\"first\"}")).bind(SERVICE);
+      assertEquals(get("/").jsonPath().getString("stub"), "first");
+      ServiceConnectionPool firstPool = ServiceConnectionPool.forService(SERVICE);
+      assertEquals(firstPool.getStats().getAvailable(), 1);
+
+      try (StubServer second = StubServer.start()) {
+        second.setDefaultResponse(StubResponse.json("{\"stub\":\"second\"}")).bind(SERVICE);
+        assertEquals(get("/").jsonPath().getString("stub"), "second");
+        assertNotSame(ServiceConnectionPool.forService(SERVICE), firstPool);
+        assertEquals(ServiceConnectionPool.forService(SERVICE).getStats().getAvailable(), 1);
+      }
+
+      // the second stub restores the first one's target, with a pool of its own
+      assertEquals(get("/").jsonPath().getString("stub"), "first");
+      assertEquals(first.getRequestCount(), 2);
+    }
+    assertEquals(TestProperties.getInstance().getTargetServiceConfig(SERVICE).port(),
+        configuredPort);
+  }
+}
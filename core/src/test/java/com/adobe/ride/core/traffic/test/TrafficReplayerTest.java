@@ -0,0 +1,136 @@
+/*-
+Copyright 2018 Adobe. All rights reserved.
+This file is licensed to you under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License. You may obtain a copy
+of the License at http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software distributed under
+the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+OF ANY KIND, either express or implied. See the License for the specific language
+governing permissions and limitations under the License.
+*/
+
+package com.adobe.ride.core.traffic.test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+import com.adobe.ride.config.management.TestProperties;
+import com.adobe.ride.core.controllers.RestApiController;
+import com.adobe.ride.core.filters.TrafficRecordingFilter;
+import com.adobe.ride.core.stub.StubResponse;
+import com.adobe.ride.core.stub.StubServer;
+import com.adobe.ride.core.traffic.TrafficLog;
+import com.adobe.ride.core.traffic.TrafficReplayer;
+import com.adobe.ride.core.types.ExpectedResponse;
+import io.restassured.http.ContentType;
+import io.restassured.http.Header;
+import io.restassured.http.Method;
+
+/**
+ * @author tedcasey
+ *
+ */
+public class TrafficReplayerTest {
+
+  private static final String SERVICE = "StubService";
+
+  private StubServer stub;
+
+  @BeforeMethod
+  public void startStub() throws IOException {
+    stub = StubServer.start().bind(SERVICE);
+    stub.route("GET", "/users/{id}", StubResponse.json("{\"id\":\"0001\"}"));
+    stub.route("POST", "/users", new StubResponse(201));
+  }
+
+  @AfterMethod(alwaysRun = true)
+  public void stopStub() {
+    stub.close();
+  }
+
+  @Test
+  public void testCallsRecorded() throws Exception {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try (TrafficLog log = new TrafficLog(out)) {
+      TrafficRecordingFilter recording = new TrafficRecordingFilter(log, SERVICE);
+      RestApiController.fireRestCall(SERVICE, "/users/1?fields=id",
+          RestApiController.getRequestBuilder(false), ExpectedResponse.OK_RESPONSE, Method.GET,
+          recording);
+      Thread.sleep(200);
+      RestApiController.fireRestCall(SERVICE, "/users",
+          RestApiController.getRequestBuilder(false).setContentType(ContentType.JSON)
+              .setBody("{\"name\":\"ride\"}"),
+          ExpectedResponse.CREATED_RESPONSE, Method.POST, recording);
+      RestApiController.fireRestCall(SERVICE, "/missing",
+          RestApiController.getRequestBuilder(false), ExpectedResponse.NO_RESPONSE, Method.GET,
+          recording);
+    }
+
+    List<TrafficLog.Entry> entries = TrafficLog.read(new ByteArrayInputStream(out.toByteArray()));
+    assertEquals(entries.size(), 3);
+    assertEquals(entries.get(0).getPath(), "/users/1?fields=id");
+    assertEquals(entries.get(0).getStatus(), 200);
+    assertEquals(entries.get(1).getMethod(), "POST");
+    assertEquals(new String(entries.get(1).getBody(), StandardCharsets.UTF_8),
+        "{\"name\":\"ride\"}");
+    assertEquals(entries.get(1).getStatus(), 201);
+    assertEquals(entries.get(2).getStatus(), 404);
+    assertTrue(entries.get(1).getOffsetNanos() - entries.get(0).getOffsetNanos()
+        >= TimeUnit.MILLISECONDS.toNanos(200));
+  }
+
+  /**
+   * Log of six calls spread evenly over one second, the last of which was originally answered
+   * with a 200 which the stub does not give.
+   */
+  private static List<TrafficLog.Entry> secondOfTraffic() {
+    List<TrafficLog.Entry> entries = new ArrayList<TrafficLog.Entry>();
+    List<Header> headers = Collections.singletonList(new Header("Accept", "application/json"));
+    for (int i = 0; i < 6; i++) {
+      entries.add(new TrafficLog.Entry(TimeUnit.MILLISECONDS.toNanos(i * 200), SERVICE, "GET",
+          (i < 5) ? "/users/" + i : "/missing", headers, null, 200,
+          TimeUnit.MILLISECONDS.toNanos(5)));
+    }
+    return entries;
+  }
+
+  @DataProvider
+  public Object[][] clients() {
+    return new Object[][] {{TrafficReplayer.Client.POOLED}, {TrafficReplayer.Client.ASYNC}};
+  }
+
+  @Test(dataProvider = "clients")
+  public void testReplayTimingScaled(TrafficReplayer.Client client) throws Exception {
+    TrafficReplayer.Report original = new TrafficReplayer(
+        TestProperties.getInstance().getTargetServiceConfig(SERVICE), 1, client)
+            .replay(secondOfTraffic().iterator());
+    assertEquals(original.getIssued(), 6);
+    assertEquals(original.getCompleted(), 6);
+    assertEquals(original.getStatusMismatches(), 1);
+    assertEquals(original.getOriginalSpanMillis(), 1000);
+    assertTrue(original.getElapsedMillis() >= 1000, original.toString());
+
+    TrafficReplayer.Report faster = new TrafficReplayer(
+        TestProperties.getInstance().getTargetServiceConfig(SERVICE), 5, client)
+            .replay(secondOfTraffic().iterator());
+    assertEquals(faster.getIssued(), 6);
+    assertEquals(faster.getStatusMismatches(), 1);
+    // the calls are spread over a fifth of the original second
+    assertTrue(faster.getElapsedMillis() >= 200 && faster.getElapsedMillis() < 600,
+        faster.toString());
+    assertEquals(stub.getRequestCount(), 12);
+  }
+}
@@ -18,6 +18,7 @@ import org.apache.commons.io.IOUtils;
 import org.testng.Assert;
 import org.testng.annotations.DataProvider;
 import com.adobe.ride.core.RideCore;
+import com.adobe.ride.core.metrics.RideMetrics;
 import io.restassured.builder.ResponseSpecBuilder;
 import io.restassured.response.Response;
 import io.restassured.specification.ResponseSpecification;
@@ -81,6 +82,8 @@ public class CoreEngine extends RideCore {
   public void validateResult(String property, Object testedValue, Response response,
       boolean expectSuccess) {
     int code = response.getStatusCode();
+    boolean passed = expectSuccess ? (199 < code && code < 299) : (code == 400);
+    RideMetrics.recordFuzzCase(getClass().getSimpleName(), expectSuccess, passed);
 
     if (expectSuccess == true && code == 400) {
       logger.log(Level.SEVERE, "Fuzzer Failure: \n   Property: " + property + "\n   TestedValue: "
@@ -16,6 +16,7 @@ package com.adobe.ride.libraries.fuzzer.engines;
 import org.testng.Assert;
 import org.testng.annotations.Test;
 import com.adobe.ride.core.controllers.RestApiController;
+import com.adobe.ride.core.metrics.RideMetrics;
 import io.restassured.builder.RequestSpecBuilder;
 import io.restassured.builder.ResponseSpecBuilder;
 import io.restassured.filter.Filter;
@@ -66,6 +67,8 @@ public class PathEngine extends CoreEngine {
    */
   public void validateResult(Response response, boolean expectSuccess) {
     int code = response.getStatusCode();
+    boolean passed = expectSuccess ? (199 < code && code < 299) : (399 < code && code < 499);
+    RideMetrics.recordFuzzCase(getClass().getSimpleName(), expectSuccess, passed);
     if (expectSuccess) {
       Assert.assertTrue(199 < code && code < 299);
     } else {
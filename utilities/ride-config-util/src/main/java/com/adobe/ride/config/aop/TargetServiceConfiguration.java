@@ -24,6 +24,47 @@ public class TargetServiceConfiguration {
   public static final String ENDPOINT_KEY = "endpoint";
   public static final String PORT_KEY = "port";
   public static final String BASE_PATH_KEY = "basePath";
+  public static final String PROTOCOL_KEY = "protocol";
+
+  /**
+   * HTTP protocol used to call the service.
+   */
+  public enum Protocol {
+    /** HTTP/1.1, one request at a time on each connection */
+    H1("h1"),
+    /** HTTP/2 over TLS, negotiated with ALPN */
+    H2("h2"),
+    /** HTTP/2 over cleartext, with prior knowledge */
+    H2C("h2c");
+
+    private final String value;
+
+    Protocol(String value) {
+      this.value = value;
+    }
+
+    public String value() {
+      return value;
+    }
+
+    /**
+     * Returns the protocol named in a properties file (i.e. h1, h2, h2c).
+     *
+     * @param value name of the protocol, HTTP/1.1 if null or empty
+     * @return Protocol
+     */
+    public static Protocol fromValue(String value) {
+      if (value == null || value.trim().isEmpty()) {
+        return H1;
+      }
+      for (Protocol protocol : values()) {
+        if (protocol.value.equalsIgnoreCase(value.trim())) {
+          return protocol;
+        }
+      }
+      throw new IllegalArgumentException("Unknown protocol: " + value);
+    }
+  }
 
   private final String serviceName;
   private final String schema;
@@ -31,6 +72,7 @@ public class TargetServiceConfiguration {
   private final int port;
   private final String basePath;
   private final String serviceURL;
+  private final Protocol protocol;
 
   /**
    * Constructor for the TargetServiceConfiguration class. All of these arguments will be passed in
@@ -44,12 +86,29 @@ public class TargetServiceConfiguration {
    */
   public TargetServiceConfiguration(String serviceName, String schema, String endpoint, String port,
       String basePath) {
+    this(serviceName, schema, endpoint, port, basePath, null);
+  }
+
+  /**
+   * Constructor for the TargetServiceConfiguration class, with the protocol used to call the
+   * service.
+   * 
+   * @param serviceName name of the service, which is a mapping to the config folder in resources
+   * @param schema internet protocol schema used in the endpoint (i.e. http, https, etc.)
+   * @param endpoint endpoint of the service
+   * @param port port the service uses (i.e. 80, 443, etc.)
+   * @param basePath if warranted ("/" for no base path)
+   * @param protocol HTTP protocol (h1, h2 or h2c), h1 if null
+   */
+  public TargetServiceConfiguration(String serviceName, String schema, String endpoint, String port,
+      String basePath, String protocol) {
     this.serviceName = serviceName;
     this.schema = schema;
     this.endpoint = endpoint;
     this.port = Integer.parseInt(port);
     this.basePath = basePath;
     this.serviceURL = schema + "://" + endpoint + ":" + port + basePath;
+    this.protocol = Protocol.fromValue(protocol);
   }
 
   /**
@@ -97,6 +156,15 @@ public class TargetServiceConfiguration {
     return basePath;
   }
 
+  /**
+   * Returns the HTTP protocol used to call the service.
+   * 
+   * @return Protocol
+   */
+  public Protocol protocol() {
+    return protocol;
+  }
+
   /**
    * Returns the base uri of the service url being constructed.
    * 
@@ -79,7 +79,7 @@ public class FileUtils {
     }
   }
 
-  public synchronized static void deleteFileQuietly(ILogUtils log, File file) {
+  public static void deleteFileQuietly(ILogUtils log, File file) {
     if (file != null && file.exists()) {
       try {
         file.delete();
@@ -90,7 +90,7 @@ public class FileUtils {
     }
   }
 
-  public synchronized static void deleteFileQuietly(File file) {
+  public static void deleteFileQuietly(File file) {
     if (file != null && file.exists()) {
       try {
         file.delete();
@@ -100,7 +100,7 @@ public class FileUtils {
     }
   }
 
-  public synchronized static String readFileAsUTF8(String path)
+  public static String readFileAsUTF8(String path)
       throws NoSuchFileException, IOException {
     Validation.isNullOrEmptyParameter("path", path);
 
@@ -109,7 +109,7 @@ public class FileUtils {
     return readFile(path, encoding);
   }
 
-  public synchronized static String readFile(String path, Charset encoding)
+  public static String readFile(String path, Charset encoding)
       throws NoSuchFileException, IOException {
     Validation.isNullOrEmptyParameter("path", path);
     Validation.isNullOrEmptyParameter("encoding", encoding);
@@ -118,7 +118,7 @@ public class FileUtils {
     return encoding.decode(ByteBuffer.wrap(encoded)).toString();
   }
 
-  public synchronized static String writeFileDataToStringAsUTF8(InputStream inputStream)
+  public static String writeFileDataToStringAsUTF8(InputStream inputStream)
       throws IOException {
     Validation.isNullOrEmptyParameter("inputStream", inputStream);
 
@@ -128,7 +128,7 @@ public class FileUtils {
     return data;
   }
 
-  public synchronized static String writeFileDataToString(InputStream inputStream, Charset encoding)
+  public static String writeFileDataToString(InputStream inputStream, Charset encoding)
       throws IOException {
     Validation.isNullOrEmptyParameter("inputStream", inputStream);
     Validation.isNullOrEmptyParameter("encoding", encoding);
@@ -17,6 +17,7 @@ import static com.adobe.ride.config.management.ServiceConstantsInterface.TEST_CO
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.commons.configuration.ConfigurationException;
 import org.apache.commons.lang.Validate;
@@ -38,7 +39,7 @@ public class TestProperties {
   private static Map<TestPropertyType, TestPropertiesWrapper> properties =
       new HashMap<TestPropertyType, TestPropertiesWrapper>();
   private static Map<String, TargetServiceConfiguration> services =
-      new HashMap<String, TargetServiceConfiguration>();
+      new ConcurrentHashMap<String, TargetServiceConfiguration>();
   private static final TestProperties instanceHolder = new TestProperties();
 
   public TestProperties() {
@@ -131,6 +132,20 @@ public class TestProperties {
     return serviceConfigs;
   }
 
+  /**
+   * Replaces the configuration of a service for the rest of the run (i.e. to point its calls at a
+   * stub). The service need not be declared in the environment properties.
+   *
+   * @param service name of the service
+   * @param config configuration of the service, null to remove it
+   * @return TargetServiceConfiguration previous configuration of the service, null if it had none
+   */
+  public TargetServiceConfiguration setTargetServiceConfig(String service,
+      TargetServiceConfiguration config) {
+    Validation.isNullOrEmptyParameter("service", service);
+    return (config == null) ? services.remove(service) : services.put(service, config);
+  }
+
   private Object getProperty(TestPropertyType testPropertyType, String key) {
     Validation.isNullOrEmptyParameter("testPropertyType", testPropertyType);
     Validation.isNullOrEmptyParameter("key", key);
@@ -199,8 +214,10 @@ public class TestProperties {
         String basePath = envProperties
             .get(serviceName.concat(".").concat(TargetServiceConfiguration.BASE_PATH_KEY))
             .toString();
-        TargetServiceConfiguration svc =
-            new TargetServiceConfiguration(serviceName, schema, endpoint, port, basePath);
+        Object protocol = envProperties
+            .get(serviceName.concat(".").concat(TargetServiceConfiguration.PROTOCOL_KEY));
+        TargetServiceConfiguration svc = new TargetServiceConfiguration(serviceName, schema,
+            endpoint, port, basePath, (protocol == null) ? null : protocol.toString());
 
         services.put(serviceName, svc);
       }
@@ -25,6 +25,7 @@ import org.testng.annotations.Test;
 
 import com.adobe.ride.config.aop.TargetService;
 import com.adobe.ride.config.aop.TargetServiceConfiguration;
+import com.adobe.ride.config.aop.TargetServiceConfiguration.Protocol;
 import com.adobe.ride.config.management.TestProperties;
 
 /**
@@ -66,6 +67,8 @@ public class ConfigManagementTest {
               prop.getProperty(t.value().concat(".").concat(TargetServiceConfiguration.PORT_KEY))));
           assertEquals(targetService.basePath(), prop
               .getProperty(t.value().concat(".").concat(TargetServiceConfiguration.BASE_PATH_KEY)));
+          assertEquals(targetService.protocol(), Protocol.fromValue(prop
+              .getProperty(t.value().concat(".").concat(TargetServiceConfiguration.PROTOCOL_KEY))));
         }
       }
     } catch (NoSuchMethodException e) {
@@ -74,4 +77,16 @@ public class ConfigManagementTest {
       e.printStackTrace();
     }
   }
+
+  @Test(suiteName = "smoke", groups = "integration", enabled = true)
+  public void testProtocolConfiguration() {
+    assertEquals(Protocol.fromValue(null), Protocol.H1);
+    assertEquals(Protocol.fromValue("H2C"), Protocol.H2C);
+    TargetServiceConfiguration h2 =
+        new TargetServiceConfiguration("TestService", "https", "localhost", "443", "/", "h2");
+    assertEquals(h2.protocol(), Protocol.H2);
+    TargetServiceConfiguration h1 =
+        new TargetServiceConfiguration("TestService", "https", "localhost", "443", "/");
+    assertEquals(h1.protocol(), Protocol.H1);
+  }
 }
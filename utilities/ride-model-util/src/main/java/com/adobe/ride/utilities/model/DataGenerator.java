@@ -23,7 +23,9 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
+import java.time.Clock;
 import java.time.Instant;
+import java.time.ZoneOffset;
 import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.Random;
@@ -55,6 +57,9 @@ import com.mifmif.common.regex.Generex;
 public abstract class DataGenerator {
   protected static final Logger logger = Logger.getLogger(DataGenerator.class.getName());
   protected static final Random randomGen = new Random();
+  private static final ThreadLocal<Long> threadSeed = new ThreadLocal<Long>();
+  private static final ThreadLocal<Random> threadRandom = new ThreadLocal<Random>();
+  private static final ThreadLocal<Clock> threadClock = new ThreadLocal<Clock>();
   protected static JSONParser parser = new JSONParser();
   private static final DateTimeFormatter ISO_8601_DATE_TIME_FORMATTER = DateTimeFormatter.ISO_INSTANT;
   private static final DateTimeFormatter ISO_8601_DATE_FORMATTER = DateTimeFormatter.ISO_ORDINAL_DATE;
@@ -90,6 +95,96 @@ public abstract class DataGenerator {
       "^(urn\\:)" + genericSmallAlphaRegex + "\\:" + genericSmallAlphaRegex + "\\:"
           + genericSmallAlphaRegex + "(\\:dtd\\:xml\\:4\\.1\\.2)"};
 
+  /**
+   * Seeds all values generated on the calling thread, and fixes the current time used for dates and
+   * timestamps, so that the same seed and clock always generate the same values. Call
+   * {@link #clearSeed()} to return to unseeded generation.
+   * 
+   * @param seed seed for the random values generated on this thread
+   * @param clockMillis epoch milliseconds to be used as the current time
+   */
+  public static void setSeed(long seed, long clockMillis) {
+    threadSeed.set(seed);
+    threadRandom.set(new Random(seed));
+    threadClock.set(Clock.fixed(Instant.ofEpochMilli(clockMillis), ZoneOffset.UTC));
+  }
+
+  /**
+   * Returns generation on the calling thread to unseeded random values and the system clock.
+   */
+  public static void clearSeed() {
+    threadSeed.remove();
+    threadRandom.remove();
+    threadClock.remove();
+  }
+
+  /**
+   * Returns the seeded generation state of the calling thread, including the position reached in
+   * its random sequence, so that it can be put back after generating with another seed.
+   * 
+   * @return SeedState, null if generation on the calling thread is not seeded
+   */
+  static SeedState getSeedState() {
+    Long seed = threadSeed.get();
+    return (seed == null) ? null : new SeedState(seed, threadRandom.get(), threadClock.get());
+  }
+
+  /**
+   * Puts back a state returned by {@link #getSeedState()}, clearing the seed if there was none.
+   * 
+   * @param state SeedState to be restored on the calling thread, or null
+   */
+  static void restoreSeedState(SeedState state) {
+    if (state == null) {
+      clearSeed();
+    } else {
+      threadSeed.set(state.seed);
+      threadRandom.set(state.random);
+      threadClock.set(state.clock);
+    }
+  }
+
+  /**
+   * Seeded generation state of a thread.
+   */
+  static final class SeedState {
+    private final Long seed;
+    private final Random random;
+    private final Clock clock;
+
+    private SeedState(Long seed, Random random, Clock clock) {
+      this.seed = seed;
+      this.random = random;
+      this.clock = clock;
+    }
+  }
+
+  /**
+   * 
+   * @return Long seed set on the calling thread, or null if generation is not seeded
+   */
+  public static Long getSeed() {
+    return threadSeed.get();
+  }
+
+  /**
+   * 
+   * @return Random source of random values for the calling thread
+   */
+  protected static Random getRandom() {
+    Random random = threadRandom.get();
+    return (random == null) ? randomGen : random;
+  }
+
+  /**
+   * 
+   * @return Clock clock used for dates and timestamps generated on the calling thread
+   */
+  public static Clock getClock() {
+    Clock clock = threadClock.get();
+    return (clock == null) ? Clock.systemDefaultZone() : clock;
+  }
+
   /**
    * Method to get the default Ride string format for dates.
    * 
@@ -109,7 +204,7 @@ public abstract class DataGenerator {
    */
   public static String generateRandomPassedDate(int minNumDaysPassed, int maxNumDaysPassed) {
     int diff = generateRandomInt(minNumDaysPassed, maxNumDaysPassed);
-    ZonedDateTime rndDate = ZonedDateTime.now().minusDays(diff);
+    ZonedDateTime rndDate = ZonedDateTime.now(getClock()).minusDays(diff);
     return ISO_8601_DATE_FORMATTER.format(rndDate);
   }
 
@@ -121,7 +216,7 @@ public abstract class DataGenerator {
    * @return String
    */
   public static String generateStdDateTime(int daysFromToday) {
-    ZonedDateTime now = ZonedDateTime.now();
+    ZonedDateTime now = ZonedDateTime.now(getClock());
     ZonedDateTime newDateTime = now.plusDays(daysFromToday);
     return getDateFormat().format(newDateTime); // ISO 8601 format
   }
@@ -133,7 +228,7 @@ public abstract class DataGenerator {
    */
   public static String getTodayJSONFullDateFormat() {
 
-    ZonedDateTime now = ZonedDateTime.now();
+    ZonedDateTime now = ZonedDateTime.now(getClock());
     return ISO_8601_DATE_FORMATTER.format(now);
   }
 
@@ -153,7 +248,7 @@ public abstract class DataGenerator {
    * @return String
    */
   public static String generateIPv4() {
-    return InetAddresses.fromInteger(randomGen.nextInt()).getHostAddress();
+    return InetAddresses.fromInteger(getRandom().nextInt()).getHostAddress();
   }
 
   /**
@@ -171,7 +266,7 @@ public abstract class DataGenerator {
    * @return boolean
    */
   public static boolean generateRandomBoolean() {
-    return randomGen.nextBoolean();
+    return getRandom().nextBoolean();
   }
 
   /**
@@ -187,7 +282,7 @@ public abstract class DataGenerator {
       if (lastChar.equals("|)")) {
         pattern.replace("|)", "|\\^\\$)");
       }
-      Generex generex = new Generex(pattern);
+      Generex generex = new Generex(pattern, getRandom());
       String result = generex.random();
       // need to sanitize the result in the case of schema problems
       String sanitizedResult = result.replace("^", "").replace("$", "");
@@ -204,7 +299,7 @@ public abstract class DataGenerator {
    * @return String
    */
   public static String generateTimestamp() {
-    long unixTimestamp = Instant.now().getEpochSecond();
+    long unixTimestamp = Instant.now(getClock()).getEpochSecond();
     return String.valueOf(unixTimestamp);
   }
 
@@ -217,7 +312,7 @@ public abstract class DataGenerator {
    * @return int
    */
   public static int generateRandomInt(int min, int max) {
-    return randomGen.nextInt((max - min) + 1) + min;
+    return getRandom().nextInt((max - min) + 1) + min;
   }
 
   /**
@@ -279,7 +374,7 @@ public abstract class DataGenerator {
    * @return double
    */
   public static double generateRandomNumber(double min, double max) {
-    return (randomGen.nextDouble() * (max - min)) + min;
+    return (getRandom().nextDouble() * (max - min)) + min;
   }
 
   /**
@@ -311,7 +406,7 @@ public abstract class DataGenerator {
    * @return long
    */
   public static long generateRandomNumber(long min, long max) {
-    return (long) (Math.abs(randomGen.nextLong()) % (max - min + 1)) + min;
+    return (long) (Math.abs(getRandom().nextLong()) % (max - min + 1)) + min;
   }
 
   /**
@@ -346,7 +441,8 @@ public abstract class DataGenerator {
     if (maxCharcount > 10 && maxCharcount - 5 > minCharCount) {
       max = maxCharcount - 5;
     }
-    return RandomStringUtils.randomAlphanumeric(generateRandomInt(minCharCount, (max)));
+    return RandomStringUtils.random(generateRandomInt(minCharCount, (max)), 0, 0, true, true, null,
+        getRandom());
   }
 
   /**
@@ -373,7 +469,7 @@ public abstract class DataGenerator {
    * @return Object
    */
   public Object getRandomArrayMember(Object[] array) {
-    return array[randomGen.nextInt(array.length)];
+    return array[getRandom().nextInt(array.length)];
   }
 
   /**
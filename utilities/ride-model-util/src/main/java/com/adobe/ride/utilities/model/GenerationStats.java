@@ -0,0 +1,53 @@
+/*-
+Copyright 2018 Adobe. All rights reserved.
+This file is licensed to you under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License. You may obtain a copy
+of the License at http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software distributed under
+the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+OF ANY KIND, either express or implied. See the License for the specific language
+governing permissions and limitations under the License.
+*/
+
+package com.adobe.ride.utilities.model;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Running totals of the model instances built in this JVM, and of the time spent building them.
+ * Instances built as part of another instance (i.e. through a schema reference) are included in the
+ * time of the outer instance rather than counted separately. The totals are kept in striped
+ * counters, so building on many threads does not contend on them.
+ *
+ * @author tedcasey
+ *
+ */
+public final class GenerationStats {
+
+  private static final LongAdder instances = new LongAdder();
+  private static final LongAdder nanos = new LongAdder();
+
+  private GenerationStats() {}
+
+  static void recordInstance(long elapsedNanos) {
+    instances.increment();
+    nanos.add(elapsedNanos);
+  }
+
+  /**
+   *
+   * @return long number of instances built so far
+   */
+  public static long getInstanceCount() {
+    return instances.sum();
+  }
+
+  /**
+   *
+   * @return long total nanoseconds spent building instances so far
+   */
+  public static long getGenerationNanos() {
+    return nanos.sum();
+  }
+}
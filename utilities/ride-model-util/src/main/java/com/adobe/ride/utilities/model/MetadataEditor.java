@@ -0,0 +1,95 @@
+/*-
+Copyright 2018 Adobe. All rights reserved.
+This file is licensed to you under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License. You may obtain a copy
+of the License at http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software distributed under
+the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+OF ANY KIND, either express or implied. See the License for the specific language
+governing permissions and limitations under the License.
+*/
+
+package com.adobe.ride.utilities.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Fluent editor used to queue many changes to the generated instance of a {@link ModelObject} and
+ * apply them in a single traversal of the instance.
+ * 
+ * <pre>
+ * object.editMetadata().set("/title", "My Title").set("/authorInfo/name", "Gladys Phillips")
+ *     .remove("/isAd").apply();
+ * </pre>
+ * 
+ * @author tedcasey
+ *
+ */
+public class MetadataEditor {
+
+  private final ModelObject model;
+  private final List<Edit> edits = new ArrayList<Edit>();
+
+  MetadataEditor(ModelObject model) {
+    this.model = model;
+  }
+
+  /**
+   * Queue a value to be set at a path. Values are cast the same way as in
+   * {@link ModelObject#setMetadataValue(String, String, Object)}.
+   * 
+   * @param path fully qualified path to the target node (i.e. /authorInfo/name)
+   * @param value value to be assigned
+   * @return MetadataEditor
+   * @throws IllegalArgumentException if the path is empty or points to the root of the instance
+   */
+  public MetadataEditor set(String path, Object value) {
+    edits.add(new Edit(path, value, false));
+    return this;
+  }
+
+  /**
+   * Queue the removal of the node at a path.
+   * 
+   * @param path fully qualified path to the node to be removed
+   * @return MetadataEditor
+   * @throws IllegalArgumentException if the path is empty or points to the root of the instance
+   */
+  public MetadataEditor remove(String path) {
+    edits.add(new Edit(path, null, true));
+    return this;
+  }
+
+  /**
+   * Apply all of the queued edits, in the order they were queued, to the generated instance.
+   * 
+   * @return ModelObject the edited object
+   */
+  public ModelObject apply() {
+    model.applyMetadataEdits(edits);
+    edits.clear();
+    return model;
+  }
+
+  /**
+   * Single queued change to the generated instance.
+   */
+  static class Edit {
+    final String path;
+    final Object value;
+    final boolean remove;
+
+    Edit(String path, Object value, boolean remove) {
+      // the root has no parent to edit it in; whole instances are replaced with setObjectMetadata
+      if (path == null || path.replaceAll("/$", "").isEmpty()) {
+        throw new IllegalArgumentException(
+            "Edits need a path below the root of the instance, but got: " + path);
+      }
+      this.path = path;
+      this.value = value;
+      this.remove = remove;
+    }
+  }
+}
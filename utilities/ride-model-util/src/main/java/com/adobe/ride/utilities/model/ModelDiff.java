@@ -0,0 +1,313 @@
+/*-
+Copyright 2018 Adobe. All rights reserved.
+This file is licensed to you under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License. You may obtain a copy
+of the License at http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software distributed under
+the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+OF ANY KIND, either express or implied. See the License for the specific language
+governing permissions and limitations under the License.
+*/
+
+package com.adobe.ride.utilities.model;
+
+import java.io.IOException;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.json.simple.JSONAware;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+/**
+ * Class for generating the difference between two json instances, either as an RFC 6902 JSON Patch
+ * document or as an RFC 7396 merge-patch document.
+ *
+ * Both instances are walked once, in parallel, so generation is linear in the size of the smaller
+ * instance. Trees held in memory, Jackson or json-simple, are walked without being copied, so
+ * subtrees which are shared by reference between the two instances are skipped without being
+ * traversed.
+ *
+ * @author tedcasey
+ *
+ */
+public class ModelDiff {
+
+  protected static final Logger logger = Logger.getLogger(ModelDiff.class.getName());
+  protected static final ObjectMapper mapper = new ObjectMapper();
+  private static final JsonNodeFactory factory = JsonNodeFactory.instance;
+  private static final Comparator<JsonNode> NUMERIC_VALUE = (a, b) -> {
+    if (a.equals(b)) {
+      return 0;
+    }
+    return (a.isNumber() && b.isNumber()) ? a.decimalValue().compareTo(b.decimalValue()) : 1;
+  };
+
+  public static final String OP_ADD = "add";
+  public static final String OP_REMOVE = "remove";
+  public static final String OP_REPLACE = "replace";
+
+  private ModelDiff() {}
+
+  /**
+   * Create an RFC 6902 JSON Patch document which transforms the source instance into the target
+   * instance.
+   *
+   * @param source instance before the change (JsonNode, json-simple object or json String)
+   * @param target instance after the change (JsonNode, json-simple object or json String)
+   * @return ArrayNode list of patch operations, empty if the instances are equal
+   */
+  public static ArrayNode createJsonPatch(Object source, Object target) {
+    ArrayNode patch = factory.arrayNode();
+    diffNodes("", toTree(source), toTree(target), patch);
+    return patch;
+  }
+
+  /**
+   * Create an RFC 7396 merge-patch document which transforms the source instance into the target
+   * instance. Note that, per the RFC, arrays are always replaced as a whole and null values in the
+   * target cannot be expressed.
+   *
+   * @param source instance before the change (JsonNode, json-simple object or json String)
+   * @param target instance after the change (JsonNode, json-simple object or json String)
+   * @return JsonNode merge-patch document, an empty object if the instances are equal
+   */
+  public static JsonNode createMergePatch(Object source, Object target) {
+    Object sourceTree = toTree(source);
+    Object targetTree = toTree(target);
+    if (!isObject(sourceTree) || !isObject(targetTree)) {
+      return (valuesEqual(sourceTree, targetTree)) ? factory.objectNode()
+          : toValue(targetTree);
+    }
+    return mergeObjects(sourceTree, targetTree);
+  }
+
+  /**
+   * Method to convert the various instance representations used by Ride into a Jackson tree.
+   *
+   * @param instance JsonNode, json-simple JSONObject/JSONArray, or json String
+   * @return JsonNode
+   */
+  public static JsonNode toJsonNode(Object instance) {
+    if (instance == null) {
+      return factory.nullNode();
+    } else if (instance instanceof JsonNode) {
+      return (JsonNode) instance;
+    }
+    try {
+      if (instance instanceof JSONAware) {
+        return mapper.readTree(((JSONAware) instance).toJSONString());
+      } else if (instance instanceof String) {
+        return mapper.readTree((String) instance);
+      }
+      return mapper.valueToTree(instance);
+    } catch (IOException e) {
+      logger.log(Level.SEVERE, "An error was thrown while deserializing the JSON content", e);
+      return factory.nullNode();
+    }
+  }
+
+  /**
+   * Method to prepare an instance for diffing. Trees held in memory, either Jackson or json-simple
+   * (Maps and Lists), are walked as they are, so that subtrees they share keep their identity;
+   * only json Strings are parsed.
+   *
+   * @param instance JsonNode, json-simple JSONObject/JSONArray, or json String
+   * @return Object
+   */
+  private static Object toTree(Object instance) {
+    if (instance instanceof JsonNode || instance instanceof Map || instance instanceof List) {
+      return instance;
+    }
+    return toJsonNode(instance);
+  }
+
+  /**
+   * Method to convert a node of either tree representation into a Jackson node, as it is written
+   * into a patch.
+   *
+   * @param node node of a Jackson or json-simple tree
+   * @return JsonNode
+   */
+  private static JsonNode toValue(Object node) {
+    if (node == null) {
+      return factory.nullNode();
+    } else if (node instanceof JsonNode) {
+      return (JsonNode) node;
+    }
+    return mapper.valueToTree(node);
+  }
+
+  /**
+   * Method to compare two nodes by value. Numbers are compared by their value rather than their
+   * type, since json-simple holds integers as Longs while values set by callers may be Integers.
+   */
+  private static boolean valuesEqual(Object source, Object target) {
+    return toValue(source).equals(NUMERIC_VALUE, toValue(target));
+  }
+
+  private static boolean isObject(Object node) {
+    return (node instanceof Map) || (node instanceof JsonNode && ((JsonNode) node).isObject());
+  }
+
+  private static boolean isArray(Object node) {
+    return (node instanceof List) || (node instanceof JsonNode && ((JsonNode) node).isArray());
+  }
+
+  private static Iterator<String> fieldNames(Object node) {
+    if (node instanceof JsonNode) {
+      return ((JsonNode) node).fieldNames();
+    }
+    Iterator<?> keys = ((Map<?, ?>) node).keySet().iterator();
+    return new Iterator<String>() {
+      @Override
+      public boolean hasNext() {
+        return keys.hasNext();
+      }
+
+      @Override
+      public String next() {
+        return String.valueOf(keys.next());
+      }
+    };
+  }
+
+  private static boolean has(Object node, String field) {
+    return (node instanceof JsonNode) ? ((JsonNode) node).has(field)
+        : ((Map<?, ?>) node).containsKey(field);
+  }
+
+  /**
+   * Method to read a field of an object node. A null value of a json-simple object is returned as
+   * null, like a missing field, so {@link #has} tells the two apart.
+   */
+  private static Object get(Object node, String field) {
+    return (node instanceof JsonNode) ? ((JsonNode) node).get(field)
+        : ((Map<?, ?>) node).get(field);
+  }
+
+  private static int size(Object node) {
+    return (node instanceof JsonNode) ? ((JsonNode) node).size() : ((List<?>) node).size();
+  }
+
+  private static Object get(Object node, int index) {
+    return (node instanceof JsonNode) ? ((JsonNode) node).get(index) : ((List<?>) node).get(index);
+  }
+
+  /**
+   * Method to escape a key for use as a JSON pointer segment.
+   *
+   * @param key name of the node
+   * @return String
+   */
+  private static String escape(String key) {
+    if (key.indexOf('~') == -1 && key.indexOf('/') == -1) {
+      return key;
+    }
+    return key.replace("~", "~0").replace("/", "~1");
+  }
+
+  private static void addOperation(ArrayNode patch, String op, String path, Object value) {
+    ObjectNode operation = patch.addObject();
+    operation.put("op", op);
+    operation.put("path", path);
+    if (!OP_REMOVE.equals(op)) {
+      operation.set("value", toValue(value));
+    }
+  }
+
+  private static void diffNodes(String path, Object source, Object target, ArrayNode patch) {
+    if (source == target) {
+      // identical shared subtree
+      return;
+    }
+    if (isObject(source) && isObject(target)) {
+      diffObjects(path, source, target, patch);
+    } else if (isArray(source) && isArray(target)) {
+      diffArrays(path, source, target, patch);
+    } else if (!valuesEqual(source, target)) {
+      // value nodes, or a change of node type
+      addOperation(patch, OP_REPLACE, path, target);
+    }
+  }
+
+  private static void diffObjects(String path, Object source, Object target, ArrayNode patch) {
+    Iterator<String> sourceFields = fieldNames(source);
+    while (sourceFields.hasNext()) {
+      String field = sourceFields.next();
+      String fieldPath = path + "/" + escape(field);
+      if (!has(target, field)) {
+        addOperation(patch, OP_REMOVE, fieldPath, null);
+      } else {
+        diffNodes(fieldPath, get(source, field), get(target, field), patch);
+      }
+    }
+
+    Iterator<String> targetFields = fieldNames(target);
+    while (targetFields.hasNext()) {
+      String field = targetFields.next();
+      if (!has(source, field)) {
+        addOperation(patch, OP_ADD, path + "/" + escape(field), get(target, field));
+      }
+    }
+  }
+
+  private static void diffArrays(String path, Object source, Object target, ArrayNode patch) {
+    int sourceSize = size(source);
+    int targetSize = size(target);
+    int common = Math.min(sourceSize, targetSize);
+
+    for (int i = 0; i < common; i++) {
+      diffNodes(path + "/" + i, get(source, i), get(target, i), patch);
+    }
+    // remove from the end so earlier indices remain valid
+    for (int i = sourceSize - 1; i >= common; i--) {
+      addOperation(patch, OP_REMOVE, path + "/" + i, null);
+    }
+    for (int i = common; i < targetSize; i++) {
+      addOperation(patch, OP_ADD, path + "/" + i, get(target, i));
+    }
+  }
+
+  private static ObjectNode mergeObjects(Object source, Object target) {
+    ObjectNode patch = factory.objectNode();
+    if (source == target) {
+      return patch;
+    }
+
+    Iterator<String> sourceFields = fieldNames(source);
+    while (sourceFields.hasNext()) {
+      String field = sourceFields.next();
+      Object sourceValue = get(source, field);
+      Object targetValue = get(target, field);
+      if (!has(target, field)) {
+        patch.putNull(field);
+      } else if (sourceValue == targetValue) {
+        continue;
+      } else if (isObject(sourceValue) && isObject(targetValue)) {
+        ObjectNode child = mergeObjects(sourceValue, targetValue);
+        if (child.size() > 0) {
+          patch.set(field, child);
+        }
+      } else if (!valuesEqual(sourceValue, targetValue)) {
+        patch.set(field, toValue(targetValue));
+      }
+    }
+
+    Iterator<String> targetFields = fieldNames(target);
+    while (targetFields.hasNext()) {
+      String field = targetFields.next();
+      if (!has(source, field)) {
+        patch.set(field, toValue(get(target, field)));
+      }
+    }
+    return patch;
+  }
+}
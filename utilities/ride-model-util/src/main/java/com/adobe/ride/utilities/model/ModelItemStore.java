@@ -0,0 +1,351 @@
+/*-
+Copyright 2018 Adobe. All rights reserved.
+This file is licensed to you under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License. You may obtain a copy
+of the License at http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software distributed under
+the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+OF ANY KIND, either express or implied. See the License for the specific language
+governing permissions and limitations under the License.
+*/
+
+package com.adobe.ride.utilities.model;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.NoSuchElementException;
+import java.util.function.IntFunction;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.IntStream;
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+
+/**
+ * Class which holds the items of an instance of an array model. Items are kept as Jackson nodes in
+ * fixed size chunks, so large arrays can be generated in parallel, read and written by index
+ * without copying, and serialized incrementally to a stream (i.e. as a request body).
+ *
+ * @author tedcasey
+ *
+ */
+public class ModelItemStore implements Iterable<JsonNode> {
+
+  protected static final Logger logger = Logger.getLogger(ModelItemStore.class.getName());
+  protected static final ObjectMapper mapper = new ObjectMapper();
+  private static final JsonNodeFactory factory = JsonNodeFactory.instance;
+
+  public static final int DEFAULT_CHUNK_SIZE = 1024;
+
+  private final int chunkSize;
+  private final List<ArrayNode> chunks = new ArrayList<ArrayNode>();
+  private int size = 0;
+
+  /**
+   * Constructor for an empty store using the default chunk size.
+   */
+  public ModelItemStore() {
+    this(DEFAULT_CHUNK_SIZE);
+  }
+
+  /**
+   * Constructor for an empty store.
+   *
+   * @param chunkSize number of items held in each chunk
+   */
+  public ModelItemStore(int chunkSize) {
+    if (chunkSize < 1) {
+      throw new IllegalArgumentException("chunkSize must be greater than 0");
+    }
+    this.chunkSize = chunkSize;
+  }
+
+  /**
+   * Generates a store of the given number of items. Chunks are generated in parallel, so the
+   * generator must not depend on the order in which it is called.
+   *
+   * @param count number of items to generate
+   * @param chunkSize number of items held in each chunk
+   * @param generator function which returns the item for a given index
+   * @return ModelItemStore
+   */
+  public static ModelItemStore generate(int count, int chunkSize, IntFunction<Object> generator) {
+    ModelItemStore store = new ModelItemStore(chunkSize);
+    int chunkCount = (count + chunkSize - 1) / chunkSize;
+    ArrayNode[] generated = new ArrayNode[chunkCount];
+    IntStream.range(0, chunkCount).parallel().forEach(c -> {
+      int start = c * chunkSize;
+      int end = Math.min(count, start + chunkSize);
+      ArrayNode chunk = factory.arrayNode();
+      for (int i = start; i < end; i++) {
+        chunk.add(toNode(generator.apply(i)));
+      }
+      generated[c] = chunk;
+    });
+    store.chunks.addAll(Arrays.asList(generated));
+    store.size = count;
+    return store;
+  }
+
+  /**
+   * Creates a store holding the items of a json-simple array.
+   *
+   * @param items JSONArray
+   * @return ModelItemStore
+   */
+  public static ModelItemStore fromJSONArray(JSONArray items) {
+    ModelItemStore store = new ModelItemStore();
+    for (Object item : items) {
+      store.add(item);
+    }
+    return store;
+  }
+
+  /**
+   *
+   * @return int number of items in the store
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Returns the item at the given index. The node returned is the stored node, not a copy.
+   *
+   * @param index position of the item
+   * @return JsonNode
+   */
+  public JsonNode get(int index) {
+    checkIndex(index);
+    return chunks.get(index / chunkSize).get(index % chunkSize);
+  }
+
+  /**
+   * Replaces the item at the given index.
+   *
+   * @param index position of the item
+   * @param item JsonNode, json-simple object or value to be stored
+   */
+  public void set(int index, Object item) {
+    checkIndex(index);
+    chunks.get(index / chunkSize).set(index % chunkSize, toNode(item));
+  }
+
+  /**
+   * Appends an item to the end of the store.
+   *
+   * @param item JsonNode, json-simple object or value to be stored
+   */
+  public void add(Object item) {
+    if (size % chunkSize == 0) {
+      chunks.add(factory.arrayNode());
+    }
+    chunks.get(chunks.size() - 1).add(toNode(item));
+    size++;
+  }
+
+  @Override
+  public Iterator<JsonNode> iterator() {
+    return new Iterator<JsonNode>() {
+      private int index = 0;
+
+      @Override
+      public boolean hasNext() {
+        return index < size;
+      }
+
+      @Override
+      public JsonNode next() {
+        if (!hasNext()) {
+          throw new NoSuchElementException();
+        }
+        return get(index++);
+      }
+    };
+  }
+
+  /**
+   * Writes the items to a stream as a json array, one item at a time. The stream is not closed.
+   *
+   * @param out stream to which the array is written
+   * @throws IOException if the stream cannot be written
+   */
+  public void writeTo(OutputStream out) throws IOException {
+    JsonGenerator generator = mapper.getFactory().createGenerator(out);
+    generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+    generator.writeStartArray();
+    for (ArrayNode chunk : chunks) {
+      for (JsonNode item : chunk) {
+        generator.writeTree(item);
+      }
+    }
+    generator.writeEndArray();
+    generator.flush();
+  }
+
+  /**
+   * Returns a stream of the items serialized as a json array. Chunks are serialized only as the
+   * stream is read, so the whole array is never held in memory as text. This stream can be passed
+   * directly as a request body.
+   *
+   * @return InputStream
+   */
+  public InputStream asInputStream() {
+    return new ItemInputStream();
+  }
+
+  /**
+   * Converts the items to a json-simple array. Nodes are converted directly, without serializing
+   * and parsing them.
+   *
+   * @return JSONArray
+   */
+  @SuppressWarnings("unchecked")
+  public JSONArray toJSONArray() {
+    JSONArray items = new JSONArray();
+    for (ArrayNode chunk : chunks) {
+      for (JsonNode item : chunk) {
+        items.add(toJsonSimple(item));
+      }
+    }
+    return items;
+  }
+
+  @Override
+  public String toString() {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try {
+      writeTo(out);
+    } catch (IOException e) {
+      logger.log(Level.SEVERE, e.getMessage());
+    }
+    return new String(out.toByteArray(), StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Method to convert a Jackson node into the equivalent json-simple representation, matching the
+   * types json-simple produces when parsing (integers are returned as Long).
+   *
+   * @param node JsonNode to be converted
+   * @return Object JSONObject, JSONArray, String, Long, Double, Boolean or null
+   */
+  @SuppressWarnings("unchecked")
+  public static Object toJsonSimple(JsonNode node) {
+    if (node == null || node.isNull() || node.isMissingNode()) {
+      return null;
+    } else if (node.isObject()) {
+      JSONObject object = new JSONObject();
+      Iterator<Entry<String, JsonNode>> fields = node.fields();
+      while (fields.hasNext()) {
+        Entry<String, JsonNode> field = fields.next();
+        object.put(field.getKey(), toJsonSimple(field.getValue()));
+      }
+      return object;
+    } else if (node.isArray()) {
+      JSONArray array = new JSONArray();
+      for (JsonNode item : node) {
+        array.add(toJsonSimple(item));
+      }
+      return array;
+    } else if (node.isBoolean()) {
+      return node.booleanValue();
+    } else if (node.isIntegralNumber() && node.canConvertToLong()) {
+      return node.longValue();
+    } else if (node.isNumber()) {
+      return node.doubleValue();
+    }
+    return node.asText();
+  }
+
+  private static JsonNode toNode(Object item) {
+    if (item instanceof JsonNode) {
+      return (JsonNode) item;
+    }
+    return mapper.valueToTree(item);
+  }
+
+  private void checkIndex(int index) {
+    if (index < 0 || index >= size) {
+      throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+    }
+  }
+
+  /**
+   * Stream which serializes one chunk at a time as it is read.
+   */
+  private class ItemInputStream extends InputStream {
+    private int chunkIndex = 0;
+    private boolean finished = false;
+    private byte[] buffer = "[".getBytes(StandardCharsets.UTF_8);
+    private int position = 0;
+
+    @Override
+    public int read() throws IOException {
+      while (position >= buffer.length) {
+        if (!fill()) {
+          return -1;
+        }
+      }
+      return buffer[position++] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      if (len == 0) {
+        return 0;
+      }
+      while (position >= buffer.length) {
+        if (!fill()) {
+          return -1;
+        }
+      }
+      int count = Math.min(len, buffer.length - position);
+      System.arraycopy(buffer, position, b, off, count);
+      position += count;
+      return count;
+    }
+
+    @Override
+    public int available() {
+      return buffer.length - position;
+    }
+
+    private boolean fill() throws IOException {
+      if (finished) {
+        return false;
+      }
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      if (chunkIndex < chunks.size()) {
+        boolean first = (chunkIndex == 0);
+        for (JsonNode item : chunks.get(chunkIndex)) {
+          if (!first) {
+            out.write(',');
+          }
+          out.write(mapper.writeValueAsBytes(item));
+          first = false;
+        }
+        chunkIndex++;
+      } else {
+        out.write(']');
+        finished = true;
+      }
+      buffer = out.toByteArray();
+      position = 0;
+      return true;
+    }
+  }
+}
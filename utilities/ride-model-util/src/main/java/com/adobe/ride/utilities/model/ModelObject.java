@@ -17,7 +17,12 @@ import java.net.URI;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Random;
 import java.util.Set;
@@ -41,6 +46,7 @@ import com.adobe.ride.utilities.model.exceptions.SchemaTypeException;
 import com.adobe.ride.utilities.model.exceptions.UnexpectedModelDefinitionException;
 import com.adobe.ride.utilities.model.exceptions.UnexpectedModelPropertyTypeException;
 import com.adobe.ride.utilities.model.types.ModelPropertyType;
+import com.fasterxml.jackson.core.JsonPointer;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -63,6 +69,8 @@ public class ModelObject {
 
   protected static final Logger logger = Logger.getLogger(ModelObject.class.getName());
   protected final static JSONParser parser = new JSONParser();
+  private static final ThreadLocal<JSONParser> threadParser =
+      ThreadLocal.withInitial(JSONParser::new);
   protected final Random randomGen = new Random();
   protected static final ObjectMapper mapper = new ObjectMapper();
   private JsonNode modelPropertiesNodes = null;
@@ -82,8 +90,11 @@ public class ModelObject {
   protected String resourceLocation;
   protected JSONObject objectMetadata = new JSONObject();
   protected JSONArray objectItems;
+  protected ModelItemStore itemStore;
   protected JSONObject presetNodes;
   protected Set<String> nodesToBuild;
+  protected boolean lazy = false;
+  private final Map<String, JSONObject> pendingNodes = new LinkedHashMap<String, JSONObject>();
   protected Object metadata;
 
 
@@ -99,7 +110,7 @@ public class ModelObject {
   protected void loadModelString(String modelString) {
     try {
       // turn model contents into usable JSONObjects
-      model = (JSONObject) parser.parse(modelString);
+      model = (JSONObject) parseJson(modelString);
       modelType = ModelPropertyType.eval(model.get("type").toString());
 
       if (modelType == ModelPropertyType.OBJECT) {
@@ -673,11 +684,21 @@ public class ModelObject {
    * @return Object JSON Object of model type
    */
   public Object buildValidModelInstance() {
+    long start = System.nanoTime();
+    try {
+      return buildInstance();
+    } finally {
+      GenerationStats.recordInstance(System.nanoTime() - start);
+    }
+  }
+
+  private Object buildInstance() {
     Object returnObject = null;
     if (modelType == ModelPropertyType.OBJECT) {
       if (presetNodes != null && objectMetadata.isEmpty()) {
         objectMetadata = presetNodes;
       }
+      pendingNodes.clear();
 
       if (nodesToBuild != null) {
         return buildTargetedNodes();
@@ -686,15 +707,8 @@ public class ModelObject {
         returnObject = buildModelInstance(modelSet);
       }
     } else if (modelType == ModelPropertyType.ARRAY) {
-      try {
-        ArrayNode generatedItems = buildArrayNode(model);
-        String itemsString = generatedItems.toString();
-        objectItems = (JSONArray) (parser.parse(itemsString));
-        returnObject = objectItems;
-      } catch (ParseException e) {
-        logger.log(Level.SEVERE, e.getMessage());
-      }
-      return objectItems;
+      buildValidItemStore();
+      return getObjectItems();
     } else {
       // Handling Primitive type schemas
       returnObject = generateNodeValue(model);
@@ -721,11 +735,139 @@ public class ModelObject {
 
   private Object buildTargetedNodes() {
     for (String str : nodesToBuild) {
-      buildNodeValueAtPath(str);
+      if (lazy) {
+        pendingNodes.put(str.replaceAll("/$", ""), null);
+      } else {
+        buildNodeValueAtPath(str);
+      }
     }
+    setMetadata();
     return objectMetadata;
   }
 
+  /**
+   * Sets whether instances are built lazily. In lazy mode, building an instance only records which
+   * nodes are to be generated; each node is generated the first time it (or a node beneath it) is
+   * read or written through this class, or when the whole instance is retrieved or serialized. Once
+   * generated, a node is kept, so the cost of a build is proportional to the nodes actually used.
+   * 
+   * @param lazy boolean
+   */
+  public void setLazy(boolean lazy) {
+    this.lazy = lazy;
+    if (!lazy) {
+      materializeNodes("");
+    }
+  }
+
+  /**
+   * 
+   * @return boolean indicator of whether instances are built lazily
+   */
+  public boolean isLazy() {
+    return lazy;
+  }
+
+  /**
+   * Returns the paths of the nodes of a lazily built instance which have not been generated yet.
+   * 
+   * @return Set of fully qualified node paths
+   */
+  public Set<String> getPendingNodes() {
+    return Collections.unmodifiableSet(pendingNodes.keySet());
+  }
+
+  /**
+   * Method to generate any pending nodes which lie on, above or beneath the given path. An empty
+   * path generates all pending nodes.
+   * 
+   * @param path fully qualified path to a node (i.e. /authorInfo/name)
+   */
+  private void materializeNodes(String path) {
+    if (pendingNodes.isEmpty()) {
+      return;
+    }
+    String target = (path == null) ? "" : path.replaceAll("/$", "");
+    List<String> matches = new ArrayList<String>();
+    for (String pending : pendingNodes.keySet()) {
+      if (target.isEmpty() || pending.equals(target) || target.startsWith(pending + "/")
+          || pending.startsWith(target + "/")) {
+        matches.add(pending);
+      }
+    }
+    for (String pending : matches) {
+      // remove before generating so nested reads of the same node do not recurse
+      JSONObject propertyDef = pendingNodes.remove(pending);
+      try {
+        if (propertyDef != null) {
+          generateNodeValue("/", pending.substring(1), propertyDef);
+        } else {
+          buildNodeValueAtPath(pending);
+        }
+      } catch (ModelSearchException e) {
+        logger.log(Level.SEVERE, e.getMessage());
+      }
+    }
+  }
+
+  /**
+   * Builds the items of an instance of an array model into a chunked item store. Items are
+   * generated in parallel and are not converted to json-simple objects unless
+   * {@link #getObjectItems()} is called, so this is the preferred way to build large arrays.
+   * 
+   * @return ModelItemStore items of the instance
+   */
+  public ModelItemStore buildValidItemStore() {
+    if (modelType != ModelPropertyType.ARRAY) {
+      Exception exception = new SchemaTypeException(ModelPropertyType.ARRAY);
+      logger.log(Level.SEVERE, "An exception was thrown", exception);
+      return null;
+    }
+    JSONObject itemProps = (JSONObject) model.get("items");
+    // items are generated on several threads, so a seeded build derives a seed for each item
+    Long seed = DataGenerator.getSeed();
+    long clockMillis = DataGenerator.getClock().millis();
+    itemStore = ModelItemStore.generate(getArrayLength(model), ModelItemStore.DEFAULT_CHUNK_SIZE,
+        index -> {
+          if (seed == null) {
+            return generateItem(itemProps);
+          }
+          // items may be generated on shared pool threads, which must not be left seeded
+          DataGenerator.SeedState previous = DataGenerator.getSeedState();
+          DataGenerator.setSeed(seed * 31 + index, clockMillis);
+          try {
+            return generateItem(itemProps);
+          } finally {
+            DataGenerator.restoreSeedState(previous);
+          }
+        });
+    objectItems = null;
+    return itemStore;
+  }
+
+  private Object generateItem(JSONObject itemProps) {
+    try {
+      return generateNodeValue(null, null, itemProps);
+    } catch (ModelSearchException e) {
+      logger.log(Level.SEVERE, e.getMessage());
+      return null;
+    }
+  }
+
+  /**
+   * Returns the item store of an instance of an array model. If the items are currently held as a
+   * json-simple array, they are moved into a new store and the array is released.
+   * 
+   * @return ModelItemStore
+   */
+  public ModelItemStore getItemStore() {
+    if (itemStore == null && objectItems != null) {
+      itemStore = ModelItemStore.fromJSONArray(objectItems);
+      objectItems = null;
+    }
+    return itemStore;
+  }
+
   /**
    * Builds a NEW json Object instance which conforms to the specifications of the model and other
    * settings of this class such as useRequiredOnly. This can be used when you don't want to parse
@@ -742,6 +884,42 @@ public class ModelObject {
     return buildValidModelInstance();
   }
 
+  /**
+   * Builds a NEW instance in which every generated value is derived from the given seed and clock.
+   * Building again with the same seed and clock, from the same model and settings, produces an
+   * identical instance, so a payload can be reproduced from its seed instead of being stored.
+   * 
+   * @param seed seed from which all values of the instance are generated
+   * @param clockMillis epoch milliseconds to be used as the current time for dates and timestamps
+   * @return Object JSON Object of model type
+   */
+  public Object buildSeededModelInstance(long seed, long clockMillis) {
+    DataGenerator.setSeed(seed, clockMillis);
+    try {
+      buildNewModelInstance();
+      // lazy nodes must be generated while the seed is in effect
+      return getMetadata();
+    } finally {
+      DataGenerator.clearSeed();
+    }
+  }
+
+  /**
+   * Returns an identifier for the schema of this model, used to find the schema again when an
+   * instance is regenerated. This is the resource location of the schema, or a hash of the schema
+   * if it was loaded from a string.
+   * 
+   * @return String
+   */
+  public String getSchemaId() {
+    if (resourceLocation != null) {
+      return resourceLocation;
+    }
+    String schema = (modelString == null) ? "" : modelString;
+    return "md5:"
+        + DataGenerator.getEncodedHashFromByteArray(schema.getBytes(StandardCharsets.UTF_8));
+  }
+
   /**
    * Generate x number of valid instances of the defined object.
    * 
@@ -759,7 +937,9 @@ public class ModelObject {
 
     JSONArray returnArray = new JSONArray();
     for (int i = 0; i < numberOfInstances; i++) {
-      returnArray.add((JSONObject) buildNewModelInstance());
+      buildNewModelInstance();
+      // the returned instances are detached from this class, so lazy nodes are generated up front
+      returnArray.add(getObjectMetadata());
     }
     return returnArray;
 
@@ -805,6 +985,10 @@ public class ModelObject {
       String key = e.getKey();
       if (!key.equals("$schema")) {
         JSONObject obj = e.getValue();
+        if (lazy) {
+          pendingNodes.put("/" + key, obj);
+          continue;
+        }
         // generated node value and add to root.
         try {
           generateNodeValue("/", key, obj);
@@ -1006,17 +1190,9 @@ public class ModelObject {
 
   @SuppressWarnings("unchecked")
   private ArrayNode buildArrayNode(JSONObject propertyDef) {
-    // TODO: Improve handling for min and max values
     ArrayList<Object> buildArray = new JSONArray();
     JSONObject itemProps = (JSONObject) propertyDef.get("items");
-    int arrayLength;
-    if (propertyDef.containsKey("maxItems")
-        && (Integer.parseInt(propertyDef.get("maxItems").toString()) > 0)) {
-      int max = Integer.parseInt(propertyDef.get("maxItems").toString());
-      arrayLength = max;
-    } else {
-      arrayLength = 3;
-    }
+    int arrayLength = getArrayLength(propertyDef);
 
     for (int i = 0; i < arrayLength; i++) {
       Object item = null;
@@ -1031,6 +1207,33 @@ public class ModelObject {
     return mapper.valueToTree(buildArray);
   }
 
+  /**
+   * Method to determine the number of items to generate for an array definition.
+   * 
+   * @param propertyDef JSON definition of the array
+   * @return int
+   */
+  private int getArrayLength(JSONObject propertyDef) {
+    // TODO: Improve handling for min and max values
+    if (propertyDef.containsKey("maxItems")
+        && (Integer.parseInt(propertyDef.get("maxItems").toString()) > 0)) {
+      return Integer.parseInt(propertyDef.get("maxItems").toString());
+    }
+    return 3;
+  }
+
+  /**
+   * Method to parse a json string with a parser owned by the calling thread, as json-simple parsers
+   * are not thread safe and items may be generated in parallel.
+   * 
+   * @param json String to be parsed
+   * @return Object
+   * @throws ParseException thrown if the string is not valid json
+   */
+  protected static Object parseJson(String json) throws ParseException {
+    return threadParser.get().parse(json);
+  }
+
   /**
    * Method to create an object of type "sync" which relies on the values of other nodes within the
    * instance.
@@ -1181,7 +1384,7 @@ public class ModelObject {
     }
 
     try {
-      objectMetadata = (JSONObject) parser.parse(objectJsonNodeData.toString());
+      objectMetadata = (JSONObject) parseJson(objectJsonNodeData.toString());
     } catch (ParseException e1) {
       e1.printStackTrace();
     }
@@ -1194,7 +1397,7 @@ public class ModelObject {
       if (parentSearchString != "/") {
         try {
           String stringRepOfMappedNode = mapper.writeValueAsString(nodeModelDef);
-          nodeDef = ((JSONObject) parser.parse(stringRepOfMappedNode));
+          nodeDef = ((JSONObject) parseJson(stringRepOfMappedNode));
         } catch (JsonProcessingException e) {
           logger.log(Level.SEVERE, e.getMessage());
         } catch (ParseException e) {
@@ -1258,7 +1461,7 @@ public class ModelObject {
           JsonNode nodeModelDef = modelDef.at("/properties").get(nodeName);
           try {
             String stringRepOfMappedNode = mapper.writeValueAsString(nodeModelDef);
-            nodeDef = ((JSONObject) parser.parse(stringRepOfMappedNode));
+            nodeDef = ((JSONObject) parseJson(stringRepOfMappedNode));
           } catch (JsonProcessingException e) {
             logger.log(Level.SEVERE, e.getMessage());
           } catch (ParseException e) {
@@ -1298,7 +1501,7 @@ public class ModelObject {
     try {
       switch (type) {
         case ARRAY:
-          return parser.parse(value);
+          return parseJson(value);
         case BOOLEAN:
           return Boolean.parseBoolean(value);
         case DATETIME:
@@ -1310,7 +1513,7 @@ public class ModelObject {
         case NUMBER:
           return Float.parseFloat(value);
         case OBJECT:
-          return parser.parse(value);
+          return parseJson(value);
         case STRING:
           return value;
         case URI:
@@ -1363,10 +1566,13 @@ public class ModelObject {
     String nodePath = "";
     Object returnValue = null;
     JsonNode dataTree = null;
-    try {
-      dataTree = mapper.readTree(objectMetadata.toJSONString());
-    } catch (IOException e) {
-      logger.log(Level.SEVERE, e.getMessage());
+    if (parentPath != null) {
+      // values generated for the root are only returned, so the instance need not be read
+      try {
+        dataTree = mapper.readTree(objectMetadata.toJSONString());
+      } catch (IOException e) {
+        logger.log(Level.SEVERE, e.getMessage());
+      }
     }
 
     if (parentPath == null) {
@@ -1389,13 +1595,13 @@ public class ModelObject {
     }
 
     Object exisitingValue = null;
+    JsonNode existingParentValue = null;
     if (parentPath != null) {// if we're just generating a value and returning it, we don't check
                              // if the node exists
       exisitingValue = dataTree.at(nodePath);
+      existingParentValue = dataTree.at(parentPath);
     }
 
-    JsonNode existingParentValue = dataTree.at(parentPath);
-
     if (exisitingValue != null && !dataTree.at(nodePath).isMissingNode()
         && type != ModelPropertyType.OBJECT && type != ModelPropertyType.REF_DEFINITION
         && type != ModelPropertyType.REF_SCHEMA) {
@@ -1499,12 +1705,13 @@ public class ModelObject {
             relativeSchema = getRelativeResourceLocation(resourceLocation, objectString);
             newObj = new ModelObject(relativeSchema);
           }
-          returnValue = newObj.buildValidModelInstance();
+          // counted as part of the instance which references it
+          returnValue = newObj.buildInstance();
           break;
         case ENUM:
           JSONArray enums = new JSONArray();
           try {
-            enums = (JSONArray) parser.parse(propertyDef.get("enum").toString());
+            enums = (JSONArray) parseJson(propertyDef.get("enum").toString());
           } catch (ParseException e) {
             logger.log(Level.SEVERE, "A Parse exception was thrown", e);
           }
@@ -1573,7 +1780,7 @@ public class ModelObject {
       }
 
       if (parentPath != null) {// not dealing with root so don't add value
-        setMetadataValue(parentPath, key, returnValue);
+        putMetadataValue(parentPath, key, returnValue);
       }
 
       return returnValue;
@@ -1618,9 +1825,10 @@ public class ModelObject {
     try {
       String treeString = mapper.writeValueAsString(dataTree);
       if (modelType.equals(ModelPropertyType.OBJECT)) {
-        objectMetadata = (JSONObject) parser.parse(treeString);
+        objectMetadata = (JSONObject) parseJson(treeString);
       } else {
-        objectItems = (JSONArray) parser.parse(treeString);
+        objectItems = (JSONArray) parseJson(treeString);
+        itemStore = null;
       }
     } catch (ParseException | JsonProcessingException e) {
       logger.log(Level.SEVERE, e.getMessage());
@@ -1632,7 +1840,8 @@ public class ModelObject {
    * @return Object internally stored generated instance
    */
   public Object getMetadata() {
-    return (modelType.equals(ModelPropertyType.OBJECT)) ? objectMetadata : objectItems;
+    materializeNodes("");
+    return (modelType.equals(ModelPropertyType.OBJECT)) ? objectMetadata : getObjectItems();
   }
 
   /**
@@ -1640,8 +1849,21 @@ public class ModelObject {
    * @return String representation of the internally stored generated instance
    */
   public String getMetadataString() {
-    return (modelType.equals(ModelPropertyType.OBJECT)) ? objectMetadata.toJSONString()
-        : objectItems.toJSONString();
+    materializeNodes("");
+    return readMetadataString();
+  }
+
+  /**
+   * Method to serialize the internally stored generated instance without generating pending
+   * nodes.
+   * 
+   * @return String
+   */
+  private String readMetadataString() {
+    if (modelType.equals(ModelPropertyType.OBJECT)) {
+      return objectMetadata.toJSONString();
+    }
+    return (itemStore != null) ? itemStore.toString() : objectItems.toJSONString();
   }
 
   /**
@@ -1655,13 +1877,14 @@ public class ModelObject {
     if (path == null || path == null + "/" + null) {
       exisitingValue = null;
     } else {
+      materializeNodes(path.replaceAll("/$", "") + "/" + key);
       try {
         String jsonstring = "";
 
         if (getModelType() == ModelPropertyType.OBJECT) {
           jsonstring = objectMetadata.toJSONString();
         } else if (getModelType() == ModelPropertyType.ARRAY) {
-          jsonstring = objectItems.toJSONString();
+          jsonstring = readMetadataString();
         }
 
         // look up value (strip trailing slash from parent path)
@@ -1687,41 +1910,216 @@ public class ModelObject {
    * @param value Object value to be assigned
    */
   public void setMetadataValue(String metadataPath, String key, Object value) {
-    JsonNode tree = null;
+    materializeNodes(metadataPath.replaceAll("/$", "") + "/" + key);
+    putMetadataValue(metadataPath, key, value);
+  }
 
-    try {
+  /**
+   * Method to cast and post value to json node path without generating pending nodes.
+   * 
+   * @param metadataPath String Fully qualified path to parent node of the target
+   * @param key String target node key
+   * @param value Object value to be assigned
+   */
+  private void putMetadataValue(String metadataPath, String key, Object value) {
+    JsonNode tree = readMetadataTree();
+
+    String path = metadataPath.replaceAll("/$", "");
+
+    setNodeValue((ObjectNode) tree.at(path), key, value);
+    refreshMetadata(tree);
+  }
+
+  /**
+   * Method to cast and post several values to the internally stored generated instance. The
+   * instance is deserialized and synced only once, regardless of the number of values passed.
+   * Missing parent nodes along a path are created as empty objects.
+   * 
+   * @param values map of fully qualified paths to the target nodes (i.e. /authorInfo/name) and the
+   *        values to be assigned to them
+   */
+  public void setMetadataValues(Map<String, Object> values) {
+    MetadataEditor editor = editMetadata();
+    for (Entry<String, Object> e : values.entrySet()) {
+      editor.set(e.getKey(), e.getValue());
+    }
+    editor.apply();
+  }
+
+  /**
+   * Method to retrieve several values from the internally stored generated instance with a single
+   * deserialization of the instance.
+   * 
+   * @param paths fully qualified paths to the nodes to be retrieved (i.e. /authorInfo/name)
+   * @return Map of each path to its value, or null if no value exists at that path
+   */
+  public Map<String, Object> getMetadataValues(Collection<String> paths) {
+    Map<String, Object> values = new LinkedHashMap<String, Object>();
+    for (String path : paths) {
+      materializeNodes(path);
+    }
+    JsonNode tree = readMetadataTree();
+    for (String path : paths) {
+      JsonNode value = (tree == null) ? null : tree.at(path.replaceAll("/$", ""));
+      values.put(path, (value == null || value.isMissingNode()) ? null : value);
+    }
+    return values;
+  }
 
-      tree = mapper.readTree(getMetadataString());
+  /**
+   * Returns an editor which queues writes and removals against the internally stored generated
+   * instance and applies them all in one traversal when {@link MetadataEditor#apply()} is called.
+   * 
+   * @return MetadataEditor
+   */
+  public MetadataEditor editMetadata() {
+    return new MetadataEditor(this);
+  }
+
+  /**
+   * Method to apply a list of queued edits to the internally stored generated instance.
+   * 
+   * @param edits edits, in the order they are to be applied
+   */
+  void applyMetadataEdits(List<MetadataEditor.Edit> edits) {
+    if (edits.isEmpty()) {
+      return;
+    }
+    for (MetadataEditor.Edit edit : edits) {
+      materializeNodes(edit.path);
+    }
+    JsonNode tree = readMetadataTree();
+    for (MetadataEditor.Edit edit : edits) {
+      JsonPointer pointer = JsonPointer.compile(edit.path.replaceAll("/$", ""));
+      JsonNode parent = getOrCreateParentNode(tree, pointer, !edit.remove);
+      String key = pointer.last().getMatchingProperty();
+      if (edit.remove) {
+        if (parent instanceof ObjectNode) {
+          ((ObjectNode) parent).remove(key);
+        } else if (parent instanceof ArrayNode && isInt(key)
+            && Integer.parseInt(key) < parent.size()) {
+          ((ArrayNode) parent).remove(Integer.parseInt(key));
+        }
+      } else if (parent instanceof ArrayNode && isInt(key)) {
+        // cast the value through a holder so array members follow the same rules as object keys
+        ObjectNode holder = mapper.createObjectNode();
+        setNodeValue(holder, key, edit.value);
+        int index = Integer.parseInt(key);
+        if (index < parent.size()) {
+          ((ArrayNode) parent).set(index, holder.get(key));
+        } else {
+          ((ArrayNode) parent).add(holder.get(key));
+        }
+      } else if (parent instanceof ObjectNode) {
+        setNodeValue((ObjectNode) parent, key, edit.value);
+      } else {
+        logger.log(Level.SEVERE, "Unable to set a value at path: " + edit.path);
+      }
+    }
+    refreshMetadata(tree);
+  }
+
+  /**
+   * Method to walk to the parent of the node at the given pointer, optionally creating missing
+   * object nodes along the way.
+   * 
+   * @param tree root of the instance
+   * @param pointer pointer to the target node
+   * @param create whether missing parent nodes should be created
+   * @return JsonNode parent of the target node, or null if it could not be found
+   */
+  private JsonNode getOrCreateParentNode(JsonNode tree, JsonPointer pointer, boolean create) {
+    JsonNode current = tree;
+    JsonPointer segment = pointer;
+    while (current != null && segment.tail() != null && !segment.tail().matches()) {
+      String name = segment.getMatchingProperty();
+      JsonNode next = (current.isArray() && segment.mayMatchElement())
+          ? current.get(segment.getMatchingIndex())
+          : current.get(name);
+      if ((next == null || next.isNull()) && create && current instanceof ObjectNode) {
+        next = ((ObjectNode) current).putObject(name);
+      }
+      current = next;
+      segment = segment.tail();
+    }
+    return current;
+  }
+
+  /**
+   * Method to read the internally stored generated instance into a Jackson tree.
+   * 
+   * @return JsonNode
+   */
+  private JsonNode readMetadataTree() {
+    JsonNode tree = null;
+    try {
+      tree = mapper.readTree(readMetadataString());
     } catch (IOException e) {
       logger.log(Level.SEVERE, e.getMessage());
     }
+    return tree;
+  }
 
-    String path = metadataPath.replaceAll("/$", "");
+  /**
+   * Method to cast a value and assign it to a key of an object node.
+   * 
+   * @param parent node to which the value is to be assigned
+   * @param key String target node key
+   * @param value Object value to be assigned
+   */
+  private void setNodeValue(ObjectNode parent, String key, Object value) {
+    if (value == null || value == "null") {
+      parent.putNull(key);
+      return;
+    }
 
     String stringRep = castAsString(value);
     if (isBoolean(value)) {
-      ((ObjectNode) tree.at(path)).put(key, Boolean.parseBoolean(stringRep));
+      parent.put(key, Boolean.parseBoolean(stringRep));
     } else if (isInt(value)) {
-      ((ObjectNode) tree.at(path)).put(key, Long.parseLong(stringRep));
+      parent.put(key, Long.parseLong(stringRep));
     } else if (isNumber(value)) {
-      ((ObjectNode) tree.at(path)).put(key, Double.parseDouble(stringRep));
+      parent.put(key, Double.parseDouble(stringRep));
     } else if (isArrayNode(value)) {
-      ((ObjectNode) tree.at(path)).putArray(key).addAll((ArrayNode) value);
+      parent.putArray(key).addAll((ArrayNode) value);
+    } else if (value instanceof JsonNode) {
+      parent.set(key, (JsonNode) value);
     } else if (isObject(value)) {
       try {
         JsonNode node = mapper.readTree(stringRep);
-        ((ObjectNode) tree.at(path)).set(key, node);
+        parent.set(key, node);
       } catch (IOException e) {
         logger.log(Level.SEVERE, e.getMessage());
       }
-    } else if (value == null || value == "null") {
-      ((ObjectNode) tree.at(path)).putNull(key);
     } else {
-      ((ObjectNode) tree.at(path)).put(key, stringRep);
+      parent.put(key, stringRep);
     }
-    refreshMetadata(tree);
   }
   
+  /**
+   * Create an RFC 6902 JSON Patch document which transforms the instance of this object into the
+   * instance of the target object.
+   * 
+   * @param target object holding the updated instance
+   * @return ArrayNode list of patch operations
+   * @see ModelDiff
+   */
+  public ArrayNode createJsonPatch(ModelObject target) {
+    return ModelDiff.createJsonPatch(getMetadata(), target.getMetadata());
+  }
+
+  /**
+   * Create an RFC 7396 merge-patch document which transforms the instance of this object into the
+   * instance of the target object.
+   * 
+   * @param target object holding the updated instance
+   * @return JsonNode merge-patch document
+   * @see ModelDiff
+   */
+  public JsonNode createMergePatch(ModelObject target) {
+    return ModelDiff.createMergePatch(getMetadata(), target.getMetadata());
+  }
+
   /**
    * Rerturn a string representation based on the value object type
    * @param value
@@ -1762,6 +2160,7 @@ public class ModelObject {
    * @return JSONObject
    */
   public JSONObject getObjectMetadata() {
+    materializeNodes("");
     return objectMetadata;
   }
 
@@ -1771,15 +2170,21 @@ public class ModelObject {
    * @param data JSONObject
    */
   public void setObjectMetadata(JSONObject data) {
+    pendingNodes.clear();
     objectMetadata = data;
   }
 
   /**
-   * Returns items for a model of type Array
+   * Returns items for a model of type Array. If the items are currently held in an item store, they
+   * are converted once and the store is released.
    * 
    * @return JSONArray
    */
   public JSONArray getObjectItems() {
+    if (objectItems == null && itemStore != null) {
+      objectItems = itemStore.toJSONArray();
+      itemStore = null;
+    }
     return objectItems;
   }
 
@@ -1789,6 +2194,7 @@ public class ModelObject {
    * @param data JSONArray to be used for a ModelObject instance of type Array
    */
   public void setObjectItems(JSONArray data) {
+    itemStore = null;
     objectItems = data;
   }
 
@@ -1802,7 +2208,11 @@ public class ModelObject {
   @Deprecated
   public void setDataAtItemsIndex(int index, JSONObject data) {
     if (modelType == ModelPropertyType.ARRAY) {
-      objectItems.set(index, data);
+      if (itemStore != null) {
+        itemStore.set(index, data);
+      } else {
+        objectItems.set(index, data);
+      }
     } else {
       Exception exception = new SchemaTypeException(ModelPropertyType.ARRAY);
       logger.log(Level.SEVERE, "An exception was thrown", exception);
@@ -1810,7 +2220,9 @@ public class ModelObject {
   }
 
   /**
-   * Get data at specific index of objectItems on a ModelObject of type Array.
+   * Get data at specific index of objectItems on a ModelObject of type Array. When the items are
+   * held in an item store, a copy of the item is returned; use setDataAtItemsIndex to write changes
+   * back.
    * 
    * @param index position of the item
    * @return JSONObject
@@ -1818,6 +2230,9 @@ public class ModelObject {
   @Deprecated
   public JSONObject getDataAtItemsIndex(int index) {
     if (modelType == ModelPropertyType.ARRAY) {
+      if (itemStore != null) {
+        return (JSONObject) ModelItemStore.toJsonSimple(itemStore.get(index));
+      }
       return (JSONObject) objectItems.get(index);
     } else {
       Exception exception = new SchemaTypeException(ModelPropertyType.ARRAY);
@@ -1916,6 +2331,7 @@ public class ModelObject {
   @SuppressWarnings("unchecked")
   @Deprecated
   public void setObjectMetadataProperty(String property, Object value) {
+    materializeNodes("/" + property);
     if (objectMetadata.containsKey(property)) {
       objectMetadata.remove(property);
     }
@@ -1930,6 +2346,7 @@ public class ModelObject {
    */
   @Deprecated
   public Object getObjectMetadataProperty(String property) {
+    materializeNodes("/" + property);
     return objectMetadata.get(property);
   }
 
@@ -1941,6 +2358,7 @@ public class ModelObject {
    */
   @Deprecated
   public Object getObjectMetadataValueAt(String path) {
+    materializeNodes(path);
     JsonNode node = null;
     try {
       node = mapper.readTree(objectMetadata.toJSONString());
@@ -1960,6 +2378,13 @@ public class ModelObject {
    */
   @Deprecated
   public boolean removeObjectMetadataProperty(String property) {
+    Iterator<String> pending = pendingNodes.keySet().iterator();
+    while (pending.hasNext()) {
+      String path = pending.next();
+      if (path.equals("/" + property) || path.startsWith("/" + property + "/")) {
+        pending.remove();
+      }
+    }
     boolean existed = false;
     if (objectMetadata.containsKey(property)) {
       objectMetadata.remove(property);
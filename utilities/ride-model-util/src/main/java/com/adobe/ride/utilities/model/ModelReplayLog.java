@@ -0,0 +1,353 @@
+/*-
+Copyright 2018 Adobe. All rights reserved.
+This file is licensed to you under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License. You may obtain a copy
+of the License at http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software distributed under
+the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+OF ANY KIND, either express or implied. See the License for the specific language
+governing permissions and limitations under the License.
+*/
+
+package com.adobe.ride.utilities.model;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.locks.ReentrantLock;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.TextNode;
+
+/**
+ * Compact binary log from which generated instances can be reproduced exactly. For each instance
+ * only the schema id, seed, instance index, clock and any mutations applied afterwards are
+ * recorded; the payload itself is regenerated from the seed when needed.
+ *
+ * <pre>
+ * ModelReplayLog log = new ModelReplayLog(new FileOutputStream("run.replay"));
+ * ModelReplayLog.Entry entry = log.generate(model, i);
+ * entry.set("/title", fuzzValue).applyTo(model);
+ * log.write(entry);
+ * ...
+ * ModelObject reproduced = ModelReplayLog.read(new FileInputStream("run.replay")).get(i)
+ *     .regenerate();
+ * </pre>
+ *
+ * @author tedcasey
+ *
+ */
+public class ModelReplayLog implements Closeable, Flushable {
+
+  protected static final ObjectMapper mapper = new ObjectMapper();
+  private static final int MAGIC = 0x52494445;
+  private static final byte VERSION = 1;
+  private static final byte SCHEMA_RECORD = 1;
+  private static final byte INSTANCE_RECORD = 2;
+  private static final byte SET_OP = 0;
+  private static final byte REMOVE_OP = 1;
+
+  private final DataOutputStream out;
+  private final Map<String, Integer> schemaRefs = new HashMap<String, Integer>();
+  private final Random seeds = new Random();
+  private final ReentrantLock lock = new ReentrantLock();
+
+  /**
+   * Constructor which opens a log on the given stream.
+   *
+   * @param stream stream to which the log is written
+   * @throws IOException if the log header cannot be written
+   */
+  public ModelReplayLog(OutputStream stream) throws IOException {
+    out = new DataOutputStream(new BufferedOutputStream(stream));
+    out.writeInt(MAGIC);
+    out.writeByte(VERSION);
+  }
+
+  /**
+   * Builds a new seeded instance on the model and returns the entry which reproduces it. The entry
+   * is not written until {@link #write(Entry)} is called, so mutations can be added first.
+   *
+   * @param model model on which the instance is built
+   * @param index position of the instance within the run
+   * @return Entry
+   */
+  public Entry generate(ModelObject model, long index) {
+    long seed = seeds.nextLong();
+    long clockMillis = System.currentTimeMillis();
+    model.buildSeededModelInstance(seed, clockMillis);
+    return new Entry(model.getSchemaId(), model.getRequiredOnly(), seed, index, clockMillis);
+  }
+
+  /**
+   * Appends an entry to the log.
+   *
+   * @param entry entry to be written
+   * @throws IOException if the entry cannot be written
+   */
+  public void write(Entry entry) throws IOException {
+    lock.lock();
+    try {
+      Integer ref = schemaRefs.get(entry.schemaId);
+      if (ref == null) {
+        ref = schemaRefs.size();
+        schemaRefs.put(entry.schemaId, ref);
+        out.writeByte(SCHEMA_RECORD);
+        out.writeInt(ref);
+        writeString(entry.schemaId);
+      }
+      out.writeByte(INSTANCE_RECORD);
+      out.writeInt(ref);
+      out.writeBoolean(entry.requiredOnly);
+      out.writeLong(entry.seed);
+      out.writeLong(entry.index);
+      out.writeLong(entry.clockMillis);
+      out.writeInt(entry.edits.size());
+      for (MetadataEditor.Edit edit : entry.edits) {
+        out.writeByte(edit.remove ? REMOVE_OP : SET_OP);
+        writeString(edit.path);
+        if (!edit.remove) {
+          writeString(edit.value.toString());
+        }
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public void flush() throws IOException {
+    lock.lock();
+    try {
+      out.flush();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    lock.lock();
+    try {
+      out.close();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Reads all of the entries of a log. The stream is closed once the log has been read.
+   *
+   * @param stream stream from which the log is read
+   * @return List of entries, in the order they were written
+   * @throws IOException if the stream is not a replay log or cannot be read
+   */
+  public static List<Entry> read(InputStream stream) throws IOException {
+    List<Entry> entries = new ArrayList<Entry>();
+    Map<Integer, String> schemaIds = new HashMap<Integer, String>();
+    try (DataInputStream in = new DataInputStream(new BufferedInputStream(stream))) {
+      if (in.readInt() != MAGIC || in.readByte() != VERSION) {
+        throw new IOException("The stream is not a supported replay log");
+      }
+      while (true) {
+        int record;
+        try {
+          record = in.readByte();
+        } catch (EOFException e) {
+          break;
+        }
+        int ref = in.readInt();
+        if (record == SCHEMA_RECORD) {
+          schemaIds.put(ref, readString(in));
+        } else if (record == INSTANCE_RECORD) {
+          Entry entry = new Entry(schemaIds.get(ref), in.readBoolean(), in.readLong(),
+              in.readLong(), in.readLong());
+          int editCount = in.readInt();
+          for (int i = 0; i < editCount; i++) {
+            byte op = in.readByte();
+            String path = readString(in);
+            if (op == REMOVE_OP) {
+              entry.remove(path);
+            } else {
+              JsonNode value = mapper.readTree(readString(in));
+              entry.edits.add(new MetadataEditor.Edit(path, value, false));
+            }
+          }
+          entries.add(entry);
+        } else {
+          throw new IOException("Unknown replay log record: " + record);
+        }
+      }
+    }
+    return entries;
+  }
+
+  private void writeString(String value) throws IOException {
+    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+
+  private static String readString(DataInputStream in) throws IOException {
+    byte[] bytes = new byte[in.readInt()];
+    in.readFully(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Record of a single generated instance.
+   */
+  public static class Entry {
+    private final String schemaId;
+    private final boolean requiredOnly;
+    private final long seed;
+    private final long index;
+    private final long clockMillis;
+    private final List<MetadataEditor.Edit> edits = new ArrayList<MetadataEditor.Edit>();
+
+    /**
+     * Constructor for an entry with no mutations.
+     *
+     * @param schemaId id of the schema, as returned by {@link ModelObject#getSchemaId()}
+     * @param requiredOnly whether only the required nodes of the schema were generated
+     * @param seed seed from which the instance was generated
+     * @param index position of the instance within the run
+     * @param clockMillis epoch milliseconds used as the current time when generating
+     */
+    public Entry(String schemaId, boolean requiredOnly, long seed, long index,
+        long clockMillis) {
+      this.schemaId = schemaId;
+      this.requiredOnly = requiredOnly;
+      this.seed = seed;
+      this.index = index;
+      this.clockMillis = clockMillis;
+    }
+
+    /**
+     * Records a value set on the instance after it was generated.
+     *
+     * @param path fully qualified path to the target node (i.e. /authorInfo/name)
+     * @param value value assigned to the node
+     * @return Entry
+     */
+    public Entry set(String path, Object value) {
+      JsonNode node = (value instanceof String) ? TextNode.valueOf((String) value)
+          : ModelDiff.toJsonNode(value);
+      edits.add(new MetadataEditor.Edit(path, node, false));
+      return this;
+    }
+
+    /**
+     * Records the removal of a node from the instance after it was generated.
+     *
+     * @param path fully qualified path to the removed node
+     * @return Entry
+     */
+    public Entry remove(String path) {
+      edits.add(new MetadataEditor.Edit(path, null, true));
+      return this;
+    }
+
+    /**
+     * Applies the recorded mutations to the current instance of a model.
+     *
+     * @param model model holding the instance
+     * @return ModelObject
+     */
+    public ModelObject applyTo(ModelObject model) {
+      model.applyMetadataEdits(edits);
+      return model;
+    }
+
+    /**
+     * Regenerates the instance on the given model, which must have been created from the same
+     * schema and with the same settings as the model originally used.
+     *
+     * @param model model on which the instance is regenerated
+     * @return Object the regenerated instance
+     */
+    public Object regenerate(ModelObject model) {
+      model.buildSeededModelInstance(seed, clockMillis);
+      applyTo(model);
+      return model.getMetadata();
+    }
+
+    /**
+     * Regenerates the instance on a new model loaded from the schema resource location.
+     *
+     * @return ModelObject model holding the regenerated instance
+     */
+    public ModelObject regenerate() {
+      if (schemaId == null || schemaId.startsWith("md5:")) {
+        throw new IllegalStateException(
+            "The schema was not loaded from a resource, use regenerate(ModelObject) instead");
+      }
+      ModelObject model = new ModelObject(schemaId);
+      model.setRequiredOnly(requiredOnly);
+      regenerate(model);
+      return model;
+    }
+
+    /**
+     *
+     * @return String id of the schema from which the instance was generated
+     */
+    public String getSchemaId() {
+      return schemaId;
+    }
+
+    /**
+     *
+     * @return boolean indicator of whether only the required nodes were generated
+     */
+    public boolean getRequiredOnly() {
+      return requiredOnly;
+    }
+
+    /**
+     *
+     * @return long seed from which the instance was generated
+     */
+    public long getSeed() {
+      return seed;
+    }
+
+    /**
+     *
+     * @return long position of the instance within the run
+     */
+    public long getIndex() {
+      return index;
+    }
+
+    /**
+     *
+     * @return long epoch milliseconds used as the current time when generating
+     */
+    public long getClockMillis() {
+      return clockMillis;
+    }
+
+    /**
+     *
+     * @return int number of mutations recorded for the instance
+     */
+    public int getMutationCount() {
+      return edits.size();
+    }
+  }
+}
@@ -12,20 +12,39 @@ governing permissions and limitations under the License.
 
 package com.adobe.ride.utilities.model.test;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
 import org.apache.commons.io.IOUtils;
 import org.json.simple.JSONArray;
 import org.json.simple.JSONObject;
+import org.json.simple.parser.JSONParser;
+import org.json.simple.parser.ParseException;
 import org.testng.Assert;
 import org.testng.annotations.Test;
+import com.adobe.ride.utilities.model.DataGenerator;
+import com.adobe.ride.utilities.model.GenerationStats;
+import com.adobe.ride.utilities.model.ModelItemStore;
 import com.adobe.ride.utilities.model.ModelObject;
+import com.adobe.ride.utilities.model.ModelReplayLog;
 import com.adobe.ride.utilities.model.exceptions.ModelSearchException;
 import com.adobe.ride.utilities.model.exceptions.UnexpectedModelPropertyTypeException;
 import com.adobe.ride.utilities.model.types.ModelPropertyType;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
 
 /**
  * 
@@ -313,6 +332,281 @@ public class ModelObjectTest {
     Assert.assertEquals(ModelObject.getModelPropertyType(model), ModelPropertyType.STRING);
   }
 
+  @Test(suiteName = "smoke", groups = "integration", enabled = true)
+  public void testSetAndGetMetadataValues() {
+    ModelObject testObj = new ModelObject("TestService", "article", null, false);
+    testObj.buildValidModelInstance();
+
+    Map<String, Object> values = new LinkedHashMap<String, Object>();
+    values.put("/title", "Bulk Title");
+    values.put("/authorInfo/name", "Gladys Phillips");
+    values.put("/isAd", true);
+    values.put("/newBranch/leaf", 42);
+    testObj.setMetadataValues(values);
+
+    Map<String, Object> retrieved = testObj.getMetadataValues(
+        Arrays.asList("/title", "/authorInfo/name", "/isAd", "/newBranch/leaf", "/doesNotExist"));
+    Assert.assertEquals(retrieved.get("/title").toString().replace("\"", ""), "Bulk Title");
+    Assert.assertEquals(retrieved.get("/authorInfo/name").toString().replace("\"", ""),
+        "Gladys Phillips");
+    Assert.assertEquals(retrieved.get("/isAd").toString(), "true");
+    Assert.assertEquals(retrieved.get("/newBranch/leaf").toString(), "42");
+    Assert.assertNull(retrieved.get("/doesNotExist"));
+  }
+
+  @Test(suiteName = "smoke", groups = "integration", enabled = true)
+  public void testMetadataEditor() {
+    ModelObject testObj = new ModelObject("TestService", "article", null, false);
+    testObj.buildValidModelInstance();
+    Assert.assertTrue(testObj.getObjectMetadata().containsKey("isAd"));
+
+    testObj.editMetadata().set("/title", "Edited").set("/authorInfo/name", "James Gosling")
+        .remove("/isAd").apply();
+
+    Assert.assertEquals(testObj.getObjectMetadata().get("title"), "Edited");
+    Assert.assertFalse(testObj.getObjectMetadata().containsKey("isAd"));
+    Assert.assertEquals(testObj.getMetadataValue("/authorInfo", "name").toString()
+        .replace("\"", ""), "James Gosling");
+  }
+
+  @Test(suiteName = "smoke", groups = "integration", enabled = true)
+  public void testEditMetadataRejectsRootPaths() {
+    ModelObject testObj = new ModelObject("TestService", "article", null, false);
+    testObj.buildValidModelInstance();
+    for (String path : new String[] {"/", "", null}) {
+      Assert.assertThrows(IllegalArgumentException.class,
+          () -> testObj.editMetadata().set(path, "value"));
+      Assert.assertThrows(IllegalArgumentException.class,
+          () -> testObj.editMetadata().remove(path));
+    }
+    Assert.assertTrue(testObj.getObjectMetadata().containsKey("title"));
+  }
+
+  @Test(suiteName = "smoke", groups = "integration", enabled = true)
+  public void testCreatePatches() {
+    ModelObject original = new ModelObject("TestService", "article", null, false);
+    original.buildValidModelInstance();
+    ModelObject updated = new ModelObject("TestService", "article", null, false);
+    updated.setObjectMetadata((JSONObject) original.getObjectMetadata().clone());
+    updated.editMetadata().set("/title", "Patched Title").set("/authorInfo/name", "Ada")
+        .remove("/isAd").apply();
+
+    Assert.assertEquals(original.createJsonPatch(original).size(), 0);
+    Assert.assertEquals(original.createMergePatch(original).size(), 0);
+
+    ArrayNode patch = original.createJsonPatch(updated);
+    Assert.assertEquals(patch.size(), 3);
+    Map<String, JsonNode> ops = new HashMap<String, JsonNode>();
+    for (JsonNode op : patch) {
+      ops.put(op.get("path").asText(), op);
+    }
+    Assert.assertEquals(ops.keySet(),
+        new HashSet<String>(Arrays.asList("/title", "/authorInfo/name", "/isAd")));
+    Assert.assertEquals(ops.get("/title").get("op").asText(), "replace");
+    Assert.assertEquals(ops.get("/title").get("value").asText(), "Patched Title");
+    Assert.assertEquals(ops.get("/authorInfo/name").get("value").asText(), "Ada");
+    Assert.assertEquals(ops.get("/isAd").get("op").asText(), "remove");
+    Assert.assertFalse(ops.get("/isAd").has("value"));
+
+    JsonNode mergePatch = original.createMergePatch(updated);
+    Assert.assertEquals(mergePatch.get("title").asText(), "Patched Title");
+    Assert.assertEquals(mergePatch.get("authorInfo").size(), 1);
+    Assert.assertTrue(mergePatch.get("isAd").isNull());
+  }
+
+  /**
+   * Subtree which counts how often its fields are read, so a test can tell whether it was walked.
+   */
+  @SuppressWarnings({"serial", "rawtypes"})
+  private static class CountingJSONObject extends JSONObject {
+    private int reads = 0;
+
+    @SuppressWarnings("unchecked")
+    CountingJSONObject(Map content) {
+      putAll(content);
+    }
+
+    @Override
+    public Set keySet() {
+      reads++;
+      return super.keySet();
+    }
+
+    @Override
+    public Set entrySet() {
+      reads++;
+      return super.entrySet();
+    }
+
+    @Override
+    public Object get(Object key) {
+      reads++;
+      return super.get(key);
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+      reads++;
+      return super.containsKey(key);
+    }
+  }
+
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  @Test(suiteName = "smoke", groups = "integration", enabled = true)
+  public void testCreatePatchesSkipSharedSubtrees() {
+    ModelObject original = new ModelObject("TestService", "article", null, false);
+    original.buildValidModelInstance();
+    CountingJSONObject shared =
+        new CountingJSONObject((Map) original.getObjectMetadata().get("authorInfo"));
+    original.getObjectMetadata().put("authorInfo", shared);
+    ModelObject updated = new ModelObject("TestService", "article", null, false);
+    updated.setObjectMetadata((JSONObject) original.getObjectMetadata().clone());
+    updated.getObjectMetadata().put("title", "Shared Author");
+    shared.reads = 0;
+
+    ArrayNode patch = original.createJsonPatch(updated);
+    Assert.assertEquals(patch.size(), 1);
+    Assert.assertEquals(patch.get(0).get("path").asText(), "/title");
+    Assert.assertEquals(original.createMergePatch(updated).size(), 1);
+    Assert.assertEquals(shared.reads, 0);
+
+    // the same content, no longer shared, is walked
+    JSONObject copy = new JSONObject();
+    copy.putAll(shared);
+    updated.getObjectMetadata().put("authorInfo", copy);
+    shared.reads = 0;
+    Assert.assertEquals(original.createJsonPatch(updated).size(), 1);
+    Assert.assertTrue(shared.reads > 0);
+  }
+
+  @Test(suiteName = "smoke", groups = "integration", enabled = true,
+      dependsOnMethods = {"testInstantiateModel"})
+  public void testLazyModelInstance() {
+    ModelObject obj = new ModelObject("TestService", "article", null, false);
+    obj.setLazy(true);
+    obj.buildValidModelInstance();
+    int pending = obj.getPendingNodes().size();
+    Assert.assertTrue(pending > 2);
+
+    Object title = obj.getMetadataValue("/", "title");
+    Assert.assertNotNull(title);
+    Assert.assertFalse(obj.getPendingNodes().contains("/title"));
+    Assert.assertEquals(obj.getPendingNodes().size(), pending - 1);
+    // memoized on subsequent reads
+    Assert.assertEquals(obj.getMetadataValue("/", "title"), title);
+
+    obj.setMetadataValue("/authorInfo", "name", "Ada");
+    Assert.assertFalse(obj.getPendingNodes().contains("/authorInfo"));
+
+    JSONObject instance = obj.getObjectMetadata();
+    Assert.assertTrue(obj.getPendingNodes().isEmpty());
+    Assert.assertEquals(((JSONObject) instance.get("authorInfo")).get("name"), "Ada");
+  }
+
+  @SuppressWarnings("unchecked")
+  @Test(suiteName = "smoke", groups = "integration", enabled = true)
+  public void testItemStore() throws IOException, ParseException {
+    ModelObject testArray = new ModelObject("TestService", "profile", null, false);
+    ModelItemStore store = testArray.buildValidItemStore();
+    Assert.assertTrue(store.size() > 0);
+    Set<String> control =
+        ModelObject.getObjectNodeProperties(testArray, testArray.getModel()).keySet();
+    for (JsonNode item : store) {
+      for (String key : control) {
+        Assert.assertTrue(item.has(key));
+      }
+    }
+
+    JSONObject replacement = new JSONObject();
+    replacement.put("name", "replaced");
+    testArray.getItemStore().set(0, replacement);
+    Assert.assertEquals(store.get(0).get("name").asText(), "replaced");
+
+    String streamed = IOUtils.toString(store.asInputStream(), Charset.forName("UTF-8"));
+    Assert.assertEquals(streamed, store.toString());
+    JSONArray parsed = (JSONArray) new JSONParser().parse(streamed);
+    Assert.assertEquals(parsed.size(), store.size());
+    Assert.assertEquals(testArray.getObjectItems(), parsed);
+
+    ModelItemStore large = ModelItemStore.generate(2500, 100, i -> i);
+    Assert.assertEquals(large.size(), 2500);
+    Assert.assertEquals(large.get(1234).asInt(), 1234);
+    Assert.assertEquals(((JSONArray) new JSONParser()
+        .parse(IOUtils.toString(large.asInputStream(), Charset.forName("UTF-8")))).size(), 2500);
+  }
+
+  @Test(suiteName = "smoke", groups = "integration", enabled = true)
+  public void testSeededItemStoreLeavesPoolThreadsUnseeded() throws Exception {
+    // enough items for several chunks, built in a pool of its own so that several threads
+    // generate them whatever the number of processors
+    ModelObject numbers = new ModelObject("{\"type\":\"array\",\"maxItems\":8192,"
+        + "\"items\":{\"type\":\"integer\",\"maximum\":1000000000}}", false);
+    Callable<String> seededBuild = () -> {
+      DataGenerator.setSeed(42, 0);
+      try {
+        String items = numbers.buildValidItemStore().toString();
+        Assert.assertEquals(DataGenerator.getSeed(), Long.valueOf(42));
+        return items;
+      } finally {
+        DataGenerator.clearSeed();
+      }
+    };
+    ForkJoinPool pool = new ForkJoinPool(4);
+    try {
+      String seeded = pool.submit(seededBuild).get();
+      Assert.assertEquals(pool.submit(seededBuild).get(), seeded);
+      long seededThreads = pool.submit(() -> IntStream.range(0, 10000).parallel()
+          .mapToObj(i -> DataGenerator.getSeed()).filter(Objects::nonNull).count()).get();
+      Assert.assertEquals(seededThreads, 0);
+
+      ModelItemStore unseeded = pool.submit(() -> numbers.buildValidItemStore()).get();
+      Assert.assertNotEquals(unseeded.toString(), seeded);
+      Assert.assertNotEquals(pool.submit(() -> numbers.buildValidItemStore()).get().toString(),
+          unseeded.toString());
+      Set<String> distinct = new HashSet<String>();
+      for (JsonNode item : unseeded) {
+        distinct.add(item.asText());
+      }
+      Assert.assertTrue(distinct.size() > unseeded.size() / 2);
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  @Test(suiteName = "smoke", groups = "integration", enabled = true)
+  public void testReplayLog() throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    ModelReplayLog log = new ModelReplayLog(out);
+    ModelObject original = new ModelObject("TestService", "article", null, false);
+    ModelReplayLog.Entry entry = log.generate(original, 7);
+    entry.set("/title", "Fuzzed Title").remove("/isAd").applyTo(original);
+    log.write(entry);
+    log.close();
+
+    List<ModelReplayLog.Entry> entries =
+        ModelReplayLog.read(new ByteArrayInputStream(out.toByteArray()));
+    Assert.assertEquals(entries.size(), 1);
+    ModelReplayLog.Entry replayed = entries.get(0);
+    Assert.assertEquals(replayed.getIndex(), 7);
+    Assert.assertEquals(replayed.getSeed(), entry.getSeed());
+    Assert.assertEquals(replayed.getMutationCount(), 2);
+
+    ModelObject reproduced = new ModelObject("TestService", "article", null, false);
+    replayed.regenerate(reproduced);
+    Assert.assertEquals(reproduced.getObjectMetadata().get("title"), "Fuzzed Title");
+    Assert.assertEquals(original.createJsonPatch(reproduced).size(), 0);
+  }
+
+  @Test(suiteName = "smoke", groups = "integration", enabled = true)
+  public void testGenerationStats() {
+    long instances = GenerationStats.getInstanceCount();
+    long nanos = GenerationStats.getGenerationNanos();
+    ModelObject model = new ModelObject("TestService", "article", null, false);
+    model.generateModelInstances(3);
+    Assert.assertTrue(GenerationStats.getInstanceCount() >= instances + 3);
+    Assert.assertTrue(GenerationStats.getGenerationNanos() > nanos);
+  }
+
   // TODO: Implement this test
   /*-
   @Test(suiteName = "smoke", groups = "integration", enabled = true,